@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.benchmark;
+
+import org.broad.igv.Globals;
+import org.broad.igv.bbfile.BBFileReader;
+import org.broad.igv.bbfile.BigBedIterator;
+import org.broad.igv.bbfile.BigWigIterator;
+import org.broad.igv.feature.genome.fasta.FastaIndexedSequence;
+import org.broad.igv.feature.genome.fasta.FastaUtils;
+import org.broad.igv.feature.tribble.IGVBEDCodec;
+import org.broad.igv.tools.SyntheticDataGenerator;
+import org.broad.igv.util.TestUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and random access for BED,  bigBed / bigWig and indexed FASTA.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FileFormatBenchmark {
+
+    static final int FASTA_LENGTH = 10000000;
+
+    List<String> bedLines;
+    IGVBEDCodec codec;
+
+    BBFileReader bigBedReader;
+    BBFileReader bigWigReader;
+
+    File fastaFile;
+    FastaIndexedSequence fasta;
+    int[] fastaQueries;
+
+    @Setup
+    public void setup() throws Exception {
+        Globals.setHeadless(true);
+        TestUtils.setUpTestEnvironment();
+
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(1);
+        bedLines = generator.bedLines("chr1", 200000000, 10000);
+        codec = new IGVBEDCodec();
+
+        bigBedReader = new BBFileReader(TestUtils.DATA_DIR + "bb/chr21.refseq.bb");
+        bigWigReader = new BBFileReader(TestUtils.DATA_DIR + "wig/dummy_var_sample.bigwig");
+
+        fastaFile = File.createTempFile("benchmark", ".fa");
+        generator.writeFasta(fastaFile, "chr1", FASTA_LENGTH);
+        FastaUtils.createIndexFile(fastaFile.getAbsolutePath(), fastaFile.getAbsolutePath() + ".fai");
+        fasta = new FastaIndexedSequence(fastaFile.getAbsolutePath());
+
+        Random random = new Random(1);
+        fastaQueries = new int[100];
+        for (int i = 0; i < fastaQueries.length; i++) {
+            fastaQueries[i] = random.nextInt(FASTA_LENGTH - 10000);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        fastaFile.delete();
+        new File(fastaFile.getAbsolutePath() + ".fai").delete();
+    }
+
+    @Benchmark
+    public void decodeBed(Blackhole bh) {
+        for (String line : bedLines) {
+            bh.consume(codec.decode(line));
+        }
+    }
+
+    @Benchmark
+    public void iterateBigBed(Blackhole bh) {
+        BigBedIterator iter = bigBedReader.getBigBedIterator("chr21", 0, "chr21", Integer.MAX_VALUE, false);
+        while (iter.hasNext()) {
+            bh.consume(iter.next());
+        }
+    }
+
+    @Benchmark
+    public void iterateBigWig(Blackhole bh) {
+        for (String chr : bigWigReader.getChromosomeNames()) {
+            BigWigIterator iter = bigWigReader.getBigWigIterator(chr, 0, chr, Integer.MAX_VALUE, false);
+            while (iter.hasNext()) {
+                bh.consume(iter.next());
+            }
+        }
+    }
+
+    @Benchmark
+    public void fastaGetSequence(Blackhole bh) {
+        for (int start : fastaQueries) {
+            bh.consume(fasta.getSequence("chr1", start, start + 10000, false));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.benchmark;
+
+import htsjdk.samtools.util.CloseableIterator;
+import org.broad.igv.tools.SyntheticDataGenerator;
+import org.broad.igv.tools.sort.AsciiSorter;
+import org.broad.igv.tools.sort.SortableRecord;
+import org.broad.igv.tools.sort.SortableRecordCodec;
+import org.broad.igv.util.collections.SortingCollection;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * External sort of one million records,  spilling to disk every 100,000 records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortingCollectionBenchmark {
+
+    @Param({"1", "4"})
+    int threads;
+
+    @Param({"false", "true"})
+    boolean compressSpills;
+
+    List<SortableRecord> records;
+    File tmpDir;
+
+    @Setup
+    public void setup() throws Exception {
+        records = new SyntheticDataGenerator(1).sortableRecords(1000000, 24, 200000000);
+        tmpDir = Files.createTempDirectory("benchmark").toFile();
+    }
+
+    @TearDown
+    public void tearDown() {
+        tmpDir.delete();
+    }
+
+    @Benchmark
+    public void sort(Blackhole bh) {
+        SortingCollection<SortableRecord> cltn = SortingCollection.newInstance(SortableRecord.class,
+                new SortableRecordCodec(), AsciiSorter.getDefaultComparator(), 100000, tmpDir);
+        cltn.setThreads(threads);
+        cltn.setCompressSpills(compressSpills);
+        for (SortableRecord record : records) {
+            cltn.add(record);
+        }
+        CloseableIterator<SortableRecord> iter = cltn.iterator();
+        while (iter.hasNext()) {
+            bh.consume(iter.next());
+        }
+        iter.close();
+        cltn.cleanup();
+    }
+}
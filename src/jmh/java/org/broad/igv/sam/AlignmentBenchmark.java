@@ -0,0 +1,109 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import org.broad.igv.Globals;
+import org.broad.igv.sam.reader.AlignmentReader;
+import org.broad.igv.sam.reader.AlignmentReaderFactory;
+import org.broad.igv.tools.SyntheticDataGenerator;
+import org.broad.igv.util.ResourceLocator;
+import org.broad.igv.util.TestUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alignment loading,  packing and coverage counting.  Counting and packing use synthetic alignments,  loading reads
+ * the test BAM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AlignmentBenchmark {
+
+    static final String CHR = "chr22";
+    static final int START = 24370000;
+    static final int END = 24380000;
+
+    AlignmentTileLoader loader;
+    AlignmentDataManager.DownsampleOptions downsampleOptions;
+
+    List<Alignment> alignments;
+    AlignmentInterval interval;
+    AlignmentTrack.RenderOptions renderOptions;
+
+    @Setup
+    public void setup() throws Exception {
+        Globals.setHeadless(true);
+        TestUtils.setUpTestEnvironment();
+
+        AlignmentReader reader = AlignmentReaderFactory.getReader(new ResourceLocator(TestUtils.DATA_DIR + "bam/gstt1_sample.bam"));
+        loader = new AlignmentTileLoader(reader);
+        downsampleOptions = new AlignmentDataManager.DownsampleOptions(false, 50, 100);
+
+        alignments = new SyntheticDataGenerator(1).alignments(CHR, START, END, 100, 100);
+        interval = new AlignmentInterval(CHR, START, END, alignments, null, null, null);
+        renderOptions = new AlignmentTrack.RenderOptions();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        loader.close();
+    }
+
+    @Benchmark
+    public int loadTile() {
+        AlignmentTileLoader.AlignmentTile tile = loader.loadTile(CHR, START, END, null, downsampleOptions, null, null, null);
+        return tile.getAlignments().size();
+    }
+
+    @Benchmark
+    public Object packAlignments() {
+        return new AlignmentPacker().packAlignments(interval, renderOptions);
+    }
+
+    @Benchmark
+    public AlignmentCounts denseIncCounts() {
+        AlignmentCounts counts = new DenseAlignmentCounts(START, END + 200, null);
+        for (Alignment alignment : alignments) {
+            counts.incCounts(alignment);
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public AlignmentCounts packedIncCounts() {
+        AlignmentCounts counts = new PackedAlignmentCounts(START, END + 200, null);
+        for (Alignment alignment : alignments) {
+            counts.incCounts(alignment);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.tdf;
+
+import org.broad.igv.Globals;
+import org.broad.igv.util.ResourceLocator;
+import org.broad.igv.util.TestUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and decoding every tile of the raw datasets of a test TDF file,  bypassing the dataset tile cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TDFReaderBenchmark {
+
+    TDFReader reader;
+    List<TDFDataset> datasets;
+
+    @Setup
+    public void setup() throws Exception {
+        Globals.setHeadless(true);
+        TestUtils.setUpTestEnvironment();
+
+        reader = new TDFReader(new ResourceLocator(TestUtils.DATA_DIR + "tdf/hg18_var_sample.wig.v2.2.1.tdf"));
+        datasets = new ArrayList<TDFDataset>();
+        for (String name : reader.getDatasetNames()) {
+            if (name.endsWith("/raw")) {
+                datasets.add(reader.getDataset(name));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        reader.close();
+    }
+
+    @Benchmark
+    public void readTiles(Blackhole bh) {
+        for (TDFDataset ds : datasets) {
+            for (int t = 0; t < ds.nTiles; t++) {
+                bh.consume(reader.readTile(ds, t));
+            }
+        }
+    }
+}
@@ -124,6 +124,8 @@ public class CommandExecutor {
             } else if (cmd.equalsIgnoreCase("snapshot")) {
                 String filename = param1;
                 result = createSnapshot(filename, param2);
+            } else if (cmd.equalsIgnoreCase("snapshotall")) {
+                result = createSnapshots(param1, param2, param3);
             } else if ((cmd.equalsIgnoreCase("loadfile") || cmd.equalsIgnoreCase("load")) && param1 != null) {
                 result = load(param1, param2, param3, param4);
             } else if (cmd.equalsIgnoreCase("genome") && args.size() > 1) {
@@ -892,6 +894,55 @@ public class CommandExecutor {
     }
 
 
+    /**
+     * Create a snapshot of each region in {@code regionFile},  rendered offscreen and in parallel.  Snapshots are
+     * written to the snapshot directory if set,  otherwise the current directory.
+     *
+     * @param regionFile bed file of regions
+     * @param extension  image format,  png (default),  jpg,  or svg
+     * @param threads    number of regions rendered concurrently,  defaults to the number of processors
+     */
+    private String createSnapshots(String regionFile, String extension, String threads) {
+
+        if (regionFile == null) {
+            return "ERROR: missing region file";
+        }
+
+        List<String> loci;
+        try {
+            loci = ParsingUtils.loadRegions(getFile(regionFile));
+        } catch (URISyntaxException e) {
+            log.error("Error parsing path: " + regionFile, e);
+            return "Error parsing path: " + regionFile;
+        }
+        if (loci == null) {
+            return "ERROR: could not read regions from " + regionFile;
+        }
+
+        int nThreads = Runtime.getRuntime().availableProcessors();
+        if (threads != null) {
+            try {
+                nThreads = Integer.parseInt(threads);
+            } catch (NumberFormatException e) {
+                return "ERROR: number of threads is not an integer: " + threads;
+            }
+        }
+
+        File directory = snapshotDirectory == null ? new File(".") : snapshotDirectory;
+        try {
+            SnapshotRenderer renderer = SnapshotRenderer.fromSession(nThreads);
+            int n = renderer.renderAll(loci, directory, extension == null ? ".png" : extension);
+            log.info("Created " + n + " of " + loci.size() + " snapshots in " + directory.getAbsolutePath());
+            return n == loci.size() ? "OK" : "ERROR: created " + n + " of " + loci.size() + " snapshots";
+        } catch (IllegalArgumentException e) {
+            return "ERROR: " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "ERROR: interrupted";
+        }
+    }
+
+
     private static void createParents(File outputFile) {
         File parent = outputFile.getParentFile();
         if (!parent.exists()) {
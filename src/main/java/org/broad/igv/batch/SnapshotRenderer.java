@@ -0,0 +1,287 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.batch;
+
+import org.apache.batik.dom.GenericDOMImplementation;
+import org.apache.batik.svggen.SVGGraphics2D;
+import org.apache.log4j.Logger;
+import org.broad.igv.event.IGVEventBus;
+import org.broad.igv.feature.Locus;
+import org.broad.igv.track.RenderContext;
+import org.broad.igv.track.Track;
+import org.broad.igv.track.TrackGroup;
+import org.broad.igv.ui.IGV;
+import org.broad.igv.ui.UIConstants;
+import org.broad.igv.ui.panel.DataPanelPainter;
+import org.broad.igv.ui.panel.FrameManager;
+import org.broad.igv.ui.panel.ReferenceFrame;
+import org.broad.igv.ui.panel.TrackPanel;
+import org.broad.igv.ui.util.SnapshotFileChooser;
+import org.broad.igv.ui.util.SnapshotUtilities;
+import org.w3c.dom.Document;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders snapshots of the data panel for a list of loci without the Swing UI.  Each locus is painted into its own
+ * {@link ReferenceFrame} directly from the tracks,  so no components are laid out and nothing runs on the event
+ * thread.  Loci are rendered concurrently on a pool of workers and each image is written as soon as it is painted.
+ * <p>
+ * Each worker reuses a single offscreen frame.  Tracks cache loaded data by frame,  so a worker's cache is kept
+ * between snapshots and nearby loci assigned to the same worker are often rendered without reloading.
+ */
+public class SnapshotRenderer {
+
+    private static Logger log = Logger.getLogger(SnapshotRenderer.class);
+
+    static final int DEFAULT_WIDTH = 1000;
+
+    private final Collection<TrackGroup> groups;
+    private final int width;
+    private final int maxHeight;
+    private final int nThreads;
+
+    private final List<Worker> workers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger workerCount = new AtomicInteger();
+
+    /**
+     * @param groups    the track groups to paint,  in display order
+     * @param width     image width in pixels
+     * @param maxHeight maximum image height in pixels,  tracks below this are clipped
+     * @param nThreads  number of loci rendered concurrently
+     */
+    public SnapshotRenderer(Collection<TrackGroup> groups, int width, int maxHeight, int nThreads) {
+        this.groups = groups;
+        this.width = width;
+        this.maxHeight = maxHeight;
+        this.nThreads = Math.max(1, nThreads);
+    }
+
+    /**
+     * Create a renderer for the tracks of the current session,  at the width of the main data panel.
+     */
+    public static SnapshotRenderer fromSession(int nThreads) {
+        List<TrackGroup> groups = new ArrayList<>();
+        for (TrackPanel trackPanel : IGV.getInstance().getTrackPanels()) {
+            groups.addAll(trackPanel.getGroups());
+        }
+        int width = FrameManager.getDefaultFrame().getWidthInPixels();
+        return new SnapshotRenderer(groups, width > 0 ? width : DEFAULT_WIDTH, SnapshotUtilities.getMaxPanelHeight(), nThreads);
+    }
+
+    /**
+     * Render a snapshot of each locus to {@code outputDirectory}.  Files are named from the locus string,  with
+     * the given extension,  which determines the format (png, jpg, or svg).  Loci that cannot be resolved or
+     * rendered are logged and skipped.
+     *
+     * @return the number of snapshots written
+     */
+    public int renderAll(List<String> loci, File outputDirectory, String extension) throws InterruptedException {
+
+        if (!extension.startsWith(".")) {
+            extension = "." + extension;
+        }
+        final SnapshotFileChooser.SnapshotFileType type = SnapshotFileChooser.getSnapshotFileType(extension);
+        if (!isSupported(type)) {
+            throw new IllegalArgumentException("Unsupported snapshot format: " + extension);
+        }
+
+        final ThreadLocal<Worker> worker = ThreadLocal.withInitial(() -> {
+            Worker w = new Worker("snapshot " + workerCount.incrementAndGet());
+            workers.add(w);
+            return w;
+        });
+        final AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads, r -> {
+            Thread t = new Thread(r, "Snapshot renderer " + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        final AtomicInteger count = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>(loci.size());
+            for (String searchString : loci) {
+
+                // Resolve loci here,  searching is not thread safe
+                final Locus locus = FrameManager.getLocus(searchString);
+                if (locus == null) {
+                    log.error("Could not create snapshot. Unknown locus: " + searchString);
+                    continue;
+                }
+
+                final File file = new File(outputDirectory, getFilename(searchString, extension));
+                futures.add(pool.submit(() -> {
+                    try {
+                        worker.get().render(locus, file, type);
+                        count.incrementAndGet();
+                    } catch (Exception e) {
+                        log.error("Error creating snapshot " + file.getName(), e);
+                    }
+                }));
+            }
+
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    log.error("Error creating snapshot", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            for (Worker w : workers) {
+                FrameManager.removeOffscreenFrame(w.frame);
+            }
+            workers.clear();
+        }
+        return count.get();
+    }
+
+    /**
+     * Render a single locus on the calling thread.
+     */
+    public void render(Locus locus, File file) throws IOException {
+        String extension = file.getName().contains(".") ? file.getName().substring(file.getName().lastIndexOf('.')) : ".png";
+        SnapshotFileChooser.SnapshotFileType type = SnapshotFileChooser.getSnapshotFileType(extension);
+        if (!isSupported(type)) {
+            throw new IllegalArgumentException("Unsupported snapshot format: " + extension);
+        }
+        Worker w = new Worker("snapshot");
+        try {
+            w.render(locus, file, type);
+        } finally {
+            FrameManager.removeOffscreenFrame(w.frame);
+        }
+    }
+
+    static boolean isSupported(SnapshotFileChooser.SnapshotFileType type) {
+        return type == SnapshotFileChooser.SnapshotFileType.PNG ||
+                type == SnapshotFileChooser.SnapshotFileType.JPEG ||
+                type == SnapshotFileChooser.SnapshotFileType.SVG;
+    }
+
+    static String getFilename(String locusString, String extension) {
+        return locusString.replaceAll(":", "_").replace("-", "_").replaceAll("[\\s/\\\\]", "_") + extension;
+    }
+
+
+    /**
+     * Total height of the visible tracks,  laid out as in DataPanelPainter.
+     */
+    private int getHeight() {
+        int height = 0;
+        for (TrackGroup group : groups) {
+            if (group.isVisible()) {
+                if (groups.size() > 1) {
+                    height += UIConstants.groupGap;
+                }
+                for (Track track : group.getVisibleTracks()) {
+                    if (track != null && track.isVisible()) {
+                        height += track.getHeight();
+                    }
+                }
+            }
+        }
+        return Math.max(1, Math.min(height, maxHeight));
+    }
+
+
+    /**
+     * A frame and painter owned by a single rendering thread.
+     */
+    private class Worker {
+
+        final ReferenceFrame frame;
+        final DataPanelPainter painter = new DataPanelPainter();
+
+        Worker(String name) {
+            // Use a private event bus,  locus changes here should not move the main view
+            frame = new ReferenceFrame(FrameManager.getDefaultFrame(), new IGVEventBus());
+            frame.setName(name);
+            frame.setBounds(0, width);
+            FrameManager.addOffscreenFrame(frame);
+        }
+
+        void render(Locus locus, File file, SnapshotFileChooser.SnapshotFileType type) throws IOException {
+
+            frame.jumpTo(locus);
+
+            for (TrackGroup group : groups) {
+                if (group.isVisible()) {
+                    for (Track track : group.getVisibleTracks()) {
+                        if (track != null && track.isVisible() && !track.isReadyToPaint(frame)) {
+                            track.load(frame);
+                        }
+                    }
+                }
+            }
+
+            int height = getHeight();
+
+            if (type == SnapshotFileChooser.SnapshotFileType.SVG) {
+                Document document = GenericDOMImplementation.getDOMImplementation()
+                        .createDocument("http://www.w3.org/2000/svg", "svg", null);
+                SVGGraphics2D g = new SVGGraphics2D(document);
+                paint(g, height);
+                try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+                    g.stream(out, true);
+                }
+            } else {
+                BufferedImage image = SnapshotUtilities.getDeviceCompatibleImage(width, height);
+                Graphics2D g = image.createGraphics();
+                try {
+                    paint(g, height);
+                } finally {
+                    g.dispose();
+                }
+                String format = type == SnapshotFileChooser.SnapshotFileType.JPEG ? "jpeg" : "png";
+                if (!ImageIO.write(image, format, file)) {
+                    throw new IOException("No image writer for format " + format);
+                }
+            }
+        }
+
+        private void paint(Graphics2D g, int height) {
+            Rectangle rect = new Rectangle(0, 0, width, height);
+            g.setClip(rect);
+            RenderContext context = new RenderContext(null, g, frame, rect);
+            try {
+                painter.paint(groups, context, width, Color.white, rect);
+            } finally {
+                context.dispose();
+            }
+        }
+    }
+}
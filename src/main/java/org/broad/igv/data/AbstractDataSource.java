@@ -60,7 +60,8 @@ public abstract class AbstractDataSource implements DataSource {
     // DataManager dataManager;
     boolean cacheSummaryTiles = true;
     protected WindowFunction windowFunction = WindowFunction.mean;
-    LRUCache<String, SummaryTile> summaryTileCache = new LRUCache(10);
+    LRUCache<String, SummaryTile> summaryTileCache =
+            new LRUCache<>(10, Long.MAX_VALUE, SummaryTile::estimateSize);
     protected Genome genome;
 
     public AbstractDataSource(Genome genome) {
@@ -159,6 +160,38 @@ public abstract class AbstractDataSource implements DataSource {
 
     }
 
+    /**
+     * Return the summary scores as arrays,  concatenating the arrays cached with each summary tile.
+     */
+    @Override
+    public LocusScoreArray getSummaryScoreArray(String chr, int startLocation, int endLocation, int zoom) {
+
+        if (windowFunction != WindowFunction.none) {
+            List<LocusScore> scores = getPrecomputedSummaryScores(chr, startLocation, endLocation, zoom);
+            if (scores != null) {
+                return LocusScoreArray.fromScores(scores);
+            }
+        }
+
+        List<SummaryTile> tiles = getSummaryTilesForRange(chr, startLocation, endLocation, zoom);
+        if (tiles.size() == 1) {
+            return tiles.get(0).getScoreArray();
+        }
+
+        int size = 0;
+        for (SummaryTile tile : tiles) {
+            size += tile.getSize();
+        }
+        LocusScoreArray.Builder builder = new LocusScoreArray.Builder(size);
+        for (SummaryTile tile : tiles) {
+            LocusScoreArray tileScores = tile.getScoreArray();
+            for (int i = 0; i < tileScores.size(); i++) {
+                builder.add(tileScores, i);
+            }
+        }
+        return builder.build();
+    }
+
     private List<SummaryTile> getSummaryTilesForRange(String chr, int startLocation, int endLocation, int zReq) {
 
         int chrLength = getChrLength(chr);
@@ -197,9 +230,7 @@ public abstract class AbstractDataSource implements DataSource {
                     summaryTile = computeSummaryTile(chr, tileStart, tileEnd, 700);
 
                     if (cacheSummaryTiles && !FrameManager.isGeneListMode()) {
-                        synchronized (summaryTileCache) {
-                            summaryTileCache.put(key, summaryTile);
-                        }
+                        summaryTileCache.put(key, summaryTile);
                     }
                 }
 
@@ -231,7 +262,7 @@ public abstract class AbstractDataSource implements DataSource {
     SummaryTile computeSummaryTile(String chr, int startLocation, int endLocation, int nBins) {
 
         DataTile rawTile = getRawData(chr, startLocation, endLocation);
-        SummaryTile tile = new SummaryTile();
+        LocusScoreArray.Builder scores = new LocusScoreArray.Builder(nBins);
 
         if (rawTile != null && !rawTile.isEmpty() && nBins > 0) {
             int[] starts = rawTile.getStartLocations();
@@ -254,15 +285,13 @@ public abstract class AbstractDataSource implements DataSource {
                     String probeName = features == null ? null : features[i];
                     float v = values[i];
 
-                    BasicScore score = new NamedScore(s, e, v, probeName);
-                    tile.addScore(score);
+                    scores.add(new NamedScore(s, e, v, probeName));
 
                 }
 
 
             } else {
                 float normalizationFactor = 1.0f;
-                List<LocusScore> scores = new ArrayList(nBins);
                 double scale = (double) (endLocation - startLocation) / nBins;
 
                 Accumulator accumulator = new Accumulator(windowFunction, 5);
@@ -318,14 +347,12 @@ public abstract class AbstractDataSource implements DataSource {
                 if (accumulator.hasData()) {
                     scores.add(getCompositeScore(accumulator, accumulatedStart, accumulatedEnd));
                 }
-
-                tile.addAllScores(scores);
             }
 
         }
 
 
-        return tile;
+        return new SummaryTile(scores.build());
     }
 
     private LocusScore getCompositeScore(Accumulator accumulator, int accumulatedStart, int accumulatedEnd) {
@@ -25,7 +25,6 @@
 
 package org.broad.igv.data;
 
-import com.google.common.collect.Iterators;
 import org.apache.log4j.Logger;
 import org.broad.igv.feature.LocusScore;
 import org.broad.igv.session.IGVSessionReader;
@@ -93,14 +92,20 @@ public class CombinedDataSource implements DataSource {
     }
 
     public List<LocusScore> getSummaryScoresForRange(String chr, int startLocation, int endLocation, int zoom) {
+        return getSummaryScoreArray(chr, startLocation, endLocation, zoom);
+    }
+
+    @Override
+    public LocusScoreArray getSummaryScoreArray(String chr, int startLocation, int endLocation, int zoom) {
 
-        List<LocusScore> outerScores = this.source0.getSummaryScores(chr, startLocation, endLocation, zoom).getFeatures();
-        List<LocusScore> innerScores = this.source1.getSummaryScores(chr, startLocation, endLocation, zoom).getFeatures();
+        LocusScoreArray outerScores = LocusScoreArray.fromScores(
+                this.source0.getSummaryScores(chr, startLocation, endLocation, zoom).getFeatures());
+        LocusScoreArray innerScores = LocusScoreArray.fromScores(
+                this.source1.getSummaryScores(chr, startLocation, endLocation, zoom).getFeatures());
 
         int initialSize = outerScores.size() + innerScores.size();
-        List<LocusScore> combinedScoresList = new ArrayList<LocusScore>(initialSize);
 
-        if (initialSize == 0) return combinedScoresList;
+        if (initialSize == 0) return new LocusScoreArray(new int[0], new int[0], new float[0], 0);
 
         //TODO We assume that having no data from one source is the identity operation, that may not be true
         if (innerScores.size() == 0) return outerScores;
@@ -117,28 +122,28 @@ public class CombinedDataSource implements DataSource {
          * for the unique LocusScore which contains the generated interval.
          */
 
-        //Generate the boundaries for the new combined regions
-        Set<Integer> boundariesSet = new LinkedHashSet<Integer>(2 * initialSize);
-        Iterator<LocusScore> dualIter = Iterators.mergeSorted(Arrays.asList(innerScores.iterator(), outerScores.iterator()),
-                new Comparator<LocusScore>() {
-
-                    @Override
-                    public int compare(LocusScore o1, LocusScore o2) {
-                        return o1.getStart() - o2.getStart();
-                    }
-                });
-        while (dualIter.hasNext()) {
-            LocusScore score = dualIter.next();
-            boundariesSet.add(score.getStart());
-            boundariesSet.add(score.getEnd());
+        //Generate the boundaries for the new combined regions,  sorted and unique
+        int[] boundariesArray = new int[2 * initialSize];
+        int nBoundaries = 0;
+        for (LocusScoreArray scores : Arrays.asList(outerScores, innerScores)) {
+            for (int i = 0; i < scores.size(); i++) {
+                boundariesArray[nBoundaries++] = scores.getStart(i);
+                boundariesArray[nBoundaries++] = scores.getEnd(i);
+            }
         }
-        Integer[] boundariesArray = boundariesSet.toArray(new Integer[0]);
         Arrays.sort(boundariesArray);
+        int unique = 0;
+        for (int i = 0; i < nBoundaries; i++) {
+            if (i == 0 || boundariesArray[i] != boundariesArray[unique - 1]) {
+                boundariesArray[unique++] = boundariesArray[i];
+            }
+        }
 
+        LocusScoreArray.Builder combinedScores = new LocusScoreArray.Builder(unique);
         int outerScoreInd = 0;
         int innerScoreInd = 0;
         //Calculate value for each interval
-        for (int bb = 0; bb < boundariesArray.length - 1; bb++) {
+        for (int bb = 0; bb < unique - 1; bb++) {
             int start = boundariesArray[bb];
             int end = boundariesArray[bb + 1];
             //It shouldn't be possible for more than one LocusScore of either
@@ -146,75 +151,56 @@ public class CombinedDataSource implements DataSource {
             //were based on all start/ends of the inputs
             outerScoreInd = findContains(start, end, outerScores, Math.max(outerScoreInd, 0));
             innerScoreInd = findContains(start, end, innerScores, Math.max(innerScoreInd, 0));
-            LocusScore outerScore = getContains(outerScores, outerScoreInd);
-            LocusScore innerScore = getContains(innerScores, innerScoreInd);
 
-            if (outerScore == null && innerScore == null) continue;
-            float score = combineScores(outerScore, innerScore);
-            BasicScore newScore = new BasicScore(start, end, score);
-            combinedScoresList.add(newScore);
+            if (outerScoreInd < 0 && innerScoreInd < 0) continue;
+            float score = combineScores(
+                    outerScoreInd < 0 ? 0.0f : outerScores.getValue(outerScoreInd),
+                    innerScoreInd < 0 ? 0.0f : innerScores.getValue(innerScoreInd));
+            combinedScores.add(start, end, score);
         }
-        return combinedScoresList;
+        return combinedScores.build();
     }
 
     /**
-     * Search {@code scoresList} (must be sorted by start position) for a score which contains the interval specified
+     * Search {@code scores} (must be sorted by start position) for a score which contains the interval specified
      * by start/end. The first one which satisfies this requirement is returned.
      *
      * @param start
      * @param end
-     * @param scoresList
-     * @param startIndex Optimization, where to start searching in {@code scoresList}
+     * @param scores
+     * @param startIndex Optimization, where to start searching in {@code scores}
      **/
-    private int findContains(int start, int end, List<LocusScore> scoresList, int startIndex) {
-        for (int ii = startIndex; ii < scoresList.size(); ii++) {
-            LocusScore score = scoresList.get(ii);
-            if (score.getStart() <= start && score.getEnd() >= end) {
+    private int findContains(int start, int end, LocusScoreArray scores, int startIndex) {
+        for (int ii = startIndex; ii < scores.size(); ii++) {
+            if (scores.getStart(ii) <= start && scores.getEnd(ii) >= end) {
                 return ii;
-            } else if (score.getStart() >= end) {
+            } else if (scores.getStart(ii) >= end) {
                 return -1;
             }
         }
         return -1;
     }
 
-    private LocusScore getContains(List<LocusScore> scores, int index) {
-        if (index >= 0 && index < scores.size()) {
-            return scores.get(index);
-        } else {
-            return null;
-        }
-    }
-
     /**
-     * Combine the scores using this sources operation. Either can be null,
-     * in which case it is given the coordinates of the other and a score of 0.
-     * Both inputs cannot be null
+     * Combine the scores using this sources operation. A missing score is given a value of 0.
      *
      * @param score0
      * @param score1
      * @return
      */
-    private float combineScores(LocusScore score0, LocusScore score1) {
-        if (score0 == null && score1 == null) throw new IllegalArgumentException("Both inputs cannot be null");
-        if (score0 == null) {
-            score0 = new BasicScore(score1.getStart(), score1.getEnd(), 0.0f);
-        } else if (score1 == null) {
-            score1 = new BasicScore(score0.getStart(), score0.getEnd(), 0.0f);
-        }
-
+    private float combineScores(float score0, float score1) {
         switch (operation) {
             case ADD:
-                return score0.getScore() + score1.getScore();
+                return score0 + score1;
             case SUBTRACT:
-                return score0.getScore() - score1.getScore();
+                return score0 - score1;
             case MULTIPLY:
-                return score0.getScore() * score1.getScore();
+                return score0 * score1;
             case DIVIDE:
-                if (score1.getScore() == 0.0f) {
+                if (score1 == 0.0f) {
                     return 0.0f;
                 }
-                return score0.getScore() / score1.getScore();
+                return score0 / score1;
             default:
                 throw new IllegalStateException("Operation not recognized: " + operation);
         }
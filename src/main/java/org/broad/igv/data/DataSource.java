@@ -52,6 +52,14 @@ public interface DataSource {
             int endLocation,
             int zoom);
 
+    /**
+     * Return the summary scores as parallel arrays.  The default converts the result of getSummaryScoresForRange,
+     * sources that can produce arrays directly should override.
+     */
+    default LocusScoreArray getSummaryScoreArray(String chr, int startLocation, int endLocation, int zoom) {
+        return LocusScoreArray.fromScores(getSummaryScoresForRange(chr, startLocation, endLocation, zoom));
+    }
+
     TrackType getTrackType();
 
     void setWindowFunction(WindowFunction statType);
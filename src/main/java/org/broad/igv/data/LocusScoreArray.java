@@ -0,0 +1,205 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.data;
+
+import org.broad.igv.feature.LocusScore;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Summary scores as parallel arrays of start,  end,  and value,  sorted by start.  Renderers can read the arrays
+ * directly rather than allocating a score object per bin.
+ * <p/>
+ * The arrays can also be used as a {@code List<LocusScore>}.  Scores converted from objects,  e.g. NamedScore or
+ * CompositeScore with popup text,  keep the objects and return them from {@link #get(int)};  otherwise a BasicScore
+ * is created on demand.  The list is read only,  sub lists share the arrays.
+ */
+public class LocusScoreArray extends AbstractList<LocusScore> implements RandomAccess {
+
+    // A kept score object,  e.g. a NamedScore (16 byte header, start, end, score, name reference)
+    static final long BYTES_PER_OBJECT = 40;
+
+    private final int[] starts;
+    private final int[] ends;
+    private final float[] values;
+
+    // Optional source objects,  entries can be null
+    private final LocusScore[] objects;
+
+    private final int offset;
+    private final int size;
+
+    public LocusScoreArray(int[] starts, int[] ends, float[] values, int size) {
+        this(starts, ends, values, null, 0, size);
+    }
+
+    private LocusScoreArray(int[] starts, int[] ends, float[] values, LocusScore[] objects, int offset, int size) {
+        this.starts = starts;
+        this.ends = ends;
+        this.values = values;
+        this.objects = objects;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * Return the scores as arrays,  without copying if they already are.
+     */
+    public static LocusScoreArray fromScores(List<? extends LocusScore> scores) {
+        if (scores == null) {
+            return null;
+        } else if (scores instanceof LocusScoreArray) {
+            return (LocusScoreArray) scores;
+        }
+        Builder builder = new Builder(scores.size());
+        for (LocusScore s : scores) {
+            builder.add(s);
+        }
+        return builder.build();
+    }
+
+    public int getStart(int index) {
+        return starts[offset + index];
+    }
+
+    public int getEnd(int index) {
+        return ends[offset + index];
+    }
+
+    public float getValue(int index) {
+        return values[offset + index];
+    }
+
+    @Override
+    public LocusScore get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int i = offset + index;
+        LocusScore score = objects == null ? null : objects[i];
+        return score != null ? score : new BasicScore(starts[i], ends[i], values[i]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public LocusScoreArray subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + size);
+        }
+        return new LocusScoreArray(starts, ends, values, objects, offset + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * Approximate heap footprint of the backing arrays in bytes,  and of the objects kept for the list view.
+     */
+    public long estimateSize() {
+        long bytes = 12L * starts.length;
+        if (objects != null) {
+            bytes += 8L * objects.length;
+            for (int i = offset; i < offset + size; i++) {
+                if (objects[i] != null) {
+                    bytes += BYTES_PER_OBJECT;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Accumulates scores in start order.
+     */
+    public static class Builder {
+
+        private int[] starts;
+        private int[] ends;
+        private float[] values;
+        private LocusScore[] objects;
+        private int size;
+
+        public Builder(int capacity) {
+            capacity = Math.max(capacity, 10);
+            starts = new int[capacity];
+            ends = new int[capacity];
+            values = new float[capacity];
+        }
+
+        public void add(int start, int end, float value) {
+            if (size == starts.length) {
+                int capacity = size + (size >> 1) + 1;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                values = Arrays.copyOf(values, capacity);
+                if (objects != null) {
+                    objects = Arrays.copyOf(objects, capacity);
+                }
+            }
+            starts[size] = start;
+            ends[size] = end;
+            values[size] = value;
+            size++;
+        }
+
+        /**
+         * Add a score,  keeping the object for the list view unless it is a plain BasicScore.
+         */
+        public void add(LocusScore score) {
+            add(score.getStart(), score.getEnd(), score.getScore());
+            if (score.getClass() != BasicScore.class) {
+                if (objects == null) {
+                    objects = new LocusScore[starts.length];
+                }
+                objects[size - 1] = score;
+            }
+        }
+
+        /**
+         * Add the score at {@code index} of another array.
+         */
+        public void add(LocusScoreArray scores, int index) {
+            LocusScore object = scores.objects == null ? null : scores.objects[scores.offset + index];
+            if (object != null) {
+                add(object);
+            } else {
+                add(scores.getStart(index), scores.getEnd(index), scores.getValue(index));
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public LocusScoreArray build() {
+            return new LocusScoreArray(starts, ends, values, objects, 0, size);
+        }
+    }
+}
@@ -30,8 +30,6 @@ package org.broad.igv.data;
 
 import org.broad.igv.feature.LocusScore;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 /**
@@ -42,41 +40,46 @@ import java.util.List;
  */
 public class SummaryTile {
 
-     private int startLocation;
-
-    List<LocusScore> summaryScores;
+    private final LocusScoreArray scores;
 
 
     public SummaryTile() {
-        summaryScores = new ArrayList(1000);
-    }
-
-    public SummaryTile(List<LocusScore> summaryScores) {
-        this.summaryScores = summaryScores;
+        this(new LocusScoreArray(new int[0], new int[0], new float[0], 0));
     }
 
-    public void addScore(LocusScore score) {
-        summaryScores.add(score);
+    public SummaryTile(List<? extends LocusScore> summaryScores) {
+        this.scores = LocusScoreArray.fromScores(summaryScores);
     }
 
 
-    public void addAllScores(Collection<? extends LocusScore> scores) {
-        summaryScores.addAll(scores);
+    public LocusScoreArray getScoreArray() {
+        return scores;
     }
 
 
+    /**
+     * Return the scores as a read only list,  backed by the arrays.
+     */
     public List<LocusScore> getScores() {
-        return summaryScores;
+        return scores;
     }
 
 
     public int getSize() {
-        return summaryScores.size();
+        return scores.size();
     }
 
 
     public boolean isEmpty() {
-        return summaryScores.isEmpty();
+        return scores.isEmpty();
+    }
+
+
+    /**
+     * Approximate heap footprint of the tile in bytes.
+     */
+    public long estimateSize() {
+        return scores.estimateSize();
     }
 
 
@@ -0,0 +1,280 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.data.seg;
+
+import org.broad.igv.data.BasicScore;
+import org.broad.igv.data.LocusScoreArray;
+import org.broad.igv.feature.FeatureUtils;
+import org.broad.igv.feature.LocusScore;
+import org.broad.igv.feature.genome.ChromosomeCoordinate;
+import org.broad.igv.feature.genome.Genome;
+import org.broad.igv.track.WindowFunction;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Whole genome summary of one sample's segments,  binned at several resolutions.  Each bin records the length
+ * weighted mean of the segments overlapping it,  which is what is drawn.  The minimum and maximum are recorded too,
+ * so a focal amplification or deletion smaller than a bin can optionally be shown at its full value instead.  Runs of
+ * identical adjacent bins are stored once,  and empty bins not at all,  so a level costs at most a few entries per
+ * segment.
+ * <p/>
+ * Coordinates are genome coordinates,  see {@link Genome#getGenomeCoordinate(String, int)}.
+ */
+public class SegmentSummary {
+
+    /**
+     * Bin counts of the finest and coarsest levels.  Each level has half the bins of the one before.  The finest is
+     * wider than any screen,  so one bin is never more than a pixel.
+     */
+    static final int MAX_BINS = 8192;
+    static final int MIN_BINS = 512;
+
+    private final Genome genome;
+    private final SegmentedDataSet dataset;
+    private final String sample;
+    private final double genomeLength;
+
+    // Finest level first
+    private final Level[] levels;
+
+    private SegmentSummary(Genome genome, SegmentedDataSet dataset, String sample, double genomeLength, Level[] levels) {
+        this.genome = genome;
+        this.dataset = dataset;
+        this.sample = sample;
+        this.genomeLength = genomeLength;
+        this.levels = levels;
+    }
+
+    /**
+     * Bin the segments of a sample in {@code dataset},  which are in chromosome coordinates.
+     */
+    public static SegmentSummary compute(Genome genome, SegmentedDataSet dataset, String sample) {
+
+        double genomeLength = Math.max(1, genome.getNominalLength() / 1000.0);
+        int nBins = MAX_BINS;
+        double binWidth = genomeLength / nBins;
+
+        // Sum of value * overlap,  and total overlap,  for the mean
+        double[] sum = new double[nBins];
+        double[] covered = new double[nBins];
+        float[] min = new float[nBins];
+        float[] max = new float[nBins];
+        Arrays.fill(min, Float.MAX_VALUE);
+        Arrays.fill(max, -Float.MAX_VALUE);
+
+        for (String chr : genome.getLongChromosomeNames()) {
+            List<LocusScore> chrSegments = dataset.getSegments(sample, chr);
+            if (chrSegments == null) {
+                continue;
+            }
+            for (LocusScore seg : chrSegments) {
+                float value = seg.getScore();
+                // Fractional genome coordinates,  so the overlap of segments shorter than 1 kb is not lost
+                double gStart = (genome.getCumulativeOffset(chr) + seg.getStart()) / 1000.0;
+                double gEnd = (genome.getCumulativeOffset(chr) + seg.getEnd()) / 1000.0;
+                if (gEnd <= gStart || Float.isNaN(value)) {
+                    continue;
+                }
+                int firstBin = Math.min(nBins - 1, (int) (gStart / binWidth));
+                int lastBin = Math.min(nBins - 1, (int) (Math.nextDown(gEnd) / binWidth));
+                for (int b = firstBin; b <= lastBin; b++) {
+                    double overlap = Math.min(gEnd, (b + 1) * binWidth) - Math.max(gStart, b * binWidth);
+                    if (overlap > 0) {
+                        sum[b] += value * overlap;
+                        covered[b] += overlap;
+                    }
+                    min[b] = Math.min(min[b], value);
+                    max[b] = Math.max(max[b], value);
+                }
+            }
+        }
+
+        int nLevels = Integer.numberOfTrailingZeros(MAX_BINS / MIN_BINS) + 1;
+        Level[] levels = new Level[nLevels];
+        for (int l = 0; l < nLevels; l++) {
+            if (l > 0) {
+                // Merge pairs of bins of the finer level in place
+                nBins /= 2;
+                for (int b = 0; b < nBins; b++) {
+                    sum[b] = sum[2 * b] + sum[2 * b + 1];
+                    covered[b] = covered[2 * b] + covered[2 * b + 1];
+                    min[b] = Math.min(min[2 * b], min[2 * b + 1]);
+                    max[b] = Math.max(max[2 * b], max[2 * b + 1]);
+                }
+            }
+            levels[l] = Level.encode(nBins, sum, covered, min, max);
+        }
+        return new SegmentSummary(genome, dataset, sample, genomeLength, levels);
+    }
+
+    /**
+     * Return the coarsest level with at least {@code widthInPixels} bins,  or the finest level if the width is
+     * unknown (<= 0).
+     */
+    Level getLevel(int widthInPixels) {
+        if (widthInPixels > 0) {
+            for (int l = levels.length - 1; l >= 0; l--) {
+                if (levels[l].nBins >= widthInPixels) {
+                    return levels[l];
+                }
+            }
+        }
+        return levels[0];
+    }
+
+    /**
+     * Return the score of each bin run for a view {@code widthInPixels} wide:  the length weighted mean of the
+     * segments,  or if {@code extremes} is true the minimum or maximum farther from zero.
+     */
+    public LocusScoreArray getScores(int widthInPixels, boolean extremes) {
+        return getLevel(widthInPixels).getScores(this, extremes);
+    }
+
+    /**
+     * Popup text at a genome position:  that of the source segment,  which carries its description,  followed by
+     * the summarized value if it differs.
+     */
+    private String getValueString(double position, int mouseX, WindowFunction windowFunction, float value) {
+        ChromosomeCoordinate coordinate = genome.getChromosomeCoordinate((int) position);
+        List<LocusScore> segments = dataset.getSegments(sample, coordinate.getChr());
+        LocusScore segment = segments == null ? null :
+                FeatureUtils.getFeatureAt(coordinate.getCoordinate(), 0, segments);
+        if (segment == null) {
+            return "Value: " + value;
+        }
+        String valueString = segment.getValueString(coordinate.getCoordinate(), mouseX, windowFunction);
+        return segment.getScore() == value ? valueString : valueString + "<br>Summarized value: " + value;
+    }
+
+    /**
+     * One resolution.  Parallel arrays,  one entry per run of identical adjacent bins,  in genome order.
+     */
+    static class Level {
+
+        final int nBins;
+        final int[] runStart;   // First bin of the run
+        final int[] runEnd;     // Bin after the last bin of the run
+        final float[] mean;
+        final float[] min;
+        final float[] max;
+
+        // Built on first use
+        private LocusScoreArray means;
+        private LocusScoreArray extremes;
+
+        Level(int nBins, int[] runStart, int[] runEnd, float[] mean, float[] min, float[] max) {
+            this.nBins = nBins;
+            this.runStart = runStart;
+            this.runEnd = runEnd;
+            this.mean = mean;
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * Encode bins,  a bin is empty if its minimum is greater than its maximum.
+         */
+        static Level encode(int nBins, double[] binSum, double[] binCovered, float[] binMin, float[] binMax) {
+
+            int[] runStart = new int[nBins];
+            int[] runEnd = new int[nBins];
+            float[] mean = new float[nBins];
+            float[] min = new float[nBins];
+            float[] max = new float[nBins];
+            int nRuns = 0;
+
+            for (int b = 0; b < nBins; b++) {
+                if (binMin[b] > binMax[b]) {
+                    continue;
+                }
+                float binMean = binCovered[b] > 0 ? (float) (binSum[b] / binCovered[b]) : binMin[b];
+                int last = nRuns - 1;
+                if (last >= 0 && runEnd[last] == b && mean[last] == binMean &&
+                        min[last] == binMin[b] && max[last] == binMax[b]) {
+                    runEnd[last] = b + 1;
+                } else {
+                    runStart[nRuns] = b;
+                    runEnd[nRuns] = b + 1;
+                    mean[nRuns] = binMean;
+                    min[nRuns] = binMin[b];
+                    max[nRuns] = binMax[b];
+                    nRuns++;
+                }
+            }
+
+            return new Level(nBins,
+                    Arrays.copyOf(runStart, nRuns),
+                    Arrays.copyOf(runEnd, nRuns),
+                    Arrays.copyOf(mean, nRuns),
+                    Arrays.copyOf(min, nRuns),
+                    Arrays.copyOf(max, nRuns));
+        }
+
+        int size() {
+            return runStart.length;
+        }
+
+        synchronized LocusScoreArray getScores(SegmentSummary summary, boolean showExtremes) {
+            LocusScoreArray scores = showExtremes ? extremes : means;
+            if (scores == null) {
+                double binWidth = summary.genomeLength / nBins;
+                int n = size();
+                LocusScoreArray.Builder builder = new LocusScoreArray.Builder(n);
+                for (int i = 0; i < n; i++) {
+                    float value = showExtremes ? (Math.abs(max[i]) >= Math.abs(min[i]) ? max[i] : min[i]) : mean[i];
+                    builder.add(new SummaryScore((int) (runStart[i] * binWidth), (int) (runEnd[i] * binWidth), value, summary));
+                }
+                scores = builder.build();
+                if (showExtremes) {
+                    extremes = scores;
+                } else {
+                    means = scores;
+                }
+            }
+            return scores;
+        }
+    }
+
+    /**
+     * A bin run,  with the popup text of the segment under the mouse.
+     */
+    static class SummaryScore extends BasicScore {
+
+        private final SegmentSummary summary;
+
+        SummaryScore(int start, int end, float score, SegmentSummary summary) {
+            super(start, end, score);
+            this.summary = summary;
+        }
+
+        @Override
+        public String getValueString(double position, int mouseX, WindowFunction windowFunction) {
+            return summary.getValueString(position, mouseX, windowFunction, getScore());
+        }
+    }
+}
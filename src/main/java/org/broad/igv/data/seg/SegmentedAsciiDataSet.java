@@ -32,14 +32,19 @@ package org.broad.igv.data.seg;
 
 //~--- non-JDK imports --------------------------------------------------------
 
+import org.apache.log4j.Logger;
 import org.broad.igv.feature.FeatureUtils;
 import org.broad.igv.feature.LocusScore;
 import org.broad.igv.feature.genome.Genome;
+import org.broad.igv.prefs.Constants;
+import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.track.TrackProperties;
 import org.broad.igv.track.TrackType;
 import org.broad.igv.util.ResourceLocator;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -47,6 +52,8 @@ import java.util.*;
  */
 public class SegmentedAsciiDataSet implements SegmentedDataSet {
 
+    private static Logger log = Logger.getLogger(SegmentedAsciiDataSet.class);
+
     //SegFileParser parser;
     TrackType trackType = TrackType.COPY_NUMBER;
     float dataMax = -Float.MAX_VALUE;
@@ -66,7 +73,14 @@ public class SegmentedAsciiDataSet implements SegmentedDataSet {
      */
     private Set<String> chromosomes = new HashSet();
     private List<String> headings = new ArrayList();
-    private Map<String, List<LocusScore>> wholeGenomeScoresCache = new HashMap();
+    /**
+     * Binned whole genome summaries by heading,  computed for all samples on first use
+     */
+    private Map<String, SegmentSummary> wholeGenomeSummaries = new ConcurrentHashMap<>();
+    /**
+     * Incremented when segments are added,  summaries computed from an earlier generation are discarded
+     */
+    private final AtomicInteger generation = new AtomicInteger();
     private long lastRefreshTime = 0;
     private TrackProperties trackProperties;
     Genome genome;
@@ -116,6 +130,10 @@ public class SegmentedAsciiDataSet implements SegmentedDataSet {
             chrSegments.put(chr, segmentList);
         }
         segmentList.add(new Segment(start, start, end, end, value, desc));
+        generation.incrementAndGet();
+        if (!wholeGenomeSummaries.isEmpty()) {
+            wholeGenomeSummaries.clear();
+        }
         dataMax = Math.max(dataMax, value);
         dataMin = Math.min(dataMin, value);
         if (value < 0) {
@@ -191,45 +209,44 @@ public class SegmentedAsciiDataSet implements SegmentedDataSet {
     }
 
     /**
-     * Method description
+     * Return the whole genome scores of a sample at the finest summary resolution.
      *
      * @param heading
      * @return
      */
     public List<LocusScore> getWholeGenomeScores(String heading) {
+        return getWholeGenomeScores(heading, 0);
+    }
 
+    /**
+     * Return the whole genome scores of a sample binned for a view {@code widthInPixels} wide,  rather than every
+     * segment converted to genome coordinates.  See {@link SegmentSummary}.
+     */
+    public List<LocusScore> getWholeGenomeScores(String heading, int widthInPixels) {
 
-        List<LocusScore> wholeGenomeScores = wholeGenomeScoresCache.get(heading);
-        if ((wholeGenomeScores == null) || wholeGenomeScores.isEmpty()) {
-
-            // Compute the smallest concievable feature that could be viewed on the
-            // largest screen.  Be conservative.   The smallest feature is one at
-            // the screen resolution scale in <chr units> / <pixel>
-            double minFeatureSize = 0; // ((double) genome.getLength()) / (maxScreenSize * locationUnit);
-
-            long offset = 0;
-            wholeGenomeScores = new ArrayList(1000);
-            for (String chr : genome.getLongChromosomeNames()) {
-                List<LocusScore> chrSegments = getSegments(heading, chr);
-                if (chrSegments != null) {
-                    int lastgEnd = -1;
-                    for (LocusScore score : chrSegments) {
-                        Segment seg = (Segment) score;
-                        int gStart = genome.getGenomeCoordinate(chr, seg.getStart());
-                        int gEnd = genome.getGenomeCoordinate(chr, seg.getEnd());
-                         if ((gEnd - gStart) > minFeatureSize) {
-                            wholeGenomeScores.add(new Segment(gStart, gStart, gEnd,
-                                    gEnd, seg.getScore(), seg.getDescription()));
-                        }
-                    }
-
-                }
-                offset += genome.getChromosome(chr).getLength();
+        SegmentSummary summary = wholeGenomeSummaries.get(heading);
+        if (summary == null) {
+            if (!segments.containsKey(heading)) {
+                return Collections.emptyList();
             }
-            wholeGenomeScoresCache.put(heading, wholeGenomeScores);
+            // Summarized when first drawn,  so samples scrolled out of view cost nothing
+            int g = generation.get();
+            summary = SegmentSummary.compute(genome, this, heading);
+            putSummary(heading, summary, g);
         }
-        return wholeGenomeScores;
+        boolean extremes = PreferencesManager.getPreferences().getAsBoolean(Constants.SEG_WHOLE_GENOME_EXTREMES);
+        return summary.getScores(widthInPixels, extremes);
+    }
 
+    /**
+     * Cache a summary computed from generation g of the segments.  If segments were added since,  the summary is
+     * removed again,  either here or by the clear in addSegment.
+     */
+    private void putSummary(String heading, SegmentSummary summary, int g) {
+        wholeGenomeSummaries.put(heading, summary);
+        if (generation.get() != g) {
+            wholeGenomeSummaries.remove(heading, summary);
+        }
     }
 
     /**
@@ -52,6 +52,14 @@ public interface SegmentedDataSet {
 
     List<LocusScore> getWholeGenomeScores(String heading);
 
+    /**
+     * Return whole genome scores for a view {@code widthInPixels} wide,  or <= 0 if unknown.  Implementations can
+     * summarize segments smaller than a pixel.
+     */
+    default List<LocusScore> getWholeGenomeScores(String heading, int widthInPixels) {
+        return getWholeGenomeScores(heading);
+    }
+
     boolean isLogNormalized();
 
 }
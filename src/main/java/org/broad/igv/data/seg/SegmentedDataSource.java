@@ -36,6 +36,7 @@ import org.broad.igv.data.DataSource;
 import org.broad.igv.feature.LocusScore;
 import org.broad.igv.track.TrackType;
 import org.broad.igv.track.WindowFunction;
+import org.broad.igv.ui.panel.FrameManager;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -115,7 +116,9 @@ public class SegmentedDataSource implements DataSource {
 
 
     public List<LocusScore> getWholeGenomeScores() {
-        return dataset.getWholeGenomeScores(trackIdentifier);
+        // The whole genome view is always in the default frame
+        int widthInPixels = FrameManager.getDefaultFrame().getWidthInPixels();
+        return dataset.getWholeGenomeScores(trackIdentifier, widthInPixels);
     }
 
 
@@ -27,7 +27,6 @@ package org.broad.igv.feature;
 
 //~--- non-JDK imports --------------------------------------------------------
 
-import com.jidesoft.utils.SortedList;
 import org.apache.log4j.Logger;
 import org.broad.igv.Globals;
 import org.broad.igv.feature.genome.Genome;
@@ -47,12 +46,20 @@ import java.util.*;
 public class FeatureDB {
 
     private static Logger log = Logger.getLogger(FeatureDB.class);
+
+    private static final int MAX_DUPLICATE_COUNT = 20;
+
+    // Lists of more features than this are indexed in parallel
+    private static final int PARALLEL_THRESHOLD = 10000;
+
     /**
-     * Map for all features other than genes.
+     * Index of all feature names.  Replaced,  rather than cleared,  so readers never see a partially cleared index.
      */
-    //private static Map<String, NamedFeature> featureMap = new HashMap(10000);
-    private static Map<String, List<NamedFeature>> featureMap = Collections.synchronizedSortedMap(new TreeMap<String, List<NamedFeature>>());
-    private static final int MAX_DUPLICATE_COUNT = 20;
+    private static volatile FeatureNameIndex featureMap = newIndex();
+
+    private static FeatureNameIndex newIndex() {
+        return new FeatureNameIndex(MAX_DUPLICATE_COUNT, FeatureComparator.get(true));
+    }
 
     public static void addFeature(NamedFeature feature, Genome genome) {
 
@@ -82,13 +89,13 @@ public class FeatureDB {
 
         final String name = feature.getName();
         if (name != null && name.length() > 0 && !name.equals(".")) {
-            featureMap.remove(name.toUpperCase());
+            featureMap.remove(name);
         }
         if (feature instanceof IGVFeature) {
             final IGVFeature igvFeature = (IGVFeature) feature;
             final String id = igvFeature.getIdentifier();
             if (id != null && id.length() > 0) {
-                featureMap.remove(id.toUpperCase());
+                featureMap.remove(id);
             }
 
             removeByAttributes(igvFeature, genome);
@@ -118,7 +125,7 @@ public class FeatureDB {
         if (attributes != null) {
             for (String value : attributes.values()) {
                 if (value.length() < 20) {
-                    featureMap.remove(value.toUpperCase());
+                    featureMap.remove(value);
                 }
             }
         }
@@ -134,34 +141,13 @@ public class FeatureDB {
      * @return true if successfully added, false if not
      */
     static boolean put(String name, NamedFeature feature, Genome genome) {
-        String key = name.toUpperCase();
         if (!Globals.isHeadless()) {
             Genome currentGenome = genome != null ? genome : GenomeManager.getInstance().getCurrentGenome();
             if (currentGenome != null && currentGenome.getChromosome(feature.getChr()) == null) {
                 return false;
             }
         }
-
-        synchronized (featureMap) {
-            List<NamedFeature> currentList = featureMap.get(key);
-            if (currentList == null) {
-                List<NamedFeature> newList = new SortedList<NamedFeature>(
-                        new ArrayList<>(), FeatureComparator.get(true));
-                boolean added = newList.add(feature);
-                if (added) {
-                    featureMap.put(key, newList);
-                }
-                return added;
-            } else {
-                // Don't let list grow without bounds
-                if (currentList.size() > MAX_DUPLICATE_COUNT) {
-                    return false;
-                }
-
-                return currentList.add(feature);
-
-            }
-        }
+        return featureMap.put(name, feature);
     }
 
     /*
@@ -209,15 +195,22 @@ public class FeatureDB {
 
 
     public static void addFeatures(List<htsjdk.tribble.Feature> features, Genome genome) {
-        for (htsjdk.tribble.Feature feature : features) {
-            if (feature instanceof IGVFeature)
-                addFeature((IGVFeature) feature, genome);
+        if (features.size() > PARALLEL_THRESHOLD) {
+            features.parallelStream().forEach(feature -> {
+                if (feature instanceof IGVFeature)
+                    addFeature((IGVFeature) feature, genome);
+            });
+        } else {
+            for (htsjdk.tribble.Feature feature : features) {
+                if (feature instanceof IGVFeature)
+                    addFeature((IGVFeature) feature, genome);
+            }
         }
     }
 
 
     public static void clearFeatures() {
-        featureMap.clear();
+        featureMap = newIndex();
     }
 
     static int size() {
@@ -228,8 +221,7 @@ public class FeatureDB {
      * Return a feature with the given name.
      */
     public static NamedFeature getFeature(String name) {
-        String nm = name.trim().toUpperCase();
-        List<NamedFeature> features = featureMap.get(nm);
+        List<NamedFeature> features = featureMap.get(name.trim());
 
         if (features != null) {
             return features.get(0);
@@ -244,21 +236,30 @@ public class FeatureDB {
      * for which name is at the beginning, including but not limited to
      * exact matches.
      * <p/>
-     * NOTE: "It is imperative that the user manually synchronize
-     * on [this sorted map] when iterating over any of its
-     * collection views, or the collections views of any of its
-     * subMap, headMap or tailMap views". See
-     * <a href="http://docs.oracle.com/javase/6/docs/api/java/util/Collections.html#synchronizedSortedMap%28java.util.SortedMap%29> here</a>
+     * The returned map is a snapshot,  it is not affected by later changes.
      *
      * @param name : Search string. Features which begin with this
      *             string will be found.
      * @return
      */
     static Map<String, List<NamedFeature>> getFeaturesMap(String name) {
-        String nm = name.trim().toUpperCase();
-        SortedMap<String, List<NamedFeature>> treeMap = (SortedMap) featureMap;
-        //Search is inclusive to first argument, exclusive to second
-        return treeMap.subMap(nm, nm + Character.MAX_VALUE);
+        return featureMap.getByPrefix(name.trim(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get a list of features with names containing the provided string,  anywhere in the name.
+     *
+     * @param name
+     * @param limit maximum number of names to match
+     * @return the longest feature for each matching name
+     */
+    public static List<NamedFeature> getFeaturesContaining(String name, int limit) {
+        Map<String, List<NamedFeature>> resultMap = featureMap.getBySubstring(name.trim(), limit);
+        List<NamedFeature> features = new ArrayList<NamedFeature>(resultMap.size());
+        for (List<NamedFeature> subFeats : resultMap.values()) {
+            features.add(subFeats.get(0));
+        }
+        return features;
     }
 
     /**
@@ -284,25 +285,16 @@ public class FeatureDB {
      */
     public static List<NamedFeature> getFeaturesList(String name, int limit, boolean longestOnly) {
 
-        //Note: We are iterating over submap, this needs
-        //to be synchronized over the main map.
-        synchronized (featureMap) {
-            Map<String, List<NamedFeature>> resultMap = getFeaturesMap(name);
-            Set<String> names = resultMap.keySet();
-            Iterator<String> nameIter = names.iterator();
-            ArrayList<NamedFeature> features = new ArrayList<NamedFeature>((Math.min(limit, names.size())));
-            int ii = 0;
-            while (nameIter.hasNext() && ii < limit) {
-                List<NamedFeature> subFeats = resultMap.get(nameIter.next());
-                if (longestOnly) {
-                    features.add(subFeats.get(0));
-                } else {
-                    features.addAll(subFeats);
-                }
-                ii++;
+        Map<String, List<NamedFeature>> resultMap = featureMap.getByPrefix(name.trim(), limit);
+        ArrayList<NamedFeature> features = new ArrayList<NamedFeature>(resultMap.size());
+        for (List<NamedFeature> subFeats : resultMap.values()) {
+            if (longestOnly) {
+                features.add(subFeats.get(0));
+            } else {
+                features.addAll(subFeats);
             }
-            return features;
         }
+        return features;
     }
 
 
@@ -330,26 +322,23 @@ public class FeatureDB {
         List<NamedFeature> possibles = featureMap.get(nm);
 
         if (possibles != null) {
-            synchronized (featureMap) {
-                for (NamedFeature f : possibles) {
-                    if (!(f instanceof BasicFeature)) {
-                        continue;
-                    }
+            for (NamedFeature f : possibles) {
+                if (!(f instanceof BasicFeature)) {
+                    continue;
+                }
 
-                    BasicFeature bf = (BasicFeature) f;
-                    Codon c = bf.getCodon(currentGenome, proteinPosition);
-                    if (c == null) {
-                        continue;
-                    }
-                    if (c.getAminoAcid().equalsByName(refAA)) {
-                        Set<String> snps = AminoAcidManager.getInstance().getMappingSNPs(c.getSequence(),
-                                AminoAcidManager.getAminoAcidByName(mutAA));
-                        if (snps.size() >= 1) {
-                            results.put(c.getGenomePositions()[0], bf);
-                        }
+                BasicFeature bf = (BasicFeature) f;
+                Codon c = bf.getCodon(currentGenome, proteinPosition);
+                if (c == null) {
+                    continue;
+                }
+                if (c.getAminoAcid().equalsByName(refAA)) {
+                    Set<String> snps = AminoAcidManager.getInstance().getMappingSNPs(c.getSequence(),
+                            AminoAcidManager.getAminoAcidByName(mutAA));
+                    if (snps.size() >= 1) {
+                        results.put(c.getGenomePositions()[0], bf);
                     }
                 }
-
             }
         }
 
@@ -381,32 +370,29 @@ public class FeatureDB {
         String brefNT = refNT.toUpperCase();
 
         if (possibles != null) {
-            synchronized (featureMap) {
-                for (NamedFeature f : possibles) {
-                    if (!(f instanceof BasicFeature)) {
-                        continue;
-                    }
-
-                    BasicFeature bf = (BasicFeature) f;
+            for (NamedFeature f : possibles) {
+                if (!(f instanceof BasicFeature)) {
+                    continue;
+                }
 
-                    int genomePosition = bf.featureToGenomePosition(new int[]{startPosition - 1})[0];
-                    if (genomePosition < 0) {
-                        continue;
-                    }
-                    final byte[] nuclSequence = currentGenome.getSequence(bf.getChr(), genomePosition, genomePosition + 1);
-                    if (nuclSequence == null) {
-                        continue;
-                    }
-                    tempNT = new String(nuclSequence);
-                    if (bf.getStrand() == Strand.NEGATIVE) {
-                        tempNT = SequenceTrack.getReverseComplement(tempNT);
-                    }
+                BasicFeature bf = (BasicFeature) f;
 
-                    if (tempNT.toUpperCase().equals(brefNT)) {
-                        results.put(genomePosition, bf);
-                    }
+                int genomePosition = bf.featureToGenomePosition(new int[]{startPosition - 1})[0];
+                if (genomePosition < 0) {
+                    continue;
+                }
+                final byte[] nuclSequence = currentGenome.getSequence(bf.getChr(), genomePosition, genomePosition + 1);
+                if (nuclSequence == null) {
+                    continue;
+                }
+                tempNT = new String(nuclSequence);
+                if (bf.getStrand() == Strand.NEGATIVE) {
+                    tempNT = SequenceTrack.getReverseComplement(tempNT);
                 }
 
+                if (tempNT.toUpperCase().equals(brefNT)) {
+                    results.put(genomePosition, bf);
+                }
             }
         }
 
@@ -0,0 +1,268 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.feature;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Concurrent index of feature names supporting exact, prefix, and substring lookup.  Names are upper-cased keys
+ * in a skip list map,  so lookups and inserts do not block each other and prefix queries are range scans.
+ * <p>
+ * Most entries store only the feature location.  Features with exons are kept as objects as they are needed to
+ * resolve mutation searches (e.g. EGFR:M1I).  Substring lookup uses a trigram index over the keys which is built,
+ * in parallel,  on the first substring query and maintained incrementally after that.
+ */
+class FeatureNameIndex {
+
+    private final ConcurrentSkipListMap<String, NamedFeature[]> map = new ConcurrentSkipListMap<>();
+
+    private final int maxDuplicates;
+
+    private final Comparator<? super NamedFeature> comparator;
+
+    // Trigram -> keys containing it,  null until the first substring query
+    private volatile Map<Integer, Posting> trigrams;
+
+    FeatureNameIndex(int maxDuplicates, Comparator<? super NamedFeature> comparator) {
+        this.maxDuplicates = maxDuplicates;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Add a feature under the given name.  At most maxDuplicates + 1 features are kept per name.
+     *
+     * @return true if the feature was added
+     */
+    boolean put(String name, NamedFeature feature) {
+
+        final String key = name.toUpperCase();
+        final NamedFeature entry = compact(feature);
+        final boolean[] added = new boolean[1];
+
+        map.compute(key, (k, current) -> {
+            added[0] = false;
+            if (current == null) {
+                added[0] = true;
+                return new NamedFeature[]{entry};
+            } else if (current.length > maxDuplicates) {
+                return current;   // Don't let list grow without bounds
+            } else {
+                NamedFeature[] features = Arrays.copyOf(current, current.length + 1);
+                features[current.length] = entry;
+                Arrays.sort(features, comparator);    // Stable,  ties keep insertion order
+                added[0] = true;
+                return features;
+            }
+        });
+
+        if (added[0]) {
+            Map<Integer, Posting> t = trigrams;
+            if (t != null) {
+                addTrigrams(t, key);
+            }
+        }
+        return added[0];
+    }
+
+    void remove(String name) {
+        map.remove(name.toUpperCase());      // Stale trigram postings are filtered at query time
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    /**
+     * @return features with exactly this name,  longest first,  or null
+     */
+    List<NamedFeature> get(String name) {
+        NamedFeature[] features = map.get(name.toUpperCase());
+        return features == null ? null : Collections.unmodifiableList(Arrays.asList(features));
+    }
+
+    /**
+     * @return features for names beginning with {@code prefix},  in name order
+     */
+    SortedMap<String, List<NamedFeature>> getByPrefix(String prefix, int limit) {
+        String key = prefix.toUpperCase();
+        SortedMap<String, List<NamedFeature>> result = new TreeMap<>();
+        ConcurrentNavigableMap<String, NamedFeature[]> range = map.subMap(key, key + Character.MAX_VALUE);
+        for (Map.Entry<String, NamedFeature[]> e : range.entrySet()) {
+            if (result.size() >= limit) break;
+            result.put(e.getKey(), Collections.unmodifiableList(Arrays.asList(e.getValue())));
+        }
+        return result;
+    }
+
+    /**
+     * @return features for names containing {@code substring},  in name order
+     */
+    SortedMap<String, List<NamedFeature>> getBySubstring(String substring, int limit) {
+
+        String query = substring.toUpperCase();
+        SortedMap<String, List<NamedFeature>> result = new TreeMap<>();
+
+        Collection<String> candidates;
+        if (query.length() < 3) {
+            candidates = map.keySet();
+        } else {
+            Map<Integer, Posting> t = getTrigrams();
+            Posting smallest = null;
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                Posting p = t.get(trigram(query, i));
+                if (p == null) return result;         // Some trigram of the query is in no name
+                if (smallest == null || p.size() < smallest.size()) smallest = p;
+            }
+            candidates = new TreeSet<>(smallest.keys());
+        }
+
+        for (String key : candidates) {
+            if (result.size() >= limit) break;
+            if (key.contains(query)) {
+                NamedFeature[] features = map.get(key);
+                if (features != null) {
+                    result.put(key, Collections.unmodifiableList(Arrays.asList(features)));
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<Integer, Posting> getTrigrams() {
+        Map<Integer, Posting> t = trigrams;
+        if (t == null) {
+            synchronized (this) {
+                t = trigrams;
+                if (t == null) {
+                    final Map<Integer, Posting> newTrigrams = new ConcurrentHashMap<>();
+                    // Publish first so names added during the build are indexed too,  duplicates are harmless
+                    trigrams = newTrigrams;
+                    map.keySet().parallelStream().forEach(key -> addTrigrams(newTrigrams, key));
+                    t = newTrigrams;
+                }
+            }
+        }
+        return t;
+    }
+
+    private static void addTrigrams(Map<Integer, Posting> t, String key) {
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            t.computeIfAbsent(trigram(key, i), k -> new Posting()).add(key);
+        }
+    }
+
+    /**
+     * Trigram code from the low 10 bits of each char,  collisions only add candidates which are then filtered.
+     */
+    static int trigram(String s, int i) {
+        return ((s.charAt(i) & 0x3FF) << 20) | ((s.charAt(i + 1) & 0x3FF) << 10) | (s.charAt(i + 2) & 0x3FF);
+    }
+
+    /**
+     * Features with exons are kept,  they are needed for mutation search.  Others are reduced to their location.
+     */
+    static NamedFeature compact(NamedFeature feature) {
+        if (feature instanceof Location) {
+            return feature;
+        }
+        if (feature instanceof IGVFeature) {
+            List<Exon> exons = ((IGVFeature) feature).getExons();
+            if (exons != null && exons.size() > 0) {
+                return feature;
+            }
+        }
+        return new Location(feature.getName(), feature.getChr(), feature.getStart(), feature.getEnd());
+    }
+
+    /**
+     * Location of a named feature.
+     */
+    static final class Location implements NamedFeature {
+
+        private final String name;
+        private final String chr;
+        private final int start;
+        private final int end;
+
+        Location(String name, String chr, int start, int end) {
+            this.name = name;
+            this.chr = chr;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getChr() {
+            return chr;
+        }
+
+        public String getContig() {
+            return chr;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public String toString() {
+            return name + " " + Locus.getFormattedLocusString(chr, start + 1, end);
+        }
+    }
+
+    /**
+     * Keys containing a trigram,  a growable array guarded by the posting.
+     */
+    private static final class Posting {
+
+        private String[] keys = new String[2];
+        private int size;
+
+        synchronized void add(String key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size++] = key;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized List<String> keys() {
+            return Arrays.asList(Arrays.copyOf(keys, size));
+        }
+    }
+}
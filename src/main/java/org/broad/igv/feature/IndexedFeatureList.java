@@ -0,0 +1,177 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.feature;
+
+import htsjdk.tribble.Feature;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Static index over a list of features from a single chromosome,  supporting overlap queries in O(log n + k).
+ * <p/>
+ * Features are sorted by start and the starts are copied to an int array for binary search.  A query only has to
+ * look back from its start by the longest feature length.  Features longer than {@link #MAX_INDEXED_LENGTH} are
+ * kept out of that bound,  and are checked individually,  so a few very long features (e.g. a whole chromosome
+ * region) do not turn every query into a scan.
+ * <p/>
+ * Query results are views backed by the sorted list whenever possible,  large results are not copied.
+ */
+public class IndexedFeatureList<T extends Feature> {
+
+    public static final int MAX_INDEXED_LENGTH = 1000000;
+
+    private final List<T> features;
+    private final int[] starts;
+    private final int maxLength;
+
+    /**
+     * Indices of features longer than MAX_INDEXED_LENGTH,  in ascending order
+     */
+    private final int[] longFeatures;
+
+    /**
+     * @param features features to index.  The list is sorted by start in place,  and must not be modified afterwards.
+     */
+    public IndexedFeatureList(List<T> features) {
+        FeatureUtils.sortFeatureList(features);
+        this.features = features;
+
+        int n = features.size();
+        starts = new int[n];
+        int maxLength = 0;
+        List<Integer> longIndices = new ArrayList<Integer>();
+        for (int i = 0; i < n; i++) {
+            T f = features.get(i);
+            starts[i] = f.getStart();
+            int length = f.getEnd() - f.getStart();
+            if (length > MAX_INDEXED_LENGTH) {
+                longIndices.add(i);
+            } else if (length > maxLength) {
+                maxLength = length;
+            }
+        }
+        this.maxLength = maxLength;
+        longFeatures = new int[longIndices.size()];
+        for (int i = 0; i < longFeatures.length; i++) {
+            longFeatures[i] = longIndices.get(i);
+        }
+    }
+
+    public List<T> getFeatures() {
+        return features;
+    }
+
+    public int size() {
+        return features.size();
+    }
+
+    /**
+     * Return features overlapping the interval,  in start order.  Overlap is defined as in
+     * {@link FeatureUtils#getOverlapPredicate(String, int, int)}:  feature start <= end and feature end > start.
+     * <p/>
+     * The returned list is read only.
+     */
+    public List<T> getFeatures(int start, int end) {
+
+        int n = starts.length;
+        if (n == 0 || start > end) {
+            return Collections.emptyList();
+        }
+
+        // Features starting after the query end can't overlap,  features starting after the query start always do.
+        // Between lo and firstFull the end must be checked.
+        int hi = upperBound(end);
+        int firstFull = Math.min(hi, upperBound(start));
+        int lo = Math.min(firstFull, lowerBound(start - (long) maxLength));
+
+        List<T> result = null;
+
+        // Long features starting before lo
+        for (int idx : longFeatures) {
+            if (idx >= lo) break;
+            T f = features.get(idx);
+            if (f.getEnd() > start) {
+                if (result == null) result = new ArrayList<T>();
+                result.add(f);
+            }
+        }
+
+        for (int i = lo; i < firstFull; i++) {
+            T f = features.get(i);
+            if (f.getEnd() > start) {
+                if (result != null) {
+                    result.add(f);
+                }
+            } else if (result == null) {
+                // First feature to be dropped,  copy the ones before it
+                result = new ArrayList<T>(features.subList(lo, i));
+            }
+        }
+
+        if (result == null) {
+            return Collections.unmodifiableList(features.subList(lo, hi));
+        } else {
+            result.addAll(features.subList(firstFull, hi));
+            return Collections.unmodifiableList(result);
+        }
+    }
+
+    /**
+     * @return the index of the first feature with start >= position
+     */
+    private int lowerBound(long position) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the first feature with start > position
+     */
+    private int upperBound(int position) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
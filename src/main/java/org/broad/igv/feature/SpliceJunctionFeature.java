@@ -196,6 +196,18 @@ public class SpliceJunctionFeature extends BasicFeature {
         this.endFlankingRegionDepthArray = endFlankingRegionDepthArray;
     }
 
+    /**
+     * Set both flanking depth arrays at once,  extending the feature start and end to cover them.  Equivalent to
+     * the result of {@link #addRead(int, int)} for reads with the same flanking coverage,  for callers that
+     * accumulate depths elsewhere.  Either array can be null if no read extends past that side of the junction.
+     */
+    public void setFlankingRegions(int[] startFlankingRegionDepthArray, int[] endFlankingRegionDepthArray) {
+        this.startFlankingRegionDepthArray = startFlankingRegionDepthArray;
+        this.endFlankingRegionDepthArray = endFlankingRegionDepthArray;
+        start = junctionStart - (startFlankingRegionDepthArray == null ? 0 : startFlankingRegionDepthArray.length);
+        end = junctionEnd + (endFlankingRegionDepthArray == null ? 0 : endFlankingRegionDepthArray.length);
+    }
+
     public boolean hasFlankingRegionDepthArrays() {
         return ((startFlankingRegionDepthArray != null) && (endFlankingRegionDepthArray != null));
     }
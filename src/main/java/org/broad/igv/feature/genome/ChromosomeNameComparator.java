@@ -25,10 +25,10 @@
 
 package org.broad.igv.feature.genome;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
-
 import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Comparator for chromosome names. All pure string comparisons are case insensitive.
@@ -49,7 +49,9 @@ public class ChromosomeNameComparator implements Comparator<String> {
 
     private static ChromosomeNameComparator instance;
 
-    private Table<String, String, Integer> cache = HashBasedTable.create();
+    // Shared,  and used from parallel sorts,  so lookups must not lock
+    private final Map<String, Map<String, Integer>> cache = new ConcurrentHashMap<>();
+    private final AtomicInteger cacheSize = new AtomicInteger();
 
     private ChromosomeNameComparator() {
     }
@@ -66,22 +68,27 @@ public class ChromosomeNameComparator implements Comparator<String> {
     }
 
     public int compare(String chr0, String chr1) {
-        if (cache.contains(chr0, chr1)) {
-            return cache.get(chr0, chr1);
+        Map<String, Integer> row = cache.get(chr0);
+        Integer cached = row == null ? null : row.get(chr1);
+        if (cached != null) {
+            return cached;
         }
         int comparison = compareNonCache(chr0, chr1);
 
         //Just to make sure cache size doesn't go crazy.
         //In general don't expect more than ~50 chromosomes,
         //which would be 50 choose 2 ~= 1250 mappings
-        if (cache.size() < 10000) {
-            cache.put(chr0, chr1, comparison);
+        if (cacheSize.get() < 10000) {
+            if (cache.computeIfAbsent(chr0, k -> new ConcurrentHashMap<>()).put(chr1, comparison) == null) {
+                cacheSize.incrementAndGet();
+            }
         }
         return comparison;
     }
 
     public void resetCache() {
         cache.clear();
+        cacheSize.set(0);
     }
 
     public int compareNonCache(String chr0, String chr1) {
@@ -48,7 +48,7 @@ public class SequenceWrapper implements Sequence  {
     private static int tileSize = 1000000;
 
     private Sequence sequence;
-    private ObjectCache<String, SequenceTile> sequenceCache = new ObjectCache<String, SequenceTile>(50);
+    private ObjectCache<String, SequenceTile> sequenceCache = new ObjectCache<String, SequenceTile>(50, SequenceTile::getSize);
 
     public SequenceWrapper(Sequence sequence) {
         this.sequence = sequence;
@@ -28,6 +28,7 @@ package org.broad.igv.feature.tribble;
 import htsjdk.samtools.util.LocationAware;
 import org.apache.log4j.Logger;
 import org.broad.igv.feature.genome.Genome;
+import org.broad.igv.variant.vcf.VCFSamples;
 import org.broad.igv.variant.vcf.VCFVariant;
 import htsjdk.tribble.Feature;
 import htsjdk.tribble.FeatureCodec;
@@ -36,6 +37,7 @@ import htsjdk.tribble.readers.AsciiLineReader;
 import htsjdk.tribble.readers.AsciiLineReaderIterator;
 import htsjdk.tribble.readers.PositionalBufferedStream;
 import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFHeader;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -51,6 +53,9 @@ public class BCF2WrapperCodec implements FeatureCodec<VCFVariant, PositionalBuff
     FeatureCodec<VariantContext, PositionalBufferedStream> wrappedCodec;
     Genome genome;
 
+    // Shared by all variants,  genotypes are left to htsjdk's lazy decoding
+    VCFSamples samples;
+
     public BCF2WrapperCodec(FeatureCodec<VariantContext, PositionalBufferedStream> wrappedCodec, Genome genome) {
         this.wrappedCodec = wrappedCodec;
         this.genome = genome;
@@ -63,7 +68,7 @@ public class BCF2WrapperCodec implements FeatureCodec<VCFVariant, PositionalBuff
             return null;
         }
         String chr = genome == null ? vc.getChr() : genome.getCanonicalChrName(vc.getChr());
-        return new VCFVariant(vc, chr);
+        return samples == null ? new VCFVariant(vc, chr) : new VCFVariant(vc, chr, samples, null);
 
     }
 
@@ -74,7 +79,12 @@ public class BCF2WrapperCodec implements FeatureCodec<VCFVariant, PositionalBuff
 
     @Override
     public FeatureCodecHeader readHeader(PositionalBufferedStream stream) throws IOException {
-        return this.wrappedCodec.readHeader(stream);
+        FeatureCodecHeader header = this.wrappedCodec.readHeader(stream);
+        Object value = header == null ? null : header.getHeaderValue();
+        if (value instanceof VCFHeader && ((VCFHeader) value).hasGenotypingData()) {
+            samples = new VCFSamples(((VCFHeader) value).getGenotypeSamples(), null);
+        }
+        return header;
     }
 
     @Override
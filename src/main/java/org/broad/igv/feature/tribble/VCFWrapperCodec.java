@@ -28,11 +28,14 @@ package org.broad.igv.feature.tribble;
 import org.apache.log4j.Logger;
 import org.broad.igv.feature.genome.Genome;
 import org.broad.igv.variant.Variant;
+import org.broad.igv.variant.vcf.VCFSamples;
 import org.broad.igv.variant.vcf.VCFVariant;
 import htsjdk.tribble.AsciiFeatureCodec;
 import htsjdk.tribble.Feature;
 import htsjdk.tribble.readers.LineIterator;
 import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.AbstractVCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
 
 import java.io.IOException;
 
@@ -47,6 +50,9 @@ public class VCFWrapperCodec extends AsciiFeatureCodec<VCFVariant> {
     AsciiFeatureCodec wrappedCodec;
     Genome genome;
 
+    // Non-null if genotypes are decoded lazily by the variants,  see readActualHeader
+    VCFSamples samples;
+
     public VCFWrapperCodec(AsciiFeatureCodec wrappedCodec, Genome genome) {
         super(VCFVariant.class);
         this.wrappedCodec = wrappedCodec;
@@ -64,18 +70,19 @@ public class VCFWrapperCodec extends AsciiFeatureCodec<VCFVariant> {
         // but does not currently support missing only certain elements of a field.
         // IGV is much more permissive.
 
+        // With samples,  decode the sites only and leave the FORMAT and sample columns to the variant,  which
+        // parses them on demand.  Malformed genotype fields are repaired when decoded,  see VCFSamples
+        String genotypeData = samples == null ? null : getGenotypeColumns(line);
+
         VariantContext vc = null;
         try {
-            vc = (VariantContext) wrappedCodec.decode(line);
-            //The genotype fields are loaded lazily, we force parsing here to
-            //catch the exception if necessary
-            if (vc != null) vc.getSampleNames();
+            vc = decodeVariant(line, genotypeData != null);
         } catch (NumberFormatException e) {
             String msg = String.format("NumberFormatException on line: %s \n Attempting to reformat by replacing ,., with ,0,", line);
             log.warn(msg);
             String refLine = line.replaceAll(",\\.", ",0");
             refLine = refLine.replaceAll("\\.,", "0,");
-            vc = (VariantContext) wrappedCodec.decode(refLine);
+            vc = decodeVariant(refLine, genotypeData != null);
         }
 
 
@@ -83,13 +90,45 @@ public class VCFWrapperCodec extends AsciiFeatureCodec<VCFVariant> {
             return null;
         }
         String chr = genome == null ? vc.getChr() : genome.getCanonicalChrName(vc.getChr());
-        return new VCFVariant(vc, chr);
+        return genotypeData == null ? new VCFVariant(vc, chr) : new VCFVariant(vc, chr, samples, genotypeData);
 
     }
 
+    private VariantContext decodeVariant(String line, boolean sitesOnly) {
+        if (sitesOnly) {
+            // decodeLoc parses everything but the genotypes
+            return (VariantContext) ((AbstractVCFCodec) wrappedCodec).decodeLoc(line);
+        } else {
+            VariantContext vc = (VariantContext) wrappedCodec.decode(line);
+            //The genotype fields are loaded lazily, we force parsing here to
+            //catch the exception if necessary
+            if (vc != null) vc.getSampleNames();
+            return vc;
+        }
+    }
+
+    /**
+     * Return the FORMAT and sample columns of a VCF line,  or null if there are none.
+     */
+    static String getGenotypeColumns(String line) {
+        int pos = -1;
+        for (int i = 0; i < 8; i++) {
+            pos = line.indexOf('\t', pos + 1);
+            if (pos < 0) {
+                return null;
+            }
+        }
+        return pos + 1 < line.length() ? line.substring(pos + 1) : null;
+    }
+
     @Override
     public Object readActualHeader(LineIterator reader) {
-        return wrappedCodec.readActualHeader(reader);
+        Object header = wrappedCodec.readActualHeader(reader);
+        if (header instanceof VCFHeader && wrappedCodec instanceof AbstractVCFCodec &&
+                ((VCFHeader) header).hasGenotypingData()) {
+            samples = new VCFSamples(((VCFHeader) header).getGenotypeSamples(), (AbstractVCFCodec) wrappedCodec);
+        }
+        return header;
     }
 
     /**
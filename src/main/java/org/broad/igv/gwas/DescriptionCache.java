@@ -136,19 +136,26 @@ public class DescriptionCache {
     public String getDescriptionString(String chr, int location, double value) {
 
         String description = this.getDescription(chr, location, value);
-        String descriptionString = null;
+        return description == null ? null : formatDescription(description);
 
-        if (description != null) {
-            descriptionString = "";
-            int headersSize = this.getHeaderTokens().length;
-            String[] tokens = Globals.singleTabMultiSpacePattern.split(description);
+    }
 
-            for (int i = 0; i < headersSize; i++) {
-                String tmpHeaderToken = this.getHeaderTokens()[i];
-                if (tmpHeaderToken != null)
-                    descriptionString += tmpHeaderToken + ": " + tokens[i] + "<br>";
-            }
+    /**
+     * Format a result file row as header: value lines for popup text.
+     *
+     * @param description
+     * @return
+     */
+    public String formatDescription(String description) {
+
+        String descriptionString = "";
+        int headersSize = this.getHeaderTokens().length;
+        String[] tokens = Globals.singleTabMultiSpacePattern.split(description);
 
+        for (int i = 0; i < headersSize; i++) {
+            String tmpHeaderToken = this.getHeaderTokens()[i];
+            if (tmpHeaderToken != null)
+                descriptionString += tmpHeaderToken + ": " + tokens[i] + "<br>";
         }
         return descriptionString;
 
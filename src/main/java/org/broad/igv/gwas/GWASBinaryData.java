@@ -0,0 +1,209 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.gwas;
+
+import org.broad.igv.util.collections.DoubleArrayList;
+import org.broad.igv.util.collections.IntArrayList;
+import org.broad.igv.util.stream.MappedFileSeekableStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * GWAS data backed by a memory mapped binary file written by {@link GWASBinaryWriter}.  Locations and values are
+ * read from the mapped columns on demand,  and descriptions are looked up directly by row,  so opening a file only
+ * reads its index.
+ */
+public class GWASBinaryData extends GWASData {
+
+    public static final String EXTENSION = ".bgwas";
+
+    private final MappedFileSeekableStream stream;
+    private final Map<String, ChrData> chrData = new LinkedHashMap<>();
+    private final double maxValue;
+
+    public static boolean isBinaryGWASFile(String path) {
+        return path.toLowerCase().endsWith(EXTENSION);
+    }
+
+    public GWASBinaryData(File file) throws IOException {
+
+        String columnsLine;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+
+            ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            byte[] magic = new byte[4];
+            header.get(magic);
+            if (!Arrays.equals(magic, GWASBinaryWriter.MAGIC)) {
+                throw new IOException(file + " is not a binary GWAS file");
+            }
+            int version = header.getInt();
+            if (version > GWASBinaryWriter.VERSION) {
+                throw new IOException("Unsupported binary GWAS version: " + version);
+            }
+            long indexPosition = header.getLong();
+
+            ByteBuffer index = ByteBuffer.allocate((int) (channel.size() - indexPosition)).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, index, indexPosition);
+
+            columnsLine = getNullTerminatedString(index);
+            maxValue = index.getDouble();
+            int nChrs = index.getInt();
+            for (int i = 0; i < nChrs; i++) {
+                String chr = getNullTerminatedString(index);
+                int n = index.getInt();
+                long locationsPosition = index.getLong();
+                long valuesPosition = index.getLong();
+                long offsetsPosition = index.getLong();
+
+                IntBuffer locations = map(channel, locationsPosition, 4L * n).asIntBuffer();
+                DoubleBuffer values = map(channel, valuesPosition, 8L * n).asDoubleBuffer();
+                LongBuffer offsets = map(channel, offsetsPosition, 8L * (n + 1)).asLongBuffer();
+                chrData.put(chr, new ChrData(n, locations, values, offsets));
+            }
+        }
+
+        stream = new MappedFileSeekableStream(file);
+        getDescriptionCache().setHeaderTokens(columnsLine);
+    }
+
+    @Override
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    @Override
+    public Collection<String> getChromosomes() {
+        return chrData.keySet();
+    }
+
+    @Override
+    public int getSize(String chr) {
+        ChrData data = chrData.get(chr);
+        return data == null ? 0 : data.size;
+    }
+
+    @Override
+    public int getLocation(String chr, int index) {
+        return chrData.get(chr).locations.get(index);
+    }
+
+    @Override
+    public double getValue(String chr, int index) {
+        return chrData.get(chr).values.get(index);
+    }
+
+    @Override
+    public String getDescription(String chr, int index) {
+        ChrData data = chrData.get(chr);
+        if (data == null || index < 0 || index >= data.size) {
+            return null;
+        }
+        long start = data.offsets.get(index);
+        int length = (int) (data.offsets.get(index + 1) - start);
+        byte[] bytes = new byte[length];
+        stream.read(start, bytes, 0, length);
+        return getDescriptionCache().formatDescription(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Copy the locations into lists.  Prefer {@link #getLocation(String, int)},  which reads the mapped file.
+     */
+    @Override
+    public LinkedHashMap<String, IntArrayList> getLocations() {
+        LinkedHashMap<String, IntArrayList> locations = new LinkedHashMap<>();
+        for (Map.Entry<String, ChrData> entry : chrData.entrySet()) {
+            int[] array = new int[entry.getValue().size];
+            entry.getValue().locations.duplicate().get(array);
+            locations.put(entry.getKey(), new IntArrayList(array));
+        }
+        return locations;
+    }
+
+    /**
+     * Copy the values into lists.  Prefer {@link #getValue(String, int)},  which reads the mapped file.
+     */
+    @Override
+    public LinkedHashMap<String, DoubleArrayList> getValues() {
+        LinkedHashMap<String, DoubleArrayList> values = new LinkedHashMap<>();
+        for (Map.Entry<String, ChrData> entry : chrData.entrySet()) {
+            double[] array = new double[entry.getValue().size];
+            entry.getValue().values.duplicate().get(array);
+            values.put(entry.getKey(), new DoubleArrayList(array));
+        }
+        return values;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static String getNullTerminatedString(ByteBuffer buffer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte b;
+        while ((b = buffer.get()) != 0) {
+            bytes.write(b);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Mapped columns of one chromosome.  Absolute gets on the buffers are thread safe.
+     */
+    private static class ChrData {
+
+        final int size;
+        final IntBuffer locations;
+        final DoubleBuffer values;
+        final LongBuffer offsets;
+
+        ChrData(int size, IntBuffer locations, DoubleBuffer values, LongBuffer offsets) {
+            this.size = size;
+            this.locations = locations;
+            this.values = values;
+            this.offsets = offsets;
+        }
+    }
+}
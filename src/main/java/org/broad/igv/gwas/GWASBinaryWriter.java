@@ -0,0 +1,270 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.gwas;
+
+import org.apache.log4j.Logger;
+import org.broad.igv.feature.genome.Genome;
+import org.broad.igv.tdf.BufferedByteWriter;
+import org.broad.igv.util.ResourceLocator;
+import org.broad.igv.util.collections.DoubleArrayList;
+import org.broad.igv.util.collections.IntArrayList;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Converts a GWAS result file to the indexed binary format read by {@link GWASBinaryData}.  All values are little
+ * endian.
+ * <p/>
+ * <pre>
+ * magic            'B' 'G' 'W' 'S'
+ * version          int
+ * index position   long
+ *
+ * For each chromosome,  in file order
+ *   rows           UTF-8 bytes of the result file rows,  without line terminators
+ *   locations      int[n]
+ *   values         double[n],  -log10(p)
+ *   row offsets    long[n + 1],  file positions of each row and of the end of the last row
+ *
+ * Index
+ *   columns line   null terminated string
+ *   max value      double
+ *   chromosomes    int
+ *   For each chromosome
+ *     name         null terminated string
+ *     n            int
+ *     locations    long,  file position
+ *     values       long,  file position
+ *     row offsets  long,  file position
+ * </pre>
+ * Only the current chromosome is held in memory while converting.
+ */
+public class GWASBinaryWriter {
+
+    private static final Logger log = Logger.getLogger(GWASBinaryWriter.class);
+
+    static final byte[] MAGIC = new byte[]{'B', 'G', 'W', 'S'};
+    static final int VERSION = 1;
+
+    // Offset of the index position in the header
+    static final int INDEX_POSITION_POSITION = 8;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final File file;
+    private OutputStream os;
+    private long bytesWritten = 0;
+
+    private final List<ChrEntry> chrEntries = new ArrayList<>();
+    private double maxValue = 0;
+
+    // Current chromosome
+    private String chr;
+    private IntArrayList locations;
+    private DoubleArrayList values;
+    private long[] rowOffsets;
+
+    public GWASBinaryWriter(File file) throws IOException {
+        this.file = file;
+        this.os = new BufferedOutputStream(new FileOutputStream(file));
+
+        BufferedByteWriter buffer = new BufferedByteWriter(16);
+        buffer.put(MAGIC);
+        buffer.putInt(VERSION);
+        // Reserve space for the index position,  written on close
+        buffer.putLong(0l);
+        write(buffer.getBytes());
+    }
+
+    /**
+     * Convert the GWAS result file {@code inputPath} to {@code outputPath}.
+     */
+    public static void convert(String inputPath, String outputPath, Genome genome) throws IOException {
+
+        GWASParser parser = new GWASParser(new ResourceLocator(inputPath), genome);
+        GWASBinaryWriter writer = new GWASBinaryWriter(new File(outputPath));
+        boolean success = false;
+        try {
+            String columnsLine = parser.parse(writer::add, null);
+            writer.close(columnsLine);
+            success = true;
+        } finally {
+            if (!success) {
+                writer.abort();
+            }
+        }
+    }
+
+    /**
+     * Add a data point.  Data points must be grouped by chromosome and sorted by location.
+     */
+    public void add(String chr, int location, double value, String row) throws IOException {
+
+        if (!chr.equals(this.chr)) {
+            finishChromosome();
+            this.chr = chr;
+            locations = new IntArrayList(10000);
+            values = new DoubleArrayList(10000);
+            rowOffsets = new long[10001];
+        }
+
+        int n = locations.size();
+        if (n + 1 >= rowOffsets.length) {
+            rowOffsets = Arrays.copyOf(rowOffsets, 2 * rowOffsets.length);
+        }
+        rowOffsets[n] = bytesWritten;
+        write(row.getBytes(StandardCharsets.UTF_8));
+
+        locations.add(location);
+        values.add(value);
+        maxValue = Math.max(maxValue, value);
+    }
+
+    /**
+     * Write the columns of the current chromosome,  following its rows.
+     */
+    private void finishChromosome() throws IOException {
+
+        if (chr == null) {
+            return;
+        }
+
+        int n = locations.size();
+        rowOffsets[n] = bytesWritten;
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        long locationsPosition = bytesWritten;
+        for (int i = 0; i < n; i++) {
+            if (buffer.remaining() < 4) flush(buffer);
+            buffer.putInt(locations.get(i));
+        }
+        flush(buffer);
+
+        long valuesPosition = bytesWritten;
+        for (int i = 0; i < n; i++) {
+            if (buffer.remaining() < 8) flush(buffer);
+            buffer.putDouble(values.get(i));
+        }
+        flush(buffer);
+
+        long offsetsPosition = bytesWritten;
+        for (int i = 0; i <= n; i++) {
+            if (buffer.remaining() < 8) flush(buffer);
+            buffer.putLong(rowOffsets[i]);
+        }
+        flush(buffer);
+
+        chrEntries.add(new ChrEntry(chr, n, locationsPosition, valuesPosition, offsetsPosition));
+        chr = null;
+    }
+
+    /**
+     * Write the index and close the file.
+     *
+     * @param columnsLine The columns (header) line of the result file
+     */
+    public void close(String columnsLine) throws IOException {
+
+        finishChromosome();
+
+        long indexPosition = bytesWritten;
+        BufferedByteWriter buffer = new BufferedByteWriter();
+        buffer.putNullTerminatedString(columnsLine.trim());
+        buffer.putDouble(maxValue);
+        buffer.putInt(chrEntries.size());
+        for (ChrEntry entry : chrEntries) {
+            buffer.putNullTerminatedString(entry.chr);
+            buffer.putInt(entry.size);
+            buffer.putLong(entry.locationsPosition);
+            buffer.putLong(entry.valuesPosition);
+            buffer.putLong(entry.offsetsPosition);
+        }
+        write(buffer.getBytes());
+        os.close();
+        os = null;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.getChannel().position(INDEX_POSITION_POSITION);
+            buffer = new BufferedByteWriter(8);
+            buffer.putLong(indexPosition);
+            raf.write(buffer.getBytes());
+        }
+    }
+
+    /**
+     * Close and delete a partially written file.
+     */
+    private void abort() {
+        try {
+            if (os != null) {
+                os.close();
+            }
+        } catch (IOException e) {
+            log.error("Error closing " + file, e);
+        }
+        if (!file.delete()) {
+            log.error("Could not delete " + file);
+        }
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        write(buffer.array(), buffer.position());
+        buffer.clear();
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        write(bytes, bytes.length);
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        os.write(bytes, 0, length);
+        bytesWritten += length;
+    }
+
+    private static class ChrEntry {
+
+        final String chr;
+        final int size;
+        final long locationsPosition;
+        final long valuesPosition;
+        final long offsetsPosition;
+
+        ChrEntry(String chr, int size, long locationsPosition, long valuesPosition, long offsetsPosition) {
+            this.chr = chr;
+            this.size = size;
+            this.locationsPosition = locationsPosition;
+            this.valuesPosition = valuesPosition;
+            this.offsetsPosition = offsetsPosition;
+        }
+    }
+}
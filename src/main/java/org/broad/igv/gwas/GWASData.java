@@ -30,6 +30,7 @@ import org.broad.igv.util.collections.DoubleArrayList;
 import org.broad.igv.util.collections.FloatArrayList;
 import org.broad.igv.util.collections.IntArrayList;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 
 
@@ -68,6 +69,55 @@ public class GWASData {
     }
 
 
+    /**
+     * Return the chromosomes with data,  in file order.
+     */
+    public Collection<String> getChromosomes() {
+        return this.locations.keySet();
+    }
+
+    /**
+     * Return the number of data points on a chromosome.
+     */
+    public int getSize(String chr) {
+        IntArrayList locList = this.locations.get(chr);
+        return locList == null ? 0 : locList.size();
+    }
+
+    public int getLocation(String chr, int index) {
+        return this.locations.get(chr).get(index);
+    }
+
+    public double getValue(String chr, int index) {
+        return this.values.get(chr).get(index);
+    }
+
+    /**
+     * Return the description (original result file row) of a data point,  or null if descriptions are not stored
+     * with the data and must be parsed from the result file.
+     */
+    public String getDescription(String chr, int index) {
+        return null;
+    }
+
+    /**
+     * Return the index of the first data point on chr at or after location,  or the number of data points on chr
+     * if there is none.
+     */
+    public int getIndex(String chr, int location) {
+        int low = 0;
+        int high = getSize(chr);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getLocation(chr, mid) < location) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     /**
      * Count cumulative index for chromosomes before given chromosome.
      *
@@ -77,14 +127,12 @@ public class GWASData {
 
     public int getCumulativeChrLocation(String chr) {
 
-        // Get list of chromosomes
-        Object[] keys = this.locations.keySet().toArray();
-
-        int chrCounter = 0;
         int lineCounter = 0;
-        while (chrCounter < keys.length && !keys[chrCounter].toString().equals(chr)) {
-            lineCounter += locations.get(keys[chrCounter].toString()).size();
-            chrCounter++;
+        for (String key : getChromosomes()) {
+            if (key.equals(chr)) {
+                break;
+            }
+            lineCounter += getSize(key);
         }
 
         return lineCounter;
@@ -107,37 +155,39 @@ public class GWASData {
         int iBefore = -1;
         int iAfter = -1;
 
+        int size = getSize(chr);
+
         // Check if the location chr exists in data set
-        if (this.locations.containsKey(chr)) {
-            int[] locList = this.locations.get(chr).toArray();
-            double[] valueList = this.values.get(chr).toArray();
-            int indexCounter = 0;
-
-            // Find index of the closest value before the location
-            while ((indexCounter < locList.length) && locList[indexCounter] < location) {
-                if (valueList[indexCounter] > minValue && valueList[indexCounter] < maxValue)
-                    iBefore = indexCounter;
-                indexCounter++;
+        if (size > 0) {
+
+            // Index of the first data point at or after the location
+            int firstAfter = getIndex(chr, location);
+
+            // Find index of the closest value before the location,  searching no further than maxDistance
+            for (int i = firstAfter - 1; i >= 0 && location - getLocation(chr, i) <= maxDistance; i--) {
+                double value = getValue(chr, i);
+                if (value > minValue && value < maxValue) {
+                    iBefore = i;
+                    break;
+                }
             }
 
             // Find index of the closest value after the location
-            while (indexCounter < valueList.length) {
-                if (valueList[indexCounter] > minValue && valueList[indexCounter] < maxValue) {
-                    iAfter = indexCounter;
+            for (int i = firstAfter; i < size && getLocation(chr, i) - location <= maxDistance; i++) {
+                double value = getValue(chr, i);
+                if (value > minValue && value < maxValue) {
+                    iAfter = i;
                     break;
-
                 }
-                indexCounter++;
-
             }
 
             // Choose index of closer location
             if (iBefore >= 0 && iAfter >= 0) {
 
                 // Location of nearest data point before the location
-                int before = locList[iBefore];
+                int before = getLocation(chr, iBefore);
                 // Location of nearest data point after the location
-                int after = locList[iAfter];
+                int after = getLocation(chr, iAfter);
 
                 // Compare which one is closer and use it as index
                 if (Math.abs(location - before) < Math.abs(location - after))
@@ -151,12 +201,6 @@ public class GWASData {
                 if (iAfter >= 0)
                     index = iAfter;
             }
-
-            if (index >= 0) {
-                int distance = Math.abs(location - locList[index]);
-                if (distance > maxDistance)
-                    index = -1;
-            }
         }
         return index;
     }
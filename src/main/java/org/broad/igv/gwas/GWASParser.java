@@ -32,6 +32,7 @@ import org.broad.igv.feature.genome.Genome;
 import org.broad.igv.util.ParsingUtils;
 import org.broad.igv.util.ResourceLocator;
 import org.broad.igv.util.StringUtils;
+import org.broad.igv.util.collections.IntArrayList;
 import htsjdk.tribble.readers.AsciiLineReader;
 
 import java.io.IOException;
@@ -144,6 +145,25 @@ public class GWASParser {
 
     public GWASData parse() throws IOException {
 
+        final GWASData gData = new GWASData();
+        parse((chr, start, p, line) -> {
+            gData.addLocation(chr, start);
+            gData.addValue(chr, p);
+        }, gData.getFileIndex());
+        return gData;
+    }
+
+    /**
+     * Parse the result file,  passing each data point to {@code handler} in file order.  The file must be sorted by
+     * chromosome and position.
+     *
+     * @param handler
+     * @param fileIndex If not null,  the file position of every 10,000th data point is added
+     * @return The columns line
+     * @throws IOException
+     */
+    public String parse(EntryHandler handler, IntArrayList fileIndex) throws IOException {
+
         AsciiLineReader reader = null;
         String nextLine = null;
         int rowCounter = 0;
@@ -158,8 +178,6 @@ public class GWASParser {
             if (!this.columns.parseHeader(headerLine))
                 throw new ParserException("Error while parsing columns line.", 0, nextLine);
 
-            GWASData gData = new GWASData();
-
             int indexCounter = 0;
 
             while ((nextLine = reader.readLine()) != null && (nextLine.trim().length() > 0)) {
@@ -170,9 +188,6 @@ public class GWASParser {
                 GWASEntry entry = parseLine(nextLine, rowCounter);
                 if (entry == null) continue;
 
-                gData.addLocation(entry.chr, entry.start);
-                gData.addValue(entry.chr, entry.p);
-
                 //Check that file is sorted
                 if(lastEntry != null){
                     if(entry.chr.equals(lastEntry.chr)){
@@ -187,17 +202,19 @@ public class GWASParser {
                     }
                 }
 
+                handler.entry(entry.chr, entry.start, entry.p, entry.description);
+
                 indexCounter++;
 
                 int indexSize = 10000;
                 if (indexCounter == indexSize) {
-                    gData.getFileIndex().add((int) reader.getPosition());
+                    if (fileIndex != null) fileIndex.add((int) reader.getPosition());
                     indexCounter = 0;
                 }
 
                 lastEntry = entry;
             }
-            return gData;
+            return headerLine;
 
         } catch (Exception e) {
             if (nextLine != null && rowCounter != 0) {
@@ -210,6 +227,20 @@ public class GWASParser {
         }
     }
 
+    /**
+     * Receives data points from {@link #parse(EntryHandler, IntArrayList)}
+     */
+    public interface EntryHandler {
+
+        /**
+         * @param chr   Canonical chromosome name
+         * @param start Nucleotide location
+         * @param p     -log10 of the p-value
+         * @param line  The result file row,  trimmed
+         */
+        void entry(String chr, int start, double p, String line) throws IOException;
+    }
+
     /**
      * Parse data from the given text line to {@code GWASData} instance provided
      * @param nextLine
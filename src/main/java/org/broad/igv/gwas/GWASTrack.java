@@ -45,8 +45,6 @@ import org.broad.igv.ui.panel.ReferenceFrame;
 import org.broad.igv.ui.util.UIUtilities;
 import org.broad.igv.util.ChromosomeColors;
 import org.broad.igv.util.ResourceLocator;
-import org.broad.igv.util.collections.DoubleArrayList;
-import org.broad.igv.util.collections.IntArrayList;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -94,7 +92,7 @@ public class GWASTrack extends AbstractTrack {
      * @param id
      * @param name
      * @param gData
-     * @param parser
+     * @param parser Parser for descriptions not stored in gData,  or null
      */
     public GWASTrack(ResourceLocator locator, String id, String name, GWASData gData, GWASParser parser) {
 
@@ -179,7 +177,7 @@ public class GWASTrack extends AbstractTrack {
         String chrName = context.getChr();
         ArrayList<String> chrList = new ArrayList();
         if (chrName.equals("All")) {
-            for (String key : gData.getLocations().keySet()) {
+            for (String key : gData.getChromosomes()) {
                 chrList.add(key);
             }
 
@@ -193,14 +191,15 @@ public class GWASTrack extends AbstractTrack {
         double pointSizeScale = rangeMaxValue / maxPointSize;
 
         Color drawColor = this.primaryColor;
-        Object[] chrs = this.gData.getLocations().keySet().toArray();
+        Object[] chrs = this.gData.getChromosomes().toArray();
 
         int xMinPointSize = (int) (1 / locScale);
 
         // Loop through data points, chromosome by chromosome
 
         for (String chr : chrList) {
-            if (this.gData.getLocations().containsKey(chr) && this.gData.getValues().containsKey(chr)) {
+            int size = this.gData.getSize(chr);
+            if (size > 0) {
 
 
                 // Choose a color for the chromosome
@@ -222,20 +221,18 @@ public class GWASTrack extends AbstractTrack {
 
                 }
 
-                IntArrayList locations = this.gData.getLocations().get(chr);
-                DoubleArrayList values = this.gData.getValues().get(chr);
-
-                int size = locations.size();
+                // Skip data points left of the view,  other than in the whole genome view
+                int first = chrName.equals("All") ? 0 : this.gData.getIndex(chr, (int) Math.floor(origin - dx * locScale));
 
                 // Loop through data points in a chromosome
-                for (int j = 0; j < size; j++) {
+                for (int j = first; j < size; j++) {
 
                     // Get location, e.g. start for the data point
                     int start;
                     if (chrName.equals("All"))
-                        start = genome.getGenomeCoordinate(chr, locations.get(j));
+                        start = genome.getGenomeCoordinate(chr, this.gData.getLocation(chr, j));
                     else
-                        start = locations.get(j);
+                        start = this.gData.getLocation(chr, j);
 
                     // Based on location, calculate X-coordinate, or break if outside of the view
                     double pX = ((start - origin) / locScale);
@@ -245,7 +242,7 @@ public class GWASTrack extends AbstractTrack {
                         break;
 
                     // Based on value of the data point, calculate Y-coordinate
-                    double dataY = values.get(j);
+                    double dataY = this.gData.getValue(chr, j);
 
                     if (!Double.isNaN(dataY)) {
 
@@ -456,8 +453,8 @@ public class GWASTrack extends AbstractTrack {
 
         String textValue = "";
 
-        double value = this.gData.getValues().get(chr).get(index);
-        int hitLocation = this.gData.getLocations().get(chr).get(index);
+        double value = this.gData.getValue(chr, index);
+        int hitLocation = this.gData.getLocation(chr, index);
         int rowIndex = gData.getCumulativeChrLocation(chr) + index;
 
         textValue += chr + ": " + hitLocation + "<br>";
@@ -466,13 +463,15 @@ public class GWASTrack extends AbstractTrack {
 
         try {
 
-            // Look for data point description from cache
+            // Look for data point description stored with the data, then from cache
             //String tmpDescription = gData.getDescriptionCache().getDescriptionString(chr, hitLocation);
-            String tmpDescription = gData.getDescriptionCache().getDescriptionString(chr, hitLocation, value);
+            String tmpDescription = gData.getDescription(chr, index);
+            if (tmpDescription == null)
+                tmpDescription = gData.getDescriptionCache().getDescriptionString(chr, hitLocation, value);
 
 
             // If no description found, populate cache with the description
-            if (tmpDescription == null) {
+            if (tmpDescription == null && parser != null) {
                 // Calculate starting row based on the cache size, i.e. cache descriptions before and after estimated hit location
                 int tmpRow = rowIndex - (gData.getDescriptionCache().getMaxSize() / 2);
                 if (tmpRow < 0)
@@ -26,10 +26,10 @@
 package org.broad.igv.maf;
 
 import org.broad.igv.Globals;
+import org.broad.igv.util.Interval;
 import org.broad.igv.util.ParsingUtils;
 import org.broad.igv.util.ResourceLocator;
-import org.broad.igv.util.index.Interval;
-import org.broad.igv.util.index.IntervalTree;
+import org.broad.igv.util.StaticIntervalIndex;
 import htsjdk.tribble.readers.AsciiLineReader;
 
 import java.io.*;
@@ -45,9 +45,14 @@ public class MAFIndex {
     private List<String> species;
 
     /**
-     * Map of chromosome name -> interval tree
+     * Map of chromosome name -> intervals,  as they are added
      */
-    private Map<String, IntervalTree> intervalTrees;
+    private Map<String, List<Interval<Long>>> intervalLists;
+
+    /**
+     * Map of chromosome name -> interval index,  built from intervalLists on first query
+     */
+    private Map<String, StaticIntervalIndex<Long>> intervalIndexes;
 
     /**
      * The # of alignments represented by an interval in the tree.
@@ -56,7 +61,8 @@ public class MAFIndex {
     public static int blockSize = 50;
 
     public MAFIndex() {
-        intervalTrees = new HashMap<String, IntervalTree>();
+        intervalLists = new LinkedHashMap<String, List<Interval<Long>>>();
+        intervalIndexes = new HashMap<String, StaticIntervalIndex<Long>>();
     }
 
     /**
@@ -78,31 +84,37 @@ public class MAFIndex {
     }
 
     public Collection<String> getChromosomes() {
-        return intervalTrees.keySet();
+        return intervalLists.keySet();
     }
 
-    public IntervalTree getIntervalTree(String chr) {
+    public synchronized StaticIntervalIndex<Long> getIntervalIndex(String chr) {
 
-        IntervalTree iv = intervalTrees.get(chr);
-        if(iv == null) {
-            iv = intervalTrees.get("*"); // To support legacy MAF indeces, files are split by chromosome
+        if (!intervalLists.containsKey(chr)) {
+            chr = "*"; // To support legacy MAF indeces, files are split by chromosome
+        }
+        StaticIntervalIndex<Long> iv = intervalIndexes.get(chr);
+        if (iv == null) {
+            List<Interval<Long>> intervals = intervalLists.get(chr);
+            if (intervals != null) {
+                iv = new StaticIntervalIndex<Long>(intervals);
+                intervalIndexes.put(chr, iv);
+            }
         }
         return iv;
     }
 
-
-    public void putIntervalTree(String s, IntervalTree iv) {
-
-        intervalTrees.put(s, iv);
+    private List<Interval<Long>> getIntervalList(String chr) {
+        List<Interval<Long>> intervals = intervalLists.get(chr);
+        if (intervals == null) {
+            intervals = new ArrayList<Interval<Long>>();
+            intervalLists.put(chr, intervals);
+        }
+        return intervals;
     }
 
-    public void insertInterval(String lastChr, int intervalStart, int intervalEnd, long value) {
-        IntervalTree iv = intervalTrees.get(lastChr);
-        if (iv == null) {
-            iv = new IntervalTree();
-            intervalTrees.put(lastChr, iv);
-        }
-        iv.insert(new Interval(intervalStart, intervalEnd, value));
+    public synchronized void insertInterval(String lastChr, int intervalStart, int intervalEnd, long value) {
+        getIntervalList(lastChr).add(new Interval<Long>(intervalStart, intervalEnd, value));
+        intervalIndexes.remove(lastChr);
     }
 
 
@@ -131,19 +143,18 @@ public class MAFIndex {
                     index.species.add(line.trim());
                 }
 
-                IntervalTree iv = null;
+                List<Interval<Long>> iv = null;
                 while ((line = br.readLine()) != null) {
                     if (line.trim().length() == 0) continue;
                     if (line.startsWith("#chr=")) {
                         String chr = ParsingUtils.EQ_PATTERN.split(line)[1];
-                        iv = new IntervalTree();
-                        index.putIntervalTree(chr, iv);
+                        iv = index.getIntervalList(chr);
                     } else if (iv != null) {
                         String[] info = Globals.tabPattern.split(line);
                         int start = Integer.parseInt(info[0]);
                         int end = Integer.parseInt(info[1]) + start;
                         long offset = Long.parseLong(info[2]);
-                        iv.insert(new Interval(start, end, offset));
+                        iv.add(new Interval<Long>(start, end, offset));
                     } else {
                         // log.info("Skipping line " + line);
                     }
@@ -152,7 +163,7 @@ public class MAFIndex {
             } else {
                 // A "legacy" index, created for Broad hosted files that are separated by chromosome.
                 // Every alignment is indexed, which is overkill.  Below we lump them into blocks of 50.
-                IntervalTree iv = new IntervalTree();
+                List<Interval<Long>> iv = index.getIntervalList("*");
                 int l = 0;
                 int intervalStart = 0;
                 int intervalEnd = 0;
@@ -162,7 +173,7 @@ public class MAFIndex {
                     int start = Integer.parseInt(info[0]);
                     intervalEnd = Integer.parseInt(info[1]) + start;
                     if (l % 50 == 0) {
-                        iv.insert(new Interval(intervalStart, intervalEnd, lastOffset));
+                        iv.add(new Interval<Long>(intervalStart, intervalEnd, lastOffset));
                         intervalStart = intervalEnd;
                         lastOffset = Long.parseLong(info[2]);
                     }
@@ -170,10 +181,9 @@ public class MAFIndex {
                 }
 
                 if(intervalEnd > intervalStart) {
-                    iv.insert(new Interval(intervalStart, intervalEnd, lastOffset));
+                    iv.add(new Interval<Long>(intervalStart, intervalEnd, lastOffset));
                 }
 
-                index.putIntervalTree("*", iv);
             }
         } finally {
             if (br != null) br.close();
@@ -345,9 +355,8 @@ public class MAFIndex {
             Collection<String> chrList = index.getChromosomes();
             for (String chr : chrList) {
                 pw.println("#chr=" + chr);
-                IntervalTree tree = index.getIntervalTree(chr);
-                Collection<Interval> intervals = tree.getIntervals();
-                for (Interval node : intervals) {
+                Collection<Interval<Long>> intervals = index.getIntervalIndex(chr).getIntervals();
+                for (Interval<Long> node : intervals) {
                     pw.print(String.valueOf(node.getLow()));
                     pw.print("\t");
                     pw.print(String.valueOf(node.getHigh() - node.getLow()));
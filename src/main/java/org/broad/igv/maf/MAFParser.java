@@ -27,9 +27,9 @@ package org.broad.igv.maf;
 
 import htsjdk.samtools.seekablestream.SeekableStream;
 import org.broad.igv.Globals;
+import org.broad.igv.util.Interval;
 import org.broad.igv.util.ParsingUtils;
-import org.broad.igv.util.index.Interval;
-import org.broad.igv.util.index.IntervalTree;
+import org.broad.igv.util.StaticIntervalIndex;
 import org.broad.igv.util.stream.IGVSeekableStreamFactory;
 
 import java.io.BufferedReader;
@@ -83,10 +83,10 @@ public class MAFParser implements MAFReader {
     @Override
     public List<MultipleAlignmentBlock> loadAlignments(String chr, int start, int end) throws IOException {
 
-        IntervalTree ivTree = index.getIntervalTree(chr);
-        if (ivTree == null) return null;
+        StaticIntervalIndex<Long> ivIndex = index.getIntervalIndex(chr);
+        if (ivIndex == null) return null;
 
-        List<Interval> intervals = ivTree.findOverlapping(start, end);
+        List<Interval<Long>> intervals = ivIndex.findOverlapping(start, end);
         if (intervals.isEmpty()) {
             return null;
         }
@@ -95,7 +95,7 @@ public class MAFParser implements MAFReader {
         // Find the starting (left most) interval.  Alignment blocks do not overlap, so we can start at the
         // minimum file offset and just proceed until the end of the interval.
         long startPosition = Long.MAX_VALUE;
-        for (Interval iv : intervals) {
+        for (Interval<Long> iv : intervals) {
             startPosition = Math.min(startPosition, iv.getValue());
         }
 
@@ -33,6 +33,7 @@ final public class Constants {
     public static final String SHOW_GENOME_SERVER_WARNING = "SHOW_GENOME_SERVER_WARNING";
     public static final String CN_FREQ_AMP_THRESHOLD = "CN_FREQ.AMP_THRESHOLD";
     public static final String CN_FREQ_DEL_THRESHOLD = "CN_FREQ.DEL_THRESHOLD";
+    public static final String SEG_WHOLE_GENOME_EXTREMES = "SEG.WHOLE_GENOME_EXTREMES";
 
     //
     public static final String RECENT_SESSIONS = "IGV.Session.recent.sessions";
@@ -144,6 +145,8 @@ final public class Constants {
     public static final String SAM_CLIPPING_THRESHOLD = "SAM.CLIPPING_THRESHOLD";
     public static final String SAM_SHOW_GROUP_SEPARATOR = "SAM.SHOW_GROUP_SEPARATOR";
     public static final String SAM_REDUCED_MEMORY_MODE = "SAM.REDUCED_MEMORY_MODE";
+    public static final String SAM_COMPACT_MEMORY_MODE = "SAM.COMPACT_MEMORY_MODE";
+    public static final String SAM_PARALLEL_LOAD = "SAM.PARALLEL_LOAD";
     public static final String SAM_HIDE_SMALL_INDEL = "SAM.HIDE_SMALL_INDEL";
     public static final String SAM_SMALL_INDEL_BP_THRESHOLD = "SAM.SMALL_INDEL_BP_THRESHOLD";
     public static final String SAM_LINK_READS = "SAM.LINK_READS";
@@ -239,6 +242,20 @@ final public class Constants {
     public static final String PORT_ENABLED = "PORT_ENABLED";
     public static final String PORT_NUMBER = "PORT_NUMBER";
 
+    // Remote stream block cache
+    public static final String REMOTE_BLOCK_CACHE = "REMOTE_BLOCK_CACHE.ENABLED";
+    public static final String REMOTE_BLOCK_CACHE_SIZE = "REMOTE_BLOCK_CACHE.SIZE";
+    public static final String REMOTE_BLOCK_CACHE_DISK = "REMOTE_BLOCK_CACHE.DISK";
+    public static final String REMOTE_BLOCK_CACHE_DISK_SIZE = "REMOTE_BLOCK_CACHE.DISK_SIZE";
+
+    // Memory map local files opened as seekable streams
+    public static final String LOCAL_FILE_MAPPING = "LOCAL_FILE_MAPPING";
+
+    // Load scheduler thread limits
+    public static final String LOADER_LOCAL_THREADS = "LOADER.LOCAL_THREADS";
+    public static final String LOADER_REMOTE_THREADS = "LOADER.REMOTE_THREADS";
+    public static final String LOADER_HOST_LIMIT = "LOADER.HOST_LIMIT";
+
     // Database support -- never deployed
     public static final String DB_ENABLED = "DB_ENABLED";
     public static final String DB_HOST = "DB_HOST";
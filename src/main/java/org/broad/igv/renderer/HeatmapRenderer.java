@@ -25,6 +25,7 @@
 
 package org.broad.igv.renderer;
 
+import org.broad.igv.data.LocusScoreArray;
 import org.broad.igv.feature.LocusScore;
 import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.track.RenderContext;
@@ -32,9 +33,11 @@ import org.broad.igv.track.Track;
 import org.broad.igv.track.TrackType;
 
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 
 import static org.broad.igv.prefs.Constants.CHART_SHOW_ALL_HEATMAP;
 
@@ -78,15 +81,34 @@ public class HeatmapRenderer extends DataRenderer {
         int lastPStart = 0;
         int lastW = 0;
 
-        for (LocusScore score : scores) {
+        // Read score arrays directly,  without creating score objects
+        LocusScoreArray scoreArray = scores instanceof LocusScoreArray ? (LocusScoreArray) scores : null;
+        if (!(scores instanceof RandomAccess)) {
+            scores = new ArrayList<>(scores);
+        }
+
+        for (int i = 0, size = scores.size(); i < size; i++) {
             if (lastPStart > maxX) {
                 break;
             }
 
+            int start, end;
+            float value;
+            if (scoreArray != null) {
+                start = scoreArray.getStart(i);
+                end = scoreArray.getEnd(i);
+                value = scoreArray.getValue(i);
+            } else {
+                LocusScore score = scores.get(i);
+                start = score.getStart();
+                end = score.getEnd();
+                value = score.getScore();
+            }
+
             // Note -- don't cast these to an int until the range is checked,
             // otherwise could get an overflow.
-            float fStart = (float) ((score.getStart() - origin) / locScale);
-            float fEnd = (float) ((score.getEnd() - origin) / locScale);
+            float fStart = (float) ((start - origin) / locScale);
+            float fEnd = (float) ((end - origin) / locScale);
             // float fw = fEnd - fStart;
             int pStart = (int) fStart;
             int pEnd = (int) fEnd;
@@ -100,7 +122,7 @@ public class HeatmapRenderer extends DataRenderer {
 
             int w = Math.max(min, pEnd - pStart);
 
-            float dataY = track.logScaleData(score.getScore());
+            float dataY = track.logScaleData(value);
             Color graphColor = colorScale.getColor(dataY);
 
             if ((pStart + w) >= 0 && (lastPStart <= maxX)) {
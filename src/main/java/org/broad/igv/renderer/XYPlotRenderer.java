@@ -33,6 +33,7 @@ package org.broad.igv.renderer;
 //~--- non-JDK imports --------------------------------------------------------
 
 import org.broad.igv.Globals;
+import org.broad.igv.data.LocusScoreArray;
 import org.broad.igv.feature.LocusScore;
 import org.broad.igv.prefs.IGVPreferences;
 import org.broad.igv.prefs.PreferencesManager;
@@ -43,7 +44,9 @@ import org.broad.igv.ui.UIConstants;
 
 import java.awt.*;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
 
 import static org.broad.igv.prefs.Constants.*;
 
@@ -108,19 +111,37 @@ public abstract class XYPlotRenderer extends DataRenderer {
             baseY = adjustedRect.y + adjustedRect.height;
         }
 
-        for (LocusScore score : locusScores) {
+        // Read score arrays directly,  without creating score objects
+        LocusScoreArray scoreArray = locusScores instanceof LocusScoreArray ? (LocusScoreArray) locusScores : null;
+        if (!(locusScores instanceof RandomAccess)) {
+            locusScores = new ArrayList<>(locusScores);
+        }
+
+        for (int i = 0, size = locusScores.size(); i < size; i++) {
+
+            int start, end;
+            float dataY;
+            if (scoreArray != null) {
+                start = scoreArray.getStart(i);
+                end = scoreArray.getEnd(i);
+                dataY = scoreArray.getValue(i);
+            } else {
+                LocusScore score = locusScores.get(i);
+                start = score.getStart();
+                end = score.getEnd();
+                dataY = score.getScore();
+            }
 
             // Note -- don't cast these to an int until the range is checked.
             // could get an overflow.
-            double pX = ((score.getStart() - origin) / locScale);
-            double dx = Math.ceil((Math.max(1, score.getEnd() - score.getStart())) / locScale) + 1;
+            double pX = ((start - origin) / locScale);
+            double dx = Math.ceil((Math.max(1, end - start)) / locScale) + 1;
             if ((pX + dx < 0)) {
                 continue;
             } else if (pX > adjustedRect.getMaxX()) {
                 break;
             }
 
-            float dataY = score.getScore();
             if (isLog && dataY <= 0) {
                 continue;
             }
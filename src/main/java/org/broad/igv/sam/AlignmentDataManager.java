@@ -41,11 +41,14 @@ import org.broad.igv.event.IGVEventObserver;
 import org.broad.igv.track.Track;
 import org.broad.igv.ui.panel.FrameManager;
 import org.broad.igv.ui.panel.ReferenceFrame;
+import org.broad.igv.util.LoadScheduler;
 import org.broad.igv.util.ResourceLocator;
 import org.broad.igv.util.collections.IntArrayList;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 import static org.broad.igv.prefs.Constants.*;
 
@@ -58,7 +61,6 @@ public class AlignmentDataManager implements IGVEventObserver {
 
     private static Logger log = Logger.getLogger(AlignmentDataManager.class);
 
-
     private List<AlignmentInterval> intervalCache;
     private ResourceLocator locator;
     private HashMap<String, String> chrMappings = new HashMap();
@@ -68,6 +70,17 @@ public class AlignmentDataManager implements IGVEventObserver {
     private Map<String, PEStats> peStats;
     private SpliceJunctionHelper.LoadOptions loadOptions;
     private Object loadLock = new Object();
+
+    /**
+     * Interval loaded speculatively in the direction of the last pan,  and the center of the last loaded interval.
+     * Both guarded by loadLock.
+     */
+    private AlignmentInterval prefetchedInterval;
+    private String lastLoadedChr;
+    private int lastLoadedCenter = -1;
+
+    // Cancellation flag of the pending or running prefetch,  if any
+    private volatile AtomicBoolean prefetchCancel;
     AlignmentTrack.ExperimentType inferredExperimentType;
     private Set<Track> subscribedTracks;
 
@@ -321,6 +334,8 @@ public class AlignmentDataManager implements IGVEventObserver {
 
         if (isLoading(referenceFrame)) return;   // Already oading
 
+        cancelPrefetch();    // Foreground loads take precedence,  and need loadLock
+
         synchronized (loadLock) {
             Range range = referenceFrame.getCurrentRange();
 
@@ -344,10 +359,15 @@ public class AlignmentDataManager implements IGVEventObserver {
             }
 
 
-            log.debug("Loading alignments: " + chr + ":" + adjustedStart + "-" + adjustedEnd + " for " + AlignmentDataManager.this);
-
-
-            AlignmentInterval loadedInterval = loadInterval(chr, adjustedStart, adjustedEnd, renderOptions);
+            AlignmentInterval loadedInterval;
+            if (prefetchedInterval != null && prefetchedInterval.contains(range)) {
+                log.debug("Using prefetched alignments: " + prefetchedInterval);
+                loadedInterval = prefetchedInterval;
+                prefetchedInterval = null;
+            } else {
+                log.debug("Loading alignments: " + chr + ":" + adjustedStart + "-" + adjustedEnd + " for " + AlignmentDataManager.this);
+                loadedInterval = loadInterval(chr, adjustedStart, adjustedEnd, renderOptions);
+            }
 
             trimCache();
 
@@ -356,12 +376,74 @@ public class AlignmentDataManager implements IGVEventObserver {
             packAlignments(renderOptions);
             isLoading.remove(range);
 
+            if (expandEnds && PreferencesManager.getPreferences().getAsBoolean(SAM_PARALLEL_LOAD)) {
+                schedulePrefetch(loadedInterval, renderOptions);
+            }
+
             //  IGVEventBus.getInstance().post(new DataLoadedEvent(referenceFrame));
 
         }
     }
 
 
+    /**
+     * Speculatively load the interval adjacent to {@code loaded} in the direction of the last pan.  The prefetch
+     * runs as a background load,  reporting nothing to the UI.  It holds loadLock while reading,  as the underlying
+     * reader supports a single open query,  and is cancelled by the next foreground load.
+     */
+    private void schedulePrefetch(AlignmentInterval loaded, AlignmentTrack.RenderOptions renderOptions) {
+
+        final String chr = loaded.getChr();
+        final int center = (loaded.getStart() + loaded.getEnd()) / 2;
+        final int width = loaded.getEnd() - loaded.getStart();
+        boolean panned = chr.equals(lastLoadedChr) && lastLoadedCenter >= 0 && center != lastLoadedCenter;
+        final boolean panRight = center > lastLoadedCenter;
+        lastLoadedChr = chr;
+        lastLoadedCenter = center;
+        if (!panned) return;
+
+        final int start = panRight ? loaded.getEnd() : Math.max(0, loaded.getStart() - width);
+        final int end = panRight ? loaded.getEnd() + width : loaded.getStart();
+        if (end <= start) return;
+
+        final AtomicBoolean cancel = new AtomicBoolean();
+        prefetchCancel = cancel;
+        LoadScheduler.getInstance().submit(() -> {
+            if (cancel.get()) return;
+            synchronized (loadLock) {
+                // Skip if the user has moved on to another locus, or the region is already available
+                if (cancel.get() || !chr.equals(lastLoadedChr) || lastLoadedCenter != center) return;
+                if (prefetchedInterval != null && prefetchedInterval.contains(chr, start, end)) return;
+                for (AlignmentInterval interval : intervalCache) {
+                    if (interval.contains(chr, start, end)) return;
+                }
+                log.debug("Prefetching alignments: " + chr + ":" + start + "-" + end);
+                prefetchedInterval = null;     // Release the previous prefetch before loading
+                AlignmentInterval interval = loadInterval(chr, start, end, renderOptions, cancel::get);
+                if (!cancel.get()) {
+                    prefetchedInterval = interval;
+                }
+            }
+        }, locator, LoadScheduler.Priority.BACKGROUND);
+    }
+
+    /**
+     * @return the prefetched interval not yet used,  or null.  Waits for a prefetch in progress.
+     */
+    AlignmentInterval getPrefetchedInterval() {
+        synchronized (loadLock) {
+            return prefetchedInterval;
+        }
+    }
+
+    private void cancelPrefetch() {
+        AtomicBoolean cancel = prefetchCancel;
+        if (cancel != null) {
+            cancel.set(true);
+        }
+    }
+
+
     /**
      * Remove out-of-view intervals from the cache.  This is O(N) where N = #frames X #intervals.   It is assumed
      * that N is small
@@ -385,11 +467,26 @@ public class AlignmentDataManager implements IGVEventObserver {
                 return true;
             }
         }
+        for (ReferenceFrame frame : FrameManager.getOffscreenFrames()) {
+            if (interval.contains(frame.getCurrentRange())) {
+                return true;
+            }
+        }
         return false;
     }
 
 
     AlignmentInterval loadInterval(String chr, int start, int end, AlignmentTrack.RenderOptions renderOptions) {
+        return loadInterval(chr, start, end, renderOptions, null);
+    }
+
+    /**
+     * @param backgroundCancel if not null,  load in the background until it returns true (see
+     *                         {@link AlignmentTileLoader#loadTile})
+     * @return the interval,  or null if a background load is abandoned or fails
+     */
+    private AlignmentInterval loadInterval(String chr, int start, int end, AlignmentTrack.RenderOptions renderOptions,
+                                           BooleanSupplier backgroundCancel) {
 
         String sequence = chrMappings.containsKey(chr) ? chrMappings.get(chr) : chr;
 
@@ -403,8 +500,11 @@ public class AlignmentDataManager implements IGVEventObserver {
         ReadStats readStats = new ReadStats();
 
         AlignmentTileLoader.AlignmentTile t = reader.loadTile(sequence, start, end, spliceJunctionHelper,
-                downsampleOptions, readStats, peStats, bisulfiteContext);
-//
+                downsampleOptions, readStats, peStats, bisulfiteContext, backgroundCancel);
+        if (t == null) {
+            return null;
+        }
+
         if (inferredExperimentType == null) {
             readStats.compute();
             inferType(readStats);
@@ -445,13 +545,16 @@ public class AlignmentDataManager implements IGVEventObserver {
     }
 
     public void clear() {
+        cancelPrefetch();
         intervalCache.clear();
+        prefetchedInterval = null;
     }
 
     public void dumpAlignments() {
         for (AlignmentInterval interval : intervalCache) {
             interval.dumpAlignments();
         }
+        prefetchedInterval = null;
     }
 
     /**
@@ -32,6 +32,7 @@ import org.broad.igv.Globals;
 import org.broad.igv.prefs.IGVPreferences;
 import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.sam.reader.AlignmentReader;
+import org.broad.igv.sam.reader.AsyncAlignmentIterator;
 import org.broad.igv.sam.reader.ReadGroupFilter;
 import org.broad.igv.ui.IGV;
 import org.broad.igv.event.IGVEventBus;
@@ -40,11 +41,13 @@ import org.broad.igv.event.StopEvent;
 import org.broad.igv.ui.util.MessageUtils;
 import org.broad.igv.util.ObjectCache;
 import org.broad.igv.util.RuntimeUtils;
+import org.broad.igv.util.collections.IntIntHashMap;
 
 import javax.swing.*;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.function.BooleanSupplier;
 
 import static org.broad.igv.prefs.Constants.*;
 
@@ -122,6 +125,25 @@ public class AlignmentTileLoader implements IGVEventObserver {
                            AlignmentDataManager.DownsampleOptions downsampleOptions,
                            ReadStats readStats, Map<String, PEStats> peStats,
                            AlignmentTrack.BisulfiteContext bisulfiteContext) {
+        return loadTile(chr, start, end, spliceJunctionHelper, downsampleOptions, readStats, peStats, bisulfiteContext, null);
+    }
+
+    /**
+     * Load a tile.  If {@code backgroundCancel} is not null this is a background load,  e.g. a prefetch,  which
+     * reports nothing to the UI and is abandoned when {@code backgroundCancel} returns true.
+     *
+     * @return the tile,  or null if a background load is abandoned or fails
+     */
+    AlignmentTile loadTile(String chr,
+                           int start,
+                           int end,
+                           SpliceJunctionHelper spliceJunctionHelper,
+                           AlignmentDataManager.DownsampleOptions downsampleOptions,
+                           ReadStats readStats, Map<String, PEStats> peStats,
+                           AlignmentTrack.BisulfiteContext bisulfiteContext,
+                           BooleanSupplier backgroundCancel) {
+
+        final boolean background = backgroundCancel != null;
 
         final IGVPreferences prefMgr = PreferencesManager.getPreferences();
         boolean filterFailedReads = prefMgr.getAsBoolean(SAM_FILTER_FAILED_READS);
@@ -133,8 +155,10 @@ public class AlignmentTileLoader implements IGVEventObserver {
         int alignmentScoreTheshold = prefMgr.getAsInt(SAM_ALIGNMENT_SCORE_THRESHOLD);
 
         boolean reducedMemory = prefMgr.getAsBoolean(SAM_REDUCED_MEMORY_MODE);
+        boolean compactMemory = !reducedMemory && prefMgr.getAsBoolean(SAM_COMPACT_MEMORY_MODE);
 
-        AlignmentTile t = new AlignmentTile(start, end, spliceJunctionHelper, downsampleOptions, bisulfiteContext, reducedMemory);
+        AlignmentTile t = new AlignmentTile(start, end, spliceJunctionHelper, downsampleOptions, bisulfiteContext,
+                reducedMemory, compactMemory);
 
 
         //assert (tiles.size() > 0);
@@ -152,20 +176,29 @@ public class AlignmentTileLoader implements IGVEventObserver {
             ObjectCache<String, Alignment> mappedMates = new ObjectCache<String, Alignment>(1000);
             ObjectCache<String, Alignment> unmappedMates = new ObjectCache<String, Alignment>(1000);
 
-            activeLoaders.add(ref);
             IGVEventBus.getInstance().subscribe(StopEvent.class, this);
 
-            if (IGV.hasInstance()) {
-                IGV.getInstance().enableStopButton(true);
+            if (!background) {
+                activeLoaders.add(ref);
+                if (IGV.hasInstance()) {
+                    IGV.getInstance().enableStopButton(true);
+                }
             }
 
             iter = reader.query(chr, start, end, false);
+            if (iter != null && prefMgr.getAsBoolean(SAM_PARALLEL_LOAD)) {
+                // Decode records on a worker thread while this thread filters and counts them
+                iter = new AsyncAlignmentIterator<>(iter);
+            }
 
             while (iter != null && iter.hasNext()) {
 
                 if (cancel) {
                     break;
                 }
+                if (background && backgroundCancel.getAsBoolean()) {
+                    return null;
+                }
 
                 Alignment record = iter.next();
 
@@ -241,17 +274,28 @@ public class AlignmentTileLoader implements IGVEventObserver {
 
                 }
 
-                t.addRecord(record, reducedMemory);
+                Alignment retained = t.addRecord(record, reducedMemory);
+
+                // If the record was copied to a compact store the copy must receive any mate sequence found later
+                if (retained != null && retained != record && mappedMates.get(readName) == record) {
+                    mappedMates.put(readName, retained);
+                }
 
                 alignmentCount++;
                 int interval = Globals.isTesting() ? 100000 : 1000;
                 if (alignmentCount % interval == 0) {
-                    String msg = "Reads loaded: " + alignmentCount;
-                    MessageUtils.setStatusBarMessage(msg);
-                    if (memoryTooLow()) {
-                        cancelReaders();
-                        t.finish();
-                        return t;
+                    if (background) {
+                        if (RuntimeUtils.getAvailableMemoryFraction() < 0.2) {
+                            return null;
+                        }
+                    } else {
+                        String msg = "Reads loaded: " + alignmentCount;
+                        MessageUtils.setStatusBarMessage(msg);
+                        if (memoryTooLow()) {
+                            cancelReaders();
+                            t.finish();
+                            return t;
+                        }
                     }
                 }
 
@@ -270,6 +314,10 @@ public class AlignmentTileLoader implements IGVEventObserver {
             }
             // End iteration over alignments
 
+            if (background && cancel) {
+                return null;
+            }
+
             // Compute peStats
             if (peStats != null) {
                 // TODO -- something smarter re the percentiles.  For small samples these will revert to min and max
@@ -299,21 +347,33 @@ public class AlignmentTileLoader implements IGVEventObserver {
             t.finish();
 
             // TODO -- make this optional (on a preference)
-            InsertionManager.getInstance().processAlignments(chr, t.alignments);
+            InsertionManager.getInstance().addInsertions(chr, t.insertionSizes);
 
 
         } catch (java.nio.BufferUnderflowException e) {
             // This almost always indicates a corrupt BAM index, or less frequently a corrupt bam file
             corruptIndex = true;
-            MessageUtils.showMessage("<html>Error encountered querying alignments: " + e.toString() +
-                    "<br>This is often caused by a corrupt index file.");
+            if (background) {
+                t = null;
+            } else {
+                MessageUtils.showMessage("<html>Error encountered querying alignments: " + e.toString() +
+                        "<br>This is often caused by a corrupt index file.");
+            }
 
         } catch (htsjdk.samtools.cram.CRAMException e) {
             log.error("Error loading alignment data", e);
-            MessageUtils.showMessage("<html>Error - possible sequence mismatch (wrong reference for this file): " + e.toString());
+            if (background) {
+                t = null;
+            } else {
+                MessageUtils.showMessage("<html>Error - possible sequence mismatch (wrong reference for this file): " + e.toString());
+            }
         } catch (Exception e) {
             log.error("Error loading alignment data", e);
-            MessageUtils.showMessage("<html>Error encountered querying alignments: " + e.toString());
+            if (background) {
+                t = null;
+            } else {
+                MessageUtils.showMessage("<html>Error encountered querying alignments: " + e.toString());
+            }
         } finally {
             // reset cancel flag.  It doesn't matter how we got here,  the read is complete and this flag is reset
             // for the next time
@@ -323,14 +383,14 @@ public class AlignmentTileLoader implements IGVEventObserver {
 
             IGVEventBus.getInstance().unsubscribe(this);
 
-            if (activeLoaders.isEmpty() && IGV.hasInstance()) {
+            if (!background && activeLoaders.isEmpty() && IGV.hasInstance()) {
                 IGV.getInstance().enableStopButton(false);
             }
 
             if (iter != null) {
                 iter.close();
             }
-            if (!Globals.isHeadless()) {
+            if (!background && !Globals.isHeadless()) {
                 IGV.getInstance().resetStatusMessage();
             }
         }
@@ -426,31 +486,46 @@ public class AlignmentTileLoader implements IGVEventObserver {
          */
         IndexableMap<String, Alignment> imAlignments;
 
+        /**
+         * Columnar store for retained alignments, null unless compact memory mode is enabled
+         */
+        private CompactAlignmentStore compactStore;
+
         private int downsampledCount = 0;
         private int offset = 0;
         private int indelLimit;
 
+        /**
+         * Maximum insertion length by position,  collected as records are added for the InsertionManager
+         */
+        private final IntIntHashMap insertionSizes = new IntIntHashMap(1000, 0);
+        private final int minInsertionLength;
+
         AlignmentTile(int start,
                       int end,
                       SpliceJunctionHelper spliceJunctionHelper,
                       AlignmentDataManager.DownsampleOptions downsampleOptions,
                       AlignmentTrack.BisulfiteContext bisulfiteContext,
-                      boolean reducedMemory) {
+                      boolean reducedMemory,
+                      boolean compactMemory) {
             this.start = start;
             this.end = end;
             this.downsampledIntervals = new ArrayList<DownsampledInterval>();
 
             this.indelLimit = PreferencesManager.getPreferences().getAsInt(SAM_SMALL_INDEL_BP_THRESHOLD);
+            this.minInsertionLength = InsertionManager.getMinInsertionLength();
 
             long seed = System.currentTimeMillis();
             //System.out.println("seed: " + seed);
             RAND.setSeed(seed);
 
-            // Use a sparse array for large regions  (> 10 mb)
+            // Use a sparse array for large regions  (> 10 mb),  and packed counts for wide regions (> 1 mb)
             if (reducedMemory) {
                 this.counts = new ReducedMemoryAlignment.ReducedMemoryAlignmentCounts(start, end, 25);
             } else if ((end - start) > 10000000) {
                 this.counts = new SparseAlignmentCounts(start, end, bisulfiteContext);
+            } else if (compactMemory || (end - start) > 1000000) {
+                this.counts = new PackedAlignmentCounts(start, end, bisulfiteContext);
             } else {
                 this.counts = new DenseAlignmentCounts(start, end, bisulfiteContext);
             }
@@ -472,6 +547,10 @@ public class AlignmentTileLoader implements IGVEventObserver {
             } else {
                 alignments = new ArrayList<Alignment>(16000);
             }
+
+            if (compactMemory) {
+                compactStore = new CompactAlignmentStore();
+            }
         }
 
         public int getStart() {
@@ -488,8 +567,11 @@ public class AlignmentTileLoader implements IGVEventObserver {
          * Add an alignment record to this tile.  This record is not necessarily retained after down-sampling.
          * <p/>
          * // * @param alignment
+         *
+         * @return the alignment object retained by the tile,  which may be a compact copy of the record,  or null
+         * if the record was not retained
          */
-        public void addRecord(Alignment alignment, boolean reducedMemory) {
+        public Alignment addRecord(Alignment alignment, boolean reducedMemory) {
 
             if (reducedMemory) {
                 alignment = new ReducedMemoryAlignment(alignment, this.indelLimit);
@@ -497,10 +579,13 @@ public class AlignmentTileLoader implements IGVEventObserver {
 
             counts.incCounts(alignment);
 
+            InsertionManager.collectInsertions(alignment, minInsertionLength, insertionSizes);
+
             if (spliceJunctionHelper != null) {
                 spliceJunctionHelper.addAlignment(alignment);
             }
 
+            Alignment retained;
             if (downsample) {
                 final int alignmentStart = alignment.getAlignmentStart();
                 int currentSamplingBucketEnd = currentSamplingWindowStart + samplingWindowSize;
@@ -508,13 +593,25 @@ public class AlignmentTileLoader implements IGVEventObserver {
                     setCurrentSamplingBucket(alignmentStart);
                 }
 
-                attemptAddRecordDownsampled(alignment);
+                retained = attemptAddRecordDownsampled(alignment);
 
             } else {
-                alignments.add(alignment);
+                retained = compact(alignment);
+                alignments.add(retained);
             }
 
             alignment.finish();
+            return retained;
+        }
+
+        /**
+         * Copy the alignment to the compact store,  if enabled.  Counts and splice junctions must be computed from the
+         * original alignment before this call.
+         */
+        private Alignment compact(Alignment alignment) {
+            return compactStore != null && CompactAlignmentStore.canStore(alignment) ?
+                    compactStore.add(alignment) :
+                    alignment;
         }
 
         /**
@@ -525,8 +622,9 @@ public class AlignmentTileLoader implements IGVEventObserver {
          * reservoir sampling
          *
          * @param alignment
+         * @return the retained alignment,  or null if the alignment was not kept
          */
-        private void attemptAddRecordDownsampled(Alignment alignment) {
+        private Alignment attemptAddRecordDownsampled(Alignment alignment) {
             String readName = alignment.getReadName();
             //A simple way to turn off the same-readName-checking is to replace the read name with a random string
             //so that there are no repeats
@@ -534,19 +632,22 @@ public class AlignmentTileLoader implements IGVEventObserver {
 
             //There are 3 possibilities: other-kept, other-rejected, other-unknown (haven't seen)
             //If we kept or rejected the another read with the same name, we do the same for this one
+            Alignment retained = null;
             boolean hasRead = imAlignments.containsKey(readName);
             if (hasRead) {
                 List<Alignment> mateAlignments = imAlignments.get(readName);
                 boolean haveOther = mateAlignments != null;
                 if (haveOther) {
                     //We keep the alignment if others have been kept
-                    imAlignments.append(readName, alignment);
+                    retained = compact(alignment);
+                    imAlignments.append(readName, retained);
                 } else {
                     currentDownsampledInterval.incCount();
                 }
             } else {
                 if (curEffSamplingWindowDepth < samplingDepth) {
-                    imAlignments.append(readName, alignment);
+                    retained = compact(alignment);
+                    imAlignments.append(readName, retained);
                     curEffSamplingWindowDepth++;
                 } else {
                     double samplingProb = ((double) samplingDepth) / (samplingDepth + downsampledCount + 1);
@@ -554,7 +655,8 @@ public class AlignmentTileLoader implements IGVEventObserver {
                         int rndInt = (int) (RAND.nextDouble() * (samplingDepth - 1));
                         int idx = offset + rndInt;
                         // Replace random record with this one
-                        List<Alignment> removedValues = imAlignments.replace(idx, readName, alignment);
+                        retained = compact(alignment);
+                        List<Alignment> removedValues = imAlignments.replace(idx, readName, retained);
                         incrementDownsampledIntervals(removedValues);
                     } else {
                         //Mark that record was not kept
@@ -564,6 +666,7 @@ public class AlignmentTileLoader implements IGVEventObserver {
                     downsampledCount++;
                 }
             }
+            return retained;
         }
 
         private void setCurrentSamplingBucket(int alignmentStart) {
@@ -662,6 +765,10 @@ public class AlignmentTileLoader implements IGVEventObserver {
             if (downsample) {
                 sortFilterDownsampled();
             }
+            if (compactStore != null && alignments != null) {
+                // Drop alignments discarded by downsampling, and store the remainder in start order
+                compactStore = compactStore.compact(alignments);
+            }
             finalizeSpliceJunctions();
             counts.finish();
         }
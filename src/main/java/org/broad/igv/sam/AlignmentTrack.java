@@ -40,6 +40,7 @@ import org.broad.igv.feature.genome.Genome;
 import org.broad.igv.lists.GeneList;
 import org.broad.igv.prefs.Constants;
 import org.broad.igv.prefs.IGVPreferences;
+import org.broad.igv.prefs.PreferencesChangeEvent;
 import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.renderer.GraphicUtils;
 import org.broad.igv.sashimi.SashimiPlot;
@@ -134,6 +135,7 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
     private JComponent dataPanel;
     private HashMap<String, Color> selectedReadNames = new HashMap();
     private HashMap<Rectangle, String> groupNames = new HashMap<>();
+    private final RasterTileCache tileCache = new RasterTileCache();
 
     public enum ShadeBasesOption {
         NONE, QUALITY
@@ -239,6 +241,7 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
         IGVEventBus.getInstance().subscribe(FrameManager.ChangeEvent.class, this);
         IGVEventBus.getInstance().subscribe(ExperimentTypeChangeEvent.class, this);
         IGVEventBus.getInstance().subscribe(AlignmentTrackEvent.class, this);
+        IGVEventBus.getInstance().subscribe(PreferencesChangeEvent.class, this);
     }
 
 
@@ -255,6 +258,15 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
             }
             insertionIntervalsMap = newMap;
 
+            List<String> frameNames = new ArrayList<>();
+            for (ReferenceFrame frame : ((FrameManager.ChangeEvent) event).getFrames()) {
+                frameNames.add(frame.getName());
+            }
+            tileCache.retainFrames(frameNames);
+
+        } else if (event instanceof PreferencesChangeEvent) {
+            tileCache.clear();
+
         } else if (event instanceof ExperimentTypeChangeEvent) {
 
             if (experimentType == null) {
@@ -268,6 +280,7 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
         } else if (event instanceof AlignmentTrackEvent) {
             AlignmentTrackEvent e = (AlignmentTrackEvent) event;
             AlignmentTrackEvent.Type eventType = e.getType();
+            tileCache.clear();
             switch (eventType) {
                 case ALLELE_THRESHOLD:
                     dataManager.alleleThresholdChanged();
@@ -588,6 +601,21 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
             h = squishedHeight;
         }
 
+        // While dragging,  paint rows from cached tiles and render only newly exposed tiles
+        final boolean useTiles = useTileCache(context, inputRect);
+        if (useTiles) {
+            final double rowHeight = h;
+            final AlignmentCounts alignmentCounts = dataManager.getLoadedInterval(context.getReferenceFrame()).getCounts();
+            int top = Math.max(inputRect.y, visibleRect.y);
+            int bottom = Math.min(inputRect.y + inputRect.height, visibleRect.y + visibleRect.height);
+            TileKey key = new TileKey(context, inputRect, top, bottom - top, rowHeight, groups, alignmentCounts,
+                    renderOptions, leaveMargin, selectedReadNames.hashCode());
+            tileCache.paint(context, top, bottom - top, key,
+                    tileContext -> renderRows(tileContext, groups, inputRect, rowHeight, renderOptions, leaveMargin, alignmentCounts));
+        } else {
+            tileCache.release(context.getReferenceFrame().getName());
+        }
+
         // Loop through groups
         Graphics2D groupBorderGraphics = context.getGraphic2DForColor(AlignmentRenderer.GROUP_DIVIDER_COLOR);
         int nGroups = groups.size();
@@ -607,11 +635,13 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
                 }
 
                 if (y + h > visibleRect.getY()) {
-                    Rectangle rowRectangle = new Rectangle(inputRect.x, (int) y, inputRect.width, (int) h);
-                    AlignmentCounts alignmentCounts = dataManager.getLoadedInterval(context.getReferenceFrame()).getCounts();
+                    if (!useTiles) {
+                        Rectangle rowRectangle = new Rectangle(inputRect.x, (int) y, inputRect.width, (int) h);
+                        AlignmentCounts alignmentCounts = dataManager.getLoadedInterval(context.getReferenceFrame()).getCounts();
 
-                    renderer.renderAlignments(row.alignments, context, rowRectangle,
-                            inputRect, renderOptions, leaveMargin, selectedReadNames, alignmentCounts, getPreferences());
+                        renderer.renderAlignments(row.alignments, context, rowRectangle,
+                                inputRect, renderOptions, leaveMargin, selectedReadNames, alignmentCounts, getPreferences());
+                    }
                     row.y = y;
                     row.h = h;
                 }
@@ -652,6 +682,103 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
     }
 
 
+    /**
+     * Render the alignment rows intersecting the visible rect of {@code context},  laid out as in renderAlignments.
+     * Used to render cached tiles.
+     */
+    private void renderRows(RenderContext context, PackedAlignments groups, Rectangle inputRect, double h,
+                            RenderOptions renderOptions, boolean leaveMargin, AlignmentCounts alignmentCounts) {
+
+        Rectangle visibleRect = context.getVisibleRect();
+        Rectangle rowsRect = new Rectangle(visibleRect.x, inputRect.y, visibleRect.width, inputRect.height);
+        double y = inputRect.getY();
+        for (List<Row> rows : groups.values()) {
+            for (Row row : rows) {
+                if (y > visibleRect.getMaxY()) {
+                    return;
+                }
+                if (y + h > visibleRect.getY()) {
+                    Rectangle rowRectangle = new Rectangle(visibleRect.x, (int) y, visibleRect.width, (int) h);
+                    renderer.renderAlignments(row.alignments, context, rowRectangle,
+                            rowsRect, renderOptions, leaveMargin, selectedReadNames, alignmentCounts, getPreferences());
+                }
+                y += h;
+            }
+            y += GROUP_MARGIN;
+        }
+    }
+
+    /**
+     * Tiles are used only while the frame is dragged.  Otherwise rows are rendered directly,  which also refreshes
+     * the insertion pixel ranges used for popup text.  Views that depend on more than the genomic position,  such as
+     * an expanded insertion or the center line,  are always rendered directly.
+     */
+    private boolean useTileCache(RenderContext context, Rectangle inputRect) {
+        return context.getReferenceFrame().isDragging() &&
+                !context.multiframe &&
+                context.translateX == 0 &&
+                inputRect.x == 0 &&
+                InsertionManager.getInstance().getSelectedInsertion(context.getChr()) == null &&
+                !getPreferences().getAsBoolean(SAM_SHOW_CENTER_LINE);
+    }
+
+    /**
+     * State a set of cached alignment tiles is valid for.  Packing and counts are compared by identity,  a repack or
+     * reload replaces them.
+     */
+    private static class TileKey {
+
+        final String chr;
+        final double scale;
+        final int rowsY;
+        final int top;
+        final int height;
+        final double rowHeight;
+        final PackedAlignments groups;
+        final AlignmentCounts counts;
+        final int renderOptionsHash;
+        final boolean leaveMargin;
+        final int selectionHash;
+
+        TileKey(RenderContext context, Rectangle inputRect, int top, int height, double rowHeight, PackedAlignments groups,
+                AlignmentCounts counts, RenderOptions renderOptions, boolean leaveMargin, int selectionHash) {
+            this.chr = context.getChr();
+            this.scale = context.getScale();
+            this.rowsY = inputRect.y;
+            this.top = top;
+            this.height = height;
+            this.rowHeight = rowHeight;
+            this.groups = groups;
+            this.counts = counts;
+            this.renderOptionsHash = renderOptions.stateHash();
+            this.leaveMargin = leaveMargin;
+            this.selectionHash = selectionHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TileKey)) return false;
+            TileKey k = (TileKey) o;
+            return chr.equals(k.chr) &&
+                    scale == k.scale &&
+                    rowsY == k.rowsY &&
+                    top == k.top &&
+                    height == k.height &&
+                    rowHeight == k.rowHeight &&
+                    groups == k.groups &&
+                    counts == k.counts &&
+                    renderOptionsHash == k.renderOptionsHash &&
+                    leaveMargin == k.leaveMargin &&
+                    selectionHash == k.selectionHash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(chr, scale, rowsY, top, height, rowHeight, renderOptionsHash, selectionHash);
+        }
+    }
+
     public void renderExpandedInsertion(InsertionMarker insertionMarker, RenderContext context, Rectangle inputRect) {
 
 
@@ -796,6 +923,7 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
      * @return Whether sorting was performed. If data is still loading, this will return false
      */
     public boolean sortRows(SortOption option, ReferenceFrame referenceFrame, double location, String tag) {
+        tileCache.clear();
         return dataManager.sortRows(option, referenceFrame, location, tag);
     }
 
@@ -1144,6 +1272,7 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
     }
 
     public void clearCaches() {
+        tileCache.clear();
         if (dataManager != null) dataManager.clear();
         if (spliceJunctionTrack != null) spliceJunctionTrack.clear();
     }
@@ -2534,6 +2663,17 @@ public class AlignmentTrack extends AbstractTrack implements IGVEventObserver {
             return quickConsensusMode == null ? defaultValues.quickConsensusMode : quickConsensusMode;
         }
 
+        /**
+         * Hash of the options that affect how alignments are drawn,  used to validate cached tiles.
+         */
+        int stateHash() {
+            return Objects.hash(getShadeBasesOption(), isShadeCenters(), isFlagUnmappedPairs(), isShowAllBases(),
+                    getMinInsertSize(), getMaxInsertSize(), getColorOption(), getColorByTag(), isViewPairs(),
+                    isShowMismatches(), isComputeIsizes(), getMinInsertSizePercentile(), getMaxInsertSizePercentile(),
+                    isFlagZeroQualityAlignments(), isLinkedReads(), getLinkByTag(), isQuickConsensusMode(),
+                    bisulfiteContext, drawInsertionIntervals);
+        }
+
         public void refreshDefaults(ExperimentType experimentType) {
             defaultValues = new DefaultValues(getPreferences(experimentType));
         }
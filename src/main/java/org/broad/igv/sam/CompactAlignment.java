@@ -0,0 +1,383 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import org.broad.igv.feature.Strand;
+import org.broad.igv.track.WindowFunction;
+
+import java.awt.*;
+import java.util.List;
+
+/**
+ * A flyweight view of an alignment held in a {@link CompactAlignmentStore}.  The view holds no alignment data of its
+ * own,  all accessors are delegated to the store.  Block, insertion, and gap views are created on first use and
+ * cached,  as the renderer asks for them on every repaint.  Mates are created on demand and are not retained.
+ */
+public class CompactAlignment implements Alignment {
+
+    // Not final, views are repointed when their store is compacted
+    CompactAlignmentStore store;
+    int index;
+
+    // Lazily created views on the store, cleared on repoint
+    private AlignmentBlock[] blocks;
+    private AlignmentBlock[] insertions;
+    private List<Gap> gaps;
+
+    CompactAlignment(CompactAlignmentStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    void repoint(CompactAlignmentStore store, int index) {
+        this.store = store;
+        this.index = index;
+        blocks = null;
+        insertions = null;
+        gaps = null;
+    }
+
+    public String getReadName() {
+        return store.getReadName(index);
+    }
+
+    public String getReadSequence() {
+        return store.getReadSequence(index);
+    }
+
+    public int getReadLength() {
+        return store.getReadLength(index);
+    }
+
+    public String getChr() {
+        return store.getChr(index);
+    }
+
+    @Override
+    public String getContig() {
+        return getChr();
+    }
+
+    public int getStart() {
+        return store.getStart(index);
+    }
+
+    public void setStart(int start) {
+        store.setStart(index, start);
+    }
+
+    public int getEnd() {
+        return store.getEnd(index);
+    }
+
+    public void setEnd(int end) {
+        store.setEnd(index, end);
+    }
+
+    public int getAlignmentStart() {
+        return store.getAlignmentStart(index);
+    }
+
+    public int getAlignmentEnd() {
+        return store.getAlignmentEnd(index);
+    }
+
+    public boolean contains(double location) {
+        return location >= getStart() && location < getEnd();
+    }
+
+    public AlignmentBlock[] getAlignmentBlocks() {
+        if (blocks == null) {
+            blocks = createBlocks(store.getFirstBlock(index), store.getBlockCount(index));
+        }
+        return blocks;
+    }
+
+    public AlignmentBlock[] getInsertions() {
+        if (insertions == null) {
+            insertions = createBlocks(store.getFirstBlock(index) + store.getBlockCount(index),
+                    store.getInsertionCount(index));
+        }
+        return insertions;
+    }
+
+    private AlignmentBlock[] createBlocks(int first, int n) {
+        AlignmentBlock[] result = new AlignmentBlock[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = new CompactAlignmentBlock(store, first + i);
+        }
+        return result;
+    }
+
+    @Override
+    public AlignmentBlock getInsertionAt(int position) {
+        int first = store.getFirstBlock(index) + store.getBlockCount(index);
+        int n = store.getInsertionCount(index);
+        for (int b = first; b < first + n; b++) {
+            int start = store.getBlockStart(b);
+            if (start == position) return new CompactAlignmentBlock(store, b);
+            if (start > position) return null;  // Blocks increase linearly
+        }
+        return null;
+    }
+
+    public String getCigarString() {
+        return store.getCigarString(index);
+    }
+
+    public List<Gap> getGaps() {
+        if (gaps == null) {
+            gaps = store.getGaps(index);
+        }
+        return gaps;
+    }
+
+    public int getInferredInsertSize() {
+        return store.getInferredInsertSize(index);
+    }
+
+    public int getMappingQuality() {
+        return store.getMappingQuality(index);
+    }
+
+    public float getScore() {
+        return getMappingQuality();
+    }
+
+    public ReadMate getMate() {
+        return store.getMate(index);
+    }
+
+    public Strand getReadStrand() {
+        return isNegativeStrand() ? Strand.NEGATIVE : Strand.POSITIVE;
+    }
+
+    public boolean isProperPair() {
+        return isPaired() && store.isFlagSet(index, CompactAlignmentStore.PROPER_PAIR_FLAG);
+    }
+
+    public boolean isMapped() {
+        return !store.isFlagSet(index, CompactAlignmentStore.READ_UNMAPPED_FLAG);
+    }
+
+    public boolean isPaired() {
+        return store.isFlagSet(index, CompactAlignmentStore.READ_PAIRED_FLAG);
+    }
+
+    public boolean isFirstOfPair() {
+        return isPaired() && store.isFlagSet(index, CompactAlignmentStore.FIRST_OF_PAIR_FLAG);
+    }
+
+    public boolean isSecondOfPair() {
+        return isPaired() && store.isFlagSet(index, CompactAlignmentStore.SECOND_OF_PAIR_FLAG);
+    }
+
+    public boolean isNegativeStrand() {
+        return store.isFlagSet(index, CompactAlignmentStore.READ_STRAND_FLAG);
+    }
+
+    public boolean isDuplicate() {
+        return store.isFlagSet(index, CompactAlignmentStore.DUPLICATE_READ_FLAG);
+    }
+
+    public boolean isPrimary() {
+        return !store.isFlagSet(index, CompactAlignmentStore.NOT_PRIMARY_ALIGNMENT_FLAG);
+    }
+
+    public boolean isSupplementary() {
+        return store.isFlagSet(index, CompactAlignmentStore.SUPPLEMENTARY_ALIGNMENT_FLAG);
+    }
+
+    public boolean isVendorFailedRead() {
+        return store.isFlagSet(index, CompactAlignmentStore.READ_FAILS_VENDOR_QUALITY_CHECK_FLAG);
+    }
+
+    public byte getBase(double position) {
+        int b = blockContaining((int) position);
+        return b < 0 ? 0 : store.getBlockBase(b, (int) position - store.getBlockStart(b));
+    }
+
+    public byte getPhred(double position) {
+        int b = blockContaining((int) position);
+        return b < 0 ? 0 : store.getBlockQuality(b, (int) position - store.getBlockStart(b));
+    }
+
+    private int blockContaining(int position) {
+        int first = store.getFirstBlock(index);
+        int n = store.getBlockCount(index);
+        for (int b = first; b < first + n; b++) {
+            int offset = position - store.getBlockStart(b);
+            if (offset >= 0 && offset < store.getBlockLength(b)) {
+                return b;
+            }
+        }
+        return -1;
+    }
+
+    public Object getAttribute(String key) {
+        return store.getAttribute(index, key);
+    }
+
+    public void setMateSequence(String sequence) {
+        store.setMateSequence(index, sequence);
+    }
+
+    public String getPairOrientation() {
+        String po = store.getPairOrientation(index);
+        return po == null ? "" : po;
+    }
+
+    public Strand getFirstOfPairStrand() {
+        return store.getFirstOfPairStrand(index);
+    }
+
+    public Strand getSecondOfPairStrand() {
+        return store.getSecondOfPairStrand(index);
+    }
+
+    public Color getYcColor() {
+        return store.getYcColor(index);
+    }
+
+    public String getSample() {
+        return store.getSample(index);
+    }
+
+    public String getReadGroup() {
+        return store.getReadGroup(index);
+    }
+
+    public String getLibrary() {
+        return store.getLibrary(index);
+    }
+
+    @Override
+    public void setHaplotypeName(String hap) {
+        store.setHaplotypeName(index, hap);
+    }
+
+    @Override
+    public String getHaplotypeName() {
+        return store.getHaplotypeName(index);
+    }
+
+    @Override
+    public void setHapDistance(int dist) {
+        store.setHapDistance(index, dist);
+    }
+
+    @Override
+    public int getHapDistance() {
+        return store.getHapDistance(index);
+    }
+
+    public void finish() {
+    }
+
+    public String getClipboardString(double location, int mouseX) {
+        return SAMAlignment.getValueString(this, getReadLength(), location, mouseX,
+                SAMAlignment.formatAttributes(store.getAttributes(index), false), store.getMateSequence(index));
+    }
+
+    public String getValueString(double position, int mouseX, WindowFunction windowFunction) {
+        return SAMAlignment.getValueString(this, getReadLength(), position, mouseX,
+                SAMAlignment.formatAttributes(store.getAttributes(index), true), store.getMateSequence(index));
+    }
+
+    @Override
+    public String toString() {
+        return getReadName() + " " + getChr() + ":" + (getAlignmentStart() + 1) + "-" + getAlignmentEnd();
+    }
+
+
+    /**
+     * View of a single alignment or insertion block.  Bases and qualities are decoded on request.
+     */
+    static class CompactAlignmentBlock implements AlignmentBlock {
+
+        private final CompactAlignmentStore store;
+        private final int block;
+
+        CompactAlignmentBlock(CompactAlignmentStore store, int block) {
+            this.store = store;
+            this.block = block;
+        }
+
+        public boolean contains(int position) {
+            int offset = position - getStart();
+            return offset >= 0 && offset < getLength();
+        }
+
+        public int getLength() {
+            return store.getBlockLength(block) + store.getBlockPadding(block);
+        }
+
+        public byte getBase(int offset) {
+            return store.getBlockBase(block, offset);
+        }
+
+        public byte[] getBases() {
+            return store.getBlockBases(block);
+        }
+
+        public int getStart() {
+            return store.getBlockStart(block);
+        }
+
+        public byte getQuality(int offset) {
+            return store.getBlockQuality(block, offset);
+        }
+
+        public byte[] getQualities() {
+            return store.getBlockQualities(block);
+        }
+
+        public int getEnd() {
+            return getStart() + getLength();
+        }
+
+        public boolean isSoftClipped() {
+            return store.isBlockSoftClipped(block);
+        }
+
+        public boolean hasBases() {
+            return store.blockHasBases(block);
+        }
+
+        public void setPixelRange(int s, int e) {
+            store.setBlockPixelRange(block, s, e);
+        }
+
+        public boolean containsPixel(int x) {
+            return store.blockContainsPixel(block, x);
+        }
+
+        @Override
+        public int getPadding() {
+            return store.getBlockPadding(block);
+        }
+    }
+}
@@ -0,0 +1,1012 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import htsjdk.samtools.SAMRecord;
+import org.broad.igv.feature.Strand;
+import org.broad.igv.util.collections.ByteArrayList;
+import org.broad.igv.util.collections.IntArrayList;
+
+import java.awt.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Columnar ("struct of arrays") storage for the alignments of a single tile.  Scalar fields are held in primitive
+ * columns indexed by alignment ordinal, bases are packed 2 bits per base, qualities share a single byte buffer, and
+ * read names and other low cardinality strings are interned.  Alignments are exposed through lightweight
+ * {@link CompactAlignment} views which hold only a reference to the store and an index.
+ * <p/>
+ * This is an alternative to holding a full SAMRecord backed {@link Alignment} per read, and is enabled with the
+ * SAM.COMPACT_MEMORY_MODE preference.  Unlike {@link ReducedMemoryAlignment} no information needed for rendering is
+ * discarded,  with the exception of array valued tags.
+ */
+public class CompactAlignmentStore {
+
+    // SAM flag bits, stored as is
+    static final int READ_PAIRED_FLAG = 0x1;
+    static final int PROPER_PAIR_FLAG = 0x2;
+    static final int READ_UNMAPPED_FLAG = 0x4;
+    static final int READ_STRAND_FLAG = 0x10;
+    static final int FIRST_OF_PAIR_FLAG = 0x40;
+    static final int SECOND_OF_PAIR_FLAG = 0x80;
+    static final int NOT_PRIMARY_ALIGNMENT_FLAG = 0x100;
+    static final int READ_FAILS_VENDOR_QUALITY_CHECK_FLAG = 0x200;
+    static final int DUPLICATE_READ_FLAG = 0x400;
+    static final int SUPPLEMENTARY_ALIGNMENT_FLAG = 0x800;
+
+    // IGV specific bits
+    static final int HAS_MATE = 0x1000;
+    static final int MATE_MAPPED = 0x2000;
+    static final int MATE_NEGATIVE_STRAND = 0x4000;
+    static final int FIRST_OF_PAIR_STRAND_SHIFT = 16;
+    static final int SECOND_OF_PAIR_STRAND_SHIFT = 18;
+
+    // Block meta bits.  Blocks whose bases are a single repeated non-nucleotide character (e.g. '=' for reads
+    // without sequence) are flagged as "filled" and their bases are not stored.  Blocks whose bases occur in the
+    // read sequence are flagged "in read" and their base offset points into the read sequence buffer.
+    static final int BLOCK_SOFT_CLIPPED = 0x1;
+    static final int BLOCK_HAS_BASES = 0x2;
+    static final int BLOCK_FILLED = 0x4;
+    static final int BLOCK_IN_READ = 0x8;
+    static final int BLOCK_FILL_SHIFT = 8;
+    static final int BLOCK_PADDING_SHIFT = 16;
+
+    private static final Strand[] STRANDS = Strand.values();
+
+    private int size = 0;
+
+    // Per-alignment columns
+    private final IntArrayList starts;
+    private final IntArrayList ends;
+    private final IntArrayList alignmentStarts;
+    private final IntArrayList alignmentEnds;
+    private final IntArrayList flags;
+    private final ByteArrayList mappingQualities;
+    private final IntArrayList insertSizes;
+    private final IntArrayList chrs;
+    private final IntArrayList cigars;
+    private final IntArrayList mateChrs;
+    private final IntArrayList mateStarts;
+    private final IntArrayList pairOrientations;
+    private final IntArrayList readGroups;
+    private final IntArrayList readNames;
+    private final IntArrayList sequenceOffsets;
+    private final IntArrayList sequenceLengths;
+    private final IntArrayList firstBlocks;
+    private final IntArrayList blockCounts;
+    private final IntArrayList insertionCounts;
+    private final IntArrayList firstGaps;
+    private final IntArrayList gapCounts;
+    private final IntArrayList attributeOffsets;
+    private final IntArrayList attributeLengths;
+
+    // Alignment and insertion blocks.  Insertions for alignment i follow its alignment blocks.
+    private final IntArrayList blockStarts;
+    private final IntArrayList blockLengths;
+    private final IntArrayList blockBaseOffsets;
+    private final IntArrayList blockQualityOffsets;
+    private final IntArrayList blockMeta;
+    private IntArrayList blockPixelStarts;
+    private IntArrayList blockPixelEnds;
+
+    // Deletions and splice gaps
+    private final IntArrayList gapStarts;
+    private final IntArrayList gapLengths;
+    private final ByteArrayList gapTypes;
+    private final IntArrayList gapFlankingLeft;
+    private final IntArrayList gapFlankingRight;
+
+    private final PackedBases readSequences;
+    private final PackedBases blockBases;         // Bases of blocks not found in the read sequence
+    private final ByteArrayList blockQualities;
+    private final ByteArrayList attributes;
+
+    // Interned strings
+    private final List<String> strings = new ArrayList<>();
+    private Map<String, Integer> stringIndex = new HashMap<>();
+    private final List<String[]> readGroupTable = new ArrayList<>();
+    private Map<List<String>, Integer> readGroupIndex = new HashMap<>();
+    private final ByteArrayList nameBytes;
+    private final IntArrayList nameOffsets;
+    private Map<String, Integer> nameIndex = new HashMap<>();
+
+    // Rarely populated or mutable values
+    private final Map<Integer, String> mateSequences = new HashMap<>();
+    private final Map<Integer, Color> ycColors = new HashMap<>();
+    private Map<Integer, String> haplotypeNames;
+    private Map<Integer, Integer> hapDistances;
+
+
+    public CompactAlignmentStore() {
+        this(8000);
+    }
+
+    public CompactAlignmentStore(int initialCapacity) {
+        int n = Math.max(16, initialCapacity);
+        starts = new IntArrayList(n);
+        ends = new IntArrayList(n);
+        alignmentStarts = new IntArrayList(n);
+        alignmentEnds = new IntArrayList(n);
+        flags = new IntArrayList(n);
+        mappingQualities = new ByteArrayList(n);
+        insertSizes = new IntArrayList(n);
+        chrs = new IntArrayList(n);
+        cigars = new IntArrayList(n);
+        mateChrs = new IntArrayList(n);
+        mateStarts = new IntArrayList(n);
+        pairOrientations = new IntArrayList(n);
+        readGroups = new IntArrayList(n);
+        readNames = new IntArrayList(n);
+        sequenceOffsets = new IntArrayList(n);
+        sequenceLengths = new IntArrayList(n);
+        firstBlocks = new IntArrayList(n);
+        blockCounts = new IntArrayList(n);
+        insertionCounts = new IntArrayList(n);
+        firstGaps = new IntArrayList(n);
+        gapCounts = new IntArrayList(n);
+        attributeOffsets = new IntArrayList(n);
+        attributeLengths = new IntArrayList(n);
+
+        blockStarts = new IntArrayList(2 * n);
+        blockLengths = new IntArrayList(2 * n);
+        blockBaseOffsets = new IntArrayList(2 * n);
+        blockQualityOffsets = new IntArrayList(2 * n);
+        blockMeta = new IntArrayList(2 * n);
+
+        gapStarts = new IntArrayList(100);
+        gapLengths = new IntArrayList(100);
+        gapTypes = new ByteArrayList(100);
+        gapFlankingLeft = new IntArrayList(100);
+        gapFlankingRight = new IntArrayList(100);
+
+        readSequences = new PackedBases(100 * n);
+        blockBases = new PackedBases(n);
+        blockQualities = new ByteArrayList(100 * n);
+        attributes = new ByteArrayList(50 * n);
+        nameBytes = new ByteArrayList(20 * n);
+        nameOffsets = new IntArrayList(n + 1);
+        nameOffsets.add(0);
+    }
+
+    /**
+     * Return true if the alignment can be represented by this store without loss of rendering information.
+     */
+    public static boolean canStore(Alignment alignment) {
+        return alignment instanceof SAMAlignment;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copy the alignment into the store and return a view on the copy.  The source alignment is not referenced
+     * after this call.
+     */
+    public CompactAlignment add(Alignment al) {
+
+        final int idx = size;
+
+        starts.add(al.getStart());
+        ends.add(al.getEnd());
+        alignmentStarts.add(al.getAlignmentStart());
+        alignmentEnds.add(al.getAlignmentEnd());
+        mappingQualities.add((byte) al.getMappingQuality());
+        insertSizes.add(al.getInferredInsertSize());
+        chrs.add(intern(al.getChr()));
+        cigars.add(intern(al.getCigarString()));
+        pairOrientations.add(intern(al.getPairOrientation()));
+        readGroups.add(internReadGroup(al.getReadGroup(), al.getSample(), al.getLibrary()));
+        readNames.add(internName(al.getReadName()));
+
+        int f = 0;
+        if (al.isPaired()) f |= READ_PAIRED_FLAG;
+        if (al.isProperPair()) f |= PROPER_PAIR_FLAG;
+        if (!al.isMapped()) f |= READ_UNMAPPED_FLAG;
+        if (al.isNegativeStrand()) f |= READ_STRAND_FLAG;
+        if (al.isFirstOfPair()) f |= FIRST_OF_PAIR_FLAG;
+        if (al.isSecondOfPair()) f |= SECOND_OF_PAIR_FLAG;
+        if (!al.isPrimary()) f |= NOT_PRIMARY_ALIGNMENT_FLAG;
+        if (al.isVendorFailedRead()) f |= READ_FAILS_VENDOR_QUALITY_CHECK_FLAG;
+        if (al.isDuplicate()) f |= DUPLICATE_READ_FLAG;
+        if (al.isSupplementary()) f |= SUPPLEMENTARY_ALIGNMENT_FLAG;
+        f |= strandCode(al.getFirstOfPairStrand()) << FIRST_OF_PAIR_STRAND_SHIFT;
+        f |= strandCode(al.getSecondOfPairStrand()) << SECOND_OF_PAIR_STRAND_SHIFT;
+
+        ReadMate mate = al.getMate();
+        if (mate != null) {
+            f |= HAS_MATE;
+            if (mate.isMapped()) f |= MATE_MAPPED;
+            if (mate.isNegativeStrand()) f |= MATE_NEGATIVE_STRAND;
+            mateChrs.add(intern(mate.getChr()));
+            mateStarts.add(mate.getStart());
+        } else {
+            mateChrs.add(-1);
+            mateStarts.add(0);
+        }
+        flags.add(f);
+
+        String sequence = al.getReadSequence();
+        int sequenceOffset = readSequences.size();
+        byte[] read = sequence == null ? null : sequence.getBytes(StandardCharsets.US_ASCII);
+        sequenceOffsets.add(sequenceOffset);
+        if (sequence == null) {
+            sequenceLengths.add(-1);
+        } else {
+            sequenceLengths.add(sequence.length());
+            readSequences.add(sequence);
+        }
+
+        firstBlocks.add(blockStarts.size());
+        AlignmentBlock[] blocks = al.getAlignmentBlocks();
+        AlignmentBlock[] insertions = al.getInsertions();
+        blockCounts.add(blocks == null ? 0 : blocks.length);
+        insertionCounts.add(insertions == null ? 0 : insertions.length);
+        // Alignment blocks are consecutive slices of the read, so each search starts where the last one ended
+        int cursor = 0;
+        if (blocks != null) {
+            for (AlignmentBlock b : blocks) cursor = addBlock(b, read, sequenceOffset, cursor);
+        }
+        if (insertions != null) {
+            for (AlignmentBlock b : insertions) addBlock(b, read, sequenceOffset, 0);
+        }
+
+        firstGaps.add(gapStarts.size());
+        List<Gap> gaps = al.getGaps();
+        gapCounts.add(gaps == null ? 0 : gaps.size());
+        if (gaps != null) {
+            for (Gap gap : gaps) {
+                gapStarts.add(gap.getStart());
+                gapLengths.add(gap.getnBases());
+                gapTypes.add((byte) gap.getType());
+                if (gap instanceof SpliceGap) {
+                    gapFlankingLeft.add(((SpliceGap) gap).getFlankingLeft());
+                    gapFlankingRight.add(((SpliceGap) gap).getFlankingRight());
+                } else {
+                    gapFlankingLeft.add(0);
+                    gapFlankingRight.add(0);
+                }
+            }
+        }
+
+        attributeOffsets.add(attributes.size());
+        attributeLengths.add(al instanceof PicardAlignment ?
+                encodeAttributes(((PicardAlignment) al).getRecord().getAttributes()) : 0);
+
+        if (al instanceof SAMAlignment && ((SAMAlignment) al).mateSequence != null) {
+            mateSequences.put(idx, ((SAMAlignment) al).mateSequence);
+        }
+        if (al.getYcColor() != null) {
+            ycColors.put(idx, al.getYcColor());
+        }
+
+        size++;
+        return new CompactAlignment(this, idx);
+    }
+
+    /**
+     * Add a block.  Bases are sliced from the read sequence when they can be found in it at or after
+     * {@code cursor},  or failing that anywhere in the read,  and are stored separately otherwise.
+     *
+     * @return read position following the block's bases,  or {@code cursor} if they were not found
+     */
+    private int addBlock(AlignmentBlock b, byte[] read, int sequenceOffset, int cursor) {
+        blockStarts.add(b.getStart());
+        blockLengths.add(b.getLength() - b.getPadding());
+        blockQualityOffsets.add(blockQualities.size());
+
+        int meta = b.getPadding() << BLOCK_PADDING_SHIFT;
+        int baseOffset = 0;
+        if (b.isSoftClipped()) meta |= BLOCK_SOFT_CLIPPED;
+        if (b.hasBases()) {
+            meta |= BLOCK_HAS_BASES;
+            byte[] bases = b.getBases();
+            byte fill = uniformNonNucleotide(bases);
+            int readPos;
+            if (fill != 0) {
+                meta |= BLOCK_FILLED | ((fill & 0xFF) << BLOCK_FILL_SHIFT);
+            } else if ((readPos = indexOf(read, bases, cursor)) >= 0 ||
+                    (cursor > 0 && (readPos = indexOf(read, bases, 0)) >= 0)) {
+                meta |= BLOCK_IN_READ;
+                baseOffset = sequenceOffset + readPos;
+                cursor = readPos + bases.length;
+            } else {
+                baseOffset = blockBases.size();
+                blockBases.add(bases);
+            }
+            byte[] qualities = b.getQualities();
+            for (int i = 0; i < bases.length; i++) {
+                blockQualities.add(qualities != null && i < qualities.length ? qualities[i] : (byte) 126);
+            }
+        }
+        blockBaseOffsets.add(baseOffset);
+        blockMeta.add(meta);
+        return cursor;
+    }
+
+    /**
+     * @return the first position at or after {@code from} at which {@code bases} occurs in {@code read},  or -1
+     */
+    private static int indexOf(byte[] read, byte[] bases, int from) {
+        if (read == null) return -1;
+        outer:
+        for (int i = from; i <= read.length - bases.length; i++) {
+            for (int j = 0; j < bases.length; j++) {
+                if (read[i + j] != bases[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Copy alignment {@code idx} from another store.  Used to compact a store after downsampling.
+     */
+    private int copy(CompactAlignmentStore src, int idx) {
+
+        final int newIdx = size;
+
+        starts.add(src.starts.get(idx));
+        ends.add(src.ends.get(idx));
+        alignmentStarts.add(src.alignmentStarts.get(idx));
+        alignmentEnds.add(src.alignmentEnds.get(idx));
+        flags.add(src.flags.get(idx));
+        mappingQualities.add(src.mappingQualities.get(idx));
+        insertSizes.add(src.insertSizes.get(idx));
+        chrs.add(intern(src.getString(src.chrs.get(idx))));
+        cigars.add(intern(src.getString(src.cigars.get(idx))));
+        mateChrs.add(intern(src.getString(src.mateChrs.get(idx))));
+        mateStarts.add(src.mateStarts.get(idx));
+        pairOrientations.add(intern(src.getString(src.pairOrientations.get(idx))));
+        String[] rg = src.readGroupTable.get(src.readGroups.get(idx));
+        readGroups.add(internReadGroup(rg[0], rg[1], rg[2]));
+        readNames.add(internName(src.getReadName(idx)));
+
+        int seqLength = src.sequenceLengths.get(idx);
+        int srcSequenceOffset = src.sequenceOffsets.get(idx);
+        int sequenceOffset = readSequences.size();
+        sequenceOffsets.add(sequenceOffset);
+        sequenceLengths.add(seqLength);
+        if (seqLength > 0) {
+            readSequences.addFrom(src.readSequences, srcSequenceOffset, seqLength);
+        }
+
+        int firstBlock = src.firstBlocks.get(idx);
+        int nBlocks = src.blockCounts.get(idx) + src.insertionCounts.get(idx);
+        firstBlocks.add(blockStarts.size());
+        blockCounts.add(src.blockCounts.get(idx));
+        insertionCounts.add(src.insertionCounts.get(idx));
+        for (int b = firstBlock; b < firstBlock + nBlocks; b++) {
+            int meta = src.blockMeta.get(b);
+            int length = src.blockLengths.get(b);
+            blockStarts.add(src.blockStarts.get(b));
+            blockLengths.add(length);
+            blockMeta.add(meta);
+            blockQualityOffsets.add(blockQualities.size());
+            int baseOffset = src.blockBaseOffsets.get(b);
+            if ((meta & BLOCK_IN_READ) != 0) {
+                blockBaseOffsets.add(sequenceOffset + baseOffset - srcSequenceOffset);
+            } else if ((meta & BLOCK_HAS_BASES) != 0 && (meta & BLOCK_FILLED) == 0) {
+                blockBaseOffsets.add(blockBases.size());
+                blockBases.addFrom(src.blockBases, baseOffset, length);
+            } else {
+                blockBaseOffsets.add(0);
+            }
+            if ((meta & BLOCK_HAS_BASES) != 0) {
+                int qualityOffset = src.blockQualityOffsets.get(b);
+                for (int i = 0; i < length; i++) {
+                    blockQualities.add(src.blockQualities.get(qualityOffset + i));
+                }
+            }
+        }
+
+        int firstGap = src.firstGaps.get(idx);
+        int nGaps = src.gapCounts.get(idx);
+        firstGaps.add(gapStarts.size());
+        gapCounts.add(nGaps);
+        for (int g = firstGap; g < firstGap + nGaps; g++) {
+            gapStarts.add(src.gapStarts.get(g));
+            gapLengths.add(src.gapLengths.get(g));
+            gapTypes.add(src.gapTypes.get(g));
+            gapFlankingLeft.add(src.gapFlankingLeft.get(g));
+            gapFlankingRight.add(src.gapFlankingRight.get(g));
+        }
+
+        int attrOffset = src.attributeOffsets.get(idx);
+        int attrLength = src.attributeLengths.get(idx);
+        attributeOffsets.add(attributes.size());
+        attributeLengths.add(attrLength);
+        for (int i = 0; i < attrLength; i++) {
+            attributes.add(src.attributes.get(attrOffset + i));
+        }
+
+        if (src.mateSequences.containsKey(idx)) mateSequences.put(newIdx, src.mateSequences.get(idx));
+        if (src.ycColors.containsKey(idx)) ycColors.put(newIdx, src.ycColors.get(idx));
+        if (src.haplotypeNames != null && src.haplotypeNames.containsKey(idx)) {
+            setHaplotypeName(newIdx, src.haplotypeNames.get(idx));
+        }
+        if (src.hapDistances != null && src.hapDistances.containsKey(idx)) {
+            setHapDistance(newIdx, src.hapDistances.get(idx));
+        }
+
+        size++;
+        return newIdx;
+    }
+
+    /**
+     * Create a new store containing only the alignments in {@code alignments}, in list order, and repoint their
+     * views to it.  Alignments discarded by downsampling are dropped, and all buffers are trimmed to size.
+     * Alignments in the list which are not views on this store are left untouched.
+     */
+    public CompactAlignmentStore compact(List<Alignment> alignments) {
+        CompactAlignmentStore compacted = new CompactAlignmentStore(alignments.size());
+        for (Alignment a : alignments) {
+            if (a instanceof CompactAlignment) {
+                CompactAlignment view = (CompactAlignment) a;
+                if (view.store == this) {
+                    view.repoint(compacted, compacted.copy(this, view.index));
+                }
+            }
+        }
+        compacted.trimToSize();
+        return compacted;
+    }
+
+    /**
+     * Release load-time lookup tables and trim all buffers.  Read names and strings remain interned.
+     */
+    public void trimToSize() {
+        stringIndex = null;
+        readGroupIndex = null;
+        nameIndex = null;
+        for (IntArrayList l : new IntArrayList[]{starts, ends, alignmentStarts, alignmentEnds, flags, insertSizes,
+                chrs, cigars, mateChrs, mateStarts, pairOrientations, readGroups, readNames, sequenceOffsets,
+                sequenceLengths, firstBlocks, blockCounts, insertionCounts, firstGaps, gapCounts, attributeOffsets,
+                attributeLengths, blockStarts, blockLengths, blockBaseOffsets, blockQualityOffsets, blockMeta, gapStarts, gapLengths,
+                gapFlankingLeft, gapFlankingRight, nameOffsets}) {
+            l.trimToSize();
+        }
+        for (ByteArrayList l : new ByteArrayList[]{mappingQualities, gapTypes, blockQualities, attributes, nameBytes}) {
+            l.trimToSize();
+        }
+        readSequences.trimToSize();
+        blockBases.trimToSize();
+    }
+
+
+    // Interning
+
+    private int intern(String s) {
+        if (s == null) return -1;
+        if (stringIndex == null) throw new IllegalStateException("Store has been trimmed and is read-only");
+        Integer i = stringIndex.get(s);
+        if (i == null) {
+            i = strings.size();
+            strings.add(s);
+            stringIndex.put(s, i);
+        }
+        return i;
+    }
+
+    private String getString(int i) {
+        return i < 0 ? null : strings.get(i);
+    }
+
+    private int internReadGroup(String readGroup, String sample, String library) {
+        List<String> key = Arrays.asList(readGroup, sample, library);
+        Integer i = readGroupIndex.get(key);
+        if (i == null) {
+            i = readGroupTable.size();
+            readGroupTable.add(new String[]{readGroup, sample, library});
+            readGroupIndex.put(key, i);
+        }
+        return i;
+    }
+
+    private int internName(String name) {
+        if (name == null) return -1;
+        Integer i = nameIndex.get(name);
+        if (i == null) {
+            i = nameOffsets.size() - 1;
+            byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+            nameBytes.addAll(bytes);
+            nameOffsets.add(nameBytes.size());
+            nameIndex.put(name, i);
+        }
+        return i;
+    }
+
+    private static int strandCode(Strand strand) {
+        return strand == null ? 0 : strand.ordinal();
+    }
+
+    private static byte uniformNonNucleotide(byte[] bases) {
+        if (bases.length == 0 || PackedBases.encode(bases[0]) >= 0) return 0;
+        byte b = bases[0];
+        for (int i = 1; i < bases.length; i++) {
+            if (bases[i] != b) return 0;
+        }
+        return b;
+    }
+
+    /**
+     * Encode scalar tags as "TG:t:value" entries separated by tabs, following the SAM text convention.  Array
+     * valued tags are recorded with an empty value.
+     */
+    private int encodeAttributes(List<SAMRecord.SAMTagAndValue> tags) {
+        if (tags == null || tags.isEmpty()) return 0;
+        StringBuilder buf = new StringBuilder();
+        for (SAMRecord.SAMTagAndValue tag : tags) {
+            Object v = tag.value;
+            char type;
+            if (v instanceof Integer || v instanceof Short || v instanceof Byte) {
+                type = 'i';
+            } else if (v instanceof Long) {
+                type = 'l';
+            } else if (v instanceof Float || v instanceof Double) {
+                type = 'f';
+            } else if (v instanceof Character) {
+                type = 'A';
+            } else if (v instanceof String) {
+                type = 'Z';
+            } else {
+                type = 'B';
+            }
+            if (buf.length() > 0) buf.append('\t');
+            buf.append(tag.tag).append(':').append(type).append(':');
+            if (type != 'B') buf.append(v);
+        }
+        byte[] bytes = buf.toString().getBytes(StandardCharsets.UTF_8);
+        attributes.addAll(bytes);
+        return bytes.length;
+    }
+
+    private List<String[]> decodeAttributes(int idx) {
+        int length = attributeLengths.get(idx);
+        if (length == 0) return Collections.emptyList();
+        byte[] bytes = new byte[length];
+        attributes.get(attributeOffsets.get(idx), bytes, 0, length);
+        String[] entries = new String(bytes, StandardCharsets.UTF_8).split("\t");
+        List<String[]> tags = new ArrayList<>(entries.length);
+        for (String e : entries) {
+            tags.add(new String[]{e.substring(0, 2), e.substring(3, 4), e.substring(5)});
+        }
+        return tags;
+    }
+
+    private static Object tagValue(String type, String value) {
+        switch (type.charAt(0)) {
+            case 'i':
+                return Integer.valueOf(value);
+            case 'l':
+                return Long.valueOf(value);
+            case 'f':
+                return Float.valueOf(value);
+            case 'A':
+                return value.charAt(0);
+            case 'B':
+                return null;
+            default:
+                return value;
+        }
+    }
+
+
+    // Column accessors, used by the views
+
+    int getStart(int idx) {
+        return starts.get(idx);
+    }
+
+    void setStart(int idx, int start) {
+        starts.set(idx, start);
+    }
+
+    int getEnd(int idx) {
+        return ends.get(idx);
+    }
+
+    void setEnd(int idx, int end) {
+        ends.set(idx, end);
+    }
+
+    int getAlignmentStart(int idx) {
+        return alignmentStarts.get(idx);
+    }
+
+    int getAlignmentEnd(int idx) {
+        return alignmentEnds.get(idx);
+    }
+
+    boolean isFlagSet(int idx, int flag) {
+        return (flags.get(idx) & flag) != 0;
+    }
+
+    Strand getFirstOfPairStrand(int idx) {
+        return STRANDS[(flags.get(idx) >> FIRST_OF_PAIR_STRAND_SHIFT) & 0x3];
+    }
+
+    Strand getSecondOfPairStrand(int idx) {
+        return STRANDS[(flags.get(idx) >> SECOND_OF_PAIR_STRAND_SHIFT) & 0x3];
+    }
+
+    int getMappingQuality(int idx) {
+        return mappingQualities.get(idx) & 0xFF;
+    }
+
+    int getInferredInsertSize(int idx) {
+        return insertSizes.get(idx);
+    }
+
+    String getChr(int idx) {
+        return getString(chrs.get(idx));
+    }
+
+    String getCigarString(int idx) {
+        return getString(cigars.get(idx));
+    }
+
+    String getPairOrientation(int idx) {
+        return getString(pairOrientations.get(idx));
+    }
+
+    String getReadGroup(int idx) {
+        return readGroupTable.get(readGroups.get(idx))[0];
+    }
+
+    String getSample(int idx) {
+        return readGroupTable.get(readGroups.get(idx))[1];
+    }
+
+    String getLibrary(int idx) {
+        return readGroupTable.get(readGroups.get(idx))[2];
+    }
+
+    String getReadName(int idx) {
+        int n = readNames.get(idx);
+        if (n < 0) return null;
+        int offset = nameOffsets.get(n);
+        int length = nameOffsets.get(n + 1) - offset;
+        byte[] bytes = new byte[length];
+        nameBytes.get(offset, bytes, 0, length);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Return a new ReadMate for the alignment, or null if it has none.  ReadMate objects are not retained.
+     */
+    ReadMate getMate(int idx) {
+        int f = flags.get(idx);
+        if ((f & HAS_MATE) == 0) return null;
+        return new ReadMate(getString(mateChrs.get(idx)), mateStarts.get(idx),
+                (f & MATE_NEGATIVE_STRAND) != 0, (f & MATE_MAPPED) == 0);
+    }
+
+    int getReadLength(int idx) {
+        return Math.max(0, sequenceLengths.get(idx));
+    }
+
+    String getReadSequence(int idx) {
+        int length = sequenceLengths.get(idx);
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        readSequences.get(sequenceOffsets.get(idx), bytes, 0, length);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    Object getAttribute(int idx, String key) {
+        if (key.equals("TEMPLATE_ORIENTATION")) {
+            return getPairOrientation(idx);
+        }
+        if (key.length() != 2) return null;
+        for (String[] tag : decodeAttributes(idx)) {
+            if (tag[0].equals(key)) {
+                return tagValue(tag[1], tag[2]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the (tag, value) pairs of the alignment, with null values for array valued tags
+     */
+    List<Map.Entry<String, Object>> getAttributes(int idx) {
+        List<String[]> tags = decodeAttributes(idx);
+        List<Map.Entry<String, Object>> result = new ArrayList<>(tags.size());
+        for (String[] tag : tags) {
+            result.add(new AbstractMap.SimpleEntry<>(tag[0], tagValue(tag[1], tag[2])));
+        }
+        return result;
+    }
+
+    String getMateSequence(int idx) {
+        return mateSequences.get(idx);
+    }
+
+    synchronized void setMateSequence(int idx, String sequence) {
+        mateSequences.put(idx, sequence);
+    }
+
+    Color getYcColor(int idx) {
+        return ycColors.isEmpty() ? null : ycColors.get(idx);
+    }
+
+    String getHaplotypeName(int idx) {
+        return haplotypeNames == null ? null : haplotypeNames.get(idx);
+    }
+
+    synchronized void setHaplotypeName(int idx, String name) {
+        if (haplotypeNames == null) haplotypeNames = new HashMap<>();
+        haplotypeNames.put(idx, name);
+    }
+
+    int getHapDistance(int idx) {
+        Integer d = hapDistances == null ? null : hapDistances.get(idx);
+        return d == null ? 0 : d;
+    }
+
+    synchronized void setHapDistance(int idx, int distance) {
+        if (hapDistances == null) hapDistances = new HashMap<>();
+        hapDistances.put(idx, distance);
+    }
+
+    int getFirstBlock(int idx) {
+        return firstBlocks.get(idx);
+    }
+
+    int getBlockCount(int idx) {
+        return blockCounts.get(idx);
+    }
+
+    int getInsertionCount(int idx) {
+        return insertionCounts.get(idx);
+    }
+
+    List<Gap> getGaps(int idx) {
+        int n = gapCounts.get(idx);
+        if (n == 0) return null;
+        int first = firstGaps.get(idx);
+        List<Gap> gaps = new ArrayList<>(n);
+        for (int g = first; g < first + n; g++) {
+            char type = (char) gapTypes.get(g);
+            if (type == SAMAlignment.SKIPPED_REGION) {
+                gaps.add(new SpliceGap(gapStarts.get(g), gapLengths.get(g), type,
+                        gapFlankingLeft.get(g), gapFlankingRight.get(g)));
+            } else {
+                gaps.add(new Gap(gapStarts.get(g), gapLengths.get(g), type));
+            }
+        }
+        return gaps;
+    }
+
+
+    // Block accessors
+
+    int getBlockStart(int b) {
+        return blockStarts.get(b);
+    }
+
+    int getBlockLength(int b) {
+        return blockLengths.get(b);
+    }
+
+    int getBlockPadding(int b) {
+        return blockMeta.get(b) >>> BLOCK_PADDING_SHIFT;
+    }
+
+    boolean isBlockSoftClipped(int b) {
+        return (blockMeta.get(b) & BLOCK_SOFT_CLIPPED) != 0;
+    }
+
+    boolean blockHasBases(int b) {
+        return (blockMeta.get(b) & BLOCK_HAS_BASES) != 0;
+    }
+
+    byte getBlockBase(int b, int offset) {
+        int meta = blockMeta.get(b);
+        if ((meta & BLOCK_HAS_BASES) == 0 || offset < 0 || offset >= blockLengths.get(b)) return 0;
+        if ((meta & BLOCK_FILLED) != 0) return (byte) ((meta >> BLOCK_FILL_SHIFT) & 0xFF);
+        return basesOf(meta).get(blockBaseOffsets.get(b) + offset);
+    }
+
+    byte[] getBlockBases(int b) {
+        int meta = blockMeta.get(b);
+        if ((meta & BLOCK_HAS_BASES) == 0) return null;
+        byte[] bases = new byte[blockLengths.get(b)];
+        if ((meta & BLOCK_FILLED) != 0) {
+            Arrays.fill(bases, (byte) ((meta >> BLOCK_FILL_SHIFT) & 0xFF));
+        } else {
+            basesOf(meta).get(blockBaseOffsets.get(b), bases, 0, bases.length);
+        }
+        return bases;
+    }
+
+    private PackedBases basesOf(int meta) {
+        return (meta & BLOCK_IN_READ) != 0 ? readSequences : blockBases;
+    }
+
+    byte getBlockQuality(int b, int offset) {
+        if (!blockHasBases(b) || offset < 0 || offset >= blockLengths.get(b)) return (byte) 126;
+        return blockQualities.get(blockQualityOffsets.get(b) + offset);
+    }
+
+    byte[] getBlockQualities(int b) {
+        if (!blockHasBases(b)) return null;
+        byte[] qualities = new byte[blockLengths.get(b)];
+        blockQualities.get(blockQualityOffsets.get(b), qualities, 0, qualities.length);
+        return qualities;
+    }
+
+    synchronized void setBlockPixelRange(int b, int s, int e) {
+        if (blockPixelStarts == null) {
+            blockPixelStarts = new IntArrayList(blockStarts.size() + 1);
+            blockPixelEnds = new IntArrayList(blockStarts.size() + 1);
+        }
+        blockPixelStarts.set(b, s);
+        blockPixelEnds.set(b, e);
+    }
+
+    boolean blockContainsPixel(int b, int x) {
+        IntArrayList pixelStarts = blockPixelStarts;
+        IntArrayList pixelEnds = blockPixelEnds;
+        if (pixelStarts == null || b >= pixelStarts.size() || b >= pixelEnds.size()) return false;
+        return x >= pixelStarts.get(b) && x <= pixelEnds.get(b);
+    }
+
+    /**
+     * Approximate heap footprint of the store in bytes, excluding interned strings.
+     */
+    public long estimateSize() {
+        long bytes = 4L * (24 * size + 5 * blockStarts.size() + 4 * gapStarts.size() + nameOffsets.size());
+        bytes += gapStarts.size() + blockQualities.size() + attributes.size() + nameBytes.size();
+        bytes += readSequences.estimateSize() + blockBases.estimateSize();
+        return bytes;
+    }
+
+
+    /**
+     * Nucleotide buffer packing A, C, G, and T in 2 bits each.  Any other byte (N, IUPAC codes, lower case, '=') is
+     * recorded in a sorted exception list.
+     */
+    static class PackedBases {
+
+        private static final byte[] DECODE = {'A', 'C', 'G', 'T'};
+
+        private final ByteArrayList packed;
+        private final IntArrayList exceptionPositions = new IntArrayList(16);
+        private final ByteArrayList exceptionValues = new ByteArrayList(16);
+        private int size = 0;
+
+        PackedBases(int initialCapacity) {
+            packed = new ByteArrayList(Math.max(1, initialCapacity / 4));
+        }
+
+        static int encode(byte b) {
+            switch (b) {
+                case 'A':
+                    return 0;
+                case 'C':
+                    return 1;
+                case 'G':
+                    return 2;
+                case 'T':
+                    return 3;
+                default:
+                    return -1;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(byte b) {
+            int code = encode(b);
+            if (code < 0) {
+                exceptionPositions.add(size);
+                exceptionValues.add(b);
+                code = 0;
+            }
+            int byteIdx = size >> 2;
+            int shift = (size & 3) << 1;
+            if (shift == 0) {
+                packed.add((byte) code);
+            } else {
+                packed.set(byteIdx, (byte) (packed.get(byteIdx) | (code << shift)));
+            }
+            size++;
+        }
+
+        void add(byte[] bases) {
+            for (byte b : bases) add(b);
+        }
+
+        void add(String bases) {
+            for (int i = 0; i < bases.length(); i++) add((byte) bases.charAt(i));
+        }
+
+        void addFrom(PackedBases src, int offset, int length) {
+            for (int i = 0; i < length; i++) add(src.get(offset + i));
+        }
+
+        byte get(int pos) {
+            if (!exceptionPositions.isEmpty()) {
+                int e = findException(pos);
+                if (e < exceptionPositions.size() && exceptionPositions.get(e) == pos) {
+                    return exceptionValues.get(e);
+                }
+            }
+            return decode(pos);
+        }
+
+        void get(int pos, byte[] dest, int destOffset, int length) {
+            for (int i = 0; i < length; i++) {
+                dest[destOffset + i] = decode(pos + i);
+            }
+            if (!exceptionPositions.isEmpty()) {
+                int end = pos + length;
+                for (int e = findException(pos); e < exceptionPositions.size(); e++) {
+                    int p = exceptionPositions.get(e);
+                    if (p >= end) break;
+                    dest[destOffset + p - pos] = exceptionValues.get(e);
+                }
+            }
+        }
+
+        private byte decode(int pos) {
+            return DECODE[(packed.get(pos >> 2) >> ((pos & 3) << 1)) & 0x3];
+        }
+
+        /**
+         * @return index of the first exception at or after {@code pos}
+         */
+        private int findException(int pos) {
+            int lo = 0;
+            int hi = exceptionPositions.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (exceptionPositions.get(mid) < pos) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        void trimToSize() {
+            packed.trimToSize();
+            exceptionPositions.trimToSize();
+            exceptionValues.trimToSize();
+        }
+
+        long estimateSize() {
+            return packed.size() + 5L * exceptionPositions.size();
+        }
+    }
+}
@@ -29,8 +29,10 @@ package org.broad.igv.sam;
 import org.broad.igv.feature.genome.Genome;
 import org.broad.igv.feature.genome.GenomeManager;
 import org.broad.igv.prefs.PreferencesManager;
+import org.broad.igv.util.collections.IntIntHashMap;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.broad.igv.prefs.Constants.SAM_HIDE_SMALL_INDEL;
 import static org.broad.igv.prefs.Constants.SAM_SMALL_INDEL_BP_THRESHOLD;
@@ -39,13 +41,16 @@ import static org.broad.igv.prefs.Constants.SAM_SMALL_INDEL_BP_THRESHOLD;
  * Created by jrobinso on 12/22/16.
  * <p>
  * Experimental class to test strategies for drawing insertions
+ * <p>
+ * Insertions for each chromosome are held in an immutable snapshot of markers sorted by position.  Readers use the
+ * current snapshot without locking,  loaders merge the insertions collected while reading a tile into a new
+ * snapshot.  Markers at positions already present are reused,  so selections and pixel positions survive a merge.
  */
 public class InsertionManager {
 
     private static InsertionManager theInstance = new InsertionManager();
 
-    private Map<String, Map<Integer, InsertionMarker>> insertionMaps;
-    private Map<String, List<Integer>> positionsMap;
+    private Map<String, ChrInsertions> insertionMaps;
     private Map<String, Integer> selectedInsertions;
 
     public static synchronized InsertionManager getInstance() {
@@ -53,35 +58,29 @@ public class InsertionManager {
     }
 
     private InsertionManager() {
-        this.insertionMaps = Collections.synchronizedMap(new HashMap<>(100));
-        this.positionsMap = Collections.synchronizedMap(new HashMap<>(100));
+        this.insertionMaps = new ConcurrentHashMap<>(100);
         this.selectedInsertions = Collections.synchronizedMap(new HashMap<>(100));
     }
 
     public void clear() {
         this.insertionMaps.clear();
-        this.positionsMap.clear();
-        this.selectedInsertions.clear();;
+        this.selectedInsertions.clear();
     }
 
-    public synchronized List<InsertionMarker> getInsertions(String chrName, double start, double end) {
+    /**
+     * Return the insertions with start <= position <= end,  in position order,  or null if no alignments have been
+     * loaded for the chromosome.
+     */
+    public List<InsertionMarker> getInsertions(String chrName, double start, double end) {
 
+        ChrInsertions insertions = insertionMaps.get(chrName);
+        if (insertions == null) return null;
 
-        Map<Integer, InsertionMarker> insertionMap = insertionMaps.get(chrName);
-        List<Integer> positions = positionsMap.get(chrName);
-        if(insertionMap == null || positions == null) return null;
-
-        List<InsertionMarker> insertionMarkers = new ArrayList<>();
-        for (int i = 0; i < positions.size(); i++) {
-            final Integer key = positions.get(i);
-            if (key > end) break;
-            if (key >= start) {
-                final InsertionMarker insertionMarker = insertionMap.get(key);
-                insertionMarkers.add(insertionMarker);
-            }
-        }
-        return insertionMarkers;
+        int first = insertions.firstIndexAbove(Math.ceil(start) - 1);
+        int last = insertions.firstIndexAbove(Math.floor(end));
+        if (first >= last) return Collections.emptyList();
 
+        return Collections.unmodifiableList(Arrays.asList(insertions.markers).subList(first, last));
     }
 
     public void setSelected(String chrName, int position) {
@@ -94,57 +93,127 @@ public class InsertionManager {
 
     public InsertionMarker getSelectedInsertion(String chrName) {
         Integer selectedInsertion = selectedInsertions.get(chrName);
-        Map<Integer, InsertionMarker> insertionMap = insertionMaps.get(chrName);
-        return (selectedInsertion == null  || insertionMap == null) ? null : insertionMap.get(selectedInsertion);
+        ChrInsertions insertions = insertionMaps.get(chrName);
+        return (selectedInsertion == null || insertions == null) ? null : insertions.get(selectedInsertion);
     }
 
-    
-    public synchronized void processAlignments(String chr, List<Alignment> alignments) {
+    /**
+     * Return the minimum length of insertions to record,  0 unless small indels are hidden.
+     */
+    public static int getMinInsertionLength() {
+        return PreferencesManager.getPreferences().getAsBoolean(SAM_HIDE_SMALL_INDEL) ?
+                PreferencesManager.getPreferences().getAsInt(SAM_SMALL_INDEL_BP_THRESHOLD) : 0;
+    }
 
+    /**
+     * Record the insertions of an alignment as position -> maximum length in {@code insertionSizes}.  Called by the
+     * loader for each alignment as it is read,  the result is merged with {@link #addInsertions(String, IntIntHashMap)}.
+     */
+    public static void collectInsertions(Alignment alignment, int minLength, IntIntHashMap insertionSizes) {
+        AlignmentBlock[] blocks = alignment.getInsertions();
+        if (blocks != null) {
+            for (AlignmentBlock block : blocks) {
+                if (minLength > 0 && block.getBases().length < minLength) continue;
+                int length = block.getLength();
+                int position = block.getStart();
+                if (length > insertionSizes.get(position)) {
+                    insertionSizes.put(position, length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge insertions (position -> length) for a loaded interval into the chromosome's markers.  Insertions at
+     * positions already recorded,  e.g. from an overlapping interval,  keep the larger length.
+     */
+    public synchronized void addInsertions(String chr, IntIntHashMap insertionSizes) {
 
         Genome genome = GenomeManager.getInstance().getCurrentGenome();
         chr = genome == null ? chr : genome.getCanonicalChrName(chr);
 
-        Map<Integer, InsertionMarker> insertionMap = insertionMaps.get(chr);
-        if(insertionMap == null) {
-            insertionMap =  Collections.synchronizedMap(new HashMap<>());
-            insertionMaps.put(chr, insertionMap);
+        int[] positions = insertionSizes.keys();
+        Arrays.sort(positions);
+
+        ChrInsertions current = insertionMaps.get(chr);
+        insertionMaps.put(chr, current == null ?
+                ChrInsertions.EMPTY.merge(positions, insertionSizes) :
+                current.merge(positions, insertionSizes));
+    }
+
+
+    /**
+     * Immutable,  apart from marker sizes,  set of insertion markers for a chromosome sorted by position.
+     */
+    static class ChrInsertions {
+
+        static final ChrInsertions EMPTY = new ChrInsertions(new int[0], new InsertionMarker[0]);
+
+        final int[] positions;
+        final InsertionMarker[] markers;
+
+        ChrInsertions(int[] positions, InsertionMarker[] markers) {
+            this.positions = positions;
+            this.markers = markers;
         }
-        List<Integer> positions = positionsMap.get(chr);
-        if(positions == null) {
-            positions = new ArrayList<>();
-            positionsMap.put(chr, positions);
+
+        InsertionMarker get(int position) {
+            int idx = Arrays.binarySearch(positions, position);
+            return idx < 0 ? null : markers[idx];
         }
 
-        int minLength = 0;
-        if (PreferencesManager.getPreferences().getAsBoolean(SAM_HIDE_SMALL_INDEL)) {
-            minLength = PreferencesManager.getPreferences().getAsInt(SAM_SMALL_INDEL_BP_THRESHOLD);
+        /**
+         * Index of the first marker with position > value
+         */
+        int firstIndexAbove(double value) {
+            int low = 0;
+            int high = positions.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (positions[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
         }
 
-        for (Alignment a : alignments) {
-            AlignmentBlock[] blocks = a.getInsertions();
-            if (blocks != null) {
-                for (AlignmentBlock block : blocks) {
+        /**
+         * Return a new snapshot with the sorted {@code newPositions} added
+         */
+        ChrInsertions merge(int[] newPositions, IntIntHashMap sizes) {
 
-                    if (block.getBases().length < minLength) continue;
+            if (newPositions.length == 0) {
+                return this;
+            }
 
-                    Integer key = block.getStart();
-                    InsertionMarker insertionMarker = insertionMap.get(key);
-                    if (insertionMarker == null) {
-                        insertionMarker = new InsertionMarker(block.getStart(), block.getLength());
-                        insertionMap.put(key, insertionMarker);
-                        positions.add(block.getStart());
+            int[] mergedPositions = new int[positions.length + newPositions.length];
+            InsertionMarker[] mergedMarkers = new InsertionMarker[mergedPositions.length];
+            int i = 0, j = 0, n = 0;
+            while (i < positions.length || j < newPositions.length) {
+                if (j == newPositions.length || (i < positions.length && positions[i] < newPositions[j])) {
+                    mergedPositions[n] = positions[i];
+                    mergedMarkers[n++] = markers[i++];
+                } else {
+                    int position = newPositions[j++];
+                    int size = sizes.get(position);
+                    InsertionMarker marker;
+                    if (i < positions.length && positions[i] == position) {
+                        marker = markers[i++];
+                        marker.size = Math.max(marker.size, size);
                     } else {
-                        insertionMarker.size = Math.max(insertionMarker.size, block.getLength());
+                        marker = new InsertionMarker(position, size);
                     }
+                    mergedPositions[n] = position;
+                    mergedMarkers[n++] = marker;
                 }
             }
-        }
 
-
-        positions.addAll(insertionMap.keySet());
-        positions.sort((o1, o2) -> o1 - o2);
+            return n == mergedPositions.length ?
+                    new ChrInsertions(mergedPositions, mergedMarkers) :
+                    new ChrInsertions(Arrays.copyOf(mergedPositions, n), Arrays.copyOf(mergedMarkers, n));
+        }
     }
 
-
 }
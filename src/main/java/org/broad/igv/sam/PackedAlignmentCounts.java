@@ -0,0 +1,309 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Alignment counts for a contiguous interval,  equivalent to {@link DenseAlignmentCounts} but with a much smaller
+ * footprint.  The 20 counts for a position are interleaved in one buffer,  so incrementing a base touches a single
+ * cache line.  The interval is split into blocks of BLOCK_SIZE positions.  Blocks are allocated on first use
+ * as 16-bit unsigned counts,  and a block is promoted to 32-bit counts when any of its values would overflow.
+ */
+public class PackedAlignmentCounts extends BaseAlignmentCounts {
+
+    private static Logger log = Logger.getLogger(PackedAlignmentCounts.class);
+
+    // Offsets of the counts for a position.  Base counts are ordered A, T, C, G, N
+    static final int POS = 0;
+    static final int NEG = 5;
+    static final int QUAL = 10;
+    static final int POS_TOTAL = 15;
+    static final int NEG_TOTAL = 16;
+    static final int DEL = 17;
+    static final int INS = 18;
+    static final int TOTAL_Q = 19;
+    static final int NFIELDS = 20;
+
+    static final int BLOCK_SHIFT = 12;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    private static final int MAX_SHORT = Character.MAX_VALUE;
+
+    private final int nPts;
+
+    // For each block at most one of these is non-null.  Both are null for a block with no counts.
+    private char[][] shortBlocks;
+    private int[][] intBlocks;
+
+    /**
+     * Maximum total count over intervals of MAX_COUNT_INTERVAL,  for autoscaling
+     */
+    private int[] maxCounts;
+
+    public PackedAlignmentCounts(int start, int end, AlignmentTrack.BisulfiteContext bisulfiteContext) {
+        super(start, end, bisulfiteContext);
+
+        nPts = end - start;
+        int nBlocks = (nPts + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        shortBlocks = new char[nBlocks][];
+        intBlocks = new int[nBlocks][];
+        maxCounts = new int[(nPts / DenseAlignmentCounts.MAX_COUNT_INTERVAL) + 1];
+    }
+
+    public int getNumberOfPoints() {
+        return nPts;
+    }
+
+    @Override
+    public int getMaxCount(int strt, int end) {
+
+        if (maxCounts.length == 0) return 1;
+
+        strt = Math.max(0, strt);
+        end = Math.min(getEnd(), end);
+        int startMCI = Math.max(0, (strt - this.start) / DenseAlignmentCounts.MAX_COUNT_INTERVAL);
+        int endMCI = Math.max(0, (end - this.start) / DenseAlignmentCounts.MAX_COUNT_INTERVAL);
+        endMCI = Math.min(endMCI, maxCounts.length - 1);
+
+        int max = 1;
+        for (int mci = startMCI; mci <= endMCI; mci++) {
+            max = Math.max(max, maxCounts[mci]);
+        }
+        return max;
+    }
+
+    public void finish() {
+        // Noop
+    }
+
+    public int getTotalCount(int pos) {
+        int offset = pos - start;
+        if (outOfRange(pos, offset)) {
+            return 0;
+        }
+        return get(offset, POS_TOTAL) + get(offset, NEG_TOTAL);
+    }
+
+    public int getTotalQuality(int pos) {
+        int offset = pos - start;
+        if (outOfRange(pos, offset)) {
+            return 0;
+        }
+        return get(offset, TOTAL_Q);
+    }
+
+    public int getCount(int pos, byte b) {
+        int offset = pos - start;
+        int baseIdx = baseIndex(b);
+        if (outOfRange(pos, offset) || baseIdx < 0) {
+            return 0;
+        }
+        return get(offset, POS + baseIdx) + get(offset, NEG + baseIdx);
+    }
+
+    public int getNegCount(int pos, byte b) {
+        int offset = pos - start;
+        int baseIdx = baseIndex(b);
+        if (outOfRange(pos, offset) || baseIdx < 0) {
+            return 0;
+        }
+        return get(offset, NEG + baseIdx);
+    }
+
+    public int getPosCount(int pos, byte b) {
+        int offset = pos - start;
+        int baseIdx = baseIndex(b);
+        if (outOfRange(pos, offset) || baseIdx < 0) {
+            return 0;
+        }
+        return get(offset, POS + baseIdx);
+    }
+
+    public int getDelCount(int pos) {
+        int offset = pos - start;
+        if (outOfRange(pos, offset)) {
+            return 0;
+        }
+        return get(offset, DEL);
+    }
+
+    public int getInsCount(int pos) {
+        int offset = pos - start;
+        if (outOfRange(pos, offset)) {
+            return 0;
+        }
+        return get(offset, INS);
+    }
+
+    public int getQuality(int pos, byte b) {
+        int offset = pos - start;
+        int baseIdx = baseIndex(b);
+        if (outOfRange(pos, offset) || baseIdx < 0) {
+            return 0;
+        }
+        return get(offset, QUAL + baseIdx);
+    }
+
+    protected void incrementDeletion(int pos, boolean negativeStrand) {
+        int offset = pos - start;
+        if (offset >= 0 && offset < nPts) {
+            add(offset, DEL, 1);
+            if (countDeletedBasesCovered) {
+                add(offset, negativeStrand ? NEG_TOTAL : POS_TOTAL, 1);
+            }
+        }
+    }
+
+    protected void incrementInsertion(AlignmentBlock insBlock) {
+        int offset = insBlock.getStart() - start;
+        // Insertions are between bases.  increment count at position just before insertion
+        if (offset >= 0 && offset < nPts) {
+            add(offset, INS, 1);
+        }
+    }
+
+    protected void incBlockCounts(AlignmentBlock block, boolean isNegativeStrand) {
+        int start = block.getStart();
+        byte[] bases = block.getBases();
+        if (bases != null) {
+            for (int i = 0; i < bases.length; i++) {
+                int pos = start + i;
+                // NOTE:  the direct access block.qualities is intentional,  profiling reveals this to be a critical bottleneck
+                byte q = ((AlignmentBlockImpl) block).qualities[i];
+                byte n = bases[i];
+                incPositionCount(pos, n, q, isNegativeStrand);
+            }
+        }
+    }
+
+    protected void incPositionCount(int pos, byte b, byte q, boolean isNegativeStrand) {
+
+        int offset = pos - start;
+        if (offset < 0 || offset >= nPts) {
+            return;
+        }
+
+        // Everything that is not A, T, C or G is counted as "N".  This might be an actual "N",  or an ambiguity code
+        int baseIdx = baseIndex(b);
+        if (baseIdx < 0) {
+            baseIdx = 4;
+        }
+
+        add(offset, (isNegativeStrand ? NEG : POS) + baseIdx, 1);
+        add(offset, QUAL + baseIdx, q);
+        add(offset, isNegativeStrand ? NEG_TOTAL : POS_TOTAL, 1);
+        add(offset, TOTAL_Q, q);
+
+        int tmp = get(offset, POS_TOTAL) + get(offset, NEG_TOTAL);
+        int maxCountInt = offset / DenseAlignmentCounts.MAX_COUNT_INTERVAL;
+        if (tmp > maxCounts[maxCountInt]) {
+            maxCounts[maxCountInt] = tmp;
+        }
+    }
+
+    /**
+     * @return true if the block containing pos has been promoted to 32-bit counts.  Package visible for tests.
+     */
+    boolean isPromoted(int pos) {
+        return intBlocks[(pos - start) >> BLOCK_SHIFT] != null;
+    }
+
+    private boolean outOfRange(int pos, int offset) {
+        if (offset < 0 || offset >= nPts) {
+            if (log.isDebugEnabled()) {
+                log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private int get(int offset, int field) {
+        int block = offset >> BLOCK_SHIFT;
+        int idx = (offset & BLOCK_MASK) * NFIELDS + field;
+        int[] ib = intBlocks[block];
+        if (ib != null) {
+            return ib[idx];
+        }
+        char[] sb = shortBlocks[block];
+        return sb == null ? 0 : sb[idx];
+    }
+
+    private void add(int offset, int field, int delta) {
+        int block = offset >> BLOCK_SHIFT;
+        int idx = (offset & BLOCK_MASK) * NFIELDS + field;
+        int[] ib = intBlocks[block];
+        if (ib != null) {
+            ib[idx] += delta;
+            return;
+        }
+        char[] sb = shortBlocks[block];
+        if (sb == null) {
+            sb = new char[blockLength(block)];
+            shortBlocks[block] = sb;
+        }
+        int value = sb[idx] + delta;
+        if (value >= 0 && value <= MAX_SHORT) {
+            sb[idx] = (char) value;
+        } else {
+            ib = new int[sb.length];
+            for (int i = 0; i < sb.length; i++) {
+                ib[i] = sb[i];
+            }
+            ib[idx] = value;
+            intBlocks[block] = ib;
+            shortBlocks[block] = null;
+        }
+    }
+
+    private int blockLength(int block) {
+        return Math.min(BLOCK_SIZE, nPts - (block << BLOCK_SHIFT)) * NFIELDS;
+    }
+
+    private static int baseIndex(byte b) {
+        switch (b) {
+            case 'a':
+            case 'A':
+                return 0;
+            case 't':
+            case 'T':
+                return 1;
+            case 'c':
+            case 'C':
+                return 2;
+            case 'g':
+            case 'G':
+                return 3;
+            case 'n':
+            case 'N':
+                return 4;
+            default:
+                return -1;
+        }
+    }
+}
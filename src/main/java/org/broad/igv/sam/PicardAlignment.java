@@ -33,13 +33,12 @@ import htsjdk.samtools.SAMRecord;
 import org.apache.log4j.Logger;
 import org.broad.igv.feature.genome.Genome;
 import org.broad.igv.feature.genome.GenomeManager;
-import org.broad.igv.prefs.Constants;
-import org.broad.igv.prefs.IGVPreferences;
-import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.ui.color.ColorUtilities;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author jrobinso
@@ -47,7 +46,6 @@ import java.util.List;
 public class PicardAlignment extends SAMAlignment implements Alignment {
 
     private static Logger log = Logger.getLogger(PicardAlignment.class);
-    private static IGVPreferences prefMgr = PreferencesManager.getPreferences();
 
     private static final int READ_PAIRED_FLAG = 0x1;
     private static final int PROPER_PAIR_FLAG = 0x2;
@@ -230,73 +228,15 @@ public class PicardAlignment extends SAMAlignment implements Alignment {
     }
 
     protected String getAttributeString(boolean truncate) {
-        // List of tags to skip.  Some tags, like MD and SA, are both quite verbose and not easily
-        // interpreted by a human reader.  It is best to just hide these tags.  The list of tags
-        // to hide is set through the SAM_HIDDEN_TAGS preference.
-        ArrayList<String> tagsToHide = new ArrayList<String>(),
-            tagsHidden = new ArrayList<String>();
-
-        String samHiddenTagsPref = prefMgr.get(Constants.SAM_HIDDEN_TAGS);
-        for (String s : (samHiddenTagsPref == null ? "" : samHiddenTagsPref).split("[, ]")) {
-            if (!s.equals("")) {
-                tagsToHide.add(s);
-            }
+        List<SAMRecord.SAMTagAndValue> attributes = getRecord().getAttributes();
+        if (attributes == null) {
+            return "";
         }
-
-        StringBuffer buf = new StringBuffer();
-        SAMRecord record = getRecord();
-        List<SAMRecord.SAMTagAndValue> attributes = record.getAttributes();
-        if (attributes != null && !attributes.isEmpty()) {
-
-            for (SAMRecord.SAMTagAndValue tag : attributes) {
-                if (tagsToHide.contains(tag.tag)) {
-                    tagsHidden.add(tag.tag);
-                    continue;
-                }
-                buf.append("<br>" + tag.tag + " = ");
-
-                if (tag.value.getClass().isArray()) { // ignore array types
-                    buf.append("[not shown]<br>");
-                    continue;
-                }
-
-                // Break tag
-                final String tagValue = tag.value.toString();
-                final int maxLength = 70;
-                if (tagValue.length() > maxLength && truncate) {
-                    String[] tokens = tagValue.split("<br>");
-                    for (String token : tokens) {
-                        if (token.length() > maxLength) {
-                            // Insert line breaks
-                            String remainder = token;
-                            while (remainder.length() > maxLength) {
-                                String tmp = remainder.substring(0, maxLength);
-                                int spaceIndex = tmp.lastIndexOf(' ');
-                                int idx = spaceIndex > 30 ? spaceIndex : maxLength;
-                                final String substring = remainder.substring(0, idx);
-                                buf.append(substring);
-                                buf.append("<br>");
-                                remainder = remainder.substring(idx);
-                            }
-                            buf.append(remainder);
-                            buf.append("<br>");
-
-                        } else {
-                            buf.append(token);
-                            buf.append("<br>");
-                        }
-                    }
-                } else {
-                    buf.append(tagValue);
-                }
-
-            }
-
-            if (tagsHidden.size() > 0) {
-                buf.append("<br>Hidden tags: " + String.join(", ", tagsHidden));
-            }
+        List<Map.Entry<String, Object>> tags = new ArrayList<>(attributes.size());
+        for (SAMRecord.SAMTagAndValue tag : attributes) {
+            tags.add(new AbstractMap.SimpleEntry<>(tag.tag, tag.value));
         }
-        return buf.toString();
+        return formatAttributes(tags, truncate);
     }
 
     public String getSample() {
@@ -0,0 +1,189 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import org.broad.igv.track.RenderContext;
+import org.broad.igv.ui.panel.ReferenceFrame;
+import org.broad.igv.util.collections.LRUCache;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Cache of rasterized tiles of an alignment track,  used to repaint quickly while panning.  Tiles are fixed width
+ * in screen pixels and aligned to multiples of the tile width from the chromosome start,  so panning reuses the
+ * same tiles at new offsets and only newly exposed tiles are rendered.
+ * <p>
+ * Tiles of a frame are valid for a single state key,  which captures everything that affects the rendered rows
+ * (chromosome, scale, vertical extent, packing, render options, etc).  A change of key drops the frame's tiles.
+ * <p>
+ * Tiles of all tracks share a single LRU cache,  bounded by MAX_BYTES and charged to the shared cache memory budget.
+ */
+class RasterTileCache {
+
+    static final int TILE_WIDTH = 256;
+
+    // Upper bound on cached tiles of all tracks and frames,  in bytes of ARGB pixels
+    static final long MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final LRUCache<TileId, BufferedImage> tiles =
+            new LRUCache<>(Integer.MAX_VALUE, MAX_BYTES, image -> 4L * image.getWidth() * image.getHeight());
+
+    interface TileRenderer {
+        /**
+         * Render into a tile.  The context frame origin is the tile start,  and the visible rect is the tile bounds
+         * in track coordinates.
+         */
+        void render(RenderContext tileContext);
+    }
+
+    // State key of the cached tiles of each frame
+    private final Map<String, Object> frameKeys = new HashMap<>();
+
+    /**
+     * Paint the tiles covering the frame of {@code context} over the vertical extent [top, top + height),
+     * rendering any tiles not in the cache.
+     */
+    synchronized void paint(RenderContext context, int top, int height, Object key, TileRenderer tileRenderer) {
+
+        if (height <= 0) return;
+
+        ReferenceFrame frame = context.getReferenceFrame();
+        String frameName = frame.getName();
+        if (!key.equals(frameKeys.get(frameName))) {
+            removeTiles(Collections.singleton(frameName));
+            frameKeys.put(frameName, key);
+        }
+
+        double scale = frame.getScale();
+        double originPx = frame.getOrigin() / scale;
+        int width = frame.getWidthInPixels();
+        long first = (long) Math.floor(originPx / TILE_WIDTH);
+        long last = (long) Math.floor((originPx + width) / TILE_WIDTH);
+
+        Graphics2D g = context.getGraphics();
+        for (long i = first; i <= last; i++) {
+            TileId id = new TileId(this, frameName, i);
+            BufferedImage image = tiles.get(id);
+            if (image == null || image.getHeight() != height) {
+                image = renderTile(context, i, top, height, tileRenderer);
+                tiles.put(id, image);
+            }
+            int x = (int) Math.round(i * TILE_WIDTH - originPx);
+            g.drawImage(image, x, top, null);
+        }
+    }
+
+    private BufferedImage renderTile(RenderContext context, long index, int top, int height, TileRenderer tileRenderer) {
+
+        BufferedImage image = new BufferedImage(TILE_WIDTH, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.translate(0, -top);
+
+        ReferenceFrame tileFrame = new ReferenceFrame(context.getReferenceFrame());
+        tileFrame.origin = index * TILE_WIDTH * tileFrame.getScale();
+
+        RenderContext tileContext = new RenderContext(context.getPanel(), g, tileFrame, new Rectangle(0, top, TILE_WIDTH, height));
+        tileContext.setInsertionMarkers(context.getInsertionMarkers());
+        try {
+            tileRenderer.render(tileContext);
+        } finally {
+            tileContext.dispose();
+            g.dispose();
+        }
+        return image;
+    }
+
+    synchronized void clear() {
+        removeTiles(new ArrayList<>(frameKeys.keySet()));
+        frameKeys.clear();
+    }
+
+    /**
+     * Drop the tiles of a frame,  e.g. when a drag stops.
+     */
+    synchronized void release(String frameName) {
+        if (frameKeys.remove(frameName) != null) {
+            removeTiles(Collections.singleton(frameName));
+        }
+    }
+
+    /**
+     * Drop tiles of frames not in {@code frameNames}.
+     */
+    synchronized void retainFrames(Collection<String> frameNames) {
+        List<String> removed = new ArrayList<>(frameKeys.keySet());
+        removed.removeAll(frameNames);
+        if (!removed.isEmpty()) {
+            removeTiles(removed);
+            frameKeys.keySet().removeAll(removed);
+        }
+    }
+
+    synchronized int size() {
+        int n = 0;
+        for (TileId id : tiles.keySet()) {
+            if (id.owner == this) n++;
+        }
+        return n;
+    }
+
+    private void removeTiles(Collection<String> frameNames) {
+        for (TileId id : tiles.keySet()) {
+            if (id.owner == this && frameNames.contains(id.frameName)) {
+                tiles.remove(id);
+            }
+        }
+    }
+
+    private static class TileId {
+
+        final RasterTileCache owner;
+        final String frameName;
+        final long index;
+
+        TileId(RasterTileCache owner, String frameName, long index) {
+            this.owner = owner;
+            this.frameName = frameName;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TileId)) return false;
+            TileId other = (TileId) o;
+            return owner == other.owner && index == other.index && frameName.equals(other.frameName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(owner) + frameName.hashCode()) + Long.hashCode(index);
+        }
+    }
+}
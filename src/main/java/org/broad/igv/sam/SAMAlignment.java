@@ -42,6 +42,7 @@ import java.awt.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -467,16 +468,27 @@ public abstract class SAMAlignment implements Alignment {
     }
 
     private String getValueStringImpl(double position, int mouseX, boolean truncate) {
+        return getValueString(this, getReadLength(), position, mouseX, getAttributeString(truncate), mateSequence);
+    }
+
+    /**
+     * Popup text for an alignment,  shared by alignment implementations.
+     *
+     * @param attributeString formatted tags,  each preceded by "&lt;br&gt;",  or null
+     * @param mateSequence    sequence of an unmapped mate,  or null
+     */
+    static String getValueString(Alignment al, int readLength, double position, int mouseX, String attributeString, String mateSequence) {
 
         int basePosition = (int) position;
         StringBuffer buf = new StringBuffer();
 
-        buf.append("Hap name: " + getHaplotypeName() + "<br>");
-        buf.append("Dist: " + getHapDistance() + "<br>");
+        buf.append("Hap name: " + al.getHaplotypeName() + "<br>");
+        buf.append("Dist: " + al.getHapDistance() + "<br>");
 
         // First check insertions.  Position is zero based, block coords 1 based
-        if (this.insertions != null) {
-            for (AlignmentBlock block : this.insertions) {
+        AlignmentBlock[] insertions = al.getInsertions();
+        if (insertions != null) {
+            for (AlignmentBlock block : insertions) {
 
                 if (block.containsPixel(mouseX)) {
 
@@ -499,24 +511,24 @@ public abstract class SAMAlignment implements Alignment {
 
         // Not over an insertion
 
-        buf.append("Read name = " + getReadName() + "<br>");
+        buf.append("Read name = " + al.getReadName() + "<br>");
 
-        String sample = getSample();
+        String sample = al.getSample();
         if (sample != null) {
             buf.append("Sample = " + sample + "<br>");
         }
-        String library = getLibrary();
+        String library = al.getLibrary();
         if (library != null) {
             buf.append("Library = " + library + "<br>");
         }
-        String readGroup = getReadGroup();
+        String readGroup = al.getReadGroup();
         if (readGroup != null) {
             buf.append("Read group = " + readGroup + "<br>");
         }
-        buf.append("Read length = " + Globals.DECIMAL_FORMAT.format(getReadLength()) + "bp<br>");
+        buf.append("Read length = " + Globals.DECIMAL_FORMAT.format(readLength) + "bp<br>");
 
 
-        String cigarString = getCigarString();
+        String cigarString = al.getCigarString();
         // Abbreviate long CIGAR strings.  Retain the start and end of the CIGAR, which show
         // clipping; trim the middle.
         int maxCigarStringLength = 60;
@@ -529,12 +541,12 @@ public abstract class SAMAlignment implements Alignment {
 
 
         buf.append("----------------------" + "<br>");
-        buf.append("Mapping = " + (isPrimary() ? (isSupplementary() ? "Supplementary" : "Primary") : "Secondary") +
-                (isDuplicate() ? " Duplicate" : "") + (isVendorFailedRead() ? " Failed QC" : "") +
-                " @ MAPQ " + Globals.DECIMAL_FORMAT.format(getMappingQuality()) + "<br>");
-        buf.append("Reference span = " + getChr() + ":" + Globals.DECIMAL_FORMAT.format(getAlignmentStart() + 1) + "-" +
-                Globals.DECIMAL_FORMAT.format(getAlignmentEnd()) + " (" + (isNegativeStrand() ? "-" : "+") + ")" +
-                " = " + Globals.DECIMAL_FORMAT.format(getAlignmentEnd() - getAlignmentStart()) + "bp<br>");
+        buf.append("Mapping = " + (al.isPrimary() ? (al.isSupplementary() ? "Supplementary" : "Primary") : "Secondary") +
+                (al.isDuplicate() ? " Duplicate" : "") + (al.isVendorFailedRead() ? " Failed QC" : "") +
+                " @ MAPQ " + Globals.DECIMAL_FORMAT.format(al.getMappingQuality()) + "<br>");
+        buf.append("Reference span = " + al.getChr() + ":" + Globals.DECIMAL_FORMAT.format(al.getAlignmentStart() + 1) + "-" +
+                Globals.DECIMAL_FORMAT.format(al.getAlignmentEnd()) + " (" + (al.isNegativeStrand() ? "-" : "+") + ")" +
+                " = " + Globals.DECIMAL_FORMAT.format(al.getAlignmentEnd() - al.getAlignmentStart()) + "bp<br>");
         buf.append("Cigar = " + cigarString + "<br>");
         buf.append("Clipping = ");
 
@@ -578,28 +590,28 @@ public abstract class SAMAlignment implements Alignment {
 
         Genome genome = GenomeManager.getInstance().getCurrentGenome();
 
-        if (this.isPaired()) {
+        if (al.isPaired()) {
             buf.append("----------------------<br>");
-            buf.append("Mate is mapped = " + (getMate().isMapped() ? "yes" : "no") + "<br>");
-            if (getMate().isMapped()) {
-                buf.append("Mate start = " + getMate().positionString() + "<br>");
+            buf.append("Mate is mapped = " + (al.getMate().isMapped() ? "yes" : "no") + "<br>");
+            if (al.getMate().isMapped()) {
+                buf.append("Mate start = " + al.getMate().positionString() + "<br>");
                 //buf.append("Pair is proper = " + (getProperPairFlag() ? "yes" : "no") + "<br>");
-                if (getChr().equals(getMate().getChr())) {
-                    buf.append("Insert size = " + getInferredInsertSize() + "<br>");
+                if (al.getChr().equals(al.getMate().getChr())) {
+                    buf.append("Insert size = " + al.getInferredInsertSize() + "<br>");
                 }
             }
-            if (isFirstOfPair()) {
+            if (al.isFirstOfPair()) {
                 buf.append("First in pair<br>");
             }
-            if (isSecondOfPair()) {
+            if (al.isSecondOfPair()) {
                 buf.append("Second in pair<br>");
             }
-            if (getPairOrientation().length() > 0) {
-                buf.append("Pair orientation = " + getPairOrientation() + "<br>");
+            if (al.getPairOrientation().length() > 0) {
+                buf.append("Pair orientation = " + al.getPairOrientation() + "<br>");
             }
         }
 
-        Object suppAlignment = this.getAttribute("SA");
+        Object suppAlignment = al.getAttribute("SA");
         if (suppAlignment != null) {
             buf.append("----------------------<br>");
             buf.append(getSupplAlignmentString(suppAlignment.toString()));
@@ -607,10 +619,9 @@ public abstract class SAMAlignment implements Alignment {
         }
 
 
-        String attributeString = getAttributeString(truncate);
         if (attributeString != null && attributeString.length() > 0) {
             buf.append("----------------------");
-            buf.append(getAttributeString(truncate));
+            buf.append(attributeString);
         }
 
 
@@ -622,20 +633,21 @@ public abstract class SAMAlignment implements Alignment {
 
         // Specific base
 
-        for (AlignmentBlock block : this.alignmentBlocks) {
+        AlignmentBlock[] blocks = al.getAlignmentBlocks();
+        for (AlignmentBlock block : blocks == null ? new AlignmentBlock[0] : blocks) {
             if (block.contains(basePosition)) {
 
                 buf.append("<hr>");
                 int offset = basePosition - block.getStart();
                 byte base = block.getBase(offset);
 
-                if (base == 0 && this.getReadSequence().equals("=") && !block.isSoftClipped() && genome != null) {
-                    base = genome.getReference(chr, basePosition);
+                if (base == 0 && "=".equals(al.getReadSequence()) && !block.isSoftClipped() && genome != null) {
+                    base = genome.getReference(al.getChr(), basePosition);
 
                 }
 
                 byte quality = block.getQuality(offset);
-                buf.append("Location = " + getChr() + ":" + Globals.DECIMAL_FORMAT.format(1 + (long) position) + "<br>");
+                buf.append("Location = " + al.getChr() + ":" + Globals.DECIMAL_FORMAT.format(1 + (long) position) + "<br>");
                 buf.append("Base = " + (char) base + " @ QV " + Globals.DECIMAL_FORMAT.format(quality) + "<br>");
 
                 break;
@@ -646,9 +658,81 @@ public abstract class SAMAlignment implements Alignment {
     }
 
 
+    /**
+     * Format tags for the popup text.  Tags listed in the SAM_HIDDEN_TAGS preference are omitted,  and array valued
+     * tags,  or tags with a null value,  are shown as "[not shown]".
+     */
+    static String formatAttributes(List<? extends Map.Entry<String, ?>> attributes, boolean truncate) {
+        // List of tags to skip.  Some tags, like MD and SA, are both quite verbose and not easily
+        // interpreted by a human reader.  It is best to just hide these tags.  The list of tags
+        // to hide is set through the SAM_HIDDEN_TAGS preference.
+        ArrayList<String> tagsToHide = new ArrayList<String>(),
+            tagsHidden = new ArrayList<String>();
+
+        String samHiddenTagsPref = PreferencesManager.getPreferences().get(Constants.SAM_HIDDEN_TAGS);
+        for (String s : (samHiddenTagsPref == null ? "" : samHiddenTagsPref).split("[, ]")) {
+            if (!s.equals("")) {
+                tagsToHide.add(s);
+            }
+        }
+
+        StringBuffer buf = new StringBuffer();
+        if (attributes != null && !attributes.isEmpty()) {
+
+            for (Map.Entry<String, ?> tag : attributes) {
+                if (tagsToHide.contains(tag.getKey())) {
+                    tagsHidden.add(tag.getKey());
+                    continue;
+                }
+                buf.append("<br>" + tag.getKey() + " = ");
+
+                if (tag.getValue() == null || tag.getValue().getClass().isArray()) { // ignore array types
+                    buf.append("[not shown]<br>");
+                    continue;
+                }
+
+                // Break tag
+                final String tagValue = tag.getValue().toString();
+                final int maxLength = 70;
+                if (tagValue.length() > maxLength && truncate) {
+                    String[] tokens = tagValue.split("<br>");
+                    for (String token : tokens) {
+                        if (token.length() > maxLength) {
+                            // Insert line breaks
+                            String remainder = token;
+                            while (remainder.length() > maxLength) {
+                                String tmp = remainder.substring(0, maxLength);
+                                int spaceIndex = tmp.lastIndexOf(' ');
+                                int idx = spaceIndex > 30 ? spaceIndex : maxLength;
+                                final String substring = remainder.substring(0, idx);
+                                buf.append(substring);
+                                buf.append("<br>");
+                                remainder = remainder.substring(idx);
+                            }
+                            buf.append(remainder);
+                            buf.append("<br>");
+
+                        } else {
+                            buf.append(token);
+                            buf.append("<br>");
+                        }
+                    }
+                } else {
+                    buf.append(tagValue);
+                }
+
+            }
+
+            if (tagsHidden.size() > 0) {
+                buf.append("<br>Hidden tags: " + String.join(", ", tagsHidden));
+            }
+        }
+        return buf.toString();
+    }
+
     // chr21,26002386,-,11785S1115M,60,0;chr21,26001844,+,1115S111M1D41M1D394M11239S,60,4;
 
-    private String getSupplAlignmentString(String sa) {
+    private static String getSupplAlignmentString(String sa) {
 
         StringBuffer buf = new StringBuffer();
         buf.append("SupplementaryAlignments");
@@ -260,7 +260,13 @@ public class SAMWriter {
 
             // We need to sort if soft-clipping is on, so just sort always.  Its cheap.
             alignments.sort((o1, o2) -> o1.getAlignmentStart() - o2.getAlignmentStart());
-            Iterator<PicardAlignment> samIter = new SamAlignmentIterable(alignments.iterator(), sequence, start, end);
+
+            Iterator<PicardAlignment> samIter;
+            if (alignments.stream().anyMatch(al -> al instanceof CompactAlignment)) {
+                samIter = rereadAlignments(inlocator, alignments, sequence, start, end);
+            } else {
+                samIter = new SamAlignmentIterable(alignments.iterator(), sequence, start, end);
+            }
 
             SAMWriter writer = new SAMWriter(fileHeader);
             return writer.writeToFile(outFile, samIter, true);
@@ -269,6 +275,42 @@ public class SAMWriter {
         }
     }
 
+    /**
+     * Compact alignments do not retain their SAM records.  Re-read the range from the source and keep the records
+     * matching an alignment in {@code alignments},  so the export contains the same (e.g. downsampled) set of
+     * alignments as the in-memory path.
+     */
+    private static Iterator<PicardAlignment> rereadAlignments(ResourceLocator locator, List<Alignment> alignments,
+                                                              String sequence, int start, int end) throws IOException {
+
+        Set<String> keys = new HashSet<>();
+        for (Alignment al : alignments) {
+            if (sequence.equals(al.getChr()) && start <= al.getEnd() && end >= al.getStart()) {
+                keys.add(getAlignmentKey(al));
+            }
+        }
+
+        List<PicardAlignment> records = new ArrayList<>(keys.size());
+        AlignmentReader reader = AlignmentReaderFactory.getReader(locator);
+        try (CloseableIterator<PicardAlignment> iter = reader.query(sequence, start, end, false)) {
+            while (iter.hasNext()) {
+                PicardAlignment al = iter.next();
+                if (keys.contains(getAlignmentKey(al))) {
+                    records.add(al);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return records.iterator();
+    }
+
+    private static String getAlignmentKey(Alignment al) {
+        return al.getReadName() + SAM_FIELD_SEPARATOR + al.getAlignmentStart() + SAM_FIELD_SEPARATOR +
+                (al.isFirstOfPair() ? "1" : "") + (al.isSecondOfPair() ? "2" : "") +
+                (al.isPrimary() ? "" : "S") + (al.isSupplementary() ? "A" : "");
+    }
+
     /**
      * Use Picard to write alignment subset, as read from a file
      *
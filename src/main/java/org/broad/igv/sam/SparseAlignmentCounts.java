@@ -27,11 +27,9 @@ package org.broad.igv.sam;
 
 import org.apache.log4j.Logger;
 import org.broad.igv.util.collections.IntArrayList;
+import org.broad.igv.util.collections.IntIntHashMap;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * @author Jim Robinson
@@ -41,13 +39,13 @@ public class SparseAlignmentCounts extends BaseAlignmentCounts {
 
     private static Logger log = Logger.getLogger(SparseAlignmentCounts.class);
     private int maxCount = 0;
-    List<Integer> indices;
+    int[] indices;
 
 
     /**
      * Map of genomic position -> index of count arrays
      */
-    HashMap<Integer, Integer> indexMap;
+    IntIntHashMap indexMap;
 
     IntArrayList posA;
     IntArrayList posT;
@@ -78,7 +76,7 @@ public class SparseAlignmentCounts extends BaseAlignmentCounts {
     public SparseAlignmentCounts(int start, int end, AlignmentTrack.BisulfiteContext bisulfiteContext, int initSize) {
         super(start, end, bisulfiteContext);
 
-        indexMap = new HashMap<Integer, Integer>(initSize);
+        indexMap = new IntIntHashMap(initSize);
         posA = new IntArrayList(initSize);
         posT = new IntArrayList(initSize);
         posC = new IntArrayList(initSize);
@@ -110,11 +108,11 @@ public class SparseAlignmentCounts extends BaseAlignmentCounts {
     }
 
     public int getNumberOfPoints() {
-        return indices == null ? 0 : indices.size();
+        return indices == null ? 0 : indices.length;
     }
 
     public int getPosition(int idx) {
-        return indices.get(idx);
+        return indices[idx];
     }
 
     /**
@@ -132,13 +130,13 @@ public class SparseAlignmentCounts extends BaseAlignmentCounts {
     }
 
     public int getTotalCount(int pos) {
-        if (!indexMap.containsKey(pos)) {
+        int idx = indexMap.get(pos);
+        if (idx < 0) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
             return 0;
         } else {
-            int idx = getIndex(pos);
             return getCountFromList(posTotal, idx) + getCountFromList(negTotal, idx);
 
         }
@@ -146,26 +144,26 @@ public class SparseAlignmentCounts extends BaseAlignmentCounts {
 
 
     public int getTotalQuality(int pos) {
-        if (!indexMap.containsKey(pos)) {
+        int idx = indexMap.get(pos);
+        if (idx < 0) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
             return 0;
         } else {
-            int idx = getIndex(pos);
             return getCountFromList(totalQ, idx);
 
         }
     }
 
     public int getCount(int pos, byte b) {
-        if (!indexMap.containsKey(pos)) {
+        int idx = indexMap.get(pos);
+        if (idx < 0) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
             return 0;
         } else {
-            int idx = getIndex(pos);
             switch (b) {
                 case 'a':
                 case 'A':
@@ -193,13 +191,13 @@ public class SparseAlignmentCounts extends BaseAlignmentCounts {
     }
 
     public int getNegCount(int pos, byte b) {
-        if (!indexMap.containsKey(pos)) {
+        int idx = indexMap.get(pos);
+        if (idx < 0) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
             return 0;
         } else {
-            int idx = getIndex(pos);
             switch (b) {
                 case 'a':
                 case 'A':
@@ -223,13 +221,13 @@ public class SparseAlignmentCounts extends BaseAlignmentCounts {
     }
 
     public int getPosCount(int pos, byte b) {
-        if (!indexMap.containsKey(pos)) {
+        int idx = indexMap.get(pos);
+        if (idx < 0) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
             return 0;
         } else {
-            int idx = getIndex(pos);
             switch (b) {
                 case 'a':
                 case 'A':
@@ -253,38 +251,38 @@ public class SparseAlignmentCounts extends BaseAlignmentCounts {
     }
 
     public int getDelCount(int pos) {
-        if (!indexMap.containsKey(pos)) {
+        int idx = indexMap.get(pos);
+        if (idx < 0) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
             return 0;
         } else {
-            int idx = getIndex(pos);
             return getCountFromList(del, idx);
         }
     }
 
 
     public int getInsCount(int pos) {
-        if (!indexMap.containsKey(pos)) {
+        int idx = indexMap.get(pos);
+        if (idx < 0) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
             return 0;
         } else {
-            int idx = getIndex(pos);
             return getCountFromList(ins, idx);
         }
     }
 
     public int getQuality(int pos, byte b) {
-        if (!indexMap.containsKey(pos)) {
+        int idx = indexMap.get(pos);
+        if (idx < 0) {
             if (log.isDebugEnabled()) {
                 log.debug("Position out of range: " + pos + " (valid range - " + start + "-" + end);
             }
             return 0;
         } else {
-            int idx = getIndex(pos);
             switch (b) {
                 case 'a':
                 case 'A':
@@ -412,12 +410,7 @@ public class SparseAlignmentCounts extends BaseAlignmentCounts {
     }
 
     private int getIndex(int pos) {
-        Integer index = indexMap.get(pos);
-        if (index == null) {
-            index = new Integer(indexMap.size());
-            indexMap.put(pos, index);
-        }
-        return index.intValue();
+        return indexMap.putIfAbsent(pos, indexMap.size());
     }
 
 
@@ -430,8 +423,8 @@ public class SparseAlignmentCounts extends BaseAlignmentCounts {
     }
 
     public void finish() {
-        indices = new ArrayList<Integer>(indexMap.keySet());
-        Collections.sort(indices);
+        indices = indexMap.keys();
+        Arrays.sort(indices);
     }
 
     /**
@@ -449,7 +442,7 @@ public class SparseAlignmentCounts extends BaseAlignmentCounts {
         IntArrayList destArr;
 
         for (int arrayPos = 0; arrayPos < input.getNumberOfPoints(); arrayPos++) {
-            int genomePos = input.indices.get(arrayPos);
+            int genomePos = input.indices[arrayPos];
             if (!result.indexMap.containsKey(genomePos)) {
                 for (int arnum = 0; arnum < destArrs.length; arnum++) {
                     destArr = destArrs[arnum];
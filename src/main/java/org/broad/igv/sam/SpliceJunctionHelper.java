@@ -26,8 +26,6 @@
 
 package org.broad.igv.sam;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import org.apache.log4j.Logger;
 import org.broad.igv.feature.FeatureUtils;
 import org.broad.igv.feature.SpliceJunctionFeature;
@@ -35,14 +33,17 @@ import org.broad.igv.feature.Strand;
 import org.broad.igv.prefs.Constants;
 import org.broad.igv.prefs.IGVPreferences;
 import org.broad.igv.prefs.PreferencesManager;
+import org.broad.igv.util.collections.LongIntHashMap;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * A helper class for computing splice junctions from alignments.
  * Junctions are filtered based on minimum flanking width on loading, so data
  * needs to be
+ * <p/>
+ * Junction evidence is accumulated in primitive per-strand tables keyed by the packed junction start and end.
+ * SpliceJunctionFeature objects are only created,  on request,  for junctions passing the coverage filter.
  *
  * @author dhmay, jrobinso
  * @date Jul 3, 2011
@@ -51,12 +52,14 @@ public class SpliceJunctionHelper {
 
     static Logger log = Logger.getLogger(SpliceJunctionHelper.class);
 
-    List<SpliceJunctionFeature> allSpliceJunctionFeatures = new ArrayList<SpliceJunctionFeature>();
-    //  List<SpliceJunctionFeature> filteredSpliceJunctionFeatures = null;
-    List<SpliceJunctionFeature> filteredCombinedFeatures = null;
+    private final JunctionCounts posJunctions = new JunctionCounts();
+    private final JunctionCounts negJunctions = new JunctionCounts();
 
-    Table<Integer, Integer, SpliceJunctionFeature> posStartEndJunctionsMap = HashBasedTable.create();
-    Table<Integer, Integer, SpliceJunctionFeature> negStartEndJunctionsMap = HashBasedTable.create();
+    private String chr;
+
+    // Materialized, filtered features by strand option.  Cleared when alignments are added or load options change.
+    private final Map<SpliceJunctionTrack.StrandOption, List<SpliceJunctionFeature>> filteredJunctionsCache =
+            new EnumMap<>(SpliceJunctionTrack.StrandOption.class);
 
     private LoadOptions loadOptions;
 
@@ -64,33 +67,47 @@ public class SpliceJunctionHelper {
         this.loadOptions = loadOptions;
     }
 
-    public List<SpliceJunctionFeature> getFilteredJunctions(SpliceJunctionTrack.StrandOption strandOption) {
+    /**
+     * Return the junctions passing the coverage filter,  sorted by start.  The list is shared between callers and
+     * must not be modified.
+     */
+    public synchronized List<SpliceJunctionFeature> getFilteredJunctions(SpliceJunctionTrack.StrandOption strandOption) {
+
+        List<SpliceJunctionFeature> filteredJunctions = filteredJunctionsCache.get(strandOption);
+        if (filteredJunctions != null) {
+            return filteredJunctions;
+        }
 
-        List<SpliceJunctionFeature> junctions;
+        final int minDepth = loadOptions.minJunctionCoverage;
+        List<SpliceJunctionFeature> junctions = new ArrayList<>();
 
         switch (strandOption) {
             case FORWARD:
-                junctions = new ArrayList<>(posStartEndJunctionsMap.values());
+                posJunctions.materialize(chr, Strand.POSITIVE, minDepth, junctions);
                 break;
             case REVERSE:
-                junctions = new ArrayList<>(negStartEndJunctionsMap.values());
+                negJunctions.materialize(chr, Strand.NEGATIVE, minDepth, junctions);
                 break;
             case BOTH:
-                junctions = new ArrayList<>(posStartEndJunctionsMap.values());
-                junctions.addAll(negStartEndJunctionsMap.values());
+                posJunctions.materialize(chr, Strand.POSITIVE, minDepth, junctions);
+                negJunctions.materialize(chr, Strand.NEGATIVE, minDepth, junctions);
                 break;
             default:
-                junctions = combineStrandJunctionsMaps();
+                combineStrandJunctions(minDepth, junctions);
         }
 
-        List<SpliceJunctionFeature> filteredJunctions = filterJunctionList(this.loadOptions, junctions);
-
-        FeatureUtils.sortFeatureList(filteredJunctions);
+        FeatureUtils.sortFeatureList(junctions);
 
+        filteredJunctions = Collections.unmodifiableList(junctions);
+        filteredJunctionsCache.put(strandOption, filteredJunctions);
         return filteredJunctions;
 
     }
 
+    /**
+     * Add the splice junction evidence from an alignment.  Called by the loader while the interval is being built,
+     * before it is visible to other threads.
+     */
     public void addAlignment(Alignment alignment) {
 
         AlignmentBlock[] blocks = alignment.getAlignmentBlocks();
@@ -110,11 +127,10 @@ public class SpliceJunctionHelper {
                 isNegativeStrand = alignment.isNegativeStrand(); // <= TODO -- this isn't correct for all libraries.
             }
         }
-        Table<Integer, Integer, SpliceJunctionFeature> startEndJunctionsTableThisStrand =
-                isNegativeStrand ? negStartEndJunctionsMap : posStartEndJunctionsMap;
+        JunctionCounts junctionsThisStrand = isNegativeStrand ? negJunctions : posJunctions;
 
 
-        // For each gap marked "skip" (cigar N), create or add evidence to a splice junction
+        // For each gap marked "skip" (cigar N), add evidence to a splice junction
         List<Gap> gaps = alignment.getGaps();
         if (gaps != null) {
             for (Gap gap : gaps) {
@@ -127,20 +143,17 @@ public class SpliceJunctionHelper {
                             (spliceGap.getFlankingLeft() >= loadOptions.minReadFlankingWidth &&
                                     spliceGap.getFlankingRight() >= loadOptions.minReadFlankingWidth)) {
 
+                        if (chr == null) {
+                            chr = alignment.getChr();
+                        }
+                        if (!filteredJunctionsCache.isEmpty()) {
+                            filteredJunctionsCache.clear();
+                        }
+
                         int junctionStart = spliceGap.getStart();
                         int junctionEnd = junctionStart + spliceGap.getnBases();
-                        int flankingStart = junctionStart - spliceGap.getFlankingLeft();
-                        int flankingEnd = junctionEnd + spliceGap.getFlankingRight();
-
-                        SpliceJunctionFeature junction = startEndJunctionsTableThisStrand.get(junctionStart, junctionEnd);
-
-                        if (junction == null) {
-                            junction = new SpliceJunctionFeature(alignment.getChr(), junctionStart, junctionEnd,
-                                    isNegativeStrand ? Strand.NEGATIVE : Strand.POSITIVE);
-                            startEndJunctionsTableThisStrand.put(junctionStart, junctionEnd, junction);
-                            allSpliceJunctionFeatures.add(junction);
-                        }
-                        junction.addRead(flankingStart, flankingEnd);
+                        junctionsThisStrand.addRead(junctionStart, junctionEnd,
+                                spliceGap.getFlankingLeft(), spliceGap.getFlankingRight());
                     }
 
                 }
@@ -148,70 +161,151 @@ public class SpliceJunctionHelper {
         }
     }
 
-    private static List<SpliceJunctionFeature> filterJunctionList(LoadOptions loadOptions, List<SpliceJunctionFeature> unfiltered) {
-
-        if (loadOptions.minJunctionCoverage > 1) {
-            List<SpliceJunctionFeature> coveredFeatures = new ArrayList<SpliceJunctionFeature>(unfiltered.size());
-            for (SpliceJunctionFeature feature : unfiltered) {
-                if (feature.getJunctionDepth() >= loadOptions.minJunctionCoverage) {
-                    coveredFeatures.add(feature);
-                }
-            }
-            return coveredFeatures;
-        } else {
-            return unfiltered;
-        }
-    }
-
 
     /**
      * Combine junctions from both strands.  Used for Sashimi plot.
      * Note: Flanking depth arrays are not combined.
      */
-    private List<SpliceJunctionFeature> combineStrandJunctionsMaps() {
+    private void combineStrandJunctions(int minDepth, List<SpliceJunctionFeature> result) {
+
+        // All + junctions,  plus the depth of the - junction at the same position if any
+        for (int i = 0; i < posJunctions.size; i++) {
+            int depth = posJunctions.depths[i] + negJunctions.getDepth(posJunctions.keys[i]);
+            if (depth >= minDepth) {
+                result.add(combinedFeature(posJunctions.keys[i], depth));
+            }
+        }
 
-        // Start with all + junctions
-        Table<Integer, Integer, SpliceJunctionFeature> combinedMap = HashBasedTable.create();
+        // - junctions with no + junction at the same position
+        for (int i = 0; i < negJunctions.size; i++) {
+            long key = negJunctions.keys[i];
+            if (negJunctions.depths[i] >= minDepth && posJunctions.getDepth(key) == 0) {
+                result.add(combinedFeature(key, negJunctions.depths[i]));
+            }
+        }
+    }
+
+    private SpliceJunctionFeature combinedFeature(long key, int depth) {
+        SpliceJunctionFeature feature =
+                new SpliceJunctionFeature(chr, LongIntHashMap.high(key), LongIntHashMap.low(key));
+        feature.setJunctionDepth(depth);
+        return feature;
+    }
 
-        for (SpliceJunctionFeature posFeature : posStartEndJunctionsMap.values()) {
-            final int junctionStart = posFeature.getJunctionStart();
-            final int junctionEnd = posFeature.getJunctionEnd();
 
-            SpliceJunctionFeature combinedFeature = new SpliceJunctionFeature(posFeature.getChr(), junctionStart, junctionEnd);
-            combinedFeature.setJunctionDepth(posFeature.getJunctionDepth());
-            combinedMap.put(junctionStart, junctionEnd, combinedFeature);
+    synchronized void setLoadOptions(LoadOptions loadOptions) {
+        //Can't change this, need to reload everything
+        assert this.loadOptions.minReadFlankingWidth == loadOptions.minReadFlankingWidth;
+        if (loadOptions.minJunctionCoverage != this.loadOptions.minJunctionCoverage) {
+            filteredJunctionsCache.clear();
         }
+        this.loadOptions = loadOptions;
 
+    }
 
-        // Merge in - junctions
-        for (SpliceJunctionFeature negFeature: negStartEndJunctionsMap.values()) {
+    /**
+     * Junction evidence for one strand.  Each distinct junction gets a slot in a set of parallel arrays,  found
+     * through a primitive map from the packed (start, end) key.  Flanking coverage is kept as a histogram of
+     * flanking widths,  so adding a read is constant time;  the depth arrays SpliceJunctionFeature expects are
+     * cumulative sums of the histogram,  computed when a feature is materialized.
+     */
+    private static class JunctionCounts {
 
-            int junctionStart = negFeature.getJunctionStart();
-            int junctionEnd = negFeature.getJunctionEnd();
+        final LongIntHashMap slots = new LongIntHashMap(64);
 
-            SpliceJunctionFeature junction = combinedMap.get(junctionStart, junctionEnd);
+        int size;
+        long[] keys = new long[16];
+        int[] depths = new int[16];
+        int[] maxFlankingLeft = new int[16];
+        int[] maxFlankingRight = new int[16];
+        int[][] flankingLeftCounts = new int[16][];
+        int[][] flankingRightCounts = new int[16][];
 
-            if (junction == null) {
-                // No existing (+) junction here, just add the (-) one\
-                SpliceJunctionFeature combinedFeature = new SpliceJunctionFeature(negFeature.getChr(), junctionStart, junctionEnd);
-                combinedFeature.setJunctionDepth(negFeature.getJunctionDepth());
-                combinedMap.put(junctionStart, junctionEnd, negFeature);
-            } else {
-                int newJunctionDepth = junction.getJunctionDepth() + negFeature.getJunctionDepth();
-                junction.setJunctionDepth(newJunctionDepth);
+        void addRead(int junctionStart, int junctionEnd, int flankingLeft, int flankingRight) {
+
+            long key = LongIntHashMap.pack(junctionStart, junctionEnd);
+            int slot = slots.putIfAbsent(key, size);
+            if (slot == size) {
+                if (size == keys.length) {
+                    grow();
+                }
+                keys[slot] = key;
+                size++;
+            }
+
+            depths[slot]++;
+            if (flankingLeft > 0) {
+                flankingLeftCounts[slot] = increment(flankingLeftCounts[slot], flankingLeft);
+                maxFlankingLeft[slot] = Math.max(maxFlankingLeft[slot], flankingLeft);
+            }
+            if (flankingRight > 0) {
+                flankingRightCounts[slot] = increment(flankingRightCounts[slot], flankingRight);
+                maxFlankingRight[slot] = Math.max(maxFlankingRight[slot], flankingRight);
             }
         }
 
-        return new ArrayList<>(combinedMap.values());
-    }
+        int getDepth(long key) {
+            int slot = slots.get(key);
+            return slot < 0 ? 0 : depths[slot];
+        }
 
+        void materialize(String chr, Strand strand, int minDepth, List<SpliceJunctionFeature> result) {
+            for (int i = 0; i < size; i++) {
+                if (depths[i] < minDepth) continue;
+
+                SpliceJunctionFeature feature = new SpliceJunctionFeature(chr,
+                        LongIntHashMap.high(keys[i]), LongIntHashMap.low(keys[i]), strand);
+                feature.setJunctionDepth(depths[i]);
+
+                // Left flank positions are ordered away from the junction,  right flank positions towards it
+                int maxLeft = maxFlankingLeft[i];
+                int[] startDepths = null;
+                if (maxLeft > 0) {
+                    startDepths = new int[maxLeft];
+                    int[] counts = flankingLeftCounts[i];
+                    int coverage = 0;
+                    for (int w = maxLeft; w > 0; w--) {
+                        coverage += counts[w];
+                        startDepths[maxLeft - w] = coverage;
+                    }
+                }
 
-    void setLoadOptions(LoadOptions loadOptions) {
-        int oldMinJunctionCoverage = this.loadOptions.minJunctionCoverage;
-        //Can't change this, need to reload everything
-        assert this.loadOptions.minReadFlankingWidth == loadOptions.minReadFlankingWidth;
-        this.loadOptions = loadOptions;
+                int maxRight = maxFlankingRight[i];
+                int[] endDepths = null;
+                if (maxRight > 0) {
+                    endDepths = new int[maxRight];
+                    int[] counts = flankingRightCounts[i];
+                    int coverage = 0;
+                    for (int w = maxRight; w > 0; w--) {
+                        coverage += counts[w];
+                        endDepths[w - 1] = coverage;
+                    }
+                }
 
+                feature.setFlankingRegions(startDepths, endDepths);
+                result.add(feature);
+            }
+        }
+
+        private static int[] increment(int[] counts, int width) {
+            if (counts == null) {
+                counts = new int[width + 1];
+            } else if (width >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(width + 1, counts.length * 2));
+            }
+            counts[width]++;
+            return counts;
+        }
+
+        private void grow() {
+            int n = keys.length * 2;
+            keys = Arrays.copyOf(keys, n);
+            depths = Arrays.copyOf(depths, n);
+            maxFlankingLeft = Arrays.copyOf(maxFlankingLeft, n);
+            maxFlankingRight = Arrays.copyOf(maxFlankingRight, n);
+            flankingLeftCounts = Arrays.copyOf(flankingLeftCounts, n);
+            flankingRightCounts = Arrays.copyOf(flankingRightCounts, n);
+        }
     }
 
     public static class LoadOptions {
@@ -214,22 +214,7 @@ public class BAMReader implements AlignmentReader<Alignment> {
 
         List<Alignment> alignmentContainer = new ArrayList<>(10000);
 
-        long fetchMin = c.start.block;
-        long fetchMax = c.end.block + 65000; // Make sure we get the whole block.
-
-        SeekableStream ss = IGVSeekableStreamFactory.getInstance().getStreamFor(this.path);
-
-        ss.seek(fetchMin);
-
-        byte[] buffer = new byte[(int) (fetchMax - fetchMin + 1)];
-
-        try {
-            ss.readFully(buffer);
-        } catch (EOFException e) {
-            // Can happen with small files
-        }
-
-        byte[] unc = BGUnzip.blockUnzip(buffer);
+        byte[] unc = BGUnzip.blockUnzip(readChunk(c));
 
         decodeBamRecords(unc, c.start.offset, alignmentContainer, start, end, chrId); //, self.filter);
 
@@ -262,29 +247,34 @@ public class BAMReader implements AlignmentReader<Alignment> {
 
             for (BAMIndex.Chunk c : chunks) {
 
-                long fetchMin = c.start.block;
-                long fetchMax = c.end.block + 65000; // Make sure we get the whole block.
+                byte[] unc = BGUnzip.blockUnzip(readChunk(c));
 
-                SeekableStream ss = IGVSeekableStreamFactory.getInstance().getStreamFor(this.path);
-
-                ss.seek(fetchMin);
+                decodeBamRecords(unc, c.start.offset, alignmentContainer, bpStart, bpEnd, chrId); //, self.filter);
 
-                byte[] buffer = new byte[(int) (fetchMax - fetchMin + 1)];
 
-                try {
-                    ss.readFully(buffer);
-                } catch (EOFException e) {
-                    // Can happen with small files
-                }
+            }
+            return alignmentContainer;
+        }
+    }
 
-                byte[] unc = BGUnzip.blockUnzip(buffer);
+    /**
+     * Read the compressed bytes spanning a chunk.  Blocks in the returned buffer are inflated in parallel by
+     * {@link BGUnzip#blockUnzip(byte[])}.
+     */
+    private byte[] readChunk(BAMIndex.Chunk c) throws IOException {
 
-                decodeBamRecords(unc, c.start.offset, alignmentContainer, bpStart, bpEnd, chrId); //, self.filter);
+        long fetchMin = c.start.block;
+        long fetchMax = c.end.block + 65000; // Make sure we get the whole block.
 
+        byte[] buffer = new byte[(int) (fetchMax - fetchMin + 1)];
 
-            }
-            return alignmentContainer;
+        try (SeekableStream ss = IGVSeekableStreamFactory.getInstance().getStreamFor(this.path)) {
+            ss.seek(fetchMin);
+            ss.readFully(buffer);
+        } catch (EOFException e) {
+            // Can happen with small files
         }
+        return buffer;
     }
 
     void decodeBamRecords(byte[] ba, int offset, List<Alignment> alignmentContainer, int min, int max, int chrId) {  //, filter){
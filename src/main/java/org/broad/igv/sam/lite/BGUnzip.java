@@ -1,7 +1,11 @@
 package org.broad.igv.sam.lite;
 
-import java.io.ByteArrayOutputStream;
+import org.broad.igv.util.collections.IntArrayList;
+
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
@@ -11,23 +15,46 @@ import java.util.zip.Inflater;
 public class BGUnzip {
     public static final int BGZIP_HEADER_LENGTH = 18;
 
+    static final int MAX_BLOCK_SIZE = 65536;
+
+    // Below this many blocks the handoff to the pool costs more than it saves
+    static final int MIN_PARALLEL_BLOCKS = 8;
+
+    static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private static final ExecutorService threadExecutor = Executors.newFixedThreadPool(PARALLELISM, r -> {
+        Thread t = new Thread(r, "BGZF inflater");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Inflaters hold native memory,  reuse them across calls rather than allocating one per call
+    private static final BlockingQueue<Inflater> inflaterPool = new ArrayBlockingQueue<>(PARALLELISM + 1);
+
     // Uncompress data,  assumed to be series of bgzipped blocks
 
     public static byte[] blockUnzip(byte[] data) throws IOException {
+        return blockUnzip(data, PARALLELISM);
+    }
 
-        Inflater inflater = new Inflater(true);
+    /**
+     * Uncompress data using up to {@code parallelism} threads.  Block boundaries and uncompressed sizes are read
+     * from the BGZF headers and footers first,  so each block can be inflated directly into its slot of the output
+     * array and blocks are returned in file order regardless of which thread inflated them.
+     */
+    static byte[] blockUnzip(byte[] data, int parallelism) throws IOException {
 
-        int ptr = 0;
+        IntArrayList blockStarts = new IntArrayList(64);
+        IntArrayList outputStarts = new IntArrayList(64);
 
+        int ptr = 0;
+        int outputLength = 0;
         int lim = data.length - BGZIP_HEADER_LENGTH;
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
 
         while (ptr < lim) {
 
-            int xlen =  unpackInt16(data, ptr + 10);
-            int si1 = data[ptr + 12];
-            int si2 = data[ptr + 13];
-            int slen =  unpackInt16(data, 14);
+            if (data[ptr] != 31 || data[ptr + 1] != (byte) 139) break;   // Not a gzip member, e.g. zero-fill past EOF
+
             int bsize = unpackInt16(data, ptr + 16) + 1;
 
             int start = BGZIP_HEADER_LENGTH + ptr;    // Start of CDATA
@@ -35,26 +62,93 @@ public class BGUnzip {
             if (remainder < (bsize + 8)) break;
 
             int uncLength = unpackInt32(data, ptr + bsize - 4);
+            if (uncLength < 0 || uncLength > MAX_BLOCK_SIZE) break;
 
-            inflater.reset();
-            inflater.setInput(data, start, remainder);
+            blockStarts.add(ptr);
+            outputStarts.add(outputLength);
+            outputLength += uncLength;
+
+            ptr += bsize;    // Advance to next block
+        }
 
-            byte [] output = new byte[uncLength];
-            final int inflatedBytes;
+        int nBlocks = blockStarts.size();
+        outputStarts.add(outputLength);
+
+        byte[] output = new byte[outputLength];
+        int[] inflated = new int[nBlocks];
+
+        int nTasks = nBlocks < MIN_PARALLEL_BLOCKS ? 1 : Math.min(parallelism, nBlocks / (MIN_PARALLEL_BLOCKS / 2));
+
+        if (nTasks <= 1) {
+            inflateBlocks(data, blockStarts, outputStarts, output, inflated, 0, nBlocks);
+        } else {
+            List<Future<?>> futures = new ArrayList<>(nTasks);
+            for (int t = 0; t < nTasks; t++) {
+                final int first = (int) ((long) nBlocks * t / nTasks);
+                final int last = (int) ((long) nBlocks * (t + 1) / nTasks);
+                futures.add(threadExecutor.submit(() -> inflateBlocks(data, blockStarts, outputStarts, output, inflated, first, last)));
+            }
             try {
-                inflatedBytes = inflater.inflate(output, 0, uncLength);
-            } catch (DataFormatException e) {
-                // Can happen near end of file;
-                break;
+                for (Future<?> f : futures) {
+                    f.get();
+                }
+            } catch (InterruptedException e) {
+                for (Future<?> f : futures) {
+                    f.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while inflating BGZF blocks", e);
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
             }
+        }
 
-            outputStream.write(output, 0, inflatedBytes);
+        // Output ends at the first block that could not be fully inflated,  which can happen near end of file
+        for (int i = 0; i < nBlocks; i++) {
+            int expected = outputStarts.get(i + 1) - outputStarts.get(i);
+            if (inflated[i] < expected) {
+                int length = outputStarts.get(i) + Math.max(0, inflated[i]);
+                byte[] truncated = new byte[length];
+                System.arraycopy(output, 0, truncated, 0, length);
+                return truncated;
+            }
+        }
+        return output;
+    }
 
-            ptr += bsize;    // Advance to next block
+    /**
+     * Inflate blocks [first, last) into their output slots,  recording the number of bytes inflated for each block,
+     * or -1 if the block is corrupt.
+     */
+    private static void inflateBlocks(byte[] data, IntArrayList blockStarts, IntArrayList outputStarts, byte[] output,
+                                      int[] inflated, int first, int last) {
 
+        Inflater inflater = inflaterPool.poll();
+        if (inflater == null) {
+            inflater = new Inflater(true);
         }
 
-        return outputStream.toByteArray();
+        try {
+            for (int i = first; i < last; i++) {
+                int start = blockStarts.get(i) + BGZIP_HEADER_LENGTH;
+                int outputStart = outputStarts.get(i);
+                int uncLength = outputStarts.get(i + 1) - outputStart;
+
+                inflater.reset();
+                inflater.setInput(data, start, data.length - start);
+                try {
+                    inflated[i] = inflater.inflate(output, outputStart, uncLength);
+                } catch (DataFormatException e) {
+                    inflated[i] = -1;
+                    break;
+                }
+            }
+        } finally {
+            inflater.reset();
+            if (!inflaterPool.offer(inflater)) {
+                inflater.end();
+            }
+        }
     }
 
     private static int unpackInt16(final byte[] buffer, final int offset) {
@@ -0,0 +1,150 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam.reader;
+
+import htsjdk.samtools.util.CloseableIterator;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Iterator which decodes records from a source iterator on a worker thread,  handing them to the consumer in
+ * batches through a bounded queue.  This overlaps record decoding (and any I/O and inflation done by the source)
+ * with the filtering and counting done by the consumer.  Record order is preserved.
+ * <p/>
+ * The source iterator is only touched by the worker thread,  and is closed by it.  {@link #close()} blocks until
+ * the worker has stopped,  so the underlying reader can be queried again as soon as it returns.
+ */
+public class AsyncAlignmentIterator<T> implements CloseableIterator<T> {
+
+    private static Logger log = Logger.getLogger(AsyncAlignmentIterator.class);
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int QUEUE_CAPACITY = 8;
+
+    private static final ExecutorService threadExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "Alignment decoder");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final BlockingQueue<List<T>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile boolean closed = false;
+    private volatile Throwable error;
+
+    private Iterator<T> currentBatch = Collections.emptyIterator();
+    private boolean endOfStream = false;
+
+    public AsyncAlignmentIterator(final CloseableIterator<T> source) {
+        threadExecutor.execute(() -> produce(source));
+    }
+
+    private void produce(CloseableIterator<T> source) {
+        try {
+            List<T> batch = new ArrayList<>(BATCH_SIZE);
+            while (!closed && source.hasNext()) {
+                batch.add(source.next());
+                if (batch.size() == BATCH_SIZE) {
+                    put(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                put(batch);
+            }
+        } catch (Throwable e) {
+            error = e;
+        } finally {
+            try {
+                source.close();
+            } catch (Exception e) {
+                log.error("Error closing alignment iterator", e);
+            }
+            // Empty batch marks the end of the stream
+            put(Collections.emptyList());
+            finished.countDown();
+        }
+    }
+
+    private void put(List<T> batch) {
+        try {
+            while (!closed) {
+                if (queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean hasNext() {
+        while (!currentBatch.hasNext() && !endOfStream) {
+            try {
+                List<T> batch = queue.take();
+                if (batch.isEmpty()) {
+                    endOfStream = true;
+                } else {
+                    currentBatch = batch.iterator();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                endOfStream = true;
+            }
+        }
+        if (endOfStream && !currentBatch.hasNext() && error != null) {
+            Throwable e = error;
+            error = null;
+            if (e instanceof RuntimeException) throw (RuntimeException) e;
+            throw new RuntimeException(e);
+        }
+        return currentBatch.hasNext();
+    }
+
+    public T next() {
+        return currentBatch.next();
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException("Remove is not supported");
+    }
+
+    public void close() {
+        closed = true;
+        queue.clear();
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        queue.clear();
+    }
+}
@@ -31,6 +31,8 @@ import htsjdk.samtools.util.CloseableIterator;
 import org.apache.log4j.Logger;
 import org.broad.igv.exceptions.DataLoadException;
 import org.broad.igv.ga4gh.GoogleUtils;
+import org.broad.igv.prefs.Constants;
+import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.sam.EmptyAlignmentIterator;
 import org.broad.igv.sam.PicardAlignment;
 import org.broad.igv.sam.cram.IGVReferenceSource;
@@ -85,7 +87,8 @@ public class BAMReader implements AlignmentReader<PicardAlignment> {
         boolean isLocal = locator.isLocal();
         final SamReaderFactory factory = SamReaderFactory.makeDefault().
                 referenceSource(new IGVReferenceSource()).
-                validationStringency(ValidationStringency.SILENT);
+                validationStringency(ValidationStringency.SILENT).
+                setUseAsyncIo(PreferencesManager.getPreferences().getAsBoolean(Constants.SAM_PARALLEL_LOAD));
         SamInputResource resource;
 
         if (isLocal) {
@@ -61,6 +61,9 @@ import java.io.InputStream;
 import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Class to parse an IGV session file
@@ -455,10 +458,10 @@ public class IGVSessionReader implements SessionReader {
         }
         if (dataFiles.size() > 0) {
 
-            final List<String> errors = new ArrayList<String>();
+            final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
 
-            // Load files concurrently -- TODO, put a limit on # of threads?
-            List<Thread> threads = new ArrayList(dataFiles.size());
+            // Load files concurrently on the load scheduler,  which bounds the number of loads per lane and host
+            List<CompletableFuture<Void>> futures = new ArrayList(dataFiles.size());
             long t0 = System.currentTimeMillis();
 
             List<Runnable> synchronousLoads = new ArrayList<Runnable>();
@@ -488,13 +491,15 @@ public class IGVSessionReader implements SessionReader {
                                 continue;
                             }
 
-                            List<Track> trackList = leftoverTrackDictionary.get(id);
-                            if (trackList == null) {
-                                trackList = new ArrayList();
-                                leftoverTrackDictionary.put(id, trackList);
-                                allTracks.put(id, trackList);
+                            synchronized (leftoverTrackDictionary) {
+                                List<Track> trackList = leftoverTrackDictionary.get(id);
+                                if (trackList == null) {
+                                    trackList = new ArrayList();
+                                    leftoverTrackDictionary.put(id, trackList);
+                                    allTracks.put(id, trackList);
+                                }
+                                trackList.add(track);
                             }
-                            trackList.add(track);
                         }
                     } catch (Exception e) {
                         log.error("Error loading resource " + locator.getPath(), e);
@@ -511,16 +516,23 @@ public class IGVSessionReader implements SessionReader {
                 if (isAlignment || Globals.isBatch() || !hasTrackElments) {
                     synchronousLoads.add(runnable);
                 } else {
-                    Thread t = new Thread(runnable);
-                    threads.add(t);
-                    t.start();
+                    futures.add(LoadScheduler.getInstance().submit(runnable, locator, LoadScheduler.Priority.NORMAL));
                 }
             }
-            // Wait for all threads to complete
-            for (Thread t : threads) {
+
+            // Wait for all loads to complete,  reporting progress
+            int nLoaded = 0;
+            for (CompletableFuture<Void> future : futures) {
                 try {
-                    t.join();
-                } catch (InterruptedException ignore) {
+                    future.join();
+                } catch (CancellationException e) {
+                    // Stopped by the user
+                } catch (CompletionException e) {
+                    log.error("Error loading session resource", e.getCause());
+                }
+                nLoaded++;
+                if (futures.size() > 1) {
+                    MessageUtils.setStatusBarMessage("Loaded " + nLoaded + " of " + futures.size() + " files");
                 }
             }
 
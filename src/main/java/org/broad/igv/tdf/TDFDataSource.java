@@ -34,6 +34,7 @@ import org.broad.igv.Globals;
 import org.broad.igv.data.BasicScore;
 import org.broad.igv.data.CompositeScore;
 import org.broad.igv.data.CoverageDataSource;
+import org.broad.igv.data.LocusScoreArray;
 import org.broad.igv.data.NamedScore;
 import org.broad.igv.feature.Chromosome;
 import org.broad.igv.feature.LocusScore;
@@ -56,7 +57,7 @@ public class TDFDataSource implements CoverageDataSource {
     int maxPrecomputedZoom = 6;
     private int trackNumber = 0;
     String trackName;
-    Map<String, List<LocusScore>> summaryScoreCache = Collections.synchronizedMap(new HashMap<>());
+    Map<String, LocusScoreArray> summaryScoreCache = Collections.synchronizedMap(new HashMap<>());
     Genome genome;
     WindowFunction windowFunction = WindowFunction.mean;
     List<WindowFunction> availableFunctions;
@@ -163,17 +164,21 @@ public class TDFDataSource implements CoverageDataSource {
         return reader.getLowerLimit() * normalizationFactor;
     }
 
-    private List<LocusScore> getCachedSummaryScores(String querySeq, int zoom, int tileNumber, double tileWidth) {
+    private String getSummaryScoreKey(String querySeq, int zoom, int tileNumber) {
+        return querySeq + "_" + zoom + "_" + tileNumber + "_" + windowFunction;
+    }
+
+    private LocusScoreArray getCachedSummaryScores(String querySeq, int zoom, int tileNumber, double tileWidth) {
 
-        String key = querySeq + "_" + zoom + "_" + tileNumber + "_" + windowFunction;
+        String key = getSummaryScoreKey(querySeq, zoom, tileNumber);
 
-        List<LocusScore> scores = summaryScoreCache.get(key);
+        LocusScoreArray scores = summaryScoreCache.get(key);
         if (scores == null) {
 
             int startLocation = (int) (tileNumber * tileWidth);
             int endLocation = (int) ((tileNumber + 1) * tileWidth);
 
-            scores = getSummaryScores(querySeq, startLocation, endLocation, zoom);
+            scores = LocusScoreArray.fromScores(getSummaryScores(querySeq, startLocation, endLocation, zoom));
 
             summaryScoreCache.put(key, scores);
         }
@@ -205,7 +210,8 @@ public class TDFDataSource implements CoverageDataSource {
                 }
             }
 
-            scores = new ArrayList(1000);
+            // Precomputed scores have no names,  store them as arrays only
+            LocusScoreArray.Builder builder = new LocusScoreArray.Builder(1000);
             if (tiles != null && tiles.size() > 0) {
                 for (TDFTile tile : tiles) {
 
@@ -214,12 +220,13 @@ public class TDFDataSource implements CoverageDataSource {
                             float v = tile.getValue(trackNumber, i);
                             if (!Float.isNaN(v)) {
                                 v *= normalizationFactor;
-                                scores.add(new BasicScore(tile.getStartPosition(i), tile.getEndPosition(i), v));
+                                builder.add(tile.getStartPosition(i), tile.getEndPosition(i), v);
                             }
                         }
                     }
                 }
             }
+            scores = builder.build();
 
         } else {
 
@@ -419,6 +426,11 @@ public class TDFDataSource implements CoverageDataSource {
 
 
     public List<LocusScore> getSummaryScoresForRange(String chr, int startLocation, int endLocation, int zoom) {
+        return getSummaryScoreArray(chr, startLocation, endLocation, zoom);
+    }
+
+    @Override
+    public LocusScoreArray getSummaryScoreArray(String chr, int startLocation, int endLocation, int zoom) {
 
         Chromosome chromosome = genome.getChromosome(chr);
         if (chromosome != null) {
@@ -428,8 +440,6 @@ public class TDFDataSource implements CoverageDataSource {
         String tmp = chrNameMap.get(chr);
         String querySeq = tmp == null ? chr : tmp;
 
-        ArrayList scores = new ArrayList();
-
         // TODO -- this whole section could be computed once and stored,  it is only a function of the genome, chr, and zoom level.
         int tileWidth = 0;
         if (chr.equals(Globals.CHR_ALL)) {
@@ -446,21 +456,58 @@ public class TDFDataSource implements CoverageDataSource {
         int startTile = (startLocation / tileWidth);
         int endTile = ((endLocation - 1) / tileWidth);
 
+        prefetchTiles(querySeq, zoom, startTile, endTile, tileWidth);
+
+        // Copy the in-range part of each tile's arrays,  score objects are kept only where the tile has them
+        LocusScoreArray.Builder scores = new LocusScoreArray.Builder(1000);
         for (int t = startTile; t <= endTile; t++) {
-            List<LocusScore> cachedScores = getCachedSummaryScores(querySeq, zoom, t, tileWidth);
+            LocusScoreArray cachedScores = getCachedSummaryScores(querySeq, zoom, t, tileWidth);
             if (cachedScores != null) {
-                for (LocusScore s : cachedScores) {
-                    if (s.getEnd() >= startLocation) {
-                        scores.add(s);
-                    } else if (s.getStart() > endLocation) {
-                        break;
+                for (int i = 0; i < cachedScores.size(); i++) {
+                    if (cachedScores.getEnd(i) >= startLocation) {
+                        scores.add(cachedScores, i);
                     }
                 }
             }
         }
 
-        return scores;
+        return scores.build();
+
+    }
+
+    /**
+     * Read the data tiles behind any uncached summary tiles in startTile - endTile in one batch,  so the per-tile
+     * summaries computed afterwards find them in the decoded tile cache rather than reading them one at a time.
+     */
+    private void prefetchTiles(String querySeq, int zoom, int startTile, int endTile, int tileWidth) {
 
+        int first = -1;
+        int last = -1;
+        for (int t = startTile; t <= endTile; t++) {
+            if (!summaryScoreCache.containsKey(getSummaryScoreKey(querySeq, zoom, t))) {
+                if (first < 0) first = t;
+                last = t;
+            }
+        }
+        if (first < 0 || first == last) {
+            return;
+        }
+
+        TDFDataset ds;
+        if (zoom <= this.maxPrecomputedZoom && windowFunction != WindowFunction.none) {
+            if (querySeq.equals(Globals.CHR_ALL) && !isChrOrderValid()) {
+                return;   // Computed from chromosome datasets,  see TDFReader.getWholeGenomeTile
+            }
+            ds = reader.getDataset(querySeq, zoom, windowFunction);
+        } else {
+            if (querySeq.equals(Globals.CHR_ALL)) {
+                return;
+            }
+            ds = reader.getDataset("/" + querySeq + "/raw");
+        }
+        if (ds != null) {
+            ds.getTiles(first * tileWidth, (last + 1) * tileWidth);
+        }
     }
 
     public TrackType getTrackType() {
@@ -30,6 +30,7 @@
 package org.broad.igv.tdf;
 
 import org.broad.igv.util.StringUtils;
+import org.broad.igv.util.collections.IntArrayList;
 import org.broad.igv.util.collections.LRUCache;
 
 import java.io.IOException;
@@ -55,7 +56,19 @@ public class TDFDataset extends TDFEntity {
     long[] tilePositions;  // File position in TDF file
     int[] tileSizes;       // Tile size in bytes
     int nTiles;
-    LRUCache<String, TDFTile> cache = new LRUCache(20);
+
+    /**
+     * Decoded tiles of all datasets and readers,  so the memory held by tiles is bounded across tracks.  Empty tiles
+     * are cached as EMPTY_TILE.
+     */
+    // Int start and end plus a float value for each of the one or two tracks typical of a TDF file
+    static final long BYTES_PER_TILE_RECORD = 16;
+
+    static final LRUCache<TileKey, TDFTile> tileCache =
+            new LRUCache<>(4000, 256L * 1024 * 1024, tile -> BYTES_PER_TILE_RECORD * tile.getSize());
+
+    private static final TDFTile EMPTY_TILE = new TDFFixedTile(0, 0, 1, null);
+
     // TODO -- refactor this dependency out
     TDFReader reader;
 
@@ -118,15 +131,12 @@ public class TDFDataset extends TDFEntity {
 
     // TODO -- this uses an implied linear index.  Abstract index or replace
     // with general interval index
-    // TODO -- gather all non-cached tiles and read in one chunk.  See BAM
-    // alignment reader class
     public List<TDFTile> getTiles(int startLocation, int endLocation) {
 
         List<TDFTile> tiles = new ArrayList();
-        int startTile = (int) (startLocation / tileWidth);
-        int endTile = (int) (endLocation / tileWidth);
-        for (int t = startTile; t <= endTile; t++) {
-            TDFTile tile = getTile(t);
+        int startTile = Math.max(0, startLocation / tileWidth);
+        int endTile = endLocation / tileWidth;
+        for (TDFTile tile : getTiles(startTile, endTile, true)) {
             if (tile != null && tile.getSize() > 0) {
                 tiles.add(tile);
             }
@@ -135,10 +145,12 @@ public class TDFDataset extends TDFEntity {
 
     }
 
+    /**
+     * Return all tiles.  Tiles that are not already cached are read but not added to the cache.
+     */
     public List<TDFTile> getTiles() {
         List<TDFTile> tiles = new ArrayList<TDFTile>();
-        for (int t = 0; t < nTiles; t++) {
-            TDFTile tile = getTile(t);
+        for (TDFTile tile : getTiles(0, nTiles - 1, false)) {
             if (tile != null) {
                 tiles.add(tile);
             }
@@ -147,21 +159,66 @@ public class TDFDataset extends TDFEntity {
     }
 
     // TDFTile computeTile(TDFDataset ds, int t, List<LocusScore> scores, String chr)
-    synchronized TDFTile getTile(int t) {
-        String key = getName() + "_" + t;
-
-        TDFTile tile = null;
-        if (!cache.containsKey(key)) {
-            tile = reader.readTile(this, t);
-            cache.put(key, tile);
-        } else {
-            tile = cache.get(key);
+    TDFTile getTile(int t) {
+        TDFTile[] tiles = getTiles(t, t, true);
+        return tiles.length == 0 ? null : tiles[0];
+    }
+
+    /**
+     * Return tiles startTile - endTile inclusive,  null for empty tiles.  Tiles missing from the cache are read
+     * together in one batch.
+     */
+    private TDFTile[] getTiles(int startTile, int endTile, boolean cacheTiles) {
+
+        endTile = Math.min(endTile, nTiles - 1);
+        if (endTile < startTile) {
+            return new TDFTile[0];
+        }
+
+        TDFTile[] tiles = new TDFTile[endTile - startTile + 1];
+        IntArrayList missing = new IntArrayList();
+        for (int t = startTile; t <= endTile; t++) {
+            TDFTile tile = tileCache.get(new TileKey(reader, getName(), t));
+            if (tile == null) {
+                missing.add(t);
+            } else if (tile != EMPTY_TILE) {
+                tiles[t - startTile] = tile;
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            int[] tileNumbers = missing.toArray();
+            TDFTile[] loaded = reader.readTiles(this, tileNumbers);
+            for (int i = 0; i < tileNumbers.length; i++) {
+                tiles[tileNumbers[i] - startTile] = loaded[i];
+                if (cacheTiles) {
+                    tileCache.put(new TileKey(reader, getName(), tileNumbers[i]), loaded[i] == null ? EMPTY_TILE : loaded[i]);
+                }
+            }
         }
-        return tile;
+        return tiles;
     }
 
+    /**
+     * Remove this dataset's tiles from the cache
+     */
     public void clearCache() {
-        cache.clear();
+        for (TileKey key : tileCache.keySet()) {
+            if (key.readerId == reader.getId() && key.datasetName.equals(getName())) {
+                tileCache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Remove all tiles read by {@code reader} from the cache
+     */
+    static void clearCache(TDFReader reader) {
+        for (TileKey key : tileCache.keySet()) {
+            if (key.readerId == reader.getId()) {
+                tileCache.remove(key);
+            }
+        }
     }
 
 
@@ -174,4 +231,37 @@ public class TDFDataset extends TDFEntity {
     }
 
 
+    /**
+     * Identifies a tile by the path and id of the reader that read it,  rather than the reader itself,  so the cache
+     * does not keep a reader and its stream alive.  The id tells apart readers of the same path,  which may differ if
+     * the file was rewritten.
+     */
+    static final class TileKey {
+
+        final String path;
+        final long readerId;
+        final String datasetName;
+        final int tileNumber;
+
+        TileKey(TDFReader reader, String datasetName, int tileNumber) {
+            this.path = reader.getPath();
+            this.readerId = reader.getId();
+            this.datasetName = datasetName;
+            this.tileNumber = tileNumber;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TileKey)) return false;
+            TileKey other = (TileKey) o;
+            return readerId == other.readerId && tileNumber == other.tileNumber &&
+                    datasetName.equals(other.datasetName) && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * path.hashCode() + Long.hashCode(readerId)) + datasetName.hashCode()) + tileNumber;
+        }
+    }
 }
@@ -37,16 +37,21 @@ import org.broad.igv.feature.genome.Genome;
 import org.broad.igv.track.TrackType;
 import org.broad.igv.track.WindowFunction;
 import org.broad.igv.util.CompressionUtils;
+import org.broad.igv.util.LoadScheduler;
 import org.broad.igv.util.ResourceLocator;
 import org.broad.igv.util.StringUtils;
 import org.broad.igv.util.collections.LRUCache;
 import org.broad.igv.util.stream.IGVSeekableStreamFactory;
+import org.broad.igv.util.stream.MappedFileSeekableStream;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author jrobinso
@@ -56,6 +61,23 @@ public class TDFReader {
     static final Logger log = Logger.getLogger(TDFReader.class);
     public static final int GZIP_FLAG = 0x1;
 
+    // Tiles separated by gaps up to this size are fetched in a single read
+    static final int MAX_COALESCE_GAP = 16 * 1024;
+
+    static final int MAX_COALESCED_BYTES = 16 * 1024 * 1024;
+
+    // Below this many tiles the handoff to the task lane costs more than it saves
+    static final int MIN_PARALLEL_TILES = 4;
+
+    static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    // CompressionUtils is synchronized,  give each decoding thread its own
+    private static final ThreadLocal<CompressionUtils> compressionUtils = ThreadLocal.withInitial(CompressionUtils::new);
+
+    // Source of reader ids,  see getId()
+    private static final AtomicLong nextId = new AtomicLong();
+
+    private final long id = nextId.incrementAndGet();
     private SeekableStream seekableStream = null;
     private int version;
     private Map<String, IndexEntry> datasetIndex;
@@ -75,7 +97,6 @@ public class TDFReader {
     boolean compressed = false;
 
     Set<String> chrNames;
-    private final CompressionUtils compressionUtils;
 
     //private String path;
 
@@ -101,10 +122,10 @@ public class TDFReader {
             log.error("Error loading file: " + locator.getPath(), ex);
             throw new DataLoadException("Error loading file: " + ex.toString(), locator.getPath());
         }
-        compressionUtils = new CompressionUtils();
     }
 
     public void close() {
+        TDFDataset.clearCache(this);
         try {
             seekableStream.close();
         } catch (IOException e) {
@@ -116,6 +137,13 @@ public class TDFReader {
         return locator.getPath();
     }
 
+    /**
+     * @return an id unique to this reader,  identifying its tiles in the shared tile cache
+     */
+    long getId() {
+        return id;
+    }
+
     private void readHeader() throws IOException {
 
         // Buffer for the magic number, version, index position, and index
@@ -336,12 +364,7 @@ public class TDFReader {
             //byte[] buffer = new byte[nBytes];
             //readFully(buffer);
             byte[] buffer = readBytes(position, nBytes);
-            if (compressed) {
-                buffer = compressionUtils.decompress(buffer);
-
-            }
-
-            return TileFactory.createTile(buffer, trackNames.length);
+            return decodeTile(buffer);
         } catch (IOException ex) {
             String tileName = ds.getName() + "[" + tileNumber + "]";
             log.error("Error reading data tile: " + tileName, ex);
@@ -349,6 +372,113 @@ public class TDFReader {
         }
     }
 
+    /**
+     * Read a batch of tiles.  Byte ranges of tiles that are adjacent in the file,  or separated by small gaps,  are
+     * coalesced into a single read,  then tiles are inflated and decoded in parallel.
+     *
+     * @return the tiles,  in the order of {@code tileNumbers}.  Entries for empty or out of range tiles are null.
+     */
+    public TDFTile[] readTiles(TDFDataset ds, int[] tileNumbers) {
+
+        TDFTile[] tiles = new TDFTile[tileNumbers.length];
+
+        // Indexes into tileNumbers of the non-empty tiles,  in file order
+        List<Integer> order = new ArrayList<>(tileNumbers.length);
+        for (int i = 0; i < tileNumbers.length; i++) {
+            int t = tileNumbers[i];
+            if (t >= 0 && t < ds.tilePositions.length && ds.tilePositions[t] >= 0) {
+                order.add(i);
+            }
+        }
+        if (order.isEmpty()) {
+            return tiles;
+        }
+        order.sort(Comparator.comparingLong(i -> ds.tilePositions[tileNumbers[i]]));
+
+        String tileName = ds.getName() + " (" + tileNumbers.length + " tiles)";
+        try {
+            byte[][] buffers = new byte[order.size()][];
+            int i = 0;
+            while (i < order.size()) {
+                long runStart = ds.tilePositions[tileNumbers[order.get(i)]];
+                long runEnd = runStart + ds.tileSizes[tileNumbers[order.get(i)]];
+                int j = i + 1;
+                while (j < order.size()) {
+                    int t = tileNumbers[order.get(j)];
+                    long position = ds.tilePositions[t];
+                    if (position < runEnd || position - runEnd > MAX_COALESCE_GAP ||
+                            position + ds.tileSizes[t] - runStart > MAX_COALESCED_BYTES) {
+                        break;
+                    }
+                    runEnd = position + ds.tileSizes[t];
+                    j++;
+                }
+
+                byte[] run = readBytes(runStart, (int) (runEnd - runStart));
+                for (int k = i; k < j; k++) {
+                    int t = tileNumbers[order.get(k)];
+                    int offset = (int) (ds.tilePositions[t] - runStart);
+                    buffers[k] = j - i == 1 ? run : Arrays.copyOfRange(run, offset, offset + ds.tileSizes[t]);
+                }
+                i = j;
+            }
+
+            TDFTile[] decoded = decodeTiles(buffers);
+            for (int k = 0; k < decoded.length; k++) {
+                tiles[order.get(k)] = decoded[k];
+            }
+            return tiles;
+
+        } catch (IOException ex) {
+            log.error("Error reading data tiles: " + tileName, ex);
+            throw new RuntimeException("System error occured while reading tiles: " + tileName);
+        }
+    }
+
+    private TDFTile[] decodeTiles(byte[][] buffers) throws IOException {
+
+        TDFTile[] tiles = new TDFTile[buffers.length];
+        int nTasks = buffers.length < MIN_PARALLEL_TILES ? 1 : Math.min(PARALLELISM, buffers.length / 2);
+
+        if (nTasks <= 1) {
+            for (int i = 0; i < buffers.length; i++) {
+                tiles[i] = decodeTile(buffers[i]);
+            }
+        } else {
+            List<Runnable> tasks = new ArrayList<>(nTasks);
+            for (int t = 0; t < nTasks; t++) {
+                final int first = (int) ((long) buffers.length * t / nTasks);
+                final int last = (int) ((long) buffers.length * (t + 1) / nTasks);
+                tasks.add(() -> {
+                    try {
+                        for (int i = first; i < last; i++) {
+                            tiles[i] = decodeTile(buffers[i]);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            try {
+                LoadScheduler.getInstance().invokeAll(tasks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while decoding tiles", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof UncheckedIOException ? ((UncheckedIOException) cause).getCause() : new IOException(cause);
+            }
+        }
+        return tiles;
+    }
+
+    private TDFTile decodeTile(byte[] buffer) throws IOException {
+        if (compressed) {
+            buffer = compressionUtils.get().decompress(buffer);
+        }
+        return TileFactory.createTile(buffer, trackNames.length);
+    }
+
     /**
      * @return the version
      */
@@ -432,10 +562,23 @@ public class TDFReader {
     }
 
 
-    public synchronized byte[] readBytes(long position, int nBytes) throws IOException {
-        seekableStream.seek(position);
+    public byte[] readBytes(long position, int nBytes) throws IOException {
         byte[] buffer = new byte[nBytes];
-        int read = seekableStream.read(buffer, 0, nBytes);
+        if (seekableStream instanceof MappedFileSeekableStream) {
+            // Positional reads on a mapped file need no lock
+            ((MappedFileSeekableStream) seekableStream).read(position, buffer, 0, nBytes);
+        } else {
+            synchronized (seekableStream) {
+                seekableStream.seek(position);
+                // Streams may return fewer bytes than requested,  particularly for the large coalesced tile reads
+                int n = 0;
+                while (n < nBytes) {
+                    int read = seekableStream.read(buffer, n, nBytes - n);
+                    if (read < 0) break;
+                    n += read;
+                }
+            }
+        }
         return buffer;
     }
 
@@ -515,8 +658,7 @@ public class TDFReader {
                 TDFDataset chrDataset = getDataset(chrName, 0, wf);
                 if(chrDataset == null) continue;
 
-                List<TDFTile> chrTiles = chrDataset.getTiles();
-                chrDataset.clearCache(); // Don't cache these
+                List<TDFTile> chrTiles = chrDataset.getTiles();   // Not cached
                 for (TDFTile t : chrTiles) {
                     int[] chrStart = t.getStart();
                     int[] chrEnd = t.getEnd();
@@ -36,12 +36,20 @@ import org.broad.igv.sam.reader.AlignmentReader;
 import org.broad.igv.sam.reader.AlignmentReaderFactory;
 import org.broad.igv.tools.parsers.DataConsumer;
 
+import org.broad.igv.util.collections.FloatArrayList;
+import org.broad.igv.util.collections.IntArrayList;
+
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Class to compute coverage on an alignment or feature file.  This class is designed to be instantiated and executed
- * from a single thread.
+ * from a single thread.  With {@link #setThreads(int)} > 1 an indexed file is split into fixed size genomic shards
+ * which are counted concurrently,  each on its own reader,  and passed to the consumer in genomic order.
  */
 public class CoverageCounter {
 
@@ -102,6 +110,17 @@ public class CoverageCounter {
 
     public static final int NUM_STRANDS = output_strands.length;
 
+    /**
+     * Inserts larger than this are skipped when computing paired coverage.
+     */
+    static final int MAX_INSERT_SIZE = 10000;
+
+    /**
+     * Nominal size of a shard in base pairs,  when counting with multiple threads.  Shards are rounded to a
+     * multiple of the window size so no window is split between shards.
+     */
+    static final int SHARD_SIZE = 10000000;
+
     /**
      * Extension factor.  Reads are extended by this amount from the 3' end before counting.   The purpose is to yield
      * an approximate count of fragment "coverage", as opposed to read coverage.  If used, the value should be set to
@@ -162,6 +181,13 @@ public class CoverageCounter {
      */
     private boolean writeStdOut;
 
+    /**
+     * Number of threads used to count indexed files.
+     */
+    private int nThreads = 1;
+
+    int shardSize = SHARD_SIZE;
+
     static {
         for (byte b : nucleotides) {
             nucleotidesKeep.add(b);
@@ -213,6 +239,10 @@ public class CoverageCounter {
         this.postExtFactor = postExtFactor;
     }
 
+    public void setThreads(int nThreads) {
+        this.nThreads = Math.max(1, nThreads);
+    }
+
     /**
      * Take additional optional command line arguments and parse them
      *
@@ -255,7 +285,7 @@ public class CoverageCounter {
             if (!alignment.isProperPair() || alignment.getMate() == null || alignment.getStart() > mate.getStart()) {
                 return false;
             }
-            if (Math.abs(alignment.getInferredInsertSize()) > 10000) {
+            if (Math.abs(alignment.getInferredInsertSize()) > MAX_INSERT_SIZE) {
                 log.warn("Very large insert size: " + Math.abs(alignment.getInferredInsertSize()) +
                         " for read " + alignment.getReadName() + ".  Skipped.");
                 return false;
@@ -278,9 +308,22 @@ public class CoverageCounter {
      */
     public synchronized void parse() throws IOException {
 
-        int maxExtFactor = Math.max(extFactor, Math.max(preExtFactor, postExtFactor));
+        if (nThreads > 1 && queryInterval == null) {
+            AlignmentReader reader = AlignmentReaderFactory.getReader(alignmentFile, false);
+            boolean indexed;
+            try {
+                indexed = reader.hasIndex();
+            } finally {
+                reader.close();
+            }
+            if (indexed) {
+                parseSharded();
+                return;
+            }
+            log.info("Alignment file is not indexed,  counting on a single thread");
+        }
 
-        int tolerance = (int) (windowSize * (Math.floor(maxExtFactor / windowSize) + 2));
+        int tolerance = getTolerance();
         consumer.setSortTolerance(tolerance);
 
         AlignmentReader reader = null;
@@ -307,22 +350,11 @@ public class CoverageCounter {
             while (iter != null && iter.hasNext()) {
                 Alignment alignment = iter.next();
                 if (passFilter(alignment)) {
-                    //Sort into the read strand or first-in-pair strand,
-                    //depending on input flag. Note that this can
-                    //be very unreliable depending on data
-                    Strand strand;
-                    if (firstInPair) {
-                        strand = alignment.getFirstOfPairStrand();
-                    } else if (secondInPair) {
-                        strand = alignment.getSecondOfPairStrand();
-                    } else {
-                        strand = alignment.getReadStrand();
-                    }
+                    Strand strand = getCountStrand(alignment);
                     if (strand.equals(Strand.NONE)) {
                         //TODO move this into passFilter, or move passFilter here
                         continue;
                     }
-                    boolean readNegStrand = alignment.isNegativeStrand();
 
                     totalCount++;
 
@@ -337,148 +369,307 @@ public class CoverageCounter {
                         if (counter != null) {
                             counter.closeBucketsBefore(Integer.MAX_VALUE, wigWriter);
                         }
-                        counter = new ReadCounter(alignmentChr);
+                        counter = new ReadCounter(alignmentChr, null);
                         lastChr = alignmentChr;
                     }
 
-                    AlignmentBlock[] blocks = alignment.getAlignmentBlocks();
+                    countAlignment(alignment, strand, counter, queryInterval);
+                }
+
+            }
+            consumer.setAttribute("totalCount", String.valueOf(totalCount));
+            consumer.parsingComplete();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+
+            if (counter != null) {
+                counter.closeBucketsBefore(Integer.MAX_VALUE, wigWriter);
+            }
+            if (iter != null) {
+                iter.close();
+            }
+            if (reader != null) {
+                reader.close();
+            }
+            if (wigWriter != null) {
+                wigWriter.close();
+            }
+
+        }
+    }
 
-                    if (blocks != null && !pairedCoverage) {
-                        for (AlignmentBlock block : blocks) {
+    private int getTolerance() {
+        int maxExtFactor = Math.max(extFactor, Math.max(preExtFactor, postExtFactor));
+        return (int) (windowSize * (Math.floor(maxExtFactor / windowSize) + 2));
+    }
 
-                            if (!block.isSoftClipped()) {
+    /**
+     * Sort into the read strand or first-in-pair strand, depending on input flag. Note that this can
+     * be very unreliable depending on data
+     */
+    private Strand getCountStrand(Alignment alignment) {
+        if (firstInPair) {
+            return alignment.getFirstOfPairStrand();
+        } else if (secondInPair) {
+            return alignment.getSecondOfPairStrand();
+        } else {
+            return alignment.getReadStrand();
+        }
+    }
 
-                                int blockStart = block.getStart();
-                                int blockEnd = block.getEnd();
+    /**
+     * Increment counts for the bases covered by the alignment.
+     *
+     * @param interval if not null,  only positions in this interval are counted
+     */
+    private void countAlignment(Alignment alignment, Strand strand, ReadCounter counter, Locus interval) {
 
+        boolean readNegStrand = alignment.isNegativeStrand();
 
-                                int adjustedStart = block.getStart();
-                                int adjustedEnd = block.getEnd();
+        AlignmentBlock[] blocks = alignment.getAlignmentBlocks();
 
+        if (blocks != null && !pairedCoverage) {
+            for (AlignmentBlock block : blocks) {
 
-                                if (preExtFactor > 0) {
-                                    if (readNegStrand) {
-                                        adjustedEnd = blockEnd + preExtFactor;
-                                    } else {
-                                        adjustedStart = Math.max(0, blockStart - preExtFactor);
-                                    }
-                                }
+                if (!block.isSoftClipped()) {
 
-                                // If both postExtFactor and extFactor are specified, postExtFactor takes precedence
-                                if (postExtFactor > 0) {
-                                    if (readNegStrand) {
-                                        adjustedStart = Math.max(0, blockEnd - postExtFactor);
-                                    } else {
-                                        adjustedEnd = blockStart + postExtFactor;
-                                    }
-
-                                } else if (extFactor > 0) {
-                                    // Standard extension option -- extend read on 3' end
-                                    if (readNegStrand) {
-                                        adjustedStart = Math.max(0, adjustedStart - extFactor);
-                                    } else {
-                                        adjustedEnd += extFactor;
-                                    }
-                                }
+                    int blockStart = block.getStart();
+                    int blockEnd = block.getEnd();
 
 
-                                if (queryInterval != null) {
-                                    adjustedStart = Math.max(queryInterval.getStart() - 1, adjustedStart);
-                                    adjustedEnd = Math.min(queryInterval.getEnd(), adjustedEnd);
-                                }
+                    int adjustedStart = block.getStart();
+                    int adjustedEnd = block.getEnd();
 
-                                byte[] bases = block.getBases();
-                                for (int pos = adjustedStart; pos < adjustedEnd; pos++) {
-                                    byte base = 0;
-                                    int baseIdx = pos - blockStart;
-                                    if (bases != null && baseIdx >= 0 && baseIdx < bases.length) {
-                                        base = bases[baseIdx];
-                                    }
-                                    //int idx = pos - blockStart;
-                                    //byte quality = (idx >= 0 && idx < block.qualities.length) ?
-                                    //block.qualities[pos - blockStart] : (byte) 0;
-                                    counter.incrementCount(pos, base, strand);
-                                }
-                            }
-                        }
 
-                        final AlignmentBlock[] insertions = alignment.getInsertions();
-                        if (insertions != null) {
-                            for (AlignmentBlock insBlock : insertions) {
-                                int pos = insBlock.getStart();
-                                if (queryInterval == null || (pos >= queryInterval.getStart() && pos <= queryInterval.getEnd()))
-                                    counter.incrementInsertion(pos, strand);
-                            }
+                    if (preExtFactor > 0) {
+                        if (readNegStrand) {
+                            adjustedEnd = blockEnd + preExtFactor;
+                        } else {
+                            adjustedStart = Math.max(0, blockStart - preExtFactor);
                         }
+                    }
 
-                        // Count deletions
-                        List<Gap> gaps = alignment.getGaps();
-                        if (gaps != null) {
-                            for (Gap gap : gaps) {
-                                if (gap.getType() == SAMAlignment.DELETION) {
-                                    int adjustedStart = gap.getStart();
-                                    int adjustedEnd = gap.getStart() + gap.getnBases();
-                                    if (queryInterval != null) {
-                                        adjustedStart = Math.max(queryInterval.getStart() - 1, adjustedStart);
-                                        adjustedEnd = Math.min(queryInterval.getEnd(), adjustedEnd);
-                                    }
-                                    for (int pos = adjustedStart; pos < adjustedEnd; pos++) {
-                                        counter.incrementDeletion(pos, strand);
-                                    }
-                                }
-                            }
+                    // If both postExtFactor and extFactor are specified, postExtFactor takes precedence
+                    if (postExtFactor > 0) {
+                        if (readNegStrand) {
+                            adjustedStart = Math.max(0, blockEnd - postExtFactor);
+                        } else {
+                            adjustedEnd = blockStart + postExtFactor;
                         }
 
-
-                    } else {
-                        int adjustedStart = alignment.getAlignmentStart();
-                        int adjustedEnd = pairedCoverage ?
-                                adjustedStart + Math.abs(alignment.getInferredInsertSize()) :
-                                alignment.getAlignmentEnd();
-
+                    } else if (extFactor > 0) {
+                        // Standard extension option -- extend read on 3' end
                         if (readNegStrand) {
                             adjustedStart = Math.max(0, adjustedStart - extFactor);
                         } else {
                             adjustedEnd += extFactor;
                         }
+                    }
 
-                        if (queryInterval != null) {
-                            adjustedStart = Math.max(queryInterval.getStart() - 1, adjustedStart);
-                            adjustedEnd = Math.min(queryInterval.getEnd(), adjustedEnd);
+
+                    if (interval != null) {
+                        adjustedStart = Math.max(interval.getStart() - 1, adjustedStart);
+                        adjustedEnd = Math.min(interval.getEnd(), adjustedEnd);
+                    }
+
+                    byte[] bases = block.getBases();
+                    for (int pos = adjustedStart; pos < adjustedEnd; pos++) {
+                        byte base = 0;
+                        int baseIdx = pos - blockStart;
+                        if (bases != null && baseIdx >= 0 && baseIdx < bases.length) {
+                            base = bases[baseIdx];
                         }
+                        //int idx = pos - blockStart;
+                        //byte quality = (idx >= 0 && idx < block.qualities.length) ?
+                        //block.qualities[pos - blockStart] : (byte) 0;
+                        counter.incrementCount(pos, base, strand);
+                    }
+                }
+            }
 
+            final AlignmentBlock[] insertions = alignment.getInsertions();
+            if (insertions != null) {
+                for (AlignmentBlock insBlock : insertions) {
+                    int pos = insBlock.getStart();
+                    if (interval == null || (pos >= interval.getStart() && pos <= interval.getEnd()))
+                        counter.incrementInsertion(pos, strand);
+                }
+            }
 
+            // Count deletions
+            List<Gap> gaps = alignment.getGaps();
+            if (gaps != null) {
+                for (Gap gap : gaps) {
+                    if (gap.getType() == SAMAlignment.DELETION) {
+                        int adjustedStart = gap.getStart();
+                        int adjustedEnd = gap.getStart() + gap.getnBases();
+                        if (interval != null) {
+                            adjustedStart = Math.max(interval.getStart() - 1, adjustedStart);
+                            adjustedEnd = Math.min(interval.getEnd(), adjustedEnd);
+                        }
                         for (int pos = adjustedStart; pos < adjustedEnd; pos++) {
-                            counter.incrementCount(pos, (byte) 'N', strand);
+                            counter.incrementDeletion(pos, strand);
                         }
                     }
-
                 }
+            }
 
+
+        } else {
+            int adjustedStart = alignment.getAlignmentStart();
+            int adjustedEnd = pairedCoverage ?
+                    adjustedStart + Math.abs(alignment.getInferredInsertSize()) :
+                    alignment.getAlignmentEnd();
+
+            if (readNegStrand) {
+                adjustedStart = Math.max(0, adjustedStart - extFactor);
+            } else {
+                adjustedEnd += extFactor;
             }
-            consumer.setAttribute("totalCount", String.valueOf(totalCount));
-            consumer.parsingComplete();
 
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
+            if (interval != null) {
+                adjustedStart = Math.max(interval.getStart() - 1, adjustedStart);
+                adjustedEnd = Math.min(interval.getEnd(), adjustedEnd);
+            }
 
-            if (counter != null) {
-                counter.closeBucketsBefore(Integer.MAX_VALUE, wigWriter);
+
+            for (int pos = adjustedStart; pos < adjustedEnd; pos++) {
+                counter.incrementCount(pos, (byte) 'N', strand);
             }
-            if (iter != null) {
-                iter.close();
+        }
+    }
+
+    /**
+     * Count an indexed file using nThreads threads.  Shards are submitted in genomic order,  at most 2 * nThreads
+     * are held at a time,  and each completed shard's windows are passed to the consumer in order.
+     */
+    private void parseSharded() throws IOException {
+
+        consumer.setSortTolerance(getTolerance());
+
+        WigWriter wigWriter = null;
+        if (wigFile != null || writeStdOut) {
+            wigWriter = new WigWriter(wigFile, windowSize);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            Iterator<Locus> shards = getShards().iterator();
+            LinkedList<Future<Shard>> pending = new LinkedList<Future<Shard>>();
+            while (pending.size() < 2 * nThreads && shards.hasNext()) {
+                final Locus locus = shards.next();
+                pending.add(executor.submit(() -> countShard(locus)));
             }
-            if (reader != null) {
-                reader.close();
+
+            while (!pending.isEmpty()) {
+                Shard shard = pending.removeFirst().get();
+                if (shards.hasNext()) {
+                    final Locus locus = shards.next();
+                    pending.add(executor.submit(() -> countShard(locus)));
+                }
+                shard.emit(wigWriter);
+                totalCount += shard.alignmentCount;
             }
+
+            consumer.setAttribute("totalCount", String.valueOf(totalCount));
+            consumer.parsingComplete();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while counting " + alignmentFile, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error counting " + alignmentFile, e.getCause());
+        } finally {
+            executor.shutdownNow();
             if (wigWriter != null) {
                 wigWriter.close();
             }
+        }
+    }
 
+    /**
+     * Divide the sequences in the file's header into shards of about SHARD_SIZE bp,  in header order.
+     */
+    private List<Locus> getShards() throws IOException {
+
+        int shardSize = Math.max(1, this.shardSize / windowSize) * windowSize;
+        List<Locus> shards = new ArrayList<Locus>();
+
+        AlignmentReader<?> reader = AlignmentReaderFactory.getReader(alignmentFile, true);
+        try {
+            Map<String, Long> dictionary = reader.getSequenceDictionary();
+            for (String chr : reader.getSequenceNames()) {
+                Long length = dictionary == null ? null : dictionary.get(chr);
+                if (length == null) {
+                    throw new IOException("Sequence length unknown for " + chr);
+                }
+                for (long start = 0; start < length; start += shardSize) {
+                    long end = Math.min(length, start + shardSize);
+                    shards.add(new Locus(chr, (int) start + 1, (int) end));
+                }
+            }
+        } finally {
+            reader.close();
         }
+        return shards;
     }
 
+    /**
+     * Count alignments overlapping the shard,  counting only positions within it.  Alignments are attributed to the
+     * shard containing their start.
+     */
+    private Shard countShard(Locus locus) throws IOException {
+
+        int shardStart = locus.getStart() - 1;
+        int shardEnd = locus.getEnd();
+        int tolerance = getTolerance();
+
+        // Alignments outside the shard can be extended into it
+        int maxExtFactor = Math.max(extFactor, Math.max(preExtFactor, postExtFactor));
+        int pad = pairedCoverage ? Math.max(maxExtFactor, MAX_INSERT_SIZE) : maxExtFactor;
+
+        Shard shard = new Shard();
+        ReadCounter counter = null;
+
+        AlignmentReader reader = AlignmentReaderFactory.getReader(alignmentFile, true);
+        CloseableIterator<Alignment> iter = null;
+        try {
+            iter = reader.query(locus.getChr(), Math.max(0, shardStart - pad), shardEnd + pad, false);
+            while (iter.hasNext()) {
+                Alignment alignment = iter.next();
+                if (!passFilter(alignment)) {
+                    continue;
+                }
+                Strand strand = getCountStrand(alignment);
+                if (strand.equals(Strand.NONE)) {
+                    continue;
+                }
+
+                int alignmentStart = alignment.getAlignmentStart();
+                if (alignmentStart >= shardStart && alignmentStart < shardEnd) {
+                    shard.alignmentCount++;
+                }
+
+                if (counter == null) {
+                    counter = new ReadCounter(alignment.getChr(), shard);
+                } else {
+                    counter.closeBucketsBefore(alignmentStart - tolerance, null);
+                }
+                countAlignment(alignment, strand, counter, locus);
+            }
+            if (counter != null) {
+                counter.closeBucketsBefore(Integer.MAX_VALUE, null);
+            }
+        } finally {
+            if (iter != null) {
+                iter.close();
+            }
+            reader.close();
+        }
+        return shard;
+    }
 
     /**
      * The names of tracks which will be created by this parser
@@ -528,8 +719,22 @@ public class CoverageCounter {
          */
         TreeMap<Integer, Counter> counts = new TreeMap<Integer, Counter>();
 
-        ReadCounter(String chr) {
+        /**
+         * If not null closed windows are collected here,  rather than passed to the consumer
+         */
+        Shard shard;
+
+        /**
+         * Data buffer to pass data to the "consumer" (preprocessor).
+         */
+        float[] buffer = new float[CoverageCounter.this.buffer.length];
+
+        ReadCounter(String chr, Shard shard) {
             this.chr = chr;
+            this.shard = shard;
+            if (shard != null) {
+                shard.chr = chr;
+            }
         }
 
         /**
@@ -637,10 +842,14 @@ public class CoverageCounter {
                     }
 
 
-                    consumer.addData(chr, bucketStartPosition, bucketEndPosition, buffer, null);
+                    if (shard != null) {
+                        shard.add(bucketStartPosition, bucketEndPosition, buffer);
+                    } else {
+                        consumer.addData(chr, bucketStartPosition, bucketEndPosition, buffer, null);
 
-                    if (wigWriter != null) {
-                        wigWriter.addData(chr, bucketStartPosition, bucketEndPosition, buffer);
+                        if (wigWriter != null) {
+                            wigWriter.addData(chr, bucketStartPosition, bucketEndPosition, buffer);
+                        }
                     }
 
 
@@ -658,6 +867,37 @@ public class CoverageCounter {
     }
 
 
+    /**
+     * Closed windows of one shard,  held until preceding shards have been passed to the consumer.
+     */
+    class Shard {
+
+        String chr;
+        int alignmentCount = 0;
+        IntArrayList starts = new IntArrayList();
+        IntArrayList ends = new IntArrayList();
+        FloatArrayList data = new FloatArrayList();
+
+        void add(int start, int end, float[] values) {
+            starts.add(start);
+            ends.add(end);
+            data.addAll(values);
+        }
+
+        void emit(WigWriter wigWriter) {
+            float[] values = new float[buffer.length];
+            for (int i = 0; i < starts.size(); i++) {
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = data.get(i * values.length + j);
+                }
+                consumer.addData(chr, starts.get(i), ends.get(i), values, null);
+                if (wigWriter != null) {
+                    wigWriter.addData(chr, starts.get(i), ends.get(i), values);
+                }
+            }
+        }
+    }
+
     /**
      * Class for counting nucleotides and strands over an interval.
      */
@@ -61,6 +61,8 @@ import org.broad.igv.feature.tribble.CodecFactory;
 import org.broad.igv.feature.tribble.GFFCodec;
 import org.broad.igv.feature.tribble.IGVBEDCodec;
 import org.broad.igv.feature.tribble.MUTCodec;
+import org.broad.igv.gwas.GWASBinaryData;
+import org.broad.igv.gwas.GWASBinaryWriter;
 import org.broad.igv.maf.MAFtoSAM;
 import org.broad.igv.sam.reader.AlignmentIndexer;
 import org.broad.igv.tdf.TDFUtils;
@@ -111,6 +113,7 @@ public class IgvTools {
     static final String CMD_DISCORDANT = "discordant";
     static final String CMD_MAFTOSAM = "maftosam";
     static final String CMD_SUMWIGS = "sumwigs";
+    static final String CMD_TOBGWAS = "tobgwas";
 
     /**
      * Stream for writing messages to the user, which we
@@ -138,6 +141,7 @@ public class IgvTools {
             "toTDF    convert an input file (cn, gct, wig) to tiled data format (tdf)",
             "count   compute coverage density for an alignment file",
             "formatexp  center, scale, and log2 normalize an expression file",
+            "toBGWAS  convert a GWAS result file to indexed binary format (bgwas)",
             "gui      Start the gui",
             "help <command>     display this help message, or help on a specific command",
             "See http://www.broadinstitute.org/software/igv/igvtools_commandline for more detailed help"
@@ -177,6 +181,7 @@ public class IgvTools {
     private static CmdLineParser.Option minMapQualityOpt = null;
     private static CmdLineParser.Option includeDupsOpt = null;
     private static CmdLineParser.Option pairedCoverageOpt = null;
+    private static CmdLineParser.Option threadsOpt = null;
 
     // options for index
     private static CmdLineParser.Option indexTypeOption = null;
@@ -369,9 +374,10 @@ public class IgvTools {
                     int minMapQuality = (Integer) parser.getOptionValue(minMapQualityOpt, 0);
 
                     int windowSizeValue = (Integer) parser.getOptionValue(windowSizeOption, WINDOW_SIZE);
+                    int threads = (Integer) parser.getOptionValue(threadsOpt, 1);
                     doCount(ifile, ofile, genomeId, maxZoomValue, wfList, windowSizeValue, extFactorValue,
                             preFactorValue, posFactorValue,
-                            trackLine, queryString, minMapQuality, countFlags);
+                            trackLine, queryString, minMapQuality, countFlags, threads);
                 } else {
                     String probeFile = (String) parser.getOptionValue(probeFileOption, PROBE_FILE);
                     toTDF(typeString, ifile, ofile, probeFile, genomeId, maxZoomValue, wfList, tmpDirName, maxRecords);
@@ -450,6 +456,18 @@ public class IgvTools {
                 Boolean noSATagOption = (Boolean) parser.getOptionValue(noSATag, false);
                 MAFtoSAM.convert(inputFile, outputFile, noSATagOption);
 
+            } else if (command.equals(CMD_TOBGWAS)) {
+                validateArgsLength(nonOptionArgs, 4, basic_syntax);
+                String ofile = nonOptionArgs[2];
+                if (!GWASBinaryData.isBinaryGWASFile(ofile)) {
+                    ofile = ofile + GWASBinaryData.EXTENSION;
+                }
+                String genomeId = nonOptionArgs[3];
+                Genome genome = loadGenome(genomeId);
+                if (genome == null) {
+                    throw new PreprocessingException("Genome could not be loaded: " + genomeId);
+                }
+                GWASBinaryWriter.convert(ifile, ofile, genome);
             } else if (command.equals(CMD_SUMWIGS)) {
                 sumWigs(nonOptionArgs[1], nonOptionArgs[2]);
             } else if (command.equals(CMD_DENSITIESTOBEDGRAPH)) {
@@ -591,6 +609,7 @@ public class IgvTools {
                 minMapQualityOpt = parser.addIntegerOption("minMapQuality");
                 includeDupsOpt = parser.addBooleanOption("includeDuplicates");
                 pairedCoverageOpt = parser.addBooleanOption("pairs");
+                threadsOpt = parser.addIntegerOption("threads");
 
                 // Trackline
                 colorOption = parser.addStringOption("color");
@@ -833,6 +852,15 @@ public class IgvTools {
                         Collection<WindowFunction> windowFunctions, int windowSizeValue,
                         int extFactorValue, int preExtFactorValue, int postExtFactorValue,
                         String trackLine, String queryString, int minMapQuality, int countFlags) throws IOException {
+        doCount(ifile, ofile, genomeId, maxZoomValue, windowFunctions, windowSizeValue, extFactorValue,
+                preExtFactorValue, postExtFactorValue, trackLine, queryString, minMapQuality, countFlags, 1);
+    }
+
+    public void doCount(String ifile, String ofile, String genomeId, int maxZoomValue,
+                        Collection<WindowFunction> windowFunctions, int windowSizeValue,
+                        int extFactorValue, int preExtFactorValue, int postExtFactorValue,
+                        String trackLine, String queryString, int minMapQuality, int countFlags,
+                        int threads) throws IOException {
 
 
         log.info("Computing coverage.  File = " + ifile);
@@ -844,6 +872,9 @@ public class IgvTools {
         }
         log.info(wfString);
         log.info("Ext factor = " + extFactorValue);
+        if (threads > 1) {
+            log.info("Threads = " + threads);
+        }
 
 
         Genome genome = loadGenome(genomeId);
@@ -882,6 +913,7 @@ public class IgvTools {
             counter.setWriteStdOut(wigStdOut);
             counter.setPreExtFactor(preExtFactorValue);
             counter.setPosExtFactor(postExtFactorValue);
+            counter.setThreads(threads);
 
             String prefix = FilenameUtils.getName(ifile);
             String[] tracknames = counter.getTrackNames(prefix + " ");
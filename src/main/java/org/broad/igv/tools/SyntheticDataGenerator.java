@@ -0,0 +1,205 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.tools;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.broad.igv.sam.Alignment;
+import org.broad.igv.sam.PicardAlignment;
+import org.broad.igv.tools.sort.SortableRecord;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * In-memory generators of synthetic data for benchmarks and tests.  Unlike {@link TestFileGenerator} nothing is
+ * fetched from the network,  and output depends only on the random seed,  so runs are reproducible.
+ */
+public class SyntheticDataGenerator {
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    private final Random random;
+
+    public SyntheticDataGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Random nucleotide sequence of the given length.
+     */
+    public byte[] bases(int length) {
+        byte[] bases = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bases[i] = BASES[random.nextInt(4)];
+        }
+        return bases;
+    }
+
+    /**
+     * Sorted BED12 lines on chr,  one gene-like feature with 1 - 10 exons every chrLength / nFeatures bases on average.
+     */
+    public List<String> bedLines(String chr, int chrLength, int nFeatures) {
+
+        List<String> lines = new ArrayList<String>(nFeatures);
+        double step = (double) chrLength / nFeatures;
+        for (int i = 0; i < nFeatures; i++) {
+            int start = (int) (i * step);
+            int nExons = 1 + random.nextInt(10);
+            StringBuilder sizes = new StringBuilder();
+            StringBuilder starts = new StringBuilder();
+            int exonStart = 0;
+            int end = start;
+            for (int e = 0; e < nExons; e++) {
+                int size = 50 + random.nextInt(300);
+                sizes.append(size).append(',');
+                starts.append(exonStart).append(',');
+                end = start + exonStart + size;
+                exonStart += size + 100 + random.nextInt(2000);
+            }
+            int thickStart = start + Math.min(20, end - start);
+            char strand = random.nextBoolean() ? '+' : '-';
+            lines.add(chr + "\t" + start + "\t" + end + "\tgene_" + i + "\t" + random.nextInt(1000) + "\t" + strand +
+                    "\t" + thickStart + "\t" + end + "\t0\t" + nExons + "\t" + sizes + "\t" + starts);
+        }
+        return lines;
+    }
+
+    /**
+     * Write {@link #bedLines(String, int, int)} to a file.
+     */
+    public void writeBed(File file, String chr, int chrLength, int nFeatures) throws IOException {
+        PrintWriter pw = null;
+        try {
+            pw = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+            for (String line : bedLines(chr, chrLength, nFeatures)) {
+                pw.println(line);
+            }
+        } finally {
+            if (pw != null) pw.close();
+        }
+    }
+
+    /**
+     * Write a single sequence FASTA file with 60 bases per line.
+     */
+    public void writeFasta(File file, String chr, int length) throws IOException {
+        OutputStream os = null;
+        try {
+            os = new BufferedOutputStream(new FileOutputStream(file));
+            os.write(('>' + chr + '\n').getBytes());
+            byte[] bases = bases(length);
+            for (int i = 0; i < length; i += 60) {
+                os.write(bases, i, Math.min(60, length - i));
+                os.write('\n');
+            }
+        } finally {
+            if (os != null) os.close();
+        }
+    }
+
+    /**
+     * Records with random positions over nChromosomes chromosomes,  in input order for sorting.
+     */
+    public List<SortableRecord> sortableRecords(int nRecords, int nChromosomes, int chrLength) {
+        List<SortableRecord> records = new ArrayList<SortableRecord>(nRecords);
+        for (int i = 0; i < nRecords; i++) {
+            String chr = "chr" + (1 + random.nextInt(nChromosomes));
+            int start = random.nextInt(chrLength);
+            records.add(new SortableRecord(chr, start, chr + "\t" + start + "\t" + (start + 100) + "\tfeature_" + i));
+        }
+        return records;
+    }
+
+    /**
+     * Sorted alignments over [start, end) of chr at roughly the given mean coverage.  About one read in ten has
+     * a short deletion,  one in twenty an insertion,  and bases carry a ~1% mismatch rate relative to a random
+     * reference.
+     */
+    public List<Alignment> alignments(String chr, int start, int end, int coverage, int readLength) {
+
+        SAMFileHeader header = new SAMFileHeader();
+        header.addSequence(new SAMSequenceRecord(chr, end + readLength));
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+
+        byte[] reference = bases(end - start + 2 * readLength);
+
+        int nReads = (int) ((long) (end - start) * coverage / readLength);
+        double step = (double) (end - start) / nReads;
+
+        List<Alignment> alignments = new ArrayList<Alignment>(nReads);
+        for (int i = 0; i < nReads; i++) {
+            int alignmentStart = start + (int) (i * step);
+
+            String cigar;
+            int refLength;
+            int roll = random.nextInt(20);
+            if (roll < 2) {
+                int d = 1 + random.nextInt(5);
+                int left = readLength / 2;
+                cigar = left + "M" + d + "D" + (readLength - left) + "M";
+                refLength = readLength + d;
+            } else if (roll == 2) {
+                int ins = 1 + random.nextInt(3);
+                int left = readLength / 2;
+                cigar = left + "M" + ins + "I" + (readLength - left - ins) + "M";
+                refLength = readLength - ins;
+            } else {
+                cigar = readLength + "M";
+                refLength = readLength;
+            }
+
+            byte[] readBases = new byte[readLength];
+            int offset = alignmentStart - start;
+            System.arraycopy(reference, offset, readBases, 0, Math.min(readLength, refLength));
+            if (refLength < readLength) {
+                System.arraycopy(reference, offset + refLength, readBases, refLength, readLength - refLength);
+            }
+            byte[] qualities = new byte[readLength];
+            for (int b = 0; b < readLength; b++) {
+                if (random.nextInt(100) == 0) {
+                    readBases[b] = BASES[random.nextInt(4)];
+                }
+                qualities[b] = (byte) (20 + random.nextInt(21));
+            }
+
+            SAMRecord record = new SAMRecord(header);
+            record.setReadName("read_" + i);
+            record.setReferenceName(chr);
+            record.setAlignmentStart(alignmentStart + 1);
+            record.setCigarString(cigar);
+            record.setMappingQuality(60);
+            record.setReadNegativeStrandFlag(random.nextBoolean());
+            record.setReadBases(readBases);
+            record.setBaseQualities(qualities);
+            alignments.add(new PicardAlignment(record));
+        }
+        return alignments;
+    }
+}
@@ -53,6 +53,7 @@ public abstract class AsciiSorter implements Sorter {
     private File outputFile;
     private boolean writeStdOut = false;
     private int maxRecords = MAX_RECORDS_IN_RAM;
+    private int threads = Runtime.getRuntime().availableProcessors();
 
     /**
      * Directory used for storing temporary data files
@@ -96,6 +97,8 @@ public abstract class AsciiSorter implements Sorter {
             SortableRecordCodec codec = new SortableRecordCodec();
 
             SortingCollection cltn = SortingCollection.newInstance(SortableRecord.class, codec, comparator, maxRecords, tmpDir);
+            cltn.setThreads(threads);
+            cltn.setCompressSpills(true);
 
             Parser parser = getParser();
             AsciiLineReader reader = new AsciiLineReader(fis);
@@ -124,6 +127,13 @@ public abstract class AsciiSorter implements Sorter {
         }
     }
 
+    /**
+     * Number of threads used to sort and merge spilled records.  Default is the number of available processors.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
     public void setComparator(Comparator<SortableRecord> comparator) {
         this.comparator = comparator;
     }
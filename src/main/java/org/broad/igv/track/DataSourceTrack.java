@@ -103,7 +103,8 @@ public class DataSourceTrack extends DataTrack {
 
     public LoadedDataInterval<List<LocusScore>> getSummaryScores(String chr, int startLocation, int endLocation, int zoom) {
 
-        List<LocusScore> tmp = dataSource.getSummaryScoresForRange(chr, startLocation, endLocation, zoom);
+        // Arrays,  which renderers read without creating score objects
+        List<LocusScore> tmp = dataSource.getSummaryScoreArray(chr, startLocation, endLocation, zoom);
 
         if (tmp == null) tmp = Collections.EMPTY_LIST;
         if (!firstDataLoaded && rescaleOnFirst) {
@@ -35,6 +35,7 @@ package org.broad.igv.track;
 
 import org.apache.log4j.Logger;
 import org.broad.igv.Globals;
+import org.broad.igv.data.LocusScoreArray;
 import org.broad.igv.event.IGVEventBus;
 import org.broad.igv.event.IGVEventObserver;
 import org.broad.igv.feature.Chromosome;
@@ -189,6 +190,7 @@ public abstract class DataTrack extends AbstractTrack implements ScalableTrack,
         }
 
         List<LocusScore> inViewScores = interval.getFeatures();
+        LocusScoreArray scoreArray = inViewScores instanceof LocusScoreArray ? (LocusScoreArray) inViewScores : null;
 
         // Trim scores
         int startIdx = Math.max(0, FeatureUtils.getIndexBefore(start, inViewScores));
@@ -200,7 +202,8 @@ public abstract class DataTrack extends AbstractTrack implements ScalableTrack,
 
         else {
             for (int i = tmp; i < inViewScores.size(); i++) {
-                if (inViewScores.get(i).getStart() > end) {
+                int s = scoreArray != null ? scoreArray.getStart(i) : inViewScores.get(i).getStart();
+                if (s > end) {
                     endIdx = i + 1;
                     break;
                 }
@@ -217,10 +220,14 @@ public abstract class DataTrack extends AbstractTrack implements ScalableTrack,
 
         List<LocusScore> scores = getInViewScores(referenceFrame);
         if (scores.size() > 0) {
+            LocusScoreArray scoreArray = scores instanceof LocusScoreArray ? (LocusScoreArray) scores : null;
+            if (!(scores instanceof RandomAccess)) {
+                scores = new ArrayList<>(scores);
+            }
             float min = Float.MAX_VALUE;
             float max = -Float.MAX_VALUE;
-            for (LocusScore score : scores) {
-                float value = score.getScore();
+            for (int i = 0; i < scores.size(); i++) {
+                float value = scoreArray != null ? scoreArray.getValue(i) : scores.get(i).getScore();
                 if (!Float.isNaN(value)) {
                     min = Math.min(value, min);
                     max = Math.max(value, max);
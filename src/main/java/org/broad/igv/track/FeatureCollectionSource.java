@@ -31,19 +31,19 @@ import org.broad.igv.data.DataTile;
 import org.broad.igv.feature.BasicFeature;
 import org.broad.igv.feature.FeatureUtils;
 import org.broad.igv.feature.IGVFeature;
+import org.broad.igv.feature.IndexedFeatureList;
 import org.broad.igv.feature.LocusScore;
 import org.broad.igv.feature.genome.Genome;
 import org.broad.igv.feature.genome.GenomeManager;
 import org.broad.igv.ui.panel.ReferenceFrame;
-import org.broad.igv.util.collections.CollUtils;
 import htsjdk.tribble.Feature;
 
 import java.util.*;
 
 /**
  * Implementation of FeatureSource that wraps a list or map of features for the
- * entire genome.  Instances are typically created by parsing a bed or gff file.  This
- * is a legacy implementation, and does not scale to large feature tracks.
+ * entire genome.  Instances are typically created by parsing a bed or gff file.  Features
+ * for each chromosome are held in an {@link IndexedFeatureList}, but are all kept in memory.
  * <p/>
  * User: jrobinso
  * Date: Jan 31, 2010
@@ -52,7 +52,7 @@ public class FeatureCollectionSource implements FeatureSource {
 
     private TrackType type;
 
-    private Map<String, List<htsjdk.tribble.Feature>> featureMap;
+    private Map<String, IndexedFeatureList<Feature>> featureMap;
 
     CoverageDataSource coverageData;
 
@@ -88,12 +88,11 @@ public class FeatureCollectionSource implements FeatureSource {
 
     public List<Feature> getFeatureList(String chr, int start, int end) {
 
-        List<Feature> features = featureMap.get(chr);
+        IndexedFeatureList<Feature> features = featureMap.get(chr);
         if (features == null) {
             return Collections.<Feature>emptyList();
         }
-        List<Feature> filteredFeatures = CollUtils.filter(features, FeatureUtils.getOverlapPredicate(chr, start, end));
-        return filteredFeatures;
+        return features.getFeatures(start, end);
     }
 
     @Override
@@ -102,7 +101,8 @@ public class FeatureCollectionSource implements FeatureSource {
     }
 
     public List<Feature> getFeatures(String chr) {
-        return featureMap.get(chr);
+        IndexedFeatureList<Feature> features = featureMap.get(chr);
+        return features == null ? null : features.getFeatures();
     }
 
     public Set<String> getChrs() {
@@ -121,18 +121,19 @@ public class FeatureCollectionSource implements FeatureSource {
     private void initFeatures(Iterable<? extends Feature> allFeatures) {
         // Separate features by chromosome
 
-            featureMap = new HashMap();
+            Map<String, List<Feature>> featureLists = new HashMap();
             for (Feature f : allFeatures) {
-                List<Feature> fList = featureMap.get(f.getChr());
+                List<Feature> fList = featureLists.get(f.getChr());
                 if (fList == null) {
                     fList = new ArrayList();
-                    featureMap.put(f.getChr(), fList);
+                    featureLists.put(f.getChr(), fList);
                 }
                 fList.add(f);
             }
 
-            for (List<Feature> featureList : featureMap.values()) {
-                FeatureUtils.sortFeatureList(featureList);
+            featureMap = new HashMap();
+            for (Map.Entry<String, List<Feature>> entry : featureLists.entrySet()) {
+                featureMap.put(entry.getKey(), new IndexedFeatureList<Feature>(entry.getValue()));
             }
 
             if (featureMap.size() < 100) {
@@ -142,8 +143,7 @@ public class FeatureCollectionSource implements FeatureSource {
 
 
     private void setFeatures(String chr, List<Feature> features) {
-        FeatureUtils.sortFeatureList(features);
-        featureMap.put(chr, features);
+        featureMap.put(chr, new IndexedFeatureList<Feature>(features));
     }
 
     public TrackType getType() {
@@ -207,7 +207,7 @@ public class FeatureCollectionSource implements FeatureSource {
 
 
         for (String chr : currentGenome.getLongChromosomeNames()) {
-            List<Feature> features = featureMap.get(chr);
+            List<Feature> features = getFeatures(chr);
             if (features != null) {
                 long offset = currentGenome.getCumulativeOffset(chr);
                 for (Feature f : features) {
@@ -284,7 +284,7 @@ public class FeatureCollectionSource implements FeatureSource {
                 ends[i] = starts[i] + windowSize;
             }
             float[] values = new float[nBins];
-            List<Feature> features = featureMap.get(chr);
+            List<Feature> features = getFeatures(chr);
             if (features != null) {
                 for (Feature f : features) {
                     int startBin = f.getStart() / windowSize;
@@ -315,7 +315,7 @@ public class FeatureCollectionSource implements FeatureSource {
 
 
             for (String chr : genome.getLongChromosomeNames()) {
-                List<Feature> features = featureMap.get(chr);
+                List<Feature> features = getFeatures(chr);
                 if (features != null) {
                     long offset = genome.getCumulativeOffset(chr);
                     for (Feature f : features) {
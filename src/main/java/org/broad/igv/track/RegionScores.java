@@ -0,0 +1,200 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.track;
+
+import org.apache.log4j.Logger;
+import org.broad.igv.util.LoadScheduler;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Region scores of tracks over one region,  zoom and score type,  for sorting.  Each track's score is computed once,
+ * in parallel across tracks,  and reused by every comparison and by the group scores,  rather than recomputed by
+ * the comparator on every comparison.
+ */
+public class RegionScores {
+
+    private static Logger log = Logger.getLogger(RegionScores.class);
+
+    static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private final String chr;
+    private final int start;
+    private final int end;
+    private final int zoom;
+    private final RegionScoreType type;
+    private final String frameName;
+
+    // Scores by track identity.  Guarded by "this"
+    private final Map<Track, Float> scores = new IdentityHashMap<>();
+
+    public RegionScores(String chr, int start, int end, int zoom, RegionScoreType type, String frameName) {
+        this.chr = chr;
+        this.start = start;
+        this.end = end;
+        this.zoom = Math.max(0, zoom);
+        this.type = type;
+        this.frameName = frameName;
+    }
+
+    /**
+     * Compute the scores of tracks not yet scored,  in parallel.
+     */
+    public void compute(Collection<? extends Track> tracks) {
+
+        List<Track> pending = new ArrayList<>();
+        synchronized (this) {
+            Set<Track> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Track t : tracks) {
+                if (t != null && !scores.containsKey(t) && seen.add(t)) {
+                    pending.add(t);
+                }
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        float[] results = new float[pending.size()];
+        int nTasks = Math.min(PARALLELISM, pending.size());
+        if (nTasks <= 1) {
+            scoreTracks(pending, results, 0, pending.size());
+        } else {
+            List<Runnable> tasks = new ArrayList<>(nTasks);
+            for (int t = 0; t < nTasks; t++) {
+                final int first = (int) ((long) pending.size() * t / nTasks);
+                final int last = (int) ((long) pending.size() * (t + 1) / nTasks);
+                tasks.add(() -> scoreTracks(pending, results, first, last));
+            }
+            try {
+                LoadScheduler.getInstance().invokeAll(tasks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // Leave the remainder to be scored on demand
+                return;
+            } catch (ExecutionException e) {
+                // scoreTracks catches track errors,  this is unexpected
+                log.error("Error computing region scores", e.getCause());
+                return;
+            }
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < results.length; i++) {
+                scores.put(pending.get(i), results[i]);
+            }
+        }
+    }
+
+    private void scoreTracks(List<Track> tracks, float[] results, int first, int last) {
+        for (int i = first; i < last; i++) {
+            results[i] = computeScore(tracks.get(i));
+        }
+    }
+
+    private float computeScore(Track track) {
+        try {
+            return track.getRegionScore(chr, start, end, zoom, type, frameName);
+        } catch (Exception e) {
+            log.error("Error computing region score for " + track.getName() + ". Sort might not be accurate.", e);
+            return -Float.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Return the score of a track,  computing it if it has not been computed.
+     */
+    public float getScore(Track track) {
+        synchronized (this) {
+            Float score = scores.get(track);
+            if (score != null) {
+                return score;
+            }
+        }
+        float score = computeScore(track);
+        synchronized (this) {
+            scores.put(track, score);
+        }
+        return score;
+    }
+
+    /**
+     * Return the scores of the tracks,  in list order.
+     */
+    public float[] getScores(List<? extends Track> tracks) {
+        compute(tracks);
+        float[] result = new float[tracks.size()];
+        for (int i = 0; i < result.length; i++) {
+            Track t = tracks.get(i);
+            result[i] = t == null ? Float.NaN : getScore(t);
+        }
+        return result;
+    }
+
+    /**
+     * Sort tracks by descending score.  Null tracks sort last.
+     */
+    public void sort(List<Track> tracks) {
+        float[] trackScores = getScores(tracks);
+        boolean[] isNull = new boolean[trackScores.length];
+        for (int i = 0; i < isNull.length; i++) {
+            isNull[i] = tracks.get(i) == null;
+        }
+        sort(tracks, trackScores, isNull);
+    }
+
+    /**
+     * Sort items by descending score.  The sort is stable,  and NaN scores sort first as with {@link Float#compare}.
+     *
+     * @param scores scores of the items,  in list order
+     */
+    public static <T> void sortByScore(List<T> items, float[] scores) {
+        sort(items, scores, null);
+    }
+
+    private static <T> void sort(List<T> items, float[] scores, boolean[] last) {
+
+        Integer[] order = new Integer[scores.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i1, i2) -> {
+            if (last != null && last[i1] != last[i2]) {
+                return last[i1] ? 1 : -1;
+            }
+            return Float.compare(scores[i2], scores[i1]);
+        });
+
+        List<T> sorted = new ArrayList<>(items.size());
+        for (Integer i : order) {
+            sorted.add(items.get(i));
+        }
+        for (int i = 0; i < sorted.size(); i++) {
+            items.set(i, sorted.get(i));
+        }
+    }
+}
@@ -273,7 +273,9 @@ public class SequenceTrack extends AbstractTrack implements IGVEventObserver {
 
         if (visible != sequenceVisible.get(frameName)) {
             sequenceVisible.put(frameName, visible);
-            UIUtilities.invokeAndWaitOnEventThread(() -> context.getPanel().revalidate());
+            if (context.getPanel() != null) {    // Null when painting offscreen
+                UIUtilities.invokeAndWaitOnEventThread(() -> context.getPanel().revalidate());
+            }
         }
         if (visible) {
             LoadedDataInterval<SeqCache> sequenceInterval = loadedIntervalCache.get(frameName);
@@ -164,6 +164,19 @@ public class TrackGroup {
         return score;
     }
 
+    /**
+     * Return the composite score as above,  with track scores from {@code scores}.
+     */
+    public float getRegionScore(RegionScores scores) {
+        float score = -Float.MAX_VALUE;
+        for (Track track : tracks) {
+            if (track.isVisible()) {
+                score = Math.max(score, scores.getScore(track));
+            }
+        }
+        return score;
+    }
+
 
     public String getName() {
         return name;
@@ -64,6 +64,8 @@ import org.broad.igv.ga4gh.Ga4ghAPIHelper;
 import org.broad.igv.ga4gh.OAuthUtils;
 import org.broad.igv.goby.GobyAlignmentQueryReader;
 import org.broad.igv.goby.GobyCountArchiveDataSource;
+import org.broad.igv.gwas.GWASBinaryData;
+import org.broad.igv.gwas.GWASBinaryWriter;
 import org.broad.igv.gwas.GWASData;
 import org.broad.igv.gwas.GWASParser;
 import org.broad.igv.gwas.GWASTrack;
@@ -89,6 +91,7 @@ import org.broad.igv.util.ResourceLocator;
 import org.broad.igv.variant.VariantTrack;
 import org.broad.igv.variant.util.PedigreeUtils;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
@@ -197,6 +200,8 @@ public class TrackLoader {
                 loadBasePairFile(locator, newTracks, genome);
             } else if (GWASParser.isGWASFile(typeString)) {
                 loadGWASFile(locator, newTracks, genome);
+            } else if (GWASBinaryData.isBinaryGWASFile(typeString)) {
+                loadBinaryGWASFile(locator, newTracks);
             } else if (GobyAlignmentQueryReader.supportsFileType(path)) {
                 loadAlignmentsTrack(locator, newTracks, genome);
             } else if (typeString.endsWith(".list")) {
@@ -468,6 +473,21 @@ public class TrackLoader {
 
     }
 
+    /**
+     * Load a binary GWAS file,  see {@link GWASBinaryWriter}.  The file is memory mapped,  so must be local.
+     */
+    private void loadBinaryGWASFile(ResourceLocator locator, List<Track> newTracks) throws IOException {
+
+        if (!locator.isLocal()) {
+            throw new DataLoadException("Binary GWAS files must be local", locator.getPath());
+        }
+        GWASData gwasData = new GWASBinaryData(new File(locator.getPath()));
+
+        GWASTrack gwasTrack = new GWASTrack(locator, locator.getPath(), locator.getFileName(), gwasData, null);
+        newTracks.add(gwasTrack);
+
+    }
+
 
     private void loadGctFile(ResourceLocator locator, List<Track> newTracks, Genome genome) throws IOException {
 
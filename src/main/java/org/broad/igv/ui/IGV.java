@@ -1914,11 +1914,15 @@ public class IGV implements IGVEventObserver {
         final RegionOfInterest r = region == null ? new RegionOfInterest(frame.getChrName(), (int) frame.getOrigin(),
                 (int) frame.getEnd() + 1, frame.getName()) : region;
 
+        // Track scores are computed once and shared by the sample and group sorts
+        final RegionScores scores = new RegionScores(r.getChr(), r.getStart(), r.getEnd(), frame.getZoom(), type,
+                frame.getName());
+
         // Create a rank order of samples.  This is done globally so sorting is consistent across groups and panels.
-        final List<String> sortedSamples = sortSamplesByRegionScore(r, type, frame);
+        final List<String> sortedSamples = sortSamplesByRegionScore(r, type, scores);
 
         for (TrackPanel trackPanel : getTrackPanels()) {
-            trackPanel.sortByRegionsScore(r, type, frame, sortedSamples);
+            trackPanel.sortByRegionsScore(r, type, scores, sortedSamples);
         }
         revalidateTrackPanels();
     }
@@ -1929,11 +1933,11 @@ public class IGV implements IGVEventObserver {
      *
      * @param region
      * @param type
-     * @param frame
+     * @param scores
      */
     private List<String> sortSamplesByRegionScore(final RegionOfInterest region,
                                                   final RegionScoreType type,
-                                                  final ReferenceFrame frame) {
+                                                  final RegionScores scores) {
 
         // Get the sortable tracks for this score (data) type
         final List<Track> allTracks = getAllTracks();
@@ -1945,7 +1949,7 @@ public class IGV implements IGVEventObserver {
         }
 
         // Sort the "sortable" tracks
-        sortByRegionScore(tracksWithScore, region, type, frame);
+        sortByRegionScore(tracksWithScore, region, scores);
 
         // Now get sample order from sorted tracks, use to sort (tracks which do not implement the selected "sort by" score)
         List<String> sortedSamples = new ArrayList(tracksWithScore.size());
@@ -1964,38 +1968,17 @@ public class IGV implements IGVEventObserver {
                                   final RegionOfInterest region,
                                   final RegionScoreType type,
                                   ReferenceFrame frame) {
-        if ((tracks != null) && (region != null) && !tracks.isEmpty()) {
+        if (region != null) {
             final String frameName = frame != null ? frame.getName() : null;
-            int tmpzoom = frame != null ? frame.getZoom() : 0;
-            final int zoom = Math.max(0, tmpzoom);
-            final String chr = region.getChr();
-            final int start = region.getStart();
-            final int end = region.getEnd();
-
-            Comparator<Track> c = new Comparator<Track>() {
-
-                public int compare(Track t1, Track t2) {
-                    try {
-                        if (t1 == null && t2 == null) return 0;
-                        if (t1 == null) return 1;
-                        if (t2 == null) return -1;
-
-
-                        float s1 = t1.getRegionScore(chr, start, end, zoom, type, frameName);
-                        float s2 = t2.getRegionScore(chr, start, end, zoom, type, frameName);
-
-                        return Float.compare(s2, s1);
-
-
-                    } catch (Exception e) {
-                        log.error("Error sorting tracks. Sort might not be accurate.", e);
-                        return 0;
-                    }
-
-                }
-            };
-            Collections.sort(tracks, c);
+            int zoom = frame != null ? frame.getZoom() : 0;
+            sortByRegionScore(tracks, region,
+                    new RegionScores(region.getChr(), region.getStart(), region.getEnd(), zoom, type, frameName));
+        }
+    }
 
+    static void sortByRegionScore(List<Track> tracks, final RegionOfInterest region, RegionScores scores) {
+        if ((tracks != null) && (region != null) && !tracks.isEmpty()) {
+            scores.sort(tracks);
         }
     }
 
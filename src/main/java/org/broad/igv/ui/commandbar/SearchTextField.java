@@ -58,6 +58,9 @@ public class SearchTextField extends JTextField {
                 //TODO Uncomment to use comprehensive feature search, note that it should support partial matches
                 //List<NamedFeature> features = SearchCommand.comprehensiveFeatureSearch(text);
                 List<NamedFeature> features = FeatureDB.getFeaturesList(text, SearchCommand.SEARCH_LIMIT);
+                if (features.isEmpty()) {
+                    features = FeatureDB.getFeaturesContaining(text, SearchCommand.SEARCH_LIMIT);
+                }
                 final List<SearchCommand.SearchResult> results = SearchCommand.getResults(features);
                 Object[] list = SearchCommand.getSelectionList(results, false);
                 if (list.length >= 1) {
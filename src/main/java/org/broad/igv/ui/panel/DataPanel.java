@@ -50,6 +50,7 @@ import org.broad.igv.ui.WaitCursorManager;
 import org.broad.igv.event.DataLoadedEvent;
 import org.broad.igv.event.IGVEventObserver;
 import org.broad.igv.ui.util.DataPanelTool;
+import org.broad.igv.util.LoadScheduler;
 
 import javax.swing.*;
 import javax.swing.event.MouseInputAdapter;
@@ -61,9 +62,9 @@ import java.awt.event.MouseWheelEvent;
 import java.text.DecimalFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
@@ -77,9 +78,6 @@ public class DataPanel extends JComponent implements Paintable, IGVEventObserver
 
     private static Logger log = Logger.getLogger(DataPanel.class);
 
-    // Thread pool for loading data
-    private static final ExecutorService threadExecutor = Executors.newFixedThreadPool(5);
-
     private boolean isWaitingForToolTipText = false;
 
     private DataPanelTool defaultTool;
@@ -230,7 +228,8 @@ public class DataPanel extends JComponent implements Paintable, IGVEventObserver
                     runnable.run();
                     batchLoaded = true;
                 } else {
-                    futures.add(CompletableFuture.runAsync(runnable, threadExecutor));
+                    futures.add(LoadScheduler.getInstance().submit(runnable, track.getResourceLocator(),
+                            LoadScheduler.Priority.VISIBLE));
                 }
             }
         }
@@ -250,7 +249,12 @@ public class DataPanel extends JComponent implements Paintable, IGVEventObserver
 
                     })
                     .exceptionally(e -> {
-                        log.error("Error: ", e);
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        if (cause instanceof CancellationException) {
+                            log.debug("Load cancelled");    // User stop,  not an error
+                        } else {
+                            log.error("Error: ", e);
+                        }
                         loadInProgress = false;
                         WaitCursorManager.removeWaitCursor(token);
                         return null;
@@ -230,7 +230,7 @@ public class DataPanelPainter {
 
         // Get overlays
 
-        List<Track> overlayTracks = IGV.getInstance().getOverlayTracks(track);
+        List<Track> overlayTracks = IGV.hasInstance() ? IGV.getInstance().getOverlayTracks(track) : null;
         if (overlayTracks != null) {
             for (Track overlayTrack : overlayTracks) {
 
@@ -31,6 +31,7 @@ import org.broad.igv.lists.GeneList;
 import org.broad.igv.prefs.Constants;
 import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.track.RegionScoreType;
+import org.broad.igv.track.RegionScores;
 import org.broad.igv.track.Track;
 import org.broad.igv.ui.IGV;
 import org.broad.igv.ui.action.SearchCommand;
@@ -40,9 +41,8 @@ import org.broad.igv.event.IGVEventObserver;
 import org.broad.igv.ui.util.MessageUtils;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * @author jrobinso
@@ -53,6 +53,10 @@ public class FrameManager implements IGVEventObserver {
     private static List<ReferenceFrame> frames = new ArrayList();
     private static ReferenceFrame defaultFrame;
 
+    // Frames painted offscreen, e.g. by the batch snapshot renderer.  These are not shown but data loaded for them
+    // is retained as it is for visible frames.
+    private static final List<ReferenceFrame> offscreenFrames = new CopyOnWriteArrayList<>();
+
     public static final String DEFAULT_FRAME_NAME = "genome";
 
     static {
@@ -70,6 +74,18 @@ public class FrameManager implements IGVEventObserver {
         return frames;
     }
 
+    public static List<ReferenceFrame> getOffscreenFrames() {
+        return offscreenFrames;
+    }
+
+    public static void addOffscreenFrame(ReferenceFrame frame) {
+        offscreenFrames.add(frame);
+    }
+
+    public static void removeOffscreenFrame(ReferenceFrame frame) {
+        offscreenFrames.remove(frame);
+    }
+
     public static ReferenceFrame getFrame(String frameName) {
         for (ReferenceFrame frame : frames) {
             if (frame.getName().equals(frameName)) {
@@ -228,16 +244,14 @@ public class FrameManager implements IGVEventObserver {
 
     public static void sortFrames(final Track t) {
 
-        Collections.sort(frames, new Comparator<ReferenceFrame>() {
-            @Override
-            public int compare(ReferenceFrame o1, ReferenceFrame o2) {
-                float s1 = t.getRegionScore(o1.getChromosome().getName(), (int) o1.getOrigin(), (int) o1.getEnd(),
-                        o1.getZoom(), RegionScoreType.SCORE, o1.getName());
-                float s2 = t.getRegionScore(o2.getChromosome().getName(), (int) o2.getOrigin(), (int) o2.getEnd(),
-                        o2.getZoom(), RegionScoreType.SCORE, o2.getName());
-                return (s1 == s2 ? 0 : (s1 > s2) ? -1 : 1);
-            }
-        });
+        // Score each frame once.  Frames share the track,  so they are scored serially
+        float[] scores = new float[frames.size()];
+        for (int i = 0; i < scores.length; i++) {
+            ReferenceFrame f = frames.get(i);
+            scores[i] = t.getRegionScore(f.getChromosome().getName(), (int) f.getOrigin(), (int) f.getEnd(),
+                    f.getZoom(), RegionScoreType.SCORE, f.getName());
+        }
+        RegionScores.sortByScore(frames, scores);
 
     }
 
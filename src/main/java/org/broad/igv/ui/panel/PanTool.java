@@ -166,6 +166,7 @@ public class PanTool extends AbstractDataPanelTool {
                 if (cumulativeDeltaX > cumulativeDeltaY) {
 
                     // Horizontal scrolling
+                    getReferenceFame().setDragging(true);
                     getReferenceFame().shiftOriginPixels(deltaX);
                 } else {
                     // Vertical Scrolling 
@@ -68,6 +68,8 @@ public class ReferenceFrame {
 
     boolean visible = true;
 
+    private volatile boolean dragging = false;
+
     private String name;
 
     /**
@@ -162,7 +164,19 @@ public class ReferenceFrame {
     }
 
 
+    /**
+     * @return true while the frame is being dragged (panned with the mouse)
+     */
+    public boolean isDragging() {
+        return dragging;
+    }
+
+    public void setDragging(boolean dragging) {
+        this.dragging = dragging;
+    }
+
     public void dragStopped() {
+        dragging = false;
         setOrigin(Math.round(origin));   // Snap to gride
         eventBus.post(ViewChange.Result());
     }
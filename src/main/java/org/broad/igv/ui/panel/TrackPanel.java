@@ -31,6 +31,7 @@ import org.broad.igv.feature.RegionOfInterest;
 import org.broad.igv.feature.genome.Genome;
 import org.broad.igv.feature.genome.GenomeManager;
 import org.broad.igv.track.RegionScoreType;
+import org.broad.igv.track.RegionScores;
 import org.broad.igv.track.Track;
 import org.broad.igv.track.TrackGroup;
 import org.broad.igv.ui.IGV;
@@ -297,8 +298,17 @@ public class TrackPanel extends IGVPanel {
      */
     public void sortByRegionsScore(final RegionOfInterest region, final RegionScoreType type,
                                    final ReferenceFrame frame, List<String> sortedSamples) {
+        sortByRegionsScore(region, type, new RegionScores(region.getChr(), region.getStart(), region.getEnd(),
+                frame.getZoom(), type, frame.getName()), sortedSamples);
+    }
+
+    /**
+     * Sort as above,  with track scores from (and added to) {@code scores}
+     */
+    public void sortByRegionsScore(final RegionOfInterest region, final RegionScoreType type,
+                                   final RegionScores scores, List<String> sortedSamples) {
 
-        sortGroupsByRegionScore(trackGroups, region, type, frame.getZoom(), frame.getName());
+        sortGroupsByRegionScore(trackGroups, region, scores);
 
         for (TrackGroup group : trackGroups) {
             // If there is a non-null linking attribute
@@ -312,34 +322,27 @@ public class TrackPanel extends IGVPanel {
      *
      * @param groups
      * @param region
-     * @param type
-     * @param inzoom
-     * @param frameName
+     * @param scores
      */
     private void sortGroupsByRegionScore(List<TrackGroup> groups,
                                          final RegionOfInterest region,
-                                         final RegionScoreType type,
-                                         int inzoom,
-                                         final String frameName) {
+                                         final RegionScores scores) {
         if ((groups != null) && (region != null) && !groups.isEmpty()) {
-            final int zoom = Math.max(0, inzoom);
-            final String chr = region.getChr();
-            final int start = region.getStart();
-            final int end = region.getEnd();
-            Comparator<TrackGroup> c = new Comparator<TrackGroup>() {
-
-                public int compare(TrackGroup group1, TrackGroup group2) {
-                    float s1 = group1.getRegionScore(chr, start, end, zoom, type, frameName);
-                    float s2 = group2.getRegionScore(chr, start, end, zoom, type, frameName);
-
-                    // Use the Float comparator as it handles NaN.  Need to flip the order to make it descending
-                    return Float.compare(s2, s1);
 
+            // Score all tracks in one pass,  then each group once
+            List<Track> tracks = new ArrayList<>();
+            for (TrackGroup group : groups) {
+                tracks.addAll(group.getVisibleTracks());
+            }
+            scores.compute(tracks);
 
-                }
-            };
+            float[] groupScores = new float[groups.size()];
+            for (int i = 0; i < groupScores.length; i++) {
+                groupScores[i] = groups.get(i).getRegionScore(scores);
+            }
 
-            Collections.sort(groups, c);
+            // Descending,  NaN first as with the Float comparator
+            RegionScores.sortByScore(groups, groupScores);
         }
 
     }
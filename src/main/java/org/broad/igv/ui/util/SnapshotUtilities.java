@@ -367,6 +367,10 @@ public class SnapshotUtilities {
      */
     public static BufferedImage getDeviceCompatibleImage(int width, int height) {
 
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+
         GraphicsEnvironment graphicsEnvironment = GraphicsEnvironment.getLocalGraphicsEnvironment();
         GraphicsDevice screenDevice = graphicsEnvironment.getDefaultScreenDevice();
         GraphicsConfiguration graphicConfiguration = screenDevice.getDefaultConfiguration();
@@ -373,6 +373,47 @@ public class HttpUtils {
         return conn.getLastModified();
     }
 
+    /**
+     * Return a string identifying the current version of the resource from the headers of an open connection -- its
+     * ETag,  or failing that its Last-Modified date or length -- or null if the server provides none of these.  For a
+     * range response the length is taken from Content-Range,  as Content-Length is that of the range.
+     */
+    public String getResourceVersion(HttpURLConnection conn) {
+        String etag = conn.getHeaderField("ETag");
+        if (etag != null) {
+            return "etag:" + etag;
+        }
+        long lastModified = conn.getLastModified();
+        if (lastModified > 0) {
+            return "modified:" + lastModified;
+        }
+        long length = getContentRangeLength(conn);
+        if (length >= 0) {
+            return "length:" + length;
+        }
+        String contentLength = conn.getHeaderField("Content-Length");
+        return contentLength == null ? null : "length:" + contentLength;
+    }
+
+    /**
+     * Return the total resource length from the Content-Range header of a range response,  or -1 if unknown.
+     */
+    public static long getContentRangeLength(HttpURLConnection conn) {
+        String contentRange = conn.getHeaderField("Content-Range");
+        if (contentRange == null) {
+            return -1;
+        }
+        int idx = contentRange.lastIndexOf('/');
+        if (idx < 0 || contentRange.endsWith("*")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(idx + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     public long getContentLength(URL url) throws IOException {
 
         try {
@@ -62,7 +62,7 @@ import java.util.List;
 
 
 /** An implementation of an interval tree, following the explanation.
- * from CLR.
+ * from CLR.  For intervals that are all known up front {@link StaticIntervalIndex} is faster and more compact.
  */
 
 
@@ -0,0 +1,379 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util;
+
+import org.apache.log4j.Logger;
+import org.broad.igv.event.IGVEventBus;
+import org.broad.igv.event.IGVEventObserver;
+import org.broad.igv.event.StopEvent;
+import org.broad.igv.prefs.IGVPreferences;
+import org.broad.igv.prefs.PreferencesManager;
+
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.broad.igv.prefs.Constants.*;
+
+/**
+ * Central scheduler for data loading.
+ * <p/>
+ * Loads run on one of two lanes,  local files and remote resources,  each with a fixed number of threads
+ * (LOADER.LOCAL_THREADS and LOADER.REMOTE_THREADS).  Remote loads are further limited to LOADER.HOST_LIMIT
+ * concurrent loads per host,  loads for a busy host wait in the scheduler without holding a lane thread.  Waiting
+ * loads are started in priority order,  loads for visible tracks ahead of others,  and in submission order
+ * within a priority.
+ * <p/>
+ * A {@link StopEvent} cancels all loads that have not started.  Loads that have started run to completion,
+ * readers that support it (e.g. alignments) cancel themselves on the same event.
+ * <p/>
+ * General long running tasks,  which may themselves wait on loads,  run on a separate task lane so they can
+ * never starve the load lanes.  Parallel computation split by {@link #invokeAll(List)} runs on a compute lane of its
+ * own,  one thread per processor,  so it cannot be starved by task lane threads blocked waiting on loads or I/O.
+ */
+public class LoadScheduler implements IGVEventObserver {
+
+    private static Logger log = Logger.getLogger(LoadScheduler.class);
+
+    public enum Priority {
+        VISIBLE, NORMAL, BACKGROUND
+    }
+
+    private static final int TASK_THREADS = Math.max(5, Runtime.getRuntime().availableProcessors());
+    private static final int COMPUTE_THREADS = Runtime.getRuntime().availableProcessors();
+
+    // True on compute lane threads
+    private static final ThreadLocal<Boolean> onComputeLane = ThreadLocal.withInitial(() -> false);
+
+    private static LoadScheduler instance;
+
+    private final ThreadPoolExecutor localLane;
+    private final ThreadPoolExecutor remoteLane;
+    private final ExecutorService taskLane;
+    private final ExecutorService computeLane;
+    private final int hostLimit;
+
+    /**
+     * Running count and waiting loads for each remote host.  Guarded by "this".
+     */
+    private final Map<String, HostQueue> hosts = new HashMap<String, HostQueue>();
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+
+    public static synchronized LoadScheduler getInstance() {
+        if (instance == null) {
+            IGVPreferences prefs = PreferencesManager.getPreferences();
+            instance = new LoadScheduler(prefs.getAsInt(LOADER_LOCAL_THREADS), prefs.getAsInt(LOADER_REMOTE_THREADS),
+                    prefs.getAsInt(LOADER_HOST_LIMIT));
+            IGVEventBus.getInstance().subscribe(StopEvent.class, instance);
+        }
+        return instance;
+    }
+
+    LoadScheduler(int localThreads, int remoteThreads, int hostLimit) {
+        this.localLane = newLane("Local loader", Math.max(1, localThreads));
+        this.remoteLane = newLane("Remote loader", Math.max(1, remoteThreads));
+        this.hostLimit = Math.max(1, hostLimit);
+        this.taskLane = Executors.newFixedThreadPool(TASK_THREADS, daemonFactory("Task"));
+        ThreadFactory computeFactory = daemonFactory("Compute");
+        this.computeLane = Executors.newFixedThreadPool(COMPUTE_THREADS, r -> computeFactory.newThread(() -> {
+            onComputeLane.set(true);
+            r.run();
+        }));
+    }
+
+    /**
+     * Executor for general long running tasks.  These are not prioritized or cancelled.  Tasks may block on loads or
+     * I/O.  CPU bound work split in parallel belongs on the compute lane instead,  see {@link #invokeAll(List)}.
+     */
+    public ExecutorService getTaskExecutor() {
+        return taskLane;
+    }
+
+    /**
+     * Run CPU bound tasks in parallel on the compute lane,  the calling thread running the first,  and wait for all of
+     * them.  Tasks must not wait on scheduled loads or other tasks.  On a compute lane thread the tasks run inline,  so nested
+     * parallel work cannot exhaust the lane.
+     *
+     * @throws ExecutionException with the first exception thrown by a task,  after all tasks have finished
+     * @throws InterruptedException if interrupted while waiting,  tasks not yet started are cancelled
+     */
+    public void invokeAll(List<? extends Runnable> tasks) throws InterruptedException, ExecutionException {
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        if (!onComputeLane.get()) {
+            for (int i = 1; i < tasks.size(); i++) {
+                futures.add(computeLane.submit(tasks.get(i)));
+            }
+        }
+
+        Throwable error = null;
+        int nInline = futures.isEmpty() ? tasks.size() : 1;
+        for (int i = 0; i < nInline; i++) {
+            try {
+                tasks.get(i).run();
+            } catch (Throwable e) {
+                if (error == null) error = e;
+            }
+        }
+
+        try {
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    if (error == null) error = e.getCause();
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> f : futures) {
+                f.cancel(true);
+            }
+            throw e;
+        }
+        if (error != null) {
+            throw new ExecutionException(error);
+        }
+    }
+
+    /**
+     * Schedule a load of the resource at locator.  The locator decides the lane,  and for remote resources the host.
+     * A null locator is treated as local.
+     */
+    public CompletableFuture<Void> submit(Runnable load, ResourceLocator locator, Priority priority) {
+        return submit(load, locator == null ? null : locator.getPath(), priority);
+    }
+
+    /**
+     * Schedule a load of the resource at path.
+     *
+     * @return a future completed when the load finishes,  or completed exceptionally if the load throws or is
+     * cancelled.  Cancelling the future before the load starts removes it from the schedule.
+     */
+    public CompletableFuture<Void> submit(Runnable load, String path, Priority priority) {
+
+        String host = getHost(path);
+        Load task = new Load(load, host, priority, sequence.getAndIncrement());
+
+        if (host == null) {
+            localLane.execute(task);
+        } else {
+            boolean start;
+            synchronized (this) {
+                HostQueue hq = hosts.get(host);
+                if (hq == null) {
+                    hq = new HostQueue();
+                    hosts.put(host, hq);
+                }
+                start = hq.running < hostLimit;
+                if (start) {
+                    hq.running++;
+                } else {
+                    hq.waiting.add(task);
+                }
+            }
+            if (start) {
+                remoteLane.execute(task);
+            }
+        }
+        return task.future;
+    }
+
+    /**
+     * @return the number of loads waiting to start
+     */
+    public int getPendingCount() {
+        int waiting = 0;
+        synchronized (this) {
+            for (HostQueue hq : hosts.values()) {
+                waiting += hq.waiting.size();
+            }
+        }
+        return localLane.getQueue().size() + remoteLane.getQueue().size() + waiting;
+    }
+
+    /**
+     * @return the number of loads running
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return the number of loads completed,  successfully or not,  since startup
+     */
+    public int getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * Cancel all loads that have not started.
+     */
+    public void cancelPending() {
+        List<Runnable> queued = new ArrayList<Runnable>();
+        localLane.getQueue().drainTo(queued);
+        remoteLane.getQueue().drainTo(queued);
+        List<Load> waiting = new ArrayList<Load>();
+        synchronized (this) {
+            for (HostQueue hq : hosts.values()) {
+                waiting.addAll(hq.waiting);
+                hq.waiting.clear();
+            }
+        }
+
+        for (Runnable r : queued) {
+            Load load = (Load) r;
+            load.future.cancel(false);
+            if (load.host != null) {
+                // Loads queued on the remote lane hold a host slot
+                releaseHost(load.host, false);
+            }
+        }
+        for (Load load : waiting) {
+            load.future.cancel(false);
+        }
+
+        int n = queued.size() + waiting.size();
+        if (n > 0) {
+            log.info("Cancelled " + n + " pending loads");
+        }
+    }
+
+    @Override
+    public void receiveEvent(Object event) {
+        if (event instanceof StopEvent) {
+            cancelPending();
+        }
+    }
+
+    /**
+     * Release a host slot,  and start the next waiting load for the host if there is one.
+     */
+    private void releaseHost(String host, boolean startNext) {
+        Load next = null;
+        synchronized (this) {
+            HostQueue hq = hosts.get(host);
+            if (hq == null) return;
+            next = startNext ? hq.waiting.poll() : null;
+            if (next == null) {
+                hq.running = Math.max(0, hq.running - 1);
+                if (hq.running == 0 && hq.waiting.isEmpty()) {
+                    hosts.remove(host);
+                }
+            }
+        }
+        if (next != null) {
+            remoteLane.execute(next);
+        }
+    }
+
+    /**
+     * @return the host of a remote path,  or null if the path is local
+     */
+    static String getHost(String path) {
+        if (path == null || !HttpUtils.isRemoteURL(path)) {
+            return null;
+        }
+        try {
+            String host = new URL(path).getHost();
+            return host == null ? "" : host.toLowerCase();
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private static ThreadPoolExecutor newLane(String name, int nThreads) {
+        return new ThreadPoolExecutor(nThreads, nThreads, 60, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), daemonFactory(name));
+    }
+
+    private static ThreadFactory daemonFactory(final String name) {
+        final AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + " " + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static class HostQueue {
+        int running;
+        final PriorityQueue<Load> waiting = new PriorityQueue<Load>();
+    }
+
+    private class Load implements Runnable, Comparable<Load> {
+
+        final Runnable runnable;
+        final String host;
+        final Priority priority;
+        final long seq;
+        final CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+        Load(Runnable runnable, String host, Priority priority, long seq) {
+            this.runnable = runnable;
+            this.host = host;
+            this.priority = priority == null ? Priority.NORMAL : priority;
+            this.seq = seq;
+        }
+
+        public void run() {
+            try {
+                if (future.isDone()) {
+                    return;    // Cancelled while waiting
+                }
+                active.incrementAndGet();
+                Throwable error = null;
+                try {
+                    runnable.run();
+                } catch (Throwable e) {
+                    error = e;
+                } finally {
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+                // Complete after updating counts,  so waiters see a consistent state
+                if (error == null) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(error);
+                }
+            } finally {
+                if (host != null) {
+                    releaseHost(host, true);
+                }
+            }
+        }
+
+        public int compareTo(Load o) {
+            int c = priority.compareTo(o.priority);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+}
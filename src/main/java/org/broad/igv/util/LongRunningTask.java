@@ -44,12 +44,13 @@ public class LongRunningTask implements Callable {
 
     private static Logger log = Logger.getLogger(LongRunningTask.class);
 
-    private static final ExecutorService threadExecutor = Executors.newFixedThreadPool(5);
-
     Runnable runnable;
 
+    /**
+     * Tasks run on the task lane of the {@link LoadScheduler}
+     */
     public static Executor getThreadExecutor() {
-        return threadExecutor;
+        return LoadScheduler.getInstance().getTaskExecutor();
     }
 
     public static Future submit(Runnable runnable) {
@@ -57,7 +58,7 @@ public class LongRunningTask implements Callable {
             runnable.run();
             return null;
         } else {
-            return threadExecutor.submit(new LongRunningTask(runnable));
+            return LoadScheduler.getInstance().getTaskExecutor().submit(new LongRunningTask(runnable));
         }
     }
 
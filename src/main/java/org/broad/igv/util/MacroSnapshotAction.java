@@ -32,7 +32,7 @@ package org.broad.igv.util;
 //~--- non-JDK imports --------------------------------------------------------
 
 import org.apache.log4j.Logger;
-import org.broad.igv.ui.IGV;
+import org.broad.igv.batch.SnapshotRenderer;
 
 import java.io.File;
 import java.util.List;
@@ -58,10 +58,13 @@ public class MacroSnapshotAction {
     final public static void doSnapshots(File regionFile, File outputDirectory) {
 
         final List<String> loci = ParsingUtils.loadRegions(regionFile);
+        if (loci == null) return;
 
-        for (String locus : loci) {
-            IGV.getInstance().goToLocus(locus);
-            createSnapshot(outputDirectory, null);
+        // Render offscreen rather than navigating the main view to each locus
+        try {
+            SnapshotRenderer.fromSession(Runtime.getRuntime().availableProcessors()).renderAll(loci, outputDirectory, ".png");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -33,15 +33,16 @@
  */
 package org.broad.igv.util;
 
-import org.broad.igv.sam.Alignment;
+import org.broad.igv.util.collections.LRUCache;
 
 import java.lang.ref.SoftReference;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 
 /**
- *
+ * A cache of softly referenced objects.  Backed by a concurrent {@link LRUCache},  so it can be shared between
+ * threads.  If constructed with a weigher the cache also counts against the global
+ * {@link org.broad.igv.util.collections.CacheMemoryBudget}.
  */
 public class ObjectCache<K, V> {
 
@@ -49,7 +50,7 @@ public class ObjectCache<K, V> {
      * Maximum number of objects to cache
      */
     private int maxSize = 1000;
-    private LinkedHashMap<K, SoftReference<V>> map = new LinkedHashMap<K, SoftReference<V>>();
+    private LRUCache<K, SoftReference<V>> map;
 
     public ObjectCache() {
         this(50);
@@ -57,18 +58,18 @@ public class ObjectCache<K, V> {
 
     public ObjectCache(int maxSize) {
         this.maxSize = maxSize;
-        map = new LinkedHashMap<K, SoftReference<V>>(maxSize);
+        map = new LRUCache<K, SoftReference<V>>(maxSize);
+    }
+
+    public ObjectCache(int maxSize, LRUCache.Weigher<? super V> weigher) {
+        this.maxSize = maxSize;
+        map = new LRUCache<K, SoftReference<V>>(maxSize, Long.MAX_VALUE, ref -> {
+            V value = ref.get();
+            return value == null ? 0 : weigher.weigh(value);
+        });
     }
 
     public void put(K key, V image) {
-        if (map.size() == maxSize) {
-            // Map has reached maximum size.  Remove the first(oldest) entry.
-            // 
-            for (K k : map.keySet()) {
-                map.remove(k);
-                break;
-            }
-        }
         SoftReference<V> SoftReference = new SoftReference<V>(image);
         map.put(key, SoftReference);
     }
@@ -114,6 +115,19 @@ public class ObjectCache<K, V> {
 
     public void setMaxSize(int maxSize) {
         this.maxSize = maxSize;
+        map.setMaxEntries(maxSize);
+    }
+
+    public long getHitCount() {
+        return map.getHitCount();
+    }
+
+    public long getMissCount() {
+        return map.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return map.getEvictionCount();
     }
 
 }
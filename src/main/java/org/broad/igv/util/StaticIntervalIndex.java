@@ -0,0 +1,150 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable interval index,  an alternative to {@link IntervalTree} for the common case of building once and
+ * querying many times.
+ * <p/>
+ * Intervals are sorted by start and held in flat arrays.  The sorted array is treated as an implicit balanced
+ * binary tree,  the node for a range of indices being its midpoint,  and maxHigh[i] holds the largest high of the
+ * subtree rooted at i.  A query descends only into subtrees that can contain overlaps,  so it costs
+ * O(log n + k) and touches a few contiguous arrays rather than a graph of node objects.
+ * <p/>
+ * Intervals are closed,  as in {@link Interval#overlaps(int, int)}.  Results are returned in start order.
+ */
+public class StaticIntervalIndex<T> {
+
+    /**
+     * Callback for {@link #visitOverlapping(int, int, Visitor)}
+     */
+    public interface Visitor<T> {
+        void visit(Interval<T> interval);
+    }
+
+    private final Interval<T>[] intervals;
+    private final int[] lows;
+    private final int[] highs;
+    private final int[] maxHighs;
+
+    public StaticIntervalIndex(Collection<Interval<T>> intervals) {
+
+        this.intervals = intervals.toArray(new Interval[intervals.size()]);
+        Arrays.sort(this.intervals);
+
+        int n = this.intervals.length;
+        lows = new int[n];
+        highs = new int[n];
+        maxHighs = new int[n];
+        for (int i = 0; i < n; i++) {
+            lows[i] = this.intervals[i].low;
+            highs[i] = this.intervals[i].high;
+        }
+        computeMaxHigh(0, n);
+    }
+
+    public int size() {
+        return intervals.length;
+    }
+
+    public boolean isEmpty() {
+        return intervals.length == 0;
+    }
+
+    /**
+     * Return all intervals,  in start order.
+     */
+    public List<Interval<T>> getIntervals() {
+        return Collections.unmodifiableList(Arrays.asList(intervals));
+    }
+
+    /**
+     * Return all intervals overlapping [start, end],  in start order.
+     */
+    public List<Interval<T>> findOverlapping(int start, int end) {
+        if (intervals.length == 0) {
+            return Collections.emptyList();
+        }
+        final List<Interval<T>> results = new ArrayList<Interval<T>>();
+        visit(0, intervals.length, start, end, null, results);
+        return results;
+    }
+
+    /**
+     * Pass each interval overlapping [start, end] to the visitor,  in start order.  Nothing is allocated.
+     *
+     * @return the number of intervals visited
+     */
+    public int visitOverlapping(int start, int end, Visitor<T> visitor) {
+        return visit(0, intervals.length, start, end, visitor, null);
+    }
+
+    /**
+     * Visit overlaps in the subtree for indices [lo, hi),  in order.  Exactly one of visitor and results is non-null.
+     */
+    private int visit(int lo, int hi, int start, int end, Visitor<T> visitor, List<Interval<T>> results) {
+        int count = 0;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (maxHighs[mid] < start) {
+                // Nothing in this subtree reaches the query
+                break;
+            }
+            count += visit(lo, mid, start, end, visitor, results);
+            if (lows[mid] > end) {
+                // Neither this node nor anything to its right starts before the query end
+                break;
+            }
+            if (highs[mid] >= start) {
+                if (visitor != null) {
+                    visitor.visit(intervals[mid]);
+                } else {
+                    results.add(intervals[mid]);
+                }
+                count++;
+            }
+            // Continue with the right subtree
+            lo = mid + 1;
+        }
+        return count;
+    }
+
+    private int computeMaxHigh(int lo, int hi) {
+        if (lo >= hi) {
+            return Integer.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        int max = Math.max(highs[mid], Math.max(computeMaxHigh(lo, mid), computeMaxHigh(mid + 1, hi)));
+        maxHighs[mid] = max;
+        return max;
+    }
+}
@@ -150,13 +150,13 @@ public class TutorialUtils {
 
         List<Region> regions = parseRegions(new File(regionsFile));
 
-        Map<String, IntervalTree<List<Feature>>> featureMap = loadFeatures(inputFile);
+        Map<String, StaticIntervalIndex<List<Feature>>> featureMap = loadFeatures(inputFile);
 
         try {
             out = new PrintWriter(new BufferedWriter(new FileWriter(outputFile)));
             for (Region r : regions) {
 
-                IntervalTree<List<Feature>> featureTree = featureMap.get(r.chr);
+                StaticIntervalIndex<List<Feature>> featureTree = featureMap.get(r.chr);
 
                 if (featureTree != null) {
 
@@ -448,8 +448,8 @@ public class TutorialUtils {
     //585	NR_024540	chr1	-	14361	29370	29370	29370	11	14361,14969,15795,16606,16857,17232,17605,17914,18267,24737,29320,	14829,15038,15947,16765,17055,17368,17742,18061,18366,24891,29370,	0	WASH7P	unk	unk	-1,-1,-1,-1,-1,-1,-1,-1,-1,-1,-1,
 
 
-    // Return a map of interval trees, keyed by chromosome name.
-    static Map<String, IntervalTree<List<Feature>>> loadFeatures(String file) throws IOException {
+    // Return a map of interval indexes, keyed by chromosome name.
+    static Map<String, StaticIntervalIndex<List<Feature>>> loadFeatures(String file) throws IOException {
 
         BufferedReader reader = null;
 
@@ -462,7 +462,7 @@ public class TutorialUtils {
         int currentMin = Integer.MAX_VALUE;
         int currentMax = 0;
 
-        Map<String, IntervalTree<List<Feature>>> map = new HashMap<>();
+        Map<String, List<Interval<List<Feature>>>> map = new HashMap<>();
 
         List<Feature> features = new ArrayList<>();
         while ((nextLine = reader.readLine()) != null) {
@@ -483,7 +483,7 @@ public class TutorialUtils {
                 currentMin = f.start;
                 currentMax = f.end;
                 currentFeatureList.add(f);
-                IntervalTree<List<Feature>> tree = new IntervalTree<>();
+                List<Interval<List<Feature>>> tree = new ArrayList<>();
                 map.put(f.chr, tree);
                 lastChr = f.chr;
             } else {
@@ -491,14 +491,14 @@ public class TutorialUtils {
                 if (!f.chr.equals(lastChr)) {
 
                     // New tree
-                    IntervalTree<List<Feature>> tree = map.get(lastChr);
-                    tree.insert(new Interval(currentMin, currentMax, currentFeatureList));
+                    List<Interval<List<Feature>>> tree = map.get(lastChr);
+                    tree.add(new Interval(currentMin, currentMax, currentFeatureList));
 
                     if (map.containsKey(f.chr)) {
                         System.out.println();
                     }
 
-                    tree = new IntervalTree<>();
+                    tree = new ArrayList<>();
                     map.put(f.chr, tree);
                     lastChr = f.chr;
 
@@ -510,8 +510,8 @@ public class TutorialUtils {
                 } else if (currentFeatureList.size() > 10) {
 
                     // New interval
-                    IntervalTree<List<Feature>> tree = map.get(lastChr);
-                    tree.insert(new Interval(currentMin, currentMax, currentFeatureList));
+                    List<Interval<List<Feature>>> tree = map.get(lastChr);
+                    tree.add(new Interval(currentMin, currentMax, currentFeatureList));
 
                     currentFeatureList = new ArrayList<>();
                     currentFeatureList.add(f);
@@ -530,7 +530,11 @@ public class TutorialUtils {
             }
         }
 
-        return map;
+        Map<String, StaticIntervalIndex<List<Feature>>> indexes = new HashMap<>();
+        for (Map.Entry<String, List<Interval<List<Feature>>>> entry : map.entrySet()) {
+            indexes.put(entry.getKey(), new StaticIntervalIndex<>(entry.getValue()));
+        }
+        return indexes;
     }
 
 }
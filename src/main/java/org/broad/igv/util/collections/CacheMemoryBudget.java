@@ -0,0 +1,132 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A memory budget shared by all byte-weighted {@link LRUCache}s.  When the combined estimated size of the
+ * registered caches exceeds the budget,  the least recently used entries across all of them are evicted until
+ * it fits.  Caches are held weakly,  a cache that is no longer referenced stops counting against the budget.
+ * <p>
+ * Caches charge weight changes to a running total,  so puts only take the budget's lock when the total exceeds the
+ * budget.  The total is recomputed from the live caches on each enforcement.
+ */
+public class CacheMemoryBudget {
+
+    private static final double DEFAULT_HEAP_FRACTION = 0.25;
+
+    private static CacheMemoryBudget instance;
+
+    private final Set<LRUCache<?, ?>> caches = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private volatile long budget;
+
+    // Running total of weights charged by the registered caches
+    private final AtomicLong charged = new AtomicLong();
+
+    public static synchronized CacheMemoryBudget getInstance() {
+        if (instance == null) {
+            instance = new CacheMemoryBudget((long) (Runtime.getRuntime().maxMemory() * DEFAULT_HEAP_FRACTION));
+        }
+        return instance;
+    }
+
+    CacheMemoryBudget(long budget) {
+        this.budget = budget;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public void setBudget(long budget) {
+        this.budget = budget;
+        enforce();
+    }
+
+    /**
+     * @return the combined estimated size in bytes of all registered caches
+     */
+    public long getUsed() {
+        long used = 0;
+        for (LRUCache<?, ?> cache : getCaches()) {
+            used += cache.getWeight();
+        }
+        return used;
+    }
+
+    synchronized void register(LRUCache<?, ?> cache) {
+        caches.add(cache);
+    }
+
+    void charge(long delta) {
+        charged.addAndGet(delta);
+    }
+
+    boolean isExceeded() {
+        return charged.get() > budget;
+    }
+
+    /**
+     * Evict globally least recently used entries until the registered caches fit in the budget.
+     */
+    synchronized void enforce() {
+        List<LRUCache<?, ?>> caches = getCaches();
+        long used = 0;
+        for (LRUCache<?, ?> cache : caches) {
+            used += cache.getWeight();
+        }
+        // Drop charges of caches that have been garbage collected
+        charged.set(used);
+        while (used > budget) {
+            LRUCache<?, ?> oldest = null;
+            long oldestStamp = Long.MAX_VALUE;
+            for (LRUCache<?, ?> cache : caches) {
+                long stamp = cache.eldestStamp();
+                if (stamp < oldestStamp) {
+                    oldestStamp = stamp;
+                    oldest = cache;
+                }
+            }
+            if (oldest == null) {
+                break;
+            }
+            long before = oldest.getWeight();
+            oldest.evictEldest();
+            used -= before - oldest.getWeight();
+        }
+    }
+
+    private synchronized List<LRUCache<?, ?>> getCaches() {
+        return new ArrayList<>(caches);
+    }
+}
@@ -115,7 +115,7 @@ public class IntArrayList {
     }
 
 
-    private void trimToSize() {
+    public void trimToSize() {
         int oldCapacity = elements.length;
         if (size < oldCapacity) {
             int[] tmp = new int[size];
@@ -0,0 +1,224 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.collections;
+
+import java.util.Arrays;
+
+/**
+ * Hash map of int keys to int values.  Purpose is to avoid the boxing,  and the entry object per mapping,  of a
+ * java.util.HashMap<Integer, Integer>.  Keys are stored in a single open addressing table with linear probing.
+ * <p/>
+ * Values are returned as is,  {@link #get(int)} returns the "no entry" value supplied at construction (-1 by
+ * default) for missing keys.
+ */
+public class IntIntHashMap {
+
+    // Marks an empty slot.  A mapping for this key is held outside the table.
+    private static final int FREE_KEY = Integer.MIN_VALUE;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final int noEntryValue;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int threshold;
+    private int size;
+
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+
+    public IntIntHashMap() {
+        this(16);
+    }
+
+    public IntIntHashMap(int initialCapacity) {
+        this(initialCapacity, -1);
+    }
+
+    public IntIntHashMap(int initialCapacity, int noEntryValue) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal Capacity: " + initialCapacity);
+        this.noEntryValue = noEntryValue;
+        allocate(tableSize(initialCapacity));
+    }
+
+    public int getNoEntryValue() {
+        return noEntryValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        return keys[slot(key)] != FREE_KEY;
+    }
+
+    /**
+     * Return the value mapped to key,  or the "no entry" value if there is none.
+     */
+    public int get(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : noEntryValue;
+        }
+        int idx = slot(key);
+        return keys[idx] == FREE_KEY ? noEntryValue : values[idx];
+    }
+
+    /**
+     * Map key to value,  returning the previous value or the "no entry" value if there was none.
+     */
+    public int put(int key, int value) {
+        if (key == FREE_KEY) {
+            int previous = hasFreeKey ? freeKeyValue : noEntryValue;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return previous;
+        }
+
+        int idx = slot(key);
+        if (keys[idx] != FREE_KEY) {
+            int previous = values[idx];
+            values[idx] = value;
+            return previous;
+        }
+
+        keys[idx] = key;
+        values[idx] = value;
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+        return noEntryValue;
+    }
+
+    /**
+     * Return the value mapped to key.  If there is none map key to {@code value} and return that.  Saves the second
+     * lookup of a get followed by a put.
+     */
+    public int putIfAbsent(int key, int value) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                put(key, value);
+            }
+            return freeKeyValue;
+        }
+
+        int idx = slot(key);
+        if (keys[idx] != FREE_KEY) {
+            return values[idx];
+        }
+
+        keys[idx] = key;
+        values[idx] = value;
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+        return value;
+    }
+
+    /**
+     * Empty all mappings.  As with IntArrayList this does not free up any space.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    /**
+     * Return the keys,  in no particular order.
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        if (hasFreeKey) {
+            result[n++] = FREE_KEY;
+        }
+        for (int k : keys) {
+            if (k != FREE_KEY) {
+                result[n++] = k;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Index of the slot holding key,  or of the empty slot where it would be inserted
+     */
+    private int slot(int key) {
+        int idx = hash(key) & mask;
+        int k;
+        while ((k = keys[idx]) != FREE_KEY && k != key) {
+            idx = (idx + 1) & mask;
+        }
+        return idx;
+    }
+
+    // Genomic positions are mostly consecutive,  spread them over the table so probe runs stay short
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash(int newSize) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newSize);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int k = oldKeys[i];
+            if (k != FREE_KEY) {
+                int idx = slot(k);
+                keys[idx] = k;
+                values[idx] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int tableSize) {
+        keys = new int[tableSize];
+        values = new int[tableSize];
+        Arrays.fill(keys, FREE_KEY);
+        mask = tableSize - 1;
+        threshold = (int) (tableSize * LOAD_FACTOR);
+    }
+
+    private static int tableSize(int capacity) {
+        int n = Integer.highestOneBit(Math.max(2, (int) Math.ceil(capacity / LOAD_FACTOR)) - 1) << 1;
+        return Math.max(n, 2);
+    }
+}
@@ -27,9 +27,17 @@ package org.broad.igv.util.collections;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A least-recently-used cache with a maximum size that can be altered.
+ * <p>
+ * Entries are spread over independently locked segments,  so concurrent readers of different keys do not contend.
+ * Every access is stamped from a clock shared by all caches,  so the least recently used entry of a cache is the
+ * oldest of its segments' eldest entries,  and the least recently used entry across caches can be found the same
+ * way.  Caches constructed with a {@link Weigher} are additionally bounded by estimated size in bytes,  both per
+ * cache and by the global {@link CacheMemoryBudget}.
  *
  * @author jrobinso
  */
@@ -37,70 +45,325 @@ public class LRUCache<K, V> {
 
     //Logger log = Logger.getLogger(LRUCache.class);
 
+    /**
+     * Estimates the memory footprint of a cached value,  in bytes.
+     */
+    public interface Weigher<V> {
+        long weigh(V value);
+    }
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private static final AtomicLong clock = new AtomicLong();
+
+    private final Segment<K, V>[] segments;
+
     private AtomicInteger maxEntries;
 
-    private Map<K, V> map;
+    private final long maxBytes;
+
+    private final Weigher<? super V> weigher;
+
+    // Budget charged with the weight of this cache,  null if unweighted
+    private final CacheMemoryBudget budget;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong weight = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final Object evictionLock = new Object();
 
 
     public LRUCache(int max) {
+        this(max, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * @param max      maximum number of entries
+     * @param maxBytes maximum estimated size of this cache in bytes
+     * @param weigher  estimates the size of a value.  Weighted caches also count against the global
+     *                 {@link CacheMemoryBudget}
+     */
+    public LRUCache(int max, long maxBytes, Weigher<? super V> weigher) {
+        this(max, maxBytes, weigher, weigher == null ? null : CacheMemoryBudget.getInstance());
+    }
+
+    LRUCache(int max, long maxBytes, Weigher<? super V> weigher, CacheMemoryBudget budget) {
         this.maxEntries = new AtomicInteger(max);
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+        this.budget = weigher == null ? null : budget;
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>();
+        }
+        if (this.budget != null) {
+            this.budget.register(this);
+        }
     }
 
     public void setMaxEntries(int max) {
         this.maxEntries.set(max);
+        evict();
     }
 
-    private void createMap() {
-        map = Collections.synchronizedMap(
-                new LinkedHashMap<K, V>(16, 0.75f, true) {
-                    @Override
-                    protected boolean removeEldestEntry(Map.Entry eldest) {
-                        return (size() > maxEntries.get());
-                    }
-                });
-    }
+    public V put(K k, V v) {
+
+        long w = (weigher == null || v == null) ? 0 : weigher.weigh(v);
+        Entry<V> entry = new Entry<>(v, w, clock.incrementAndGet());
 
-    private Map<K, V> getMap() {
-        if (map == null) {
-            createMap();
+        Segment<K, V> segment = segmentFor(k);
+        Entry<V> old;
+        synchronized (segment) {
+            old = segment.put(k, entry);
         }
-        return map;
-    }
 
-    public V put(K k, V v) {
-        return getMap().put(k, v);
+        if (old == null) {
+            size.incrementAndGet();
+            addWeight(w);
+        } else {
+            addWeight(w - old.weight);
+        }
+
+        evict();
+        if (budget != null && budget.isExceeded()) {
+            budget.enforce();
+        }
+        return old == null ? null : old.value;
     }
 
     public V get(Object key) {
-        return getMap().get(key);
+        Segment<K, V> segment = segmentFor(key);
+        Entry<V> entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+            if (entry != null) {
+                entry.stamp = clock.incrementAndGet();
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        } else {
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    public V remove(Object key) {
+        Segment<K, V> segment = segmentFor(key);
+        Entry<V> entry;
+        synchronized (segment) {
+            entry = segment.remove(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+        size.decrementAndGet();
+        addWeight(-entry.weight);
+        return entry.value;
     }
 
     public boolean containsKey(Object o) {
-        return getMap().containsKey(o);
+        Segment<K, V> segment = segmentFor(o);
+        synchronized (segment) {
+            return segment.containsKey(o);
+        }
+    }
+
+    public int size() {
+        return size.get();
     }
 
     public boolean isEmpty() {
-        return getMap().isEmpty();    //To change body of overridden methods use File | Settings | File Templates.
+        return size.get() == 0;
     }
 
     public void clear() {
-        getMap().clear();
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                for (Entry<V> e : segment.values()) {
+                    size.decrementAndGet();
+                    addWeight(-e.weight);
+                }
+                segment.clear();
+            }
+        }
     }
 
+    /**
+     * @return a snapshot of the keys,  least recently used first
+     */
     public Set<K> keySet() {
-        return getMap().keySet();
+        List<Map.Entry<K, Entry<V>>> entries = snapshot();
+        Set<K> keys = new LinkedHashSet<>(entries.size());
+        for (Map.Entry<K, Entry<V>> e : entries) {
+            keys.add(e.getKey());
+        }
+        return keys;
     }
 
+    /**
+     * @return a snapshot of the values,  least recently used first
+     */
     public Collection<V> values() {
-        return getMap().values();
+        List<Map.Entry<K, Entry<V>>> entries = snapshot();
+        List<V> values = new ArrayList<>(entries.size());
+        for (Map.Entry<K, Entry<V>> e : entries) {
+            values.add(e.getValue().value);
+        }
+        return values;
     }
 
     public void putAll(Map<K, V> map) {
-        getMap().putAll(map);
+        for (Map.Entry<K, V> e : map.entrySet()) {
+            put(e.getKey(), e.getValue());
+        }
     }
 
     public void putAll(LRUCache<K, V> intervals) {
-        this.putAll(intervals.getMap());
+        for (Map.Entry<K, Entry<V>> e : intervals.snapshot()) {
+            put(e.getKey(), e.getValue().value);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the estimated size of the cached values in bytes,  0 if this cache has no weigher
+     */
+    public long getWeight() {
+        return weight.get();
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    private List<Map.Entry<K, Entry<V>>> snapshot() {
+        List<Map.Entry<K, Entry<V>>> entries = new ArrayList<>(size());
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                for (Map.Entry<K, Entry<V>> e : segment.entrySet()) {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), e.getValue()));
+                }
+            }
+        }
+        entries.sort(Comparator.comparingLong(e -> e.getValue().stamp));
+        return entries;
+    }
+
+    private void addWeight(long delta) {
+        if (delta != 0) {
+            weight.addAndGet(delta);
+            if (budget != null) {
+                budget.charge(delta);
+            }
+        }
+    }
+
+    private void evict() {
+        if (size.get() <= maxEntries.get() && weight.get() <= maxBytes) {
+            return;
+        }
+        synchronized (evictionLock) {
+            while (size.get() > maxEntries.get() || weight.get() > maxBytes) {
+                if (!evictEldest()) break;
+            }
+        }
+    }
+
+    /**
+     * @return the access stamp of the least recently used entry,  Long.MAX_VALUE if the cache is empty
+     */
+    long eldestStamp() {
+        long eldest = Long.MAX_VALUE;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                if (!segment.isEmpty()) {
+                    eldest = Math.min(eldest, segment.values().iterator().next().stamp);
+                }
+            }
+        }
+        return eldest;
+    }
+
+    /**
+     * Remove the least recently used entry.
+     *
+     * @return false if the cache is empty
+     */
+    boolean evictEldest() {
+        Segment<K, V> oldest = null;
+        long oldestStamp = Long.MAX_VALUE;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                if (!segment.isEmpty()) {
+                    long stamp = segment.values().iterator().next().stamp;
+                    if (stamp < oldestStamp) {
+                        oldestStamp = stamp;
+                        oldest = segment;
+                    }
+                }
+            }
+        }
+        if (oldest == null) {
+            return false;
+        }
+
+        Entry<V> removed = null;
+        synchronized (oldest) {
+            Iterator<Entry<V>> iter = oldest.values().iterator();
+            if (iter.hasNext()) {
+                removed = iter.next();
+                iter.remove();
+            }
+        }
+        if (removed != null) {
+            size.decrementAndGet();
+            addWeight(-removed.weight);
+            evictions.increment();
+        }
+        return true;
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long weight;
+        long stamp;
+
+        Entry(V value, long weight, long stamp) {
+            this.value = value;
+            this.weight = weight;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * Access ordered map,  guarded by its own monitor.
+     */
+    private static class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+        Segment() {
+            super(16, 0.75f, true);
+        }
     }
 
     /**
@@ -129,4 +392,3 @@ public class LRUCache<K, V> {
         }
     }
 }
-
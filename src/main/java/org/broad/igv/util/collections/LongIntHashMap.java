@@ -0,0 +1,239 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.collections;
+
+import java.util.Arrays;
+
+/**
+ * Hash map of long keys to int values.  The long counterpart of {@link IntIntHashMap},  useful where a pair of
+ * ints (e.g. a start and end position) is packed into a single key to avoid a two level map or a key object per
+ * mapping.  Keys are stored in a single open addressing table with linear probing.
+ * <p/>
+ * {@link #get(long)} returns the "no entry" value supplied at construction (-1 by default) for missing keys.
+ */
+public class LongIntHashMap {
+
+    // Marks an empty slot.  A mapping for this key is held outside the table.
+    private static final long FREE_KEY = Long.MIN_VALUE;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final int noEntryValue;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int threshold;
+    private int size;
+
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    public LongIntHashMap(int initialCapacity) {
+        this(initialCapacity, -1);
+    }
+
+    public LongIntHashMap(int initialCapacity, int noEntryValue) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal Capacity: " + initialCapacity);
+        this.noEntryValue = noEntryValue;
+        allocate(tableSize(initialCapacity));
+    }
+
+    /**
+     * Pack two ints into a long key,  {@code high} in the upper 32 bits.
+     */
+    public static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xffffffffL);
+    }
+
+    public static int high(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int low(long key) {
+        return (int) key;
+    }
+
+    public int getNoEntryValue() {
+        return noEntryValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        return keys[slot(key)] != FREE_KEY;
+    }
+
+    /**
+     * Return the value mapped to key,  or the "no entry" value if there is none.
+     */
+    public int get(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : noEntryValue;
+        }
+        int idx = slot(key);
+        return keys[idx] == FREE_KEY ? noEntryValue : values[idx];
+    }
+
+    /**
+     * Map key to value,  returning the previous value or the "no entry" value if there was none.
+     */
+    public int put(long key, int value) {
+        if (key == FREE_KEY) {
+            int previous = hasFreeKey ? freeKeyValue : noEntryValue;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return previous;
+        }
+
+        int idx = slot(key);
+        if (keys[idx] != FREE_KEY) {
+            int previous = values[idx];
+            values[idx] = value;
+            return previous;
+        }
+
+        keys[idx] = key;
+        values[idx] = value;
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+        return noEntryValue;
+    }
+
+    /**
+     * Return the value mapped to key.  If there is none map key to {@code value} and return that.  Saves the second
+     * lookup of a get followed by a put.
+     */
+    public int putIfAbsent(long key, int value) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                put(key, value);
+            }
+            return freeKeyValue;
+        }
+
+        int idx = slot(key);
+        if (keys[idx] != FREE_KEY) {
+            return values[idx];
+        }
+
+        keys[idx] = key;
+        values[idx] = value;
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+        return value;
+    }
+
+    /**
+     * Empty all mappings.  This does not free up any space.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    /**
+     * Return the keys,  in no particular order.
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int n = 0;
+        if (hasFreeKey) {
+            result[n++] = FREE_KEY;
+        }
+        for (long k : keys) {
+            if (k != FREE_KEY) {
+                result[n++] = k;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Index of the slot holding key,  or of the empty slot where it would be inserted
+     */
+    private int slot(long key) {
+        int idx = hash(key) & mask;
+        long k;
+        while ((k = keys[idx]) != FREE_KEY && k != key) {
+            idx = (idx + 1) & mask;
+        }
+        return idx;
+    }
+
+    // Packed keys differ mostly in the low bits of each half,  mix both halves before masking
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void rehash(int newSize) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newSize);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long k = oldKeys[i];
+            if (k != FREE_KEY) {
+                int idx = slot(k);
+                keys[idx] = k;
+                values[idx] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int tableSize) {
+        keys = new long[tableSize];
+        values = new int[tableSize];
+        Arrays.fill(keys, FREE_KEY);
+        mask = tableSize - 1;
+        threshold = (int) (tableSize * LOAD_FACTOR);
+    }
+
+    private static int tableSize(int capacity) {
+        int n = Integer.highestOneBit(Math.max(2, (int) Math.ceil(capacity / LOAD_FACTOR)) - 1) << 1;
+        return Math.max(n, 2);
+    }
+}
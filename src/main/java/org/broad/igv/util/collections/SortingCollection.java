@@ -25,7 +25,14 @@ package org.broad.igv.util.collections;
 
 
 import htsjdk.samtools.util.*;
-
+import org.apache.log4j.Logger;
+import org.broad.igv.util.LoadScheduler;
+import org.xerial.snappy.Snappy;
+import org.xerial.snappy.SnappyInputStream;
+import org.xerial.snappy.SnappyOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -43,6 +50,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Collection to which many records can be added.  After all records are added, the collection can be
@@ -51,16 +61,28 @@ import java.util.TreeSet;
  * the objects returned may not be identical to the objects added to the collection, but they should be
  * equal as determined by the codec used to write them to disk and read them back.
  *
- * When iterating over the collection, the number of file handles required is numRecordsInCollection/maxRecordsInRam.
- * If this becomes a limiting factor, a file handle cache could be added.
+ * When iterating over the collection, at most maxOpenFiles temporary files are open at once.  If more were
+ * spilled they are first merged in groups into larger temporary files.
  *
  * If Snappy DLL is available and snappy.disable system property is not set to true, then Snappy is used
- * to compress temporary files.
+ * to compress temporary files.  Compression with Snappy can also be requested explicitly with
+ * {@link #setCompressSpills(boolean)}.
+ *
+ * With {@link #setThreads(int)} > 1 full buffers are sorted and written on the {@link LoadScheduler} task lane while
+ * the caller continues adding records into a fresh buffer,  and groups of temporary files are merged in parallel.
+ * Each buffer then holds maxRecordsInRam / threads records,  so no more than maxRecordsInRam records are in memory
+ * at once.
  */
 public class SortingCollection<T> implements Iterable<T> {
 
+    private static Logger log = Logger.getLogger(SortingCollection.class);
+
     private static final int BUFFER_SIZE = 1024 * 128;
 
+    private static final int DEFAULT_MAX_OPEN_FILES = 128;
+
+    private static Boolean snappyAvailable;
+
     /**
      * Client must implement this class, which defines the way in which records are written to and
      * read from file.
@@ -114,6 +136,8 @@ public class SortingCollection<T> implements Iterable<T> {
      */
     private final Comparator<T> comparator;
     private final int maxRecordsInRam;
+    // Records per buffer,  maxRecordsInRam divided among buffers being filled and spilled
+    private int bufferSize;
     private int numRecordsInRam = 0;
     private T[] ramRecords;
     private boolean iterationStarted = false;
@@ -133,6 +157,19 @@ public class SortingCollection<T> implements Iterable<T> {
 
     private TempStreamFactory tempStreamFactory = new TempStreamFactory();
 
+    private final Class<T> componentType;
+
+    private int threads = 1;
+
+    /**
+     * Spills being sorted and written on the task lane,  in the order they were started
+     */
+    private final List<Future<File>> pendingSpills = new ArrayList<Future<File>>();
+
+    private boolean compressSpills = false;
+
+    private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+
     /**
      * Prepare to accumulate records to be sorted
      * @param componentType Class of the record to be sorted.  Necessary because of Java generic lameness.
@@ -152,9 +189,11 @@ public class SortingCollection<T> implements Iterable<T> {
         }
 
         this.tmpDirs = tmpDir;
+        this.componentType = componentType;
         this.codec = codec;
         this.comparator = comparator;
         this.maxRecordsInRam = maxRecordsInRam;
+        this.bufferSize = maxRecordsInRam;
         this.ramRecords = (T[])Array.newInstance(componentType, maxRecordsInRam);
     }
 
@@ -165,7 +204,7 @@ public class SortingCollection<T> implements Iterable<T> {
         if (iterationStarted) {
             throw new IllegalStateException("Cannot add after calling iterator()");
         }
-        if (numRecordsInRam == maxRecordsInRam) {
+        if (numRecordsInRam == bufferSize) {
             spillToDisk();
         }
         ramRecords[numRecordsInRam++] = rec;
@@ -186,18 +225,46 @@ public class SortingCollection<T> implements Iterable<T> {
 
         doneAdding = true;
 
-        if (this.files.isEmpty()) {
+        if (this.files.isEmpty() && this.pendingSpills.isEmpty()) {
             return;
         }
 
         if (this.numRecordsInRam > 0) {
             spillToDisk();
         }
+        awaitSpills(0);
 
         // Facilitate GC
         this.ramRecords = null;
     }
 
+    /**
+     * Set the number of threads used to sort and write spilled records,  and to merge temporary files.  Must be
+     * called before records are added.
+     */
+    public void setThreads(int threads) {
+        if (numRecordsInRam > 0 || !files.isEmpty() || !pendingSpills.isEmpty()) {
+            throw new IllegalStateException("Cannot set threads after adding records");
+        }
+        this.threads = Math.max(1, threads);
+        this.bufferSize = Math.max(1, maxRecordsInRam / this.threads);
+        this.ramRecords = (T[]) Array.newInstance(componentType, bufferSize);
+    }
+
+    /**
+     * If true temporary files are compressed with Snappy,  when it is available.
+     */
+    public void setCompressSpills(boolean compressSpills) {
+        this.compressSpills = compressSpills;
+    }
+
+    /**
+     * Set the maximum number of temporary files read at once when merging.
+     */
+    public void setMaxOpenFiles(int maxOpenFiles) {
+        this.maxOpenFiles = Math.max(2, maxOpenFiles);
+    }
+
     /**
      * @return True if this collection is allowed to discard data during iteration in order to reduce memory
      * footprint, precluding a second iteration over the collection.
@@ -218,17 +285,36 @@ public class SortingCollection<T> implements Iterable<T> {
      * Sort the records in memory, write them to a file, and clear the buffer of records in memory.
      */
     private void spillToDisk() {
+        if (threads > 1) {
+            // Hand the full buffer to the task lane,  and continue with a new one
+            final T[] records = this.ramRecords;
+            final int nRecords = this.numRecordsInRam;
+            // At most threads - 1 buffers being spilled,  plus the one being filled
+            awaitSpills(Math.max(0, threads - 2));
+            pendingSpills.add(getExecutor().submit(() -> writeSorted(records, nRecords)));
+            this.ramRecords = (T[]) Array.newInstance(componentType, bufferSize);
+        } else {
+            this.files.add(writeSorted(this.ramRecords, this.numRecordsInRam));
+        }
+        this.numRecordsInRam = 0;
+    }
+
+    /**
+     * Sort the first nRecords records and write them to a new temporary file.
+     */
+    private File writeSorted(T[] records, int nRecords) {
         try {
-            Arrays.sort(this.ramRecords, 0, this.numRecordsInRam, this.comparator);
+            Arrays.sort(records, 0, nRecords, this.comparator);
             final File f = newTempFile();
             OutputStream os = null;
             try {
-                os = tempStreamFactory.wrapTempOutputStream(new FileOutputStream(f), BUFFER_SIZE);
-                this.codec.setOutputStream(os);
-                for (int i = 0; i < this.numRecordsInRam; ++i) {
-                    this.codec.encode(ramRecords[i]);
+                os = openTempOutputStream(f);
+                final Codec<T> codec = threads > 1 ? this.codec.clone() : this.codec;
+                codec.setOutputStream(os);
+                for (int i = 0; i < nRecords; ++i) {
+                    codec.encode(records[i]);
                     // Facilitate GC
-                    this.ramRecords[i] = null;
+                    records[i] = null;
                 }
 
                 os.flush();
@@ -240,10 +326,7 @@ public class SortingCollection<T> implements Iterable<T> {
                     os.close();
                 }
             }
-
-            this.numRecordsInRam = 0;
-            this.files.add(f);
-
+            return f;
         }
         catch (IOException e) {
             throw new RuntimeIOException(e);
@@ -251,9 +334,110 @@ public class SortingCollection<T> implements Iterable<T> {
     }
 
     /**
-     * Creates a new tmp file on one of the available temp filesystems, registers it for deletion
-     * on JVM exit and then returns it.
+     * Wait until no more than maxPending spills are in progress,  adding completed files in spill order.
      */
+    private void awaitSpills(int maxPending) {
+        while (pendingSpills.size() > maxPending) {
+            try {
+                this.files.add(pendingSpills.remove(0).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeIOException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeIOException(e.getCause());
+            }
+        }
+    }
+
+    private static ExecutorService getExecutor() {
+        return LoadScheduler.getInstance().getTaskExecutor();
+    }
+
+    private OutputStream openTempOutputStream(File f) throws IOException {
+        if (compressSpills && isSnappyAvailable()) {
+            return new SnappyOutputStream(new BufferedOutputStream(new FileOutputStream(f), BUFFER_SIZE));
+        }
+        return tempStreamFactory.wrapTempOutputStream(new FileOutputStream(f), BUFFER_SIZE);
+    }
+
+    private InputStream openTempInputStream(InputStream is) throws IOException {
+        if (compressSpills && isSnappyAvailable()) {
+            return new SnappyInputStream(new BufferedInputStream(is, BUFFER_SIZE));
+        }
+        return tempStreamFactory.wrapTempInputStream(is, BUFFER_SIZE);
+    }
+
+    private static synchronized boolean isSnappyAvailable() {
+        if (snappyAvailable == null) {
+            try {
+                Snappy.compress(new byte[]{0});
+                snappyAvailable = true;
+            } catch (Throwable e) {
+                log.info("Snappy is not available,  temporary files will not be compressed");
+                snappyAvailable = false;
+            }
+        }
+        return snappyAvailable;
+    }
+
+    /**
+     * Merge groups of temporary files until no more than maxOpenFiles remain.  Groups are consecutive,  so records
+     * that compare equal keep the order in which they were added.
+     */
+    private void mergeFiles() {
+        while (this.files.size() > maxOpenFiles) {
+            List<List<File>> groups = new ArrayList<List<File>>();
+            for (int i = 0; i < files.size(); i += maxOpenFiles) {
+                groups.add(new ArrayList<File>(files.subList(i, Math.min(files.size(), i + maxOpenFiles))));
+            }
+
+            List<File> merged = new ArrayList<File>(groups.size());
+            if (threads > 1) {
+                List<Future<File>> futures = new ArrayList<Future<File>>(groups.size());
+                for (final List<File> group : groups) {
+                    futures.add(getExecutor().submit(() -> mergeGroup(group)));
+                }
+                pendingSpills.addAll(futures);
+                this.files.clear();
+                awaitSpills(0);
+                merged.addAll(this.files);
+            } else {
+                for (List<File> group : groups) {
+                    merged.add(mergeGroup(group));
+                }
+            }
+            this.files.clear();
+            this.files.addAll(merged);
+        }
+    }
+
+    private File mergeGroup(List<File> group) {
+        if (group.size() == 1) {
+            return group.get(0);
+        }
+        MergingIterator iter = new MergingIterator(group);
+        try {
+            final File f = newTempFile();
+            try (OutputStream os = openTempOutputStream(f)) {
+                final Codec<T> codec = this.codec.clone();
+                codec.setOutputStream(os);
+                while (iter.hasNext()) {
+                    codec.encode(iter.next());
+                }
+                os.flush();
+            }
+            return f;
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        } finally {
+            iter.close();
+            IOUtil.deleteFiles(group);
+        }
+    }
+
     private File newTempFile() throws IOException {
         return IOUtil.newTempFile("sortingcollection.", ".tmp", this.tmpDirs, TMP_SPACE_FREE);
     }
@@ -272,7 +456,8 @@ public class SortingCollection<T> implements Iterable<T> {
         if (this.files.isEmpty()) {
             return new InMemoryIterator();
         } else {
-            return new MergingIterator();
+            mergeFiles();
+            return new MergingIterator(this.files);
         }
     }
 
@@ -283,6 +468,12 @@ public class SortingCollection<T> implements Iterable<T> {
         this.iterationStarted = true;
         this.cleanedUp = true;
 
+        // Let spills in progress finish,  so their files are deleted too
+        try {
+            awaitSpills(0);
+        } catch (RuntimeException e) {
+            log.error("Error writing temporary file", e);
+        }
         IOUtil.deleteFiles(this.files);
     }
 
@@ -351,10 +542,17 @@ public class SortingCollection<T> implements Iterable<T> {
         private int iterationIndex = 0;
 
         InMemoryIterator() {
-            Arrays.sort(SortingCollection.this.ramRecords,
-                    0,
-                    SortingCollection.this.numRecordsInRam,
-                    SortingCollection.this.comparator);
+            if (threads > 1) {
+                Arrays.parallelSort(SortingCollection.this.ramRecords,
+                        0,
+                        SortingCollection.this.numRecordsInRam,
+                        SortingCollection.this.comparator);
+            } else {
+                Arrays.sort(SortingCollection.this.ramRecords,
+                        0,
+                        SortingCollection.this.numRecordsInRam,
+                        SortingCollection.this.comparator);
+            }
         }
 
         public void close() {
@@ -398,10 +596,10 @@ public class SortingCollection<T> implements Iterable<T> {
     class MergingIterator implements CloseableIterator<T> {
         private final PollableTreeSet<PeekFileRecordIterator> queue;
 
-        MergingIterator() {
+        MergingIterator(List<File> files) {
             this.queue = new PollableTreeSet<PeekFileRecordIterator>(new PeekFileRecordIteratorComparator());
             int n = 0;
-            for (final File f : SortingCollection.this.files) {
+            for (final File f : files) {
                 final FileRecordIterator it = new FileRecordIterator(f);
                 if (it.hasNext()) {
                     this.queue.add(new PeekFileRecordIterator(it, n++));
@@ -459,10 +657,10 @@ public class SortingCollection<T> implements Iterable<T> {
             try {
                 this.is = new FileInputStream(file);
                 this.codec = SortingCollection.this.codec.clone();
-                this.codec.setInputStream(tempStreamFactory.wrapTempInputStream(this.is, BUFFER_SIZE));
+                this.codec.setInputStream(openTempInputStream(this.is));
                 advance();
             }
-            catch (FileNotFoundException e) {
+            catch (IOException e) {
                 throw new RuntimeIOException(e);
             }
         }
@@ -47,6 +47,24 @@ public class IGVSeekableHTTPStream extends SeekableStream {
     private long position = 0;
     private URL url;
     long contentLength = -1;                      // Not set
+    private String resourceVersion;               // From the most recent range response
+
+    private final RemoteBlockCache.RangeFetcher fetcher = new RemoteBlockCache.RangeFetcher() {
+        @Override
+        public int fetch(long position, byte[] buffer, int offset, int len) throws IOException {
+            return readRange(position, buffer, offset, len);
+        }
+
+        @Override
+        public String getValidator() {
+            return resourceVersion;
+        }
+
+        @Override
+        public long getContentLength() {
+            return contentLength;
+        }
+    };
 
     public IGVSeekableHTTPStream(final URL url) {
         this.url = url;
@@ -105,23 +123,41 @@ public class IGVSeekableHTTPStream extends SeekableStream {
             return 0;
         }
 
+        int n;
+        if (RemoteBlockCache.isEnabled()) {
+            n = RemoteBlockCache.getInstance().read(url.toExternalForm(), position, buffer, offset, len, fetcher);
+        } else {
+            n = readRange(position, buffer, offset, len);
+        }
+        if (n > 0) {
+            position += n;
+        }
+        return n;
+    }
+
+    /**
+     * Read up to len bytes starting at start with a single range request.  Fewer than len bytes are returned only
+     * at end of file.
+     */
+    private int readRange(long start, byte[] buffer, int offset, int len) throws IOException {
+
         InputStream is = null;
         int n = 0;
         try {
 
-            if (contentLength > 0 && position >= contentLength) {
+            if (contentLength > 0 && start >= contentLength) {
                 return -1;  // EOF
             }
 
-            long endRange = position + len - 1;
+            long endRange = start + len - 1;
             // IF we know the total content length, limit the end range to that.
             if (contentLength > 0) {
                 endRange = Math.min(endRange, contentLength);
             }
             if (log.isTraceEnabled()) {
-                log.trace("Trying to read range " + position + " to " + endRange);
+                log.trace("Trying to read range " + start + " to " + endRange);
             }
-            is = openInputStreamForRange(position, endRange);
+            is = openInputStreamForRange(start, endRange);
 
             while (n < len) {
                 int count = is.read(buffer, offset + n, len - n);
@@ -135,17 +171,16 @@ public class IGVSeekableHTTPStream extends SeekableStream {
                 n += count;
             }
 
-            position += n;
             return n;
 
         } catch (HttpUtils.UnsatisfiableRangeException e) {
-            return handleUnsatisfiableRange(n);
+            return handleUnsatisfiableRange(start, n);
         }
 
         catch (IOException e) {
 
             if (e.getMessage().contains("416") || (e instanceof EOFException)) {
-                return handleUnsatisfiableRange(n);
+                return handleUnsatisfiableRange(start, n);
             } else {
                 throw e;
             }
@@ -157,16 +192,10 @@ public class IGVSeekableHTTPStream extends SeekableStream {
         }
     }
 
-    private int handleUnsatisfiableRange(int n) {
-        if (n == 0) {
-            contentLength = position;
-            return -1;
-        } else {
-            position += n;
-            // As we are at EOF, the contentLength and position are by definition =
-            contentLength = position;
-            return n;
-        }
+    private int handleUnsatisfiableRange(long start, int n) {
+        // As we are at EOF, the contentLength and end of the read are by definition =
+        contentLength = start + n;
+        return n == 0 ? -1 : n;
     }
 
 
@@ -192,6 +221,11 @@ public class IGVSeekableHTTPStream extends SeekableStream {
 
         try {
             InputStream input = conn.getInputStream();
+            resourceVersion = HttpUtils.getInstance().getResourceVersion(conn);
+            long length = HttpUtils.getContentRangeLength(conn);
+            if (length >= 0) {
+                contentLength = length;
+            }
             return input;
         } catch (IOException e) {
             HttpUtils.getInstance().readErrorStream(conn);  // Consume content
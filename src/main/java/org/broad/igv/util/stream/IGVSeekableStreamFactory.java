@@ -29,6 +29,8 @@ import htsjdk.samtools.seekablestream.ISeekableStreamFactory;
 import htsjdk.samtools.seekablestream.SeekableFileStream;
 import htsjdk.samtools.seekablestream.SeekableStream;
 import org.broad.igv.ga4gh.GoogleUtils;
+import org.broad.igv.prefs.Constants;
+import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.util.HttpUtils;
 
 import java.io.File;
@@ -81,7 +83,12 @@ public class IGVSeekableStreamFactory implements ISeekableStreamFactory {
                 final URL url = HttpUtils.createURL(path);
                 is = new IGVSeekableFTPStream(url);
             } else {
-                is = new SeekableFileStream(new File(path));
+                File file = new File(path);
+                if (useMappedFile(file)) {
+                    is = new MappedFileSeekableStream(file);
+                } else {
+                    is = new SeekableFileStream(file);
+                }
             }
             return is;
         }
@@ -92,7 +99,15 @@ public class IGVSeekableStreamFactory implements ISeekableStreamFactory {
     }
 
     public SeekableStream getBufferedStream(SeekableStream stream, int bufferSize){
+        if (stream instanceof MappedFileSeekableStream) {
+            return stream;  // Already in memory,  buffering would only add a copy
+        }
         return new IGVSeekableBufferedStream(stream, bufferSize);
     }
 
+    private static boolean useMappedFile(File file) {
+        return file.isFile() && file.length() > 0 &&
+                PreferencesManager.getPreferences().getAsBoolean(Constants.LOCAL_FILE_MAPPING);
+    }
+
 }
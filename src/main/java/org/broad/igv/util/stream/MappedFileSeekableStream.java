@@ -0,0 +1,201 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.stream;
+
+import htsjdk.samtools.seekablestream.SeekableStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A seekable stream over a memory mapped local file.  Mappings are shared by all streams open on the same file,
+ * so opening a stream is cheap,  and {@link #read(long, byte[], int, int)} reads at an absolute position without
+ * locking or touching the stream position,  so a single stream can be shared by concurrent readers.
+ */
+public class MappedFileSeekableStream extends SeekableStream {
+
+    // Files larger than this are mapped as several regions
+    static final int REGION_SIZE = 1 << 30;
+
+    // Held weakly,  a mapping is released once no open stream refers to it.  Cleared references are enqueued on
+    // staleRefs and their entries removed on the next lookup.
+    private static final Map<String, MappedFileRef> mappedFiles = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<MappedFile> staleRefs = new ReferenceQueue<>();
+
+    private final File file;
+    private final MappedFile mappedFile;
+    private long position = 0;
+
+    public MappedFileSeekableStream(File file) throws IOException {
+        this.file = file;
+        this.mappedFile = getMappedFile(file);
+    }
+
+    /**
+     * Read up to len bytes starting at the absolute file position pos directly into buffer.  Does not change the
+     * stream position,  and is safe to call from multiple threads.
+     *
+     * @return the number of bytes read,  or -1 if pos is at or past the end of the file
+     */
+    public int read(long pos, byte[] buffer, int offset, int len) {
+        if (pos >= mappedFile.length) {
+            return len == 0 ? 0 : -1;
+        }
+        int n = (int) Math.min(len, mappedFile.length - pos);
+        int count = 0;
+        while (count < n) {
+            long p = pos + count;
+            ByteBuffer region = mappedFile.regions[(int) (p / REGION_SIZE)].duplicate();
+            region.position((int) (p % REGION_SIZE));
+            int c = Math.min(n - count, region.remaining());
+            region.get(buffer, offset + count, c);
+            count += c;
+        }
+        return n;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = read(position, buffer, offset, length);
+        if (n > 0) {
+            position += n;
+        }
+        return n;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position >= mappedFile.length) {
+            return -1;
+        }
+        int b = mappedFile.regions[(int) (position / REGION_SIZE)].get((int) (position % REGION_SIZE)) & 0xFF;
+        position++;
+        return b;
+    }
+
+    @Override
+    public long length() {
+        return mappedFile.length;
+    }
+
+    @Override
+    public long position() throws IOException {
+        return position;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        this.position = position;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long bytesToSkip = Math.max(0, Math.min(n, mappedFile.length - position));
+        position += bytesToSkip;
+        return bytesToSkip;
+    }
+
+    @Override
+    public boolean eof() throws IOException {
+        return position >= mappedFile.length;
+    }
+
+    @Override
+    public String getSource() {
+        return file.getAbsolutePath();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping is shared,  it is released when no longer referenced
+    }
+
+    /**
+     * Return the shared mapping of file,  remapping if the file has changed since it was mapped.
+     */
+    private static MappedFile getMappedFile(File file) throws IOException {
+        Reference<? extends MappedFile> stale;
+        while ((stale = staleRefs.poll()) != null) {
+            MappedFileRef staleRef = (MappedFileRef) stale;
+            mappedFiles.remove(staleRef.key, staleRef);
+        }
+
+        String key = file.getCanonicalPath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        MappedFileRef ref = mappedFiles.get(key);
+        MappedFile mf = ref == null ? null : ref.get();
+        if (mf == null || mf.length != length || mf.lastModified != lastModified) {
+            mf = new MappedFile(file, length, lastModified);
+            mappedFiles.put(key, new MappedFileRef(key, mf));
+        }
+        return mf;
+    }
+
+    static int getMappedFileCount() {
+        return mappedFiles.size();
+    }
+
+    private static class MappedFileRef extends WeakReference<MappedFile> {
+
+        final String key;
+
+        MappedFileRef(String key, MappedFile mf) {
+            super(mf, staleRefs);
+            this.key = key;
+        }
+    }
+
+    private static class MappedFile {
+
+        final long length;
+        final long lastModified;
+        final MappedByteBuffer[] regions;
+
+        MappedFile(File file, long length, long lastModified) throws IOException {
+            this.length = length;
+            this.lastModified = lastModified;
+            int nRegions = (int) ((length + REGION_SIZE - 1) / REGION_SIZE);
+            regions = new MappedByteBuffer[nRegions];
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                 FileChannel channel = raf.getChannel()) {
+                for (int i = 0; i < nRegions; i++) {
+                    long start = (long) i * REGION_SIZE;
+                    regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE, length - start));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.stream;
+
+import org.apache.log4j.Logger;
+import org.broad.igv.DirectoryManager;
+import org.broad.igv.prefs.Constants;
+import org.broad.igv.prefs.PreferencesManager;
+import org.broad.igv.util.collections.LRUCache;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of fixed size blocks of remote files,  shared by all remote seekable streams.  Blocks are keyed by
+ * (URL, block offset).  A read that spans several uncached blocks fetches each run of adjacent missing blocks
+ * with a single range request.  Blocks can optionally be persisted to a local directory so they survive across
+ * sessions.
+ * <p>
+ * Cached blocks are tagged with a validator for the resource (ETag,  Last-Modified,  or length),  taken from the
+ * response to the first range request for a url in a session.  That first read always goes to the server.  If the
+ * validator has changed the url's blocks are discarded.  Blocks of resources without a validator are cached in
+ * memory only.
+ * <p>
+ * A block shorter than BLOCK_SIZE marks the end of the file,  and is cached only if the resource length is known
+ * and confirms it.  The disk cache is pruned to its size limit,  least recently used blocks first,  when the cache
+ * is created.
+ */
+public class RemoteBlockCache {
+
+    private static Logger log = Logger.getLogger(RemoteBlockCache.class);
+
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private static RemoteBlockCache instance;
+
+    private final LRUCache<BlockKey, byte[]> blocks;
+
+    private final File diskDirectory;
+
+    // Validators of urls checked this session,  "" if the server provides none
+    private final Map<String, String> validators = new ConcurrentHashMap<>();
+
+    /**
+     * Fetches a byte range from the remote resource.
+     */
+    public interface RangeFetcher {
+
+        /**
+         * Read up to len bytes starting at position.  Returns the number of bytes read,  which should be less than
+         * len only at end of file,  or -1 if position is at or past the end of file.
+         */
+        int fetch(long position, byte[] buffer, int offset, int len) throws IOException;
+
+        /**
+         * Return a string identifying the version of the resource seen by the most recent fetch,  e.g. its ETag,
+         * or null if none is available.
+         */
+        default String getValidator() {
+            return null;
+        }
+
+        /**
+         * Return the length of the resource if known,  e.g. from the Content-Range of the most recent fetch,  or -1.
+         */
+        default long getContentLength() {
+            return -1;
+        }
+    }
+
+    public static synchronized RemoteBlockCache getInstance() {
+        if (instance == null) {
+            int sizeMB = PreferencesManager.getPreferences().getAsInt(Constants.REMOTE_BLOCK_CACHE_SIZE);
+            File dir = null;
+            if (PreferencesManager.getPreferences().getAsBoolean(Constants.REMOTE_BLOCK_CACHE_DISK)) {
+                dir = new File(DirectoryManager.getIgvDirectory(), "blocks");
+                if (!dir.exists() && !dir.mkdir()) {
+                    log.error("Could not create block cache directory " + dir.getAbsolutePath());
+                    dir = null;
+                }
+            }
+            if (dir != null) {
+                int diskSizeMB = PreferencesManager.getPreferences().getAsInt(Constants.REMOTE_BLOCK_CACHE_DISK_SIZE);
+                pruneDirectory(dir, diskSizeMB * 1000000L);
+            }
+            instance = new RemoteBlockCache(sizeMB * 1000000L, dir);
+        }
+        return instance;
+    }
+
+    public static boolean isEnabled() {
+        return PreferencesManager.getPreferences().getAsBoolean(Constants.REMOTE_BLOCK_CACHE);
+    }
+
+    RemoteBlockCache(long maxBytes, File diskDirectory) {
+        this.blocks = new LRUCache<>(Integer.MAX_VALUE, maxBytes, b -> b.length);
+        this.diskDirectory = diskDirectory;
+    }
+
+    /**
+     * Read len bytes of the resource identified by url starting at position,  fetching missing blocks with fetcher.
+     *
+     * @return the number of bytes read,  or -1 if position is at or past the end of file
+     */
+    public int read(String url, long position, byte[] buffer, int offset, int len, RangeFetcher fetcher) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+
+        // Cached blocks of a url not yet validated this session can't be trusted,  fetch the whole range
+        boolean validated = validators.containsKey(url);
+
+        long firstBlock = position / BLOCK_SIZE;
+        int nBlocks = (int) ((position + len - 1) / BLOCK_SIZE - firstBlock + 1);
+
+        byte[][] data = new byte[nBlocks][];
+        for (int i = 0; validated && i < nBlocks; i++) {
+            data[i] = getBlock(new BlockKey(url, firstBlock + i));
+            if (data[i] != null && data[i].length < BLOCK_SIZE) {
+                nBlocks = i + 1;   // End of file
+                break;
+            }
+        }
+
+        // Coalesce each run of adjacent missing blocks into a single request
+        int i = 0;
+        while (i < nBlocks) {
+            if (data[i] == null) {
+                int j = i + 1;
+                while (j < nBlocks && data[j] == null) j++;
+                int fetched = fetchBlocks(url, firstBlock + i, j - i, data, i, fetcher);
+                if (fetched < j - i) {
+                    nBlocks = i + fetched;   // End of file
+                    break;
+                }
+                i = j;
+            } else {
+                i++;
+            }
+        }
+
+        int n = 0;
+        int blockOffset = (int) (position - firstBlock * BLOCK_SIZE);
+        for (i = 0; i < nBlocks && n < len; i++) {
+            byte[] block = data[i];
+            if (block == null || block.length <= blockOffset) {
+                break;
+            }
+            int count = Math.min(block.length - blockOffset, len - n);
+            System.arraycopy(block, blockOffset, buffer, offset + n, count);
+            n += count;
+            blockOffset = 0;
+            if (block.length < BLOCK_SIZE) {
+                break;
+            }
+        }
+        return n == 0 ? -1 : n;
+    }
+
+    public void clear() {
+        blocks.clear();
+        validators.clear();
+    }
+
+    public long getHitCount() {
+        return blocks.getHitCount();
+    }
+
+    public long getMissCount() {
+        return blocks.getMissCount();
+    }
+
+    /**
+     * Fetch nBlocks blocks starting at block first with a single range request.  A short response is accepted as
+     * the end of the file only if it reaches the resource length.  Otherwise,  if the length is known,  the request
+     * is retried once before failing.  If the length is unknown the partial block is returned but not cached.
+     *
+     * @return the number of blocks returned,  fewer than nBlocks if the request runs past the end of the file
+     */
+    private int fetchBlocks(String url, long first, int nBlocks, byte[][] data, int dataOffset, RangeFetcher fetcher) throws IOException {
+
+        long position = first * BLOCK_SIZE;
+        byte[] buffer = new byte[nBlocks * BLOCK_SIZE];
+        int total = Math.max(0, fetcher.fetch(position, buffer, 0, buffer.length));
+        if (total < buffer.length && fetcher.getContentLength() >= 0 && position + total < fetcher.getContentLength()) {
+            log.warn("Short read of " + url + " at " + position + ",  retrying");
+            total = Math.max(0, fetcher.fetch(position, buffer, 0, buffer.length));
+            if (total < buffer.length && position + total < fetcher.getContentLength()) {
+                throw new IOException("Short read of " + url + ": expected " +
+                        Math.min(buffer.length, fetcher.getContentLength() - position) + " bytes at " + position +
+                        ",  received " + total);
+            }
+        }
+        boolean eof = total < buffer.length && fetcher.getContentLength() >= 0;
+
+        if (total > 0 && !validators.containsKey(url)) {
+            validate(url, fetcher.getValidator());
+        }
+        boolean persist = !validators.getOrDefault(url, "").isEmpty();
+
+        int returned = 0;
+        for (int b = 0; b < nBlocks; b++) {
+            int start = b * BLOCK_SIZE;
+            if (start > total) {
+                break;
+            }
+            byte[] block = Arrays.copyOfRange(buffer, start, Math.min(total, start + BLOCK_SIZE));
+            if (block.length == BLOCK_SIZE || eof) {
+                BlockKey key = new BlockKey(url, first + b);
+                blocks.put(key, block);
+                if (persist) {
+                    writeToDisk(key, block);
+                }
+            }
+            data[dataOffset + b] = block;
+            returned++;
+            if (block.length < BLOCK_SIZE) {
+                break;
+            }
+        }
+        return returned;
+    }
+
+    /**
+     * Compare the resource's current validator with the one recorded for its cached blocks,  discarding the blocks
+     * if it has changed.
+     */
+    private synchronized void validate(String url, String validator) {
+
+        if (validators.containsKey(url)) {
+            return;
+        }
+
+        String current = validator == null ? "" : BLOCK_SIZE + " " + validator;
+
+        String previous = null;
+        File validatorFile = null;
+        if (diskDirectory != null) {
+            validatorFile = new File(diskDirectory, BlockKey.getFilePrefix(url) + ".validator");
+            previous = readValidator(validatorFile);
+        }
+
+        if (validator == null || !current.equals(previous)) {
+            for (BlockKey key : blocks.keySet()) {
+                if (key.url.equals(url)) {
+                    blocks.remove(key);
+                }
+            }
+            if (diskDirectory != null) {
+                String prefix = BlockKey.getFilePrefix(url) + "_";
+                File[] files = diskDirectory.listFiles((dir, name) -> name.startsWith(prefix));
+                if (files != null) {
+                    for (File f : files) {
+                        f.delete();
+                    }
+                }
+                if (validator == null) {
+                    validatorFile.delete();
+                } else {
+                    writeValidator(validatorFile, current);
+                }
+            }
+        }
+        validators.put(url, current);
+    }
+
+    private String readValidator(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            return reader.readLine();
+        } catch (IOException e) {
+            log.error("Error reading block cache validator " + file.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    private void writeValidator(File file, String validator) {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(validator);
+        } catch (IOException e) {
+            log.error("Error writing block cache validator " + file.getAbsolutePath(), e);
+            file.delete();
+        }
+    }
+
+    private byte[] getBlock(BlockKey key) {
+        byte[] block = blocks.get(key);
+        if (block == null && diskDirectory != null) {
+            block = readFromDisk(key);
+            if (block != null) {
+                blocks.put(key, block);
+            }
+        }
+        return block;
+    }
+
+    private byte[] readFromDisk(BlockKey key) {
+        File file = new File(diskDirectory, key.getFileName());
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] block = new byte[(int) file.length()];
+            dis.readFully(block);
+            file.setLastModified(System.currentTimeMillis());   // Recency for pruning
+            return block;
+        } catch (IOException e) {
+            log.error("Error reading cached block " + file.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    private void writeToDisk(BlockKey key, byte[] block) {
+        if (diskDirectory == null) {
+            return;
+        }
+        File file = new File(diskDirectory, key.getFileName());
+        File tmp = new File(diskDirectory, key.getFileName() + ".tmp");
+        try (OutputStream os = new FileOutputStream(tmp)) {
+            os.write(block);
+        } catch (IOException e) {
+            log.error("Error writing cached block " + file.getAbsolutePath(), e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Delete the least recently used block files in dir until the total size of the blocks is at most maxBytes.
+     * Partially written files are always deleted.
+     */
+    static void pruneDirectory(File dir, long maxBytes) {
+
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        List<File> blockFiles = new ArrayList<>();
+        long total = 0;
+        for (File f : files) {
+            String name = f.getName();
+            if (name.endsWith(".tmp")) {
+                f.delete();
+            } else if (!name.endsWith(".validator")) {
+                blockFiles.add(f);
+                total += f.length();
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        blockFiles.sort(Comparator.comparingLong(File::lastModified));
+        int deleted = 0;
+        for (File f : blockFiles) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long length = f.length();
+            if (f.delete()) {
+                total -= length;
+                deleted++;
+            }
+        }
+        log.info("Pruned " + deleted + " blocks from " + dir.getAbsolutePath());
+    }
+
+    static class BlockKey {
+
+        final String url;
+        final long block;
+
+        BlockKey(String url, long block) {
+            this.url = url;
+            this.block = block;
+        }
+
+        String getFileName() {
+            return getFilePrefix(url) + "_" + block;
+        }
+
+        static String getFilePrefix(String url) {
+            try {
+                MessageDigest md = MessageDigest.getInstance("MD5");
+                byte[] digest = md.digest(url.getBytes(StandardCharsets.UTF_8));
+                StringBuilder sb = new StringBuilder();
+                for (byte b : digest) {
+                    sb.append(String.format("%02x", b));
+                }
+                return sb.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof BlockKey)) return false;
+            BlockKey other = (BlockKey) o;
+            return block == other.block && url.equals(other.url);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * url.hashCode() + (int) (block ^ (block >>> 32));
+        }
+    }
+}
@@ -26,6 +26,7 @@
 package org.broad.igv.variant;
 
 import htsjdk.tribble.Feature;
+import htsjdk.variant.variantcontext.GenotypeType;
 
 import java.util.Collection;
 import java.util.List;
@@ -119,6 +120,18 @@ public interface Variant extends Feature {
      */
     Genotype getGenotype(String sample);
 
+    /**
+     * Return the genotype type for the given sample,  or null if there is no such sample.  Implementations can
+     * answer this without building the full genotype.
+     *
+     * @param sample
+     * @return
+     */
+    default GenotypeType getGenotypeType(String sample) {
+        Genotype genotype = getGenotype(sample);
+        return genotype == null ? null : genotype.getType();
+    }
+
     /**
      * @return the list of filters applied to this variant.  Should not return null, return an empty collection if no filters.
      */
@@ -25,6 +25,7 @@
 
 package org.broad.igv.variant;
 
+import htsjdk.variant.variantcontext.GenotypeType;
 import org.apache.log4j.Logger;
 import org.broad.igv.track.AttributeManager;
 import org.broad.igv.track.Track;
@@ -387,8 +388,8 @@ public class VariantMenu extends IGVPopupMenu {
 
         public int compare(String e1, String e2) {
 
-            int genotype1 = classifyGenotype(variant.getGenotype(e1));
-            int genotype2 = classifyGenotype(variant.getGenotype(e2));
+            int genotype1 = classifyGenotype(variant.getGenotypeType(e1));
+            int genotype2 = classifyGenotype(variant.getGenotypeType(e2));
 
             if (genotype2 == genotype1) {
                 return 0;
@@ -400,15 +401,15 @@ public class VariantMenu extends IGVPopupMenu {
         }
 
 
-        private int classifyGenotype(Genotype genotype) {
+        private int classifyGenotype(GenotypeType type) {
 
-            if (genotype.isNoCall()) {
+            if (type == GenotypeType.NO_CALL) {
                 return genotypeSortingDirection ? 1 : 10;
-            } else if (genotype.isHomVar()) {
+            } else if (type == GenotypeType.HOM_VAR) {
                 return 4;
-            } else if (genotype.isHet()) {
+            } else if (type == GenotypeType.HET) {
                 return 3;
-            } else if (genotype.isHomRef()) {
+            } else if (type == GenotypeType.HOM_REF) {
                 return genotypeSortingDirection ? 2 : 9;
             }
             return -1; //Unknown
@@ -25,6 +25,7 @@
 
 package org.broad.igv.variant;
 
+import htsjdk.variant.variantcontext.GenotypeType;
 import org.apache.log4j.Logger;
 import org.broad.igv.prefs.IGVPreferences;
 import org.broad.igv.prefs.PreferencesManager;
@@ -222,9 +223,17 @@ public class VariantRenderer { //extends FeatureRenderer {
 
         boolean isFiltered = variant.isFiltered() && hideFiltered;
 
-        Genotype genotype = variant.getGenotype(sampleName);
+        // Coloring by genotype needs only the type,  which doesn't require decoding the full genotype
+        Genotype genotype = null;
+        GenotypeType genotypeType;
+        if (coloring == VariantTrack.ColorMode.GENOTYPE) {
+            genotypeType = variant.getGenotypeType(sampleName);
+        } else {
+            genotype = variant.getGenotype(sampleName);
+            genotypeType = genotype == null ? null : genotype.getType();
+        }
 
-        if (genotype == null) {
+        if (genotypeType == null) {
             log.error("Genotype not found for sample " + sampleName);
         } else {
             Color b1Color = Color.gray;
@@ -235,7 +244,7 @@ public class VariantRenderer { //extends FeatureRenderer {
             switch (coloring) {
                 case GENOTYPE:
 
-                    b1Color = getGenotypeColor(genotype, isFiltered);
+                    b1Color = getGenotypeColor(genotypeType, isFiltered);
                     b2Color = b1Color;
                     break;
 
@@ -331,6 +340,21 @@ public class VariantRenderer { //extends FeatureRenderer {
         return Color.white;
     }
 
+    public Color getGenotypeColor(GenotypeType type, boolean isFiltered) {
+        switch (type) {
+            case NO_CALL:
+                return isFiltered ? colorNoCallAlpha : colorNoCall;
+            case HOM_REF:
+                return isFiltered ? colorHomRefAlpha : colorHomRef;
+            case HOM_VAR:
+                return isFiltered ? colorHomVarAlpha : colorHomVar;
+            case HET:
+                return isFiltered ? colorHetAlpha : colorHet;
+            default:
+                return Color.white;
+        }
+    }
+
     private void drawCenteredText(Graphics2D g, char[] chars, int x, int y,
                                   int w, int h) {
 
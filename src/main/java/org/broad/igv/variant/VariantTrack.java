@@ -1345,14 +1345,13 @@ public class VariantTrack extends FeatureTrack implements IGVEventObserver {
                 String selectedSample = getSampleAtPosition(te.getMouseEvent().getY());
                 if (selectedSample != null) {
                     // Select clicked sample and all other adjacent with the same genotype
-                    Genotype genotype = f.getGenotype(selectedSample);
-                    GenotypeType type = genotype.getType();
+                    GenotypeType type = f.getGenotypeType(selectedSample);
 
                     int idx = getSampleIndex(selectedSample);
                     for (int i = idx; i < sampleBounds.size(); i++) {
                         String s = sampleBounds.get(i).sample;
-                        Genotype gt = f.getGenotype(s);
-                        if (gt != null && type == gt.getType()) {
+                        GenotypeType gt = f.getGenotypeType(s);
+                        if (gt != null && type == gt) {
                             selectedSamples.add(s);
                         } else {
                             break;
@@ -1360,8 +1359,8 @@ public class VariantTrack extends FeatureTrack implements IGVEventObserver {
                     }
                     for (int i = idx - 1; i >= 0; i--) {
                         String s = sampleBounds.get(i).sample;
-                        Genotype gt = f.getGenotype(s);
-                        if (gt != null && type == gt.getType()) {
+                        GenotypeType gt = f.getGenotypeType(s);
+                        if (gt != null && type == gt) {
                             selectedSamples.add(s);
                         } else {
                             break;
@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.variant.vcf;
+
+import htsjdk.variant.variantcontext.Genotype;
+import htsjdk.variant.variantcontext.GenotypesContext;
+import htsjdk.variant.variantcontext.LazyGenotypesContext;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.vcf.AbstractVCFCodec;
+import org.apache.log4j.Logger;
+
+import java.util.*;
+
+/**
+ * The samples of a VCF or BCF file in header (column) order,  shared by all variants read from the file.  Lets
+ * variants answer sample queries,  and index per-sample data by ordinal,  without decoding their genotypes.
+ */
+public class VCFSamples {
+
+    private static Logger log = Logger.getLogger(VCFSamples.class);
+
+    private final List<String> names;
+    private final Map<String, Integer> ordinals;
+
+    // Codec used to decode raw VCF genotype columns,  null for BCF files
+    private final AbstractVCFCodec codec;
+
+    public VCFSamples(List<String> names, AbstractVCFCodec codec) {
+        this.names = Collections.unmodifiableList(new ArrayList<>(names));
+        this.ordinals = new HashMap<>(names.size() * 2);
+        for (int i = 0; i < names.size(); i++) {
+            ordinals.put(names.get(i), i);
+        }
+        this.codec = codec;
+    }
+
+    /**
+     * Samples of decoded genotypes,  in the order of the genotypes context
+     */
+    static VCFSamples fromGenotypes(GenotypesContext genotypes) {
+        List<String> names = new ArrayList<>(genotypes.size());
+        for (Genotype g : genotypes) {
+            names.add(g.getSampleName());
+        }
+        return new VCFSamples(names, null);
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * @return the column index of the sample,  or -1 if it is not in the file
+     */
+    public int getOrdinal(String sample) {
+        Integer ordinal = ordinals.get(sample);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Return a copy of the sites-only variant context with genotypes decoded from the raw VCF FORMAT and sample
+     * columns.
+     */
+    VariantContext decodeGenotypes(VariantContext sites, String genotypeData) {
+
+        GenotypesContext genotypes;
+        try {
+            genotypes = parseGenotypes(sites, genotypeData);
+        } catch (NumberFormatException e) {
+            log.warn(String.format("NumberFormatException in genotypes at %s:%d. Attempting to reformat by replacing ,., with ,0,",
+                    sites.getContig(), sites.getStart()));
+            String reformatted = genotypeData.replaceAll(",\\.", ",0").replaceAll("\\.,", "0,");
+            genotypes = parseGenotypes(sites, reformatted);
+        }
+        return new VariantContextBuilder(sites).genotypesNoValidation(genotypes).make();
+    }
+
+    private GenotypesContext parseGenotypes(VariantContext sites, String genotypeData) {
+        LazyGenotypesContext genotypes = new LazyGenotypesContext(data -> {
+            // The codec parses into shared buffers
+            synchronized (codec) {
+                return codec.createGenotypeMap((String) data, sites.getAlleles(), sites.getContig(), sites.getStart());
+            }
+        }, genotypeData, names.size());
+        genotypes.decode();
+        return genotypes;
+    }
+}
@@ -30,12 +30,20 @@ import org.broad.igv.variant.Allele;
 import org.broad.igv.variant.Genotype;
 import org.broad.igv.variant.Variant;
 import org.broad.igv.variant.VariantTrack;
+import htsjdk.variant.variantcontext.GenotypeType;
+import htsjdk.variant.variantcontext.GenotypesContext;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
 
 import java.util.*;
 
 /**
+ * A variant backed by an htsjdk VariantContext.
+ * <p/>
+ * Genotypes of multi-sample files are decoded lazily.  When read with a {@link VCFSamples} the raw genotype
+ * columns are kept unparsed,  genotype types are scanned from the GT field into a byte per sample on first use,
+ * and full genotypes are decoded only when a genotype's attributes are needed,  e.g. for popup text.
+ *
  * @author Jim Robinson, jacob
  * @date Aug 1, 2011
  */
@@ -43,7 +51,10 @@ public class VCFVariant implements Variant {
 
     private static Logger log = Logger.getLogger(Variant.class);
 
-    VariantContext variantContext;
+    private static final GenotypeType[] GENOTYPE_TYPES = GenotypeType.values();
+
+    // Sites only until genotypes are decoded,  if read with raw genotype data
+    volatile VariantContext variantContext;
     List<Allele> alternateAlleles;
     // private ZygosityCount zygosityCount;
 
@@ -53,27 +64,40 @@ public class VCFVariant implements Variant {
     private double methylationRate = Double.NaN;  // <= signals unknown / not applicable
     private double coveredSampleFraction = Double.NaN;
 
-    Map<String, VCFGenotype> genotypeMap;
+    private VCFSamples samples;
+
+    // Raw FORMAT and sample columns,  null if there are none or once they are decoded
+    private String genotypeData;
+
+    // GenotypeType ordinal by sample ordinal
+    private volatile byte[] genotypeTypes;
+
+    // Genotypes materialized so far,  by sample ordinal
+    private VCFGenotype[] genotypes;
 
     private int start = -1;
     private int totalAlleleCount = 0;
 
     public VCFVariant(VariantContext variantContext, String chr) {
+        this(variantContext, chr, null, null);
+    }
+
+    /**
+     * @param variantContext the variant,  sites only if genotypeData is not null
+     * @param samples        samples of the file,  in column order
+     * @param genotypeData   raw FORMAT and sample columns of the VCF line,  or null if the variant context includes
+     *                       the genotypes
+     */
+    public VCFVariant(VariantContext variantContext, String chr, VCFSamples samples, String genotypeData) {
         this.variantContext = variantContext;
         this.chr = chr;
+        this.samples = samples;
+        this.genotypeData = genotypeData;
         init();
     }
 
     private void init() {
 
-        // Copy the genotype map.  Calls to variantContext.getGenotype() are expensive
-        genotypeMap = new HashMap<String, VCFGenotype>();
-        for (String sample : getSampleNames()) {
-            htsjdk.variant.variantcontext.Genotype genotype = variantContext.getGenotype(sample);
-            VCFGenotype vcfGenotype = genotype == null ? null : new VCFGenotype(genotype);
-            genotypeMap.put(sample, vcfGenotype);
-        }
-
 //        zygosityCount = new ZygosityCount();
 //        for (String sample : getSampleNames()) {
 //            Genotype genotype = getGenotype(sample);
@@ -267,7 +291,7 @@ public class VCFVariant implements Variant {
     }
 
     public Collection<String> getSampleNames() {
-        return variantContext.getSampleNames();
+        return getSamples().getNames();
     }
 
     public Map<String, Object> getAttributes() {
@@ -276,7 +300,194 @@ public class VCFVariant implements Variant {
 
     @Override
     public Genotype getGenotype(String sample) {
-        return genotypeMap.get(sample);
+        int ordinal = getSamples().getOrdinal(sample);
+        return ordinal < 0 ? null : getGenotype(ordinal);
+    }
+
+    /**
+     * Return the genotype of the sample at {@code ordinal} in the file's sample order.  Decodes the genotypes of
+     * all samples on first use.
+     */
+    public synchronized Genotype getGenotype(int ordinal) {
+        if (genotypes == null) {
+            genotypes = new VCFGenotype[getSamples().size()];
+        }
+        VCFGenotype genotype = genotypes[ordinal];
+        if (genotype == null) {
+            htsjdk.variant.variantcontext.Genotype g = getDecodedContext().getGenotype(getSamples().getNames().get(ordinal));
+            if (g != null) {
+                genotype = new VCFGenotype(g);
+                genotypes[ordinal] = genotype;
+            }
+        }
+        return genotype;
+    }
+
+    @Override
+    public GenotypeType getGenotypeType(String sample) {
+        return getGenotypeType(getSamples().getOrdinal(sample));
+    }
+
+    /**
+     * Return the genotype type of the sample at {@code ordinal},  without decoding the genotypes if possible.
+     *
+     * @return the type,  or null if there is no such sample
+     */
+    public GenotypeType getGenotypeType(int ordinal) {
+        byte[] types = genotypeTypes;
+        if (types == null) {
+            types = computeGenotypeTypes();
+            genotypeTypes = types;
+        }
+        return ordinal < 0 || ordinal >= types.length ? null : GENOTYPE_TYPES[types[ordinal]];
+    }
+
+    private byte[] computeGenotypeTypes() {
+
+        final int nSamples = getSamples().size();
+        String data;
+        synchronized (this) {
+            data = genotypeData;
+        }
+        if (data != null) {
+            byte[] types = parseGenotypeTypes(data, nSamples);
+            if (types != null) {
+                return types;
+            }
+        }
+
+        // Not parsable from the raw columns,  or already decoded
+        GenotypesContext genotypesContext = getDecodedContext().getGenotypes();
+        byte[] types = new byte[nSamples];
+        for (int i = 0; i < nSamples; i++) {
+            htsjdk.variant.variantcontext.Genotype g = genotypesContext.get(getSamples().getNames().get(i));
+            types[i] = (byte) (g == null ? GenotypeType.UNAVAILABLE : g.getType()).ordinal();
+        }
+        return types;
+    }
+
+    private synchronized VCFSamples getSamples() {
+        if (samples == null) {
+            samples = VCFSamples.fromGenotypes(variantContext.getGenotypes());
+        }
+        return samples;
+    }
+
+    private synchronized VariantContext getDecodedContext() {
+        if (genotypeData != null) {
+            variantContext = samples.decodeGenotypes(variantContext, genotypeData);
+            genotypeData = null;
+        }
+        return variantContext;
+    }
+
+    /**
+     * Scan the GT field of each sample from the raw FORMAT and sample columns,  classifying genotypes as htsjdk
+     * does.
+     *
+     * @return GenotypeType ordinals by sample,  or null if the columns can't be interpreted
+     */
+    static byte[] parseGenotypeTypes(String data, int nSamples) {
+
+        int formatEnd = data.indexOf('\t');
+        if (formatEnd < 0) {
+            return null;
+        }
+
+        // Position of GT among the FORMAT keys
+        int gtField = -1;
+        int field = 0;
+        for (int i = 0; i <= formatEnd; field++) {
+            int keyEnd = data.indexOf(':', i);
+            if (keyEnd < 0 || keyEnd > formatEnd) keyEnd = formatEnd;
+            if (keyEnd - i == 2 && data.startsWith("GT", i)) {
+                gtField = field;
+                break;
+            }
+            i = keyEnd + 1;
+        }
+
+        byte[] types = new byte[nSamples];
+        if (gtField < 0) {
+            Arrays.fill(types, (byte) GenotypeType.UNAVAILABLE.ordinal());
+            return types;
+        }
+
+        int pos = formatEnd + 1;
+        for (int sample = 0; sample < nSamples; sample++) {
+            if (pos > data.length()) {
+                return null;       // Fewer columns than samples
+            }
+            int end = data.indexOf('\t', pos);
+            if (end < 0) end = data.length();
+
+            // Skip to the GT subfield,  trailing subfields may be dropped
+            int gtStart = pos;
+            for (int f = 0; f < gtField && gtStart >= 0; f++) {
+                int colon = data.indexOf(':', gtStart);
+                gtStart = colon < 0 || colon >= end ? -1 : colon + 1;
+            }
+            GenotypeType type;
+            if (gtStart < 0) {
+                type = GenotypeType.NO_CALL;
+            } else {
+                int gtEnd = gtStart;
+                while (gtEnd < end && data.charAt(gtEnd) != ':') gtEnd++;
+                type = classifyGenotype(data, gtStart, gtEnd);
+                if (type == null) {
+                    return null;
+                }
+            }
+            types[sample] = (byte) type.ordinal();
+            pos = end + 1;
+        }
+        return types;
+    }
+
+    /**
+     * Classify the GT value data[start, end),  e.g. 0/1 or 1|1,  or return null if it can't be parsed
+     */
+    private static GenotypeType classifyGenotype(String data, int start, int end) {
+
+        if (start == end) {
+            return GenotypeType.NO_CALL;
+        }
+
+        boolean sawNoCall = false;
+        boolean sawMultipleAlleles = false;
+        int observed = -1;
+        int i = start;
+        while (i < end) {
+            int j = i;
+            int allele = 0;
+            char c;
+            while (j < end && (c = data.charAt(j)) != '/' && c != '|') {
+                if (c == '.' && j == i) {
+                    allele = -1;
+                } else if (c >= '0' && c <= '9' && allele >= 0) {
+                    allele = allele * 10 + (c - '0');
+                } else {
+                    return null;
+                }
+                j++;
+            }
+            if (j == i) {
+                return null;
+            }
+            if (allele < 0) {
+                sawNoCall = true;
+            } else if (observed < 0) {
+                observed = allele;
+            } else if (allele != observed) {
+                sawMultipleAlleles = true;
+            }
+            i = j + 1;
+        }
+
+        if (sawNoCall) {
+            return observed < 0 ? GenotypeType.NO_CALL : GenotypeType.MIXED;
+        }
+        return sawMultipleAlleles ? GenotypeType.HET : observed == 0 ? GenotypeType.HOM_REF : GenotypeType.HOM_VAR;
     }
 
     public Collection<String> getFilters() {
@@ -327,7 +538,7 @@ public class VCFVariant implements Variant {
     }
 
     public VariantContext getVariantContext() {
-        return variantContext;
+        return getDecodedContext();
     }
 
     public static VariantContext getVariantContext(Variant variant) {
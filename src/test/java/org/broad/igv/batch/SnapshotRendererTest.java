@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.batch;
+
+import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.track.Track;
+import org.broad.igv.track.TrackGroup;
+import org.broad.igv.track.TrackLoader;
+import org.broad.igv.ui.panel.FrameManager;
+import org.broad.igv.util.ResourceLocator;
+import org.broad.igv.util.TestUtils;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SnapshotRendererTest extends AbstractHeadlessTest {
+
+    @Test
+    public void testRenderAll() throws Exception {
+
+        SnapshotRenderer renderer = createRenderer(2);
+        File dir = createOutputDir();
+
+        List<String> loci = Arrays.asList("chr2:178707000-178712000", "chr2:178709000-178710000",
+                "chr2:178700000-178720000", "chr2:178711000-178715000", "notALocus");
+        int n = renderer.renderAll(loci, dir, "png");
+
+        assertEquals(4, n);
+        for (String locus : loci.subList(0, 4)) {
+            File file = new File(dir, SnapshotRenderer.getFilename(locus, ".png"));
+            assertTrue(file.getName(), file.exists());
+            BufferedImage image = ImageIO.read(file);
+            assertEquals(400, image.getWidth());
+            assertTrue(hasFeaturePixels(image));
+        }
+
+        // Offscreen frames are released when done
+        assertTrue(FrameManager.getOffscreenFrames().isEmpty());
+    }
+
+    @Test
+    public void testRenderSVG() throws Exception {
+
+        SnapshotRenderer renderer = createRenderer(1);
+        File dir = createOutputDir();
+
+        int n = renderer.renderAll(Collections.singletonList("chr2:178707000-178712000"), dir, ".svg");
+
+        assertEquals(1, n);
+        File file = new File(dir, SnapshotRenderer.getFilename("chr2:178707000-178712000", ".svg"));
+        String svg = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+        assertTrue(svg.contains("<svg"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFormat() throws Exception {
+        createRenderer(1).renderAll(Collections.singletonList("chr2:178707000-178712000"), createOutputDir(), ".eps");
+    }
+
+    private SnapshotRenderer createRenderer(int nThreads) {
+        String path = TestUtils.DATA_DIR + "bed/Unigene.sample.bed";
+        List<Track> tracks = new TrackLoader().load(new ResourceLocator(path), genome);
+        TrackGroup group = new TrackGroup();
+        for (Track t : tracks) {
+            group.add(t);
+        }
+        return new SnapshotRenderer(Collections.singletonList(group), 400, 1000, nThreads);
+    }
+
+    private File createOutputDir() {
+        File dir = new File(TestUtils.TMP_OUTPUT_DIR, "snapshots");
+        dir.mkdirs();
+        return dir;
+    }
+
+    private static boolean hasFeaturePixels(BufferedImage image) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((image.getRGB(x, y) & 0xFFFFFF) != 0xFFFFFF) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -36,6 +36,7 @@ import org.junit.Test;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -101,6 +102,24 @@ public class AbstractDataSourceTest extends AbstractHeadlessTest {
         assertEquals(10.0, mean, 1.0e-2);
     }
 
+    /**
+     * A tile keeps one representation,  the arrays,  and its weight accounts for them and the kept score objects
+     */
+    @Test
+    public void testSummaryTileSize() {
+
+        TestDataSource ds = new TestDataSource();
+
+        SummaryTile tile = ds.computeSummaryTile("", 0, 10000, 100);
+        assertSame(tile.getScoreArray(), tile.getScores());
+        assertTrue(tile.getSize() > 0);
+
+        // Every score here is a NamedScore or CompositeScore,  so every object is kept
+        long minSize = tile.getSize() * (12 + 8 + LocusScoreArray.BYTES_PER_OBJECT);
+        assertTrue(tile.estimateSize() >= minSize);
+        assertEquals(0, new SummaryTile().estimateSize());
+    }
+
     @Test
     public void testGetSummaryScoresForSNPs() throws Exception {
 
@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.data;
+
+import org.broad.igv.feature.LocusScore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LocusScoreArrayTest {
+
+    @Test
+    public void testBuilder() throws Exception {
+
+        LocusScoreArray.Builder builder = new LocusScoreArray.Builder(0);
+        for (int i = 0; i < 100; i++) {
+            builder.add(i * 10, i * 10 + 5, i);
+        }
+        LocusScoreArray scores = builder.build();
+
+        assertEquals(100, scores.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 10, scores.getStart(i));
+            assertEquals(i * 10 + 5, scores.getEnd(i));
+            assertEquals(i, scores.getValue(i), 0);
+
+            LocusScore score = scores.get(i);
+            assertEquals(i * 10, score.getStart());
+            assertEquals(i * 10 + 5, score.getEnd());
+            assertEquals(i, score.getScore(), 0);
+        }
+
+        LocusScoreArray subList = scores.subList(10, 20);
+        assertEquals(10, subList.size());
+        assertEquals(100, subList.getStart(0));
+        assertEquals(195, subList.get(9).getEnd());
+        assertEquals(150, subList.subList(5, 6).getStart(0));
+
+        try {
+            subList.get(10);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testFromScores() throws Exception {
+
+        NamedScore named = new NamedScore(10, 20, 2, "probe");
+        List<LocusScore> list = new ArrayList<>();
+        list.add(new BasicScore(0, 10, 1));
+        list.add(named);
+        list.add(new BasicScore(20, 30, 3));
+
+        LocusScoreArray scores = LocusScoreArray.fromScores(list);
+        assertEquals(3, scores.size());
+        assertEquals(10, scores.getStart(1));
+        assertEquals(3, scores.getValue(2), 0);
+
+        // Objects carrying more than the arrays are kept for the list view
+        assertSame(named, scores.get(1));
+        assertEquals(BasicScore.class, scores.get(0).getClass());
+
+        // Copying keeps them too
+        LocusScoreArray.Builder builder = new LocusScoreArray.Builder(2);
+        builder.add(scores, 2);
+        builder.add(scores, 1);
+        assertSame(named, builder.build().get(1));
+
+        assertSame(scores, LocusScoreArray.fromScores(scores));
+        assertNull(LocusScoreArray.fromScores(null));
+    }
+}
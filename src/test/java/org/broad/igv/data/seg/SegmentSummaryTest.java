@@ -0,0 +1,243 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.data.seg;
+
+import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.data.LocusScoreArray;
+import org.broad.igv.feature.LocusScore;
+import org.broad.igv.util.ResourceLocator;
+import org.broad.igv.util.TestUtils;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SegmentSummaryTest extends AbstractHeadlessTest {
+
+    private SegmentedAsciiDataSet loadDataSet(String path) {
+        ResourceLocator locator = new ResourceLocator(path);
+        return new SegmentFileParser(locator).loadSegments(locator, genome);
+    }
+
+    @Test
+    public void testLevels() throws Exception {
+
+        SegmentedAsciiDataSet dataset = loadDataSet(TestUtils.DATA_DIR + "seg/canFam2_hg18.seg");
+        String sample = dataset.getSampleNames().get(0);
+        SegmentSummary summary = SegmentSummary.compute(genome, dataset, sample);
+
+        assertEquals(SegmentSummary.MAX_BINS, summary.getLevel(0).nBins);
+        assertEquals(SegmentSummary.MAX_BINS, summary.getLevel(100000).nBins);
+        assertEquals(SegmentSummary.MIN_BINS, summary.getLevel(10).nBins);
+        assertEquals(1024, summary.getLevel(1000).nBins);
+        assertEquals(2048, summary.getLevel(1025).nBins);
+    }
+
+    /**
+     * Every segment must fall within the min and max of the bins it overlaps,  at every level
+     */
+    @Test
+    public void testBinsBoundSegments() throws Exception {
+
+        SegmentedAsciiDataSet dataset = loadDataSet(TestUtils.DATA_DIR + "seg/canFam2_hg18.seg");
+        double genomeLength = genome.getNominalLength() / 1000.0;
+
+        for (String sample : dataset.getSampleNames()) {
+            SegmentSummary summary = SegmentSummary.compute(genome, dataset, sample);
+
+            for (int width = SegmentSummary.MIN_BINS; width <= SegmentSummary.MAX_BINS; width *= 2) {
+                SegmentSummary.Level level = summary.getLevel(width);
+                assertEquals(width, level.nBins);
+
+                for (int i = 0; i < level.size(); i++) {
+                    assertTrue(level.runStart[i] < level.runEnd[i]);
+                    if (i > 0) assertTrue(level.runEnd[i - 1] <= level.runStart[i]);
+                    assertTrue(level.min[i] <= level.max[i]);
+                }
+
+                double binWidth = genomeLength / level.nBins;
+                for (String chr : genome.getLongChromosomeNames()) {
+                    List<LocusScore> segments = dataset.getSegments(sample, chr);
+                    if (segments == null) continue;
+                    for (LocusScore seg : segments) {
+                        int gStart = genome.getGenomeCoordinate(chr, seg.getStart());
+                        int gEnd = genome.getGenomeCoordinate(chr, seg.getEnd());
+                        if (gEnd <= gStart) continue;
+                        int bin = Math.min(level.nBins - 1, (int) (gStart / binWidth));
+                        int run = findRun(level, bin);
+                        assertTrue("No bin for segment at " + chr + ":" + seg.getStart(), run >= 0);
+                        assertTrue(level.min[run] <= seg.getScore() && seg.getScore() <= level.max[run]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWholeGenomeScores() throws Exception {
+
+        SegmentedAsciiDataSet dataset = new SegmentedAsciiDataSet(genome);
+        int chr1Length = genome.getChromosome("chr1").getLength();
+        int half = chr1Length / 2;
+        dataset.addSegment("A", "chr1", 0, half, 1, null);
+        dataset.addSegment("A", "chr1", half, chr1Length, 3, null);
+        dataset.addSegment("B", "chr2", 0, 1000000, -1, null);
+        dataset.sortLists();
+
+        List<LocusScore> scores = dataset.getWholeGenomeScores("A", SegmentSummary.MIN_BINS);
+        assertTrue(scores instanceof LocusScoreArray);
+
+        // Each half is one run of identical bins,  plus a mixed bin at the midpoint and a partial bin at the end
+        assertTrue(scores.size() >= 2 && scores.size() <= 4);
+        assertEquals(0, scores.get(0).getStart());
+        assertEquals(1, scores.get(0).getScore(), 0);
+        assertEquals(3, scores.get(scores.size() - 1).getScore(), 0);
+        int gEnd = genome.getGenomeCoordinate("chr1", chr1Length);
+        double binWidth = genome.getNominalLength() / 1000.0 / SegmentSummary.MIN_BINS;
+        assertEquals(gEnd, scores.get(scores.size() - 1).getEnd(), binWidth);
+        for (int i = 1; i < scores.size(); i++) {
+            assertTrue(scores.get(i - 1).getEnd() <= scores.get(i).getStart());
+            float value = scores.get(i).getScore();
+            assertTrue(value >= 1 && value <= 3);
+        }
+
+        // Finer resolution for wider views
+        List<LocusScore> fineScores = dataset.getWholeGenomeScores("A", 0);
+        assertEquals(0, fineScores.get(0).getStart());
+        // The first run ends at the bin containing the midpoint,  which is narrower at the finer level
+        assertTrue(fineScores.get(0).getEnd() >= scores.get(0).getEnd());
+        assertTrue(fineScores.get(0).getEnd() <= genome.getGenomeCoordinate("chr1", half));
+
+        assertEquals(1, dataset.getWholeGenomeScores("B", SegmentSummary.MIN_BINS).size());
+        assertEquals(-1, dataset.getWholeGenomeScores("B").get(0).getScore(), 0);
+        assertTrue(dataset.getWholeGenomeScores("C").isEmpty());
+
+        // Adding a segment invalidates the summaries
+        dataset.addSegment("B", "chr2", 2000000, 3000000, -1, null);
+        dataset.sortLists();
+        assertEquals(2, dataset.getWholeGenomeScores("B").size());
+    }
+
+    /**
+     * Bins are the mean of the segments they overlap,  weighted by the length of overlap
+     */
+    @Test
+    public void testLengthWeightedMean() throws Exception {
+
+        SegmentedAsciiDataSet dataset = new SegmentedAsciiDataSet(genome);
+        // A quarter of the first bin at 4,  the rest at 0
+        int binLength = (int) (genome.getNominalLength() / SegmentSummary.MAX_BINS);
+        int quarter = binLength / 4;
+        dataset.addSegment("A", "chr1", 0, quarter, 4, null);
+        dataset.addSegment("A", "chr1", quarter, 10 * binLength, 0, null);
+        dataset.sortLists();
+
+        SegmentSummary summary = SegmentSummary.compute(genome, dataset, "A");
+        SegmentSummary.Level level = summary.getLevel(SegmentSummary.MAX_BINS);
+        assertEquals(0, level.runStart[0]);
+        assertEquals(1, level.runEnd[0]);
+        assertEquals(1, level.mean[0], 0.01);
+        assertEquals(0, level.min[0], 0);
+        assertEquals(4, level.max[0], 0);
+        assertEquals(0, level.mean[1], 0);
+
+        assertEquals(1, summary.getScores(SegmentSummary.MAX_BINS, false).get(0).getScore(), 0.01);
+        assertEquals(4, summary.getScores(SegmentSummary.MAX_BINS, true).get(0).getScore(), 0);
+
+        // Coarser levels average over the wider bins
+        SegmentSummary.Level coarse = summary.getLevel(SegmentSummary.MIN_BINS);
+        assertEquals(0, coarse.runStart[0]);
+        assertEquals(4.0 * quarter / (10 * binLength), coarse.mean[0], 0.001);
+    }
+
+    /**
+     * Segments much smaller than a bin are averaged away in the mean,  but drawn at their full value as extremes
+     */
+    @Test
+    public void testFocalEvents() throws Exception {
+
+        SegmentedAsciiDataSet dataset = new SegmentedAsciiDataSet(genome);
+        int chr1Length = genome.getChromosome("chr1").getLength();
+        dataset.addSegment("A", "chr1", 0, 50000000, 0.1f, null);
+        dataset.addSegment("A", "chr1", 50000000, 50001000, 5, null);
+        dataset.addSegment("A", "chr1", 50001000, 100000000, 0.1f, null);
+        dataset.addSegment("A", "chr1", 100000000, 100001000, -4, null);
+        dataset.addSegment("A", "chr1", 100001000, chr1Length, 0.1f, null);
+        dataset.sortLists();
+
+        SegmentSummary summary = SegmentSummary.compute(genome, dataset, "A");
+        List<LocusScore> extremes = summary.getScores(SegmentSummary.MIN_BINS, true);
+        List<LocusScore> means = summary.getScores(SegmentSummary.MIN_BINS, false);
+        int amp = genome.getGenomeCoordinate("chr1", 50000500);
+        int del = genome.getGenomeCoordinate("chr1", 100000500);
+        for (LocusScore score : extremes) {
+            if (score.getStart() <= amp && amp < score.getEnd()) {
+                assertEquals(5, score.getScore(), 0);
+            } else if (score.getStart() <= del && del < score.getEnd()) {
+                assertEquals(-4, score.getScore(), 0);
+            } else {
+                assertEquals(0.1f, score.getScore(), 0);
+            }
+        }
+        for (LocusScore score : means) {
+            if (score.getStart() <= amp && amp < score.getEnd()) {
+                assertTrue(score.getScore() > 0.1f && score.getScore() < 1);
+            } else if (score.getStart() <= del && del < score.getEnd()) {
+                assertTrue(score.getScore() < 0.1f && score.getScore() > -1);
+            } else {
+                assertEquals(0.1f, score.getScore(), 1.0e-6);
+            }
+        }
+    }
+
+    /**
+     * The popup text of a bin is that of the segment under the mouse,  including its description
+     */
+    @Test
+    public void testValueString() throws Exception {
+
+        SegmentedAsciiDataSet dataset = new SegmentedAsciiDataSet(genome);
+        dataset.addSegment("A", "chr2", 0, 1000000, 2, "<br>Probes: 42");
+        dataset.addSegment("A", "chr2", 1000000, 1000100, 8, "<br>Probes: 3");
+        dataset.sortLists();
+
+        List<LocusScore> scores = dataset.getWholeGenomeScores("A", SegmentSummary.MIN_BINS);
+        int position = genome.getGenomeCoordinate("chr2", 500000);
+        LocusScore score = scores.get(0);
+        assertTrue(score.getStart() <= position && position < score.getEnd());
+        String valueString = score.getValueString(position, 0, null);
+        assertTrue(valueString, valueString.contains("Probes: 42"));
+        assertTrue(valueString, valueString.contains("Value: 2.0"));
+    }
+
+    private static int findRun(SegmentSummary.Level level, int bin) {
+        for (int i = 0; i < level.size(); i++) {
+            if (level.runStart[i] <= bin && bin < level.runEnd[i]) return i;
+        }
+        return -1;
+    }
+}
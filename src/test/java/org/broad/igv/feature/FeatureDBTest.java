@@ -155,6 +155,21 @@ public class FeatureDBTest extends AbstractHeadlessTest {
 
     }
 
+    @Test
+    public void testFeaturesContaining() throws Exception {
+        String checkstr = "GFLA";
+        List<NamedFeature> features = FeatureDB.getFeaturesContaining(checkstr, LARGE);
+        assertTrue(features.size() > 0);
+        boolean found = false;
+        for (NamedFeature f : features) {
+            assertTrue(f.getName().toUpperCase().contains(checkstr));
+            found |= f.getName().equals("EGFLAM");
+        }
+        assertTrue(found);
+
+        assertEquals(0, FeatureDB.getFeaturesContaining("QQQXQQQ", LARGE).size());
+    }
+
     @Test
     public void testMultiRetrieve() throws Exception {
         String checkstr = "EGFLAM";
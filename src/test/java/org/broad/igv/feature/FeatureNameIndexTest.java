@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.feature;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class FeatureNameIndexTest {
+
+    private static final Comparator<NamedFeature> LONGEST_FIRST =
+            (f1, f2) -> (f2.getEnd() - f2.getStart()) - (f1.getEnd() - f1.getStart());
+
+    @Test
+    public void testExactAndPrefix() {
+
+        FeatureNameIndex index = new FeatureNameIndex(20, LONGEST_FIRST);
+        index.put("EGFR", feature("EGFR", 100, 200));
+        index.put("egfr", feature("EGFR", 100, 500));
+        index.put("EGFLAM", feature("EGFLAM", 1000, 2000));
+        index.put("KRAS", feature("KRAS", 5000, 6000));
+
+        List<NamedFeature> egfr = index.get("Egfr");
+        assertEquals(2, egfr.size());
+        assertEquals(500, egfr.get(0).getEnd());     // Longest first
+
+        SortedMap<String, List<NamedFeature>> prefix = index.getByPrefix("eg", 100);
+        assertEquals(Arrays.asList("EGFLAM", "EGFR"), new ArrayList<>(prefix.keySet()));
+        assertEquals(1, index.getByPrefix("eg", 1).size());
+
+        index.remove("egflam");
+        assertNull(index.get("EGFLAM"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testSubstring() {
+
+        FeatureNameIndex index = new FeatureNameIndex(20, LONGEST_FIRST);
+        index.put("rs12345", feature("rs12345", 1, 2));
+        index.put("rs23456", feature("rs23456", 1, 2));
+        index.put("ABC345", feature("ABC345", 1, 2));
+
+        assertEquals(new HashSet<>(Arrays.asList("RS12345", "RS23456", "ABC345")), index.getBySubstring("345", 100).keySet());
+
+        // Names added after the trigram index is built are found
+        index.put("X3456Y", feature("X3456Y", 1, 2));
+        assertEquals(new HashSet<>(Arrays.asList("RS23456", "X3456Y")), index.getBySubstring("3456", 100).keySet());
+
+        // Removed names are not returned,  short queries scan all names
+        index.remove("rs23456");
+        assertEquals(Collections.singleton("X3456Y"), index.getBySubstring("3456", 100).keySet());
+        assertEquals(3, index.getBySubstring("3", 100).size());
+        assertTrue(index.getBySubstring("ZZZ", 100).isEmpty());
+    }
+
+    @Test
+    public void testCompact() {
+
+        BasicFeature snp = new BasicFeature("chr1", 10, 11);
+        snp.setName("rs1");
+        NamedFeature stored = FeatureNameIndex.compact(snp);
+        assertTrue(stored instanceof FeatureNameIndex.Location);
+        assertEquals("rs1", stored.getName());
+        assertEquals("chr1", stored.getChr());
+        assertEquals(10, stored.getStart());
+        assertEquals(11, stored.getEnd());
+
+        // Features with exons are kept for mutation search
+        BasicFeature gene = new BasicFeature("chr1", 100, 1000);
+        gene.addExon(new Exon("chr1", 100, 200, Strand.POSITIVE));
+        assertSame(gene, FeatureNameIndex.compact(gene));
+    }
+
+    @Test
+    public void testConcurrentPut() throws Exception {
+
+        final FeatureNameIndex index = new FeatureNameIndex(20, LONGEST_FIRST);
+        IntStream.range(0, 100000).parallel().forEach(i -> {
+            String name = "GENE" + (i % 50000);
+            index.put(name, feature(name, i, i + 1 + (i % 7)));
+        });
+
+        assertEquals(50000, index.size());
+        for (int i = 0; i < 50000; i += 997) {
+            assertEquals(2, index.get("GENE" + i).size());
+        }
+
+        // Duplicates are bounded
+        for (int i = 0; i < 100; i++) {
+            index.put("GENE1", feature("GENE1", i, i + 1));
+        }
+        assertEquals(21, index.get("GENE1").size());
+    }
+
+    private static NamedFeature feature(String name, int start, int end) {
+        return new FeatureNameIndex.Location(name, "chr1", start, end);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.feature;
+
+import com.google.common.base.Predicate;
+import htsjdk.tribble.Feature;
+import org.broad.igv.util.collections.CollUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class IndexedFeatureListTest {
+
+    @Test
+    public void testMatchesLinearScan() throws Exception {
+
+        Random random = new Random(5);
+        List<Feature> features = new ArrayList<Feature>();
+        for (int i = 0; i < 20000; i++) {
+            int start = random.nextInt(50000000);
+            int length = random.nextInt(100) == 0 ? random.nextInt(5000000) : random.nextInt(20000);
+            features.add(new BasicFeature("chr1", start, start + length));
+        }
+        // Zero length and chromosome length features
+        features.add(new BasicFeature("chr1", 1000, 1000));
+        features.add(new BasicFeature("chr1", 0, 50000000));
+
+        IndexedFeatureList<Feature> index = new IndexedFeatureList<Feature>(new ArrayList<Feature>(features));
+        FeatureUtils.sortFeatureList(features);
+
+        for (int i = 0; i < 500; i++) {
+            int start = random.nextInt(51000000) - 500000;
+            int end = start + (i % 50 == 0 ? random.nextInt(20000000) : random.nextInt(100000));
+            Predicate<Feature> overlap = FeatureUtils.getOverlapPredicate("chr1", start, end);
+            List<Feature> expected = CollUtils.filter(features, overlap);
+            List<Feature> result = index.getFeatures(start, end);
+            assertEquals(expected.size(), result.size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertSame(expected.get(j), result.get(j));
+            }
+        }
+
+        List<Feature> point = index.getFeatures(1000, 1000);
+        assertEquals(CollUtils.filter(features, FeatureUtils.getOverlapPredicate("chr1", 1000, 1000)).size(), point.size());
+    }
+}
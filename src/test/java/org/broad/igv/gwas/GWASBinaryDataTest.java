@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.gwas;
+
+import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.track.Track;
+import org.broad.igv.track.TrackLoader;
+import org.broad.igv.util.ResourceLocator;
+import org.broad.igv.util.TestUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GWASBinaryDataTest extends AbstractHeadlessTest {
+
+    @Test
+    public void testConvert() throws Exception {
+        String inputPath = TestUtils.DATA_DIR + "gwas/smallp.gwas";
+        String outputPath = TestUtils.TMP_OUTPUT_DIR + "smallp.bgwas";
+        GWASBinaryWriter.convert(inputPath, outputPath, genome);
+
+        GWASData expected = new GWASParser(new ResourceLocator(inputPath), genome).parse();
+        GWASBinaryData data = new GWASBinaryData(new File(outputPath));
+        assertDataEquals(expected, data);
+    }
+
+    @Test
+    public void testLoadBinaryGWAS() throws Exception {
+        String inputPath = TestUtils.DATA_DIR + "gwas/smallp.gwas";
+        String outputPath = TestUtils.TMP_OUTPUT_DIR + "smallp.bgwas";
+        GWASBinaryWriter.convert(inputPath, outputPath, genome);
+
+        TrackLoader loader = new TrackLoader();
+        GWASTrack expectedTrack = (GWASTrack) loader.load(new ResourceLocator(inputPath), genome).get(0);
+        List<Track> tracks = loader.load(new ResourceLocator(outputPath), genome);
+        GWASTrack track = (GWASTrack) tracks.get(0);
+
+        for (int i = 0; i < 18; i++) {
+            assertEquals(expectedTrack.getDescription("chr6", i), track.getDescription("chr6", i));
+        }
+    }
+
+    /**
+     * Several chromosomes,  with more data points than fit in one write buffer
+     */
+    @Test
+    public void testConvertMultipleChromosomes() throws Exception {
+
+        String inputPath = TestUtils.TMP_OUTPUT_DIR + "random_sorted.gwas";
+        String outputPath = TestUtils.TMP_OUTPUT_DIR + "random_sorted.bgwas";
+
+        Random random = new Random(12345);
+        String[] chrs = {"chr1", "chr2", "chrX"};
+        int[] counts = {20000, 10, 5000};
+        List<String> rows = new ArrayList<>();
+        try (PrintWriter writer = new PrintWriter(inputPath)) {
+            writer.println("CHR\tBP\tP\tSNP");
+            for (int c = 0; c < chrs.length; c++) {
+                int location = 1000;
+                for (int i = 0; i < counts[c]; i++) {
+                    location += random.nextInt(500);
+                    String row = chrs[c] + "\t" + location + "\t" + String.format("%2.8g", random.nextDouble()) + "\trs" + i;
+                    writer.println(row);
+                    rows.add(row);
+                }
+            }
+        }
+
+        GWASBinaryWriter.convert(inputPath, outputPath, genome);
+
+        GWASData expected = new GWASParser(new ResourceLocator(inputPath), genome).parse();
+        GWASBinaryData data = new GWASBinaryData(new File(outputPath));
+        assertDataEquals(expected, data);
+
+        int row = 0;
+        for (String chr : data.getChromosomes()) {
+            for (int i = 0; i < data.getSize(chr); i++) {
+                assertEquals(data.getDescriptionCache().formatDescription(rows.get(row++)), data.getDescription(chr, i));
+            }
+        }
+        assertEquals(rows.size(), row);
+
+        for (int i = 0; i < 1000; i++) {
+            String chr = chrs[random.nextInt(chrs.length)];
+            int location = random.nextInt(3000000);
+            double min = random.nextDouble() * 0.5;
+            int maxDistance = random.nextInt(2000);
+            assertEquals(nearestIndex(expected, chr, location, min, min + 0.5, maxDistance),
+                    data.getNearestIndexByLocation(chr, location, min, min + 0.5, maxDistance));
+        }
+    }
+
+    private static void assertDataEquals(GWASData expected, GWASData data) {
+        assertEquals(new ArrayList<>(expected.getChromosomes()), new ArrayList<>(data.getChromosomes()));
+        assertEquals(expected.getMaxValue(), data.getMaxValue(), 0);
+        for (String chr : expected.getChromosomes()) {
+            int size = expected.getSize(chr);
+            assertEquals(size, data.getSize(chr));
+            assertEquals(expected.getCumulativeChrLocation(chr), data.getCumulativeChrLocation(chr));
+            for (int i = 0; i < size; i++) {
+                assertEquals(expected.getLocation(chr, i), data.getLocation(chr, i));
+                assertEquals(expected.getValue(chr, i), data.getValue(chr, i), 0);
+            }
+        }
+    }
+
+    /**
+     * Exhaustive search for the nearest data point in range
+     */
+    private static int nearestIndex(GWASData data, String chr, int location, double minValue, double maxValue, int maxDistance) {
+        int index = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < data.getSize(chr); i++) {
+            double value = data.getValue(chr, i);
+            int distance = Math.abs(location - data.getLocation(chr, i));
+            // Ties go to the data point after the location
+            boolean closer = distance < bestDistance || (distance == bestDistance && data.getLocation(chr, i) >= location);
+            if (value > minValue && value < maxValue && distance <= maxDistance && closer) {
+                index = i;
+                bestDistance = distance;
+            }
+        }
+        return index;
+    }
+}
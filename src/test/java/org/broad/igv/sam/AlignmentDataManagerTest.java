@@ -216,6 +216,67 @@ public class AlignmentDataManagerTest extends AbstractHeadlessTest {
         }
     }
 
+    /**
+     * End to end load with SAM.PARALLEL_LOAD on:  alignments are decoded on a worker thread,  panning prefetches the
+     * next interval,  and panning onto it uses the prefetched alignments,  which match a serial load.
+     */
+    @Test
+    public void testParallelLoadWithPrefetch() throws Exception {
+        String path = TestUtils.DATA_DIR + "bam/gstt1_sample.bam";
+        String sequence = "chr22";
+
+        // Downsampling is random,  load everything so the parallel and serial loads see the same alignments
+        PreferencesManager.getPreferences().put(Constants.SAM_DOWNSAMPLE_READS, "false");
+        PreferencesManager.getPreferences().put(Constants.SAM_PARALLEL_LOAD, "true");
+        AlignmentInterval prefetched;
+        try {
+            AlignmentDataManager manager = new AlignmentDataManager(new ResourceLocator(path), genome);
+            AlignmentTrack.RenderOptions renderOptions = new AlignmentTrack.RenderOptions();
+            ReferenceFrame frame = new ReferenceFrame(frameName);
+            frame.setBounds(0, 1000);
+
+            // Loads are expanded to 2 kb either side of the view center
+            frame.jumpTo(sequence, 24370000, 24371000);
+            manager.load(frame, renderOptions, true);
+            assertNotNull(manager.getLoadedInterval(frame));
+            Assert.assertNull(manager.getPrefetchedInterval());
+
+            // Panning right prefetches the next interval to the right
+            frame.jumpTo(sequence, 24373000, 24374000);
+            manager.load(frame, renderOptions, true);
+            AlignmentInterval loaded = manager.getLoadedInterval(frame);
+            assertNotNull(loaded);
+            long timeout = System.currentTimeMillis() + 10000;
+            while ((prefetched = manager.getPrefetchedInterval()) == null && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            assertNotNull(prefetched);
+            Assert.assertEquals(loaded.getEnd(), prefetched.getStart());
+
+            frame.jumpTo(sequence, 24376000, 24377000);
+            manager.load(frame, renderOptions, true);
+            Assert.assertSame(prefetched, manager.getLoadedInterval(frame));
+            Assert.assertNull(manager.getPrefetchedInterval());
+        } finally {
+            PreferencesManager.getPreferences().put(Constants.SAM_PARALLEL_LOAD, "false");
+        }
+
+        try {
+            AlignmentDataManager serialManager = new AlignmentDataManager(new ResourceLocator(path), genome);
+            AlignmentInterval serial = loadInterval(serialManager, sequence, prefetched.getStart(), prefetched.getEnd());
+            List<Alignment> expected = serial.getAlignments();
+            List<Alignment> actual = prefetched.getAlignments();
+            assertTrue(expected.size() > 0);
+            Assert.assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertEquals(expected.get(i).getReadName(), actual.get(i).getReadName());
+                Assert.assertEquals(expected.get(i).getStart(), actual.get(i).getStart());
+            }
+        } finally {
+            PreferencesManager.getPreferences().remove(Constants.SAM_DOWNSAMPLE_READS);
+        }
+    }
+
     @Ignore
     @Test
     public void testQueryLargeFile() throws Exception {
@@ -89,6 +89,63 @@ public class AlignmentTileLoaderTest extends AbstractHeadlessTest {
 
     }
 
+    /**
+     * Test that decoding on a worker thread,  and storing alignments in a compact store,  load the same alignments as
+     * the serial path.
+     */
+    @Test
+    public void testParallelAndCompactLoad() throws Exception {
+        String path = TestUtils.DATA_DIR + "bam/gstt1_sample.bam";
+        String sequence = "chr22";
+        int start = 24370000;
+        int end = 24380000;
+
+        PreferencesManager.getPreferences().put(Constants.SAM_PARALLEL_LOAD, "false");
+        List<Alignment> serial = loadAll(path, sequence, start, end);
+
+        PreferencesManager.getPreferences().put(Constants.SAM_PARALLEL_LOAD, "true");
+        PreferencesManager.getPreferences().put(Constants.SAM_COMPACT_MEMORY_MODE, "true");
+        List<Alignment> parallel = loadAll(path, sequence, start, end);
+        PreferencesManager.getPreferences().put(Constants.SAM_COMPACT_MEMORY_MODE, "false");
+        PreferencesManager.getPreferences().put(Constants.SAM_PARALLEL_LOAD, "false");
+
+        assertTrue(serial.size() > 0);
+        assertEquals(serial.size(), parallel.size());
+        for (int i = 0; i < serial.size(); i++) {
+            assertTrue(parallel.get(i) instanceof CompactAlignment);
+            assertEquals(serial.get(i).getReadName(), parallel.get(i).getReadName());
+            assertEquals(serial.get(i).getStart(), parallel.get(i).getStart());
+            assertEquals(serial.get(i).getCigarString(), parallel.get(i).getCigarString());
+        }
+    }
+
+    @Test
+    public void testBackgroundLoad() throws Exception {
+        String path = TestUtils.DATA_DIR + "bam/gstt1_sample.bam";
+        String sequence = "chr22";
+        int start = 24370000;
+        int end = 24380000;
+
+        AlignmentTileLoader loader = new AlignmentTileLoader(AlignmentReaderFactory.getReader(new ResourceLocator(path)));
+        AlignmentDataManager.DownsampleOptions downsampleOptions = new AlignmentDataManager.DownsampleOptions(false, 50, 100);
+
+        AlignmentTileLoader.AlignmentTile tile = loader.loadTile(sequence, start, end, null, downsampleOptions, null, null, null, () -> false);
+        assertEquals(loadAll(path, sequence, start, end).size(), tile.getAlignments().size());
+
+        // A cancelled background load is abandoned
+        assertNull(loader.loadTile(sequence, start, end, null, downsampleOptions, null, null, null, () -> true));
+        loader.close();
+    }
+
+    private List<Alignment> loadAll(String path, String sequence, int start, int end) throws Exception {
+        AlignmentReader reader = AlignmentReaderFactory.getReader(new ResourceLocator(path));
+        AlignmentTileLoader loader = new AlignmentTileLoader(reader);
+        AlignmentDataManager.DownsampleOptions downsampleOptions = new AlignmentDataManager.DownsampleOptions(false, 50, 100);
+        AlignmentTileLoader.AlignmentTile tile = loader.loadTile(sequence, start, end, null, downsampleOptions, null, null, null);
+        loader.close();
+        return tile.getAlignments();
+    }
+
     private AlignmentTileLoader.AlignmentTile tstKeepPairsDownsample(String path, String sequence, int start, int end, int maxDepth) throws Exception{
 
 
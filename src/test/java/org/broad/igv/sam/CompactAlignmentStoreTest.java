@@ -0,0 +1,214 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import htsjdk.samtools.util.CloseableIterator;
+import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.sam.reader.AlignmentReader;
+import org.broad.igv.sam.reader.AlignmentReaderFactory;
+import org.broad.igv.util.TestUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.*;
+
+public class CompactAlignmentStoreTest extends AbstractHeadlessTest {
+
+    @Test
+    public void testViewsMatchSource() throws Exception {
+
+        List<Alignment> originals = loadAlignments(TestUtils.DATA_DIR + "bam/gstt1_sample.bam");
+        assertTrue(originals.size() > 0);
+
+        CompactAlignmentStore store = new CompactAlignmentStore(10);
+        List<Alignment> views = new ArrayList<>();
+        for (Alignment a : originals) {
+            views.add(store.add(a));
+        }
+        assertEquals(originals.size(), store.size());
+
+        for (int i = 0; i < originals.size(); i++) {
+            assertAlignmentEquals(originals.get(i), views.get(i));
+        }
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+
+        List<Alignment> originals = loadAlignments(TestUtils.DATA_DIR + "bam/gstt1_sample.bam");
+
+        CompactAlignmentStore store = new CompactAlignmentStore();
+        List<Alignment> views = new ArrayList<>();
+        for (Alignment a : originals) {
+            views.add(store.add(a));
+        }
+
+        // Keep every other alignment, as if the remainder were dropped by downsampling
+        List<Alignment> kept = new ArrayList<>();
+        List<Alignment> keptOriginals = new ArrayList<>();
+        for (int i = 0; i < views.size(); i += 2) {
+            kept.add(views.get(i));
+            keptOriginals.add(originals.get(i));
+        }
+        views.get(0).setMateSequence("ACGTN");
+
+        CompactAlignmentStore compacted = store.compact(kept);
+        assertEquals(kept.size(), compacted.size());
+        assertTrue(compacted.estimateSize() < store.estimateSize());
+        for (int i = 0; i < kept.size(); i++) {
+            assertSame(compacted, ((CompactAlignment) kept.get(i)).store);
+            assertAlignmentEquals(keptOriginals.get(i), kept.get(i));
+        }
+        assertEquals("ACGTN", compacted.getMateSequence(0));
+    }
+
+    @Test
+    public void testValueStringMatchesSource() throws Exception {
+
+        List<Alignment> originals = loadAlignments(TestUtils.DATA_DIR + "bam/gstt1_sample.bam");
+
+        CompactAlignmentStore store = new CompactAlignmentStore();
+        for (Alignment a : originals) {
+            Alignment view = store.add(a);
+            int mid = (a.getStart() + a.getEnd()) / 2;
+            assertEquals(a.getValueString(mid, -1, null), view.getValueString(mid, -1, null));
+            assertEquals(a.getClipboardString(mid, -1), view.getClipboardString(mid, -1));
+        }
+    }
+
+    @Test
+    public void testBlockViewsCached() throws Exception {
+
+        List<Alignment> originals = loadAlignments(TestUtils.DATA_DIR + "bam/gstt1_sample.bam");
+
+        CompactAlignmentStore store = new CompactAlignmentStore();
+        List<Alignment> views = new ArrayList<>();
+        for (Alignment a : originals) {
+            views.add(store.add(a));
+        }
+
+        Alignment view = views.get(0);
+        AlignmentBlock[] blocks = view.getAlignmentBlocks();
+        assertSame(blocks, view.getAlignmentBlocks());
+        assertSame(view.getInsertions(), view.getInsertions());
+
+        // Compaction repoints the view,  its cached blocks must follow
+        store.compact(views);
+        assertNotSame(blocks, view.getAlignmentBlocks());
+        assertAlignmentEquals(originals.get(0), view);
+    }
+
+    @Test
+    public void testPackedBases() {
+        CompactAlignmentStore.PackedBases bases = new CompactAlignmentStore.PackedBases(4);
+        String seq = "ACGTNNacgt=ACGTRYACG";
+        bases.add(seq);
+        assertEquals(seq.length(), bases.size());
+        byte[] decoded = new byte[seq.length()];
+        bases.get(0, decoded, 0, decoded.length);
+        assertEquals(seq, new String(decoded));
+        for (int i = 0; i < seq.length(); i++) {
+            assertEquals(seq.charAt(i), (char) bases.get(i));
+        }
+        byte[] sub = new byte[7];
+        bases.get(5, sub, 0, 7);
+        assertEquals(seq.substring(5, 12), new String(sub));
+    }
+
+    private List<Alignment> loadAlignments(String path) throws Exception {
+        AlignmentReader reader = AlignmentReaderFactory.getReader(path, false);
+        List<Alignment> alignments = new ArrayList<>();
+        CloseableIterator<Alignment> iter = reader.iterator();
+        while (iter.hasNext()) {
+            Alignment a = iter.next();
+            if (a.isMapped()) alignments.add(a);
+        }
+        iter.close();
+        reader.close();
+        return alignments;
+    }
+
+    private static void assertAlignmentEquals(Alignment expected, Alignment actual) {
+        assertEquals(expected.getReadName(), actual.getReadName());
+        assertEquals(expected.getReadSequence(), actual.getReadSequence());
+        assertEquals(expected.getChr(), actual.getChr());
+        assertEquals(expected.getStart(), actual.getStart());
+        assertEquals(expected.getEnd(), actual.getEnd());
+        assertEquals(expected.getAlignmentStart(), actual.getAlignmentStart());
+        assertEquals(expected.getAlignmentEnd(), actual.getAlignmentEnd());
+        assertEquals(expected.getCigarString(), actual.getCigarString());
+        assertEquals(expected.getMappingQuality(), actual.getMappingQuality());
+        assertEquals(expected.getInferredInsertSize(), actual.getInferredInsertSize());
+        assertEquals(expected.isNegativeStrand(), actual.isNegativeStrand());
+        assertEquals(expected.isPaired(), actual.isPaired());
+        assertEquals(expected.isProperPair(), actual.isProperPair());
+        assertEquals(expected.isFirstOfPair(), actual.isFirstOfPair());
+        assertEquals(expected.isDuplicate(), actual.isDuplicate());
+        assertEquals(expected.isPrimary(), actual.isPrimary());
+        assertEquals(expected.getPairOrientation(), actual.getPairOrientation());
+        assertEquals(expected.getFirstOfPairStrand(), actual.getFirstOfPairStrand());
+        assertEquals(expected.getSecondOfPairStrand(), actual.getSecondOfPairStrand());
+        assertEquals(expected.getReadGroup(), actual.getReadGroup());
+        assertEquals(expected.getSample(), actual.getSample());
+        assertEquals(expected.getAttribute("RG"), actual.getAttribute("RG"));
+        assertEquals(expected.getAttribute("NM"), actual.getAttribute("NM"));
+
+        if (expected.getMate() == null) {
+            assertNull(actual.getMate());
+        } else {
+            assertEquals(expected.getMate().getChr(), actual.getMate().getChr());
+            assertEquals(expected.getMate().getStart(), actual.getMate().getStart());
+            assertEquals(expected.getMate().isMapped(), actual.getMate().isMapped());
+        }
+
+        AlignmentBlock[] expectedBlocks = expected.getAlignmentBlocks();
+        AlignmentBlock[] actualBlocks = actual.getAlignmentBlocks();
+        assertEquals(expectedBlocks.length, actualBlocks.length);
+        for (int b = 0; b < expectedBlocks.length; b++) {
+            assertEquals(expectedBlocks[b].getStart(), actualBlocks[b].getStart());
+            assertEquals(expectedBlocks[b].getLength(), actualBlocks[b].getLength());
+            assertEquals(expectedBlocks[b].isSoftClipped(), actualBlocks[b].isSoftClipped());
+            assertEquals(new String(expectedBlocks[b].getBases()), new String(actualBlocks[b].getBases()));
+            for (int i = 0; i < expectedBlocks[b].getLength(); i++) {
+                assertEquals(expectedBlocks[b].getQuality(i), actualBlocks[b].getQuality(i));
+            }
+        }
+        AlignmentBlock[] expectedInsertions = expected.getInsertions();
+        AlignmentBlock[] actualInsertions = actual.getInsertions();
+        assertEquals(expectedInsertions.length, actualInsertions.length);
+        for (int b = 0; b < expectedInsertions.length; b++) {
+            assertEquals(expectedInsertions[b].getStart(), actualInsertions[b].getStart());
+            assertEquals(new String(expectedInsertions[b].getBases()), new String(actualInsertions[b].getBases()));
+            assertEquals(expectedInsertions[b].getQuality(0), actualInsertions[b].getQuality(0));
+        }
+
+        int mid = (expected.getStart() + expected.getEnd()) / 2;
+        assertEquals(expected.getBase(mid), actual.getBase(mid));
+        assertEquals(expected.getPhred(mid), actual.getPhred(mid));
+    }
+}
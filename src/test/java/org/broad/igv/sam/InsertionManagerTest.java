@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.util.collections.IntIntHashMap;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InsertionManagerTest extends AbstractHeadlessTest {
+
+    private static final String CHR = "chr1";
+
+    @After
+    public void tearDown() throws Exception {
+        InsertionManager.getInstance().clear();
+        super.tearDown();
+    }
+
+    @Test
+    public void testMergeOverlappingIntervals() {
+
+        InsertionManager manager = InsertionManager.getInstance();
+        manager.clear();
+        assertNull(manager.getInsertions(CHR, 0, 1000));
+
+        manager.addInsertions(CHR, sizes(100, 2, 300, 5, 500, 1));
+        List<InsertionMarker> markers = manager.getInsertions(CHR, 0, 1000);
+        assertEquals(3, markers.size());
+        InsertionMarker marker300 = markers.get(1);
+
+        // Overlapping interval,  300 is seen again with a longer insertion
+        manager.addInsertions(CHR, sizes(300, 8, 400, 3, 50, 4));
+        markers = manager.getInsertions(CHR, 0, 1000);
+        assertEquals(5, markers.size());
+        int last = -1;
+        for (InsertionMarker m : markers) {
+            assertTrue(m.position > last);
+            last = m.position;
+        }
+        assertSame(marker300, markers.get(2));
+        assertEquals(8, marker300.size);
+
+        // Bounds are inclusive
+        markers = manager.getInsertions(CHR, 300, 400);
+        assertEquals(2, markers.size());
+        assertEquals(300, markers.get(0).position);
+        assertEquals(400, markers.get(1).position);
+        assertEquals(0, manager.getInsertions(CHR, 301.5, 399.5).size());
+
+        manager.setSelected(CHR, 300);
+        assertSame(marker300, manager.getSelectedInsertion(CHR));
+        manager.clearSelected();
+        assertNull(manager.getSelectedInsertion(CHR));
+    }
+
+    @Test
+    public void testCollectInsertions() {
+
+        IntIntHashMap insertionSizes = new IntIntHashMap(16, 0);
+        InsertionManager.collectInsertions(createAlignment(1000, "10M2I10M"), 0, insertionSizes);
+        InsertionManager.collectInsertions(createAlignment(1005, "5M4I10M1I5M"), 0, insertionSizes);
+        InsertionManager.collectInsertions(createAlignment(990, "20M3I10M"), 3, insertionSizes);
+
+        int[] positions = insertionSizes.keys();
+        Arrays.sort(positions);
+        assertArrayEquals(new int[]{1010, 1020}, positions);
+        assertEquals(4, insertionSizes.get(1010));
+        assertEquals(1, insertionSizes.get(1020));
+
+        InsertionManager.getInstance().addInsertions(CHR, insertionSizes);
+        assertEquals(2, InsertionManager.getInstance().getInsertions(CHR, 1000, 1100).size());
+    }
+
+    private static IntIntHashMap sizes(int... positionSizePairs) {
+        IntIntHashMap sizes = new IntIntHashMap(16, 0);
+        for (int i = 0; i < positionSizePairs.length; i += 2) {
+            sizes.put(positionSizePairs[i], positionSizePairs[i + 1]);
+        }
+        return sizes;
+    }
+
+    private static Alignment createAlignment(int start, String cigar) {
+        SAMRecord record = new SAMRecord(new SAMFileHeader());
+        record.setReadName("read");
+        record.setReferenceName(CHR);
+        record.setAlignmentStart(start + 1);
+        record.setCigarString(cigar);
+        byte[] bases = new byte[record.getCigar().getReadLength()];
+        Arrays.fill(bases, (byte) 'A');
+        record.setReadBases(bases);
+        record.setBaseQualities(new byte[bases.length]);
+        return new PicardAlignment(record);
+    }
+}
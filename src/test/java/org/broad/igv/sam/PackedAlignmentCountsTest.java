@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import org.broad.igv.AbstractHeadlessTest;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PackedAlignmentCountsTest extends AbstractHeadlessTest {
+
+    private static final byte[] BASES = {'A', 'T', 'C', 'G', 'N', 'a', 'R'};
+
+    @Test
+    public void testMatchesDenseCounts() throws Exception {
+
+        int start = 1000;
+        int end = start + 3 * PackedAlignmentCounts.BLOCK_SIZE + 17;
+        DenseAlignmentCounts dense = new DenseAlignmentCounts(start, end, null);
+        PackedAlignmentCounts packed = new PackedAlignmentCounts(start, end, null);
+
+        Random random = new Random(3);
+        for (int i = 0; i < 200000; i++) {
+            // Leave the first block empty
+            int pos = start + PackedAlignmentCounts.BLOCK_SIZE + random.nextInt(end - start);
+            byte b = BASES[random.nextInt(BASES.length)];
+            byte q = (byte) random.nextInt(60);
+            boolean neg = random.nextBoolean();
+            dense.incPositionCount(pos, b, q, neg);
+            packed.incPositionCount(pos, b, q, neg);
+            if (i % 10 == 0) {
+                dense.incrementDeletion(pos, neg);
+                packed.incrementDeletion(pos, neg);
+            }
+        }
+
+        assertEquals(dense.getNumberOfPoints(), packed.getNumberOfPoints());
+        for (int pos = start - 5; pos < end + 5; pos++) {
+            assertEquals(dense.getTotalCount(pos), packed.getTotalCount(pos));
+            assertEquals(dense.getDelCount(pos), packed.getDelCount(pos));
+            assertEquals(dense.getInsCount(pos), packed.getInsCount(pos));
+            assertEquals(dense.getTotalQuality(pos), packed.getTotalQuality(pos));
+            for (byte b : new byte[]{'A', 'T', 'C', 'G', 'N'}) {
+                assertEquals(dense.getCount(pos, b), packed.getCount(pos, b));
+                assertEquals(dense.getPosCount(pos, b), packed.getPosCount(pos, b));
+                assertEquals(dense.getNegCount(pos, b), packed.getNegCount(pos, b));
+                if (pos >= start && pos < end) {
+                    assertEquals(dense.getQuality(pos, b), packed.getQuality(pos, b));
+                }
+            }
+        }
+        for (int s = start; s < end; s += 250) {
+            assertEquals(dense.getMaxCount(s, s + 500), packed.getMaxCount(s, s + 500));
+        }
+    }
+
+    @Test
+    public void testPromoteOnOverflow() throws Exception {
+        int start = 0;
+        PackedAlignmentCounts packed = new PackedAlignmentCounts(start, 2 * PackedAlignmentCounts.BLOCK_SIZE, null);
+
+        int pos = 10;
+        int n = 2000;
+        for (int i = 0; i < n; i++) {
+            packed.incPositionCount(pos, (byte) 'G', (byte) 40, false);
+        }
+        assertTrue(packed.isPromoted(pos));
+        assertFalse(packed.isPromoted(PackedAlignmentCounts.BLOCK_SIZE + pos));
+        assertEquals(n, packed.getCount(pos, (byte) 'G'));
+        assertEquals(n * 40, packed.getQuality(pos, (byte) 'G'));
+        assertEquals(n * 40, packed.getTotalQuality(pos));
+    }
+}
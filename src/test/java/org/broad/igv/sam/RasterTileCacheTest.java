@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.event.IGVEventBus;
+import org.broad.igv.track.RenderContext;
+import org.broad.igv.ui.panel.FrameManager;
+import org.broad.igv.ui.panel.ReferenceFrame;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RasterTileCacheTest extends AbstractHeadlessTest {
+
+    @Test
+    public void testPanReusesTiles() {
+
+        ReferenceFrame frame = createFrame();
+        RasterTileCache cache = new RasterTileCache();
+        List<Double> tileOrigins = new ArrayList<>();
+
+        // 1000 pixels,  tiles 0-3 are visible
+        paint(cache, frame, "key", tileOrigins);
+        assertEquals(4, tileOrigins.size());
+        assertEquals(0, tileOrigins.get(0), 0);
+        assertEquals(RasterTileCache.TILE_WIDTH * frame.getScale(), tileOrigins.get(1), 1.0e-6);
+
+        // Pan right by 100 pixels,  only tile 4 is exposed
+        tileOrigins.clear();
+        frame.origin += 100 * frame.getScale();
+        paint(cache, frame, "key", tileOrigins);
+        assertEquals(1, tileOrigins.size());
+        assertEquals(4 * RasterTileCache.TILE_WIDTH * frame.getScale(), tileOrigins.get(0), 1.0e-6);
+
+        // New key,  e.g. after a repack,  renders all visible tiles
+        tileOrigins.clear();
+        paint(cache, frame, "key2", tileOrigins);
+        assertEquals(5, tileOrigins.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTilesAligned() {
+
+        ReferenceFrame frame = createFrame();
+        frame.origin = 37 * frame.getScale();
+        RasterTileCache cache = new RasterTileCache();
+
+        // Tile renderer marks each genomic pixel boundary at 256 pixel intervals
+        BufferedImage image = new BufferedImage(frame.getWidthInPixels(), 20, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.white);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        RenderContext context = new RenderContext(null, g, frame, new Rectangle(0, 0, image.getWidth(), 20));
+        cache.paint(context, 0, 20, "key", tileContext -> {
+            Graphics2D tg = tileContext.getGraphics();
+            tg.setColor(Color.black);
+            tg.fillRect(0, 0, 1, 20);
+        });
+
+        // Tile 1 starts at genomic pixel 256,  which is screen pixel 256 - 37
+        assertEquals(Color.black.getRGB(), image.getRGB(RasterTileCache.TILE_WIDTH - 37, 10));
+        assertEquals(Color.white.getRGB(), image.getRGB(RasterTileCache.TILE_WIDTH - 36, 10));
+    }
+
+    @Test
+    public void testRetainFrames() {
+
+        ReferenceFrame frame = createFrame();
+        RasterTileCache cache = new RasterTileCache();
+        paint(cache, frame, "key", new ArrayList<>());
+        assertTrue(cache.size() > 0);
+
+        cache.retainFrames(Collections.singletonList(frame.getName()));
+        assertTrue(cache.size() > 0);
+
+        cache.retainFrames(Collections.singletonList("other"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testReleaseAndHeightChange() {
+
+        ReferenceFrame frame = createFrame();
+        RasterTileCache cache = new RasterTileCache();
+        List<Double> tileOrigins = new ArrayList<>();
+        paint(cache, frame, "key", tileOrigins);
+        assertEquals(4, cache.size());
+
+        // Tiles of a different height are not reused
+        tileOrigins.clear();
+        paint(cache, frame, "key", 30, tileOrigins);
+        assertEquals(4, tileOrigins.size());
+
+        // Tiles of other caches are unaffected by a release
+        RasterTileCache other = new RasterTileCache();
+        paint(other, frame, "key", new ArrayList<>());
+        cache.release(frame.getName());
+        assertEquals(0, cache.size());
+        assertEquals(4, other.size());
+        other.clear();
+        assertEquals(0, other.size());
+    }
+
+    private static ReferenceFrame createFrame() {
+        ReferenceFrame frame = new ReferenceFrame(FrameManager.getDefaultFrame(), new IGVEventBus());
+        frame.setName("tiles");
+        frame.setBounds(0, 1000);
+        frame.jumpTo("chr1", 100000, 110000);
+        frame.origin = 0;
+        return frame;
+    }
+
+    private static void paint(RasterTileCache cache, ReferenceFrame frame, Object key, final List<Double> tileOrigins) {
+        paint(cache, frame, key, 20, tileOrigins);
+    }
+
+    private static void paint(RasterTileCache cache, ReferenceFrame frame, Object key, int height, final List<Double> tileOrigins) {
+        BufferedImage image = new BufferedImage(frame.getWidthInPixels(), height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        RenderContext context = new RenderContext(null, g, frame, new Rectangle(0, 0, image.getWidth(), height));
+        cache.paint(context, 0, height, key, tileContext -> tileOrigins.add(tileContext.getOrigin()));
+        g.dispose();
+    }
+}
@@ -27,10 +27,13 @@ package org.broad.igv.sam;
 
 import htsjdk.samtools.*;
 import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.prefs.Constants;
+import org.broad.igv.prefs.PreferencesManager;
 import org.broad.igv.sam.reader.AlignmentReader;
 import org.broad.igv.sam.reader.AlignmentReaderFactory;
 import org.broad.igv.sam.reader.MergedAlignmentReaderTest;
 import org.broad.igv.sam.reader.SAMReader;
+import org.broad.igv.ui.panel.ReferenceFrame;
 import org.broad.igv.util.ResourceLocator;
 import org.broad.igv.util.TestUtils;
 import org.junit.Test;
@@ -201,4 +204,53 @@ public class SAMWriterTest extends AbstractHeadlessTest {
         assertTrue("No alignments read", readCount > 0);
         assertEquals("Read a different number of alignments than written", writtenCount, readCount);
     }
+
+    /**
+     * Compact alignments do not hold SAM records,  so exporting them must produce the same file as the full records.
+     */
+    @Test
+    public void testWriteCompactAlignments() throws Exception {
+        String sequence = "chr22";
+        int start = 24370000;
+        int end = 24380000;
+
+        List<String> full = exportLoadedAlignments(sequence, start, end, false);
+        List<String> compact = exportLoadedAlignments(sequence, start, end, true);
+
+        assertTrue(full.size() > 0);
+        assertEquals(full, compact);
+    }
+
+    private List<String> exportLoadedAlignments(String sequence, int start, int end, boolean compact) throws Exception {
+
+        // Downsampling is random,  load everything so both exports see the same alignments
+        PreferencesManager.getPreferences().put(Constants.SAM_DOWNSAMPLE_READS, "false");
+        PreferencesManager.getPreferences().put(Constants.SAM_COMPACT_MEMORY_MODE, String.valueOf(compact));
+        try {
+            ResourceLocator locator = new ResourceLocator(TestUtils.DATA_DIR + "bam/gstt1_sample.bam");
+            AlignmentDataManager manager = new AlignmentDataManager(locator, genome);
+            ReferenceFrame frame = new ReferenceFrame("SAMWriterTest");
+            frame.setBounds(0, 1000);
+            frame.jumpTo(sequence, start, end);
+            manager.load(frame, new AlignmentTrack.RenderOptions(), false);
+            assertEquals(compact, manager.getLoadedInterval(frame).getAlignments().get(0) instanceof CompactAlignment);
+
+            File outFile = new File(TestUtils.TMP_OUTPUT_DIR, "compact_" + compact + ".bam");
+            outFile.deleteOnExit();
+            new File(outFile.getPath().replace(".bam", ".bai")).deleteOnExit();
+            int count = SAMWriter.writeAlignmentFilePicard(manager, outFile, frame, sequence, start, end);
+
+            List<String> records = new ArrayList<>();
+            SamReader reader = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).open(outFile);
+            for (SAMRecord record : reader) {
+                records.add(record.getSAMString());
+            }
+            reader.close();
+            assertEquals(count, records.size());
+            return records;
+        } finally {
+            PreferencesManager.getPreferences().put(Constants.SAM_COMPACT_MEMORY_MODE, "false");
+            PreferencesManager.getPreferences().remove(Constants.SAM_DOWNSAMPLE_READS);
+        }
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.feature.SpliceJunctionFeature;
+import org.broad.igv.feature.Strand;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SpliceJunctionHelperTest extends AbstractHeadlessTest {
+
+    private static final String CHR = "chr1";
+
+    /**
+     * Depths and flanking arrays should match those built up read by read with SpliceJunctionFeature.addRead
+     */
+    @Test
+    public void testMatchesAddRead() {
+
+        SpliceJunctionHelper helper = new SpliceJunctionHelper(new SpliceJunctionHelper.LoadOptions(1, 0));
+        Map<String, SpliceJunctionFeature> expected = new HashMap<>();
+        Random random = new Random(5);
+
+        for (int i = 0; i < 2000; i++) {
+            int junctionStart = 1000 + 500 * random.nextInt(10);
+            int intron = 100 + 50 * random.nextInt(3);
+            int left = 1 + random.nextInt(60);
+            int right = 1 + random.nextInt(60);
+            boolean negative = random.nextBoolean();
+
+            helper.addAlignment(createAlignment(junctionStart - left, left, intron, right, negative));
+
+            String key = (negative ? "-" : "+") + junctionStart + "-" + (junctionStart + intron);
+            SpliceJunctionFeature feature = expected.get(key);
+            if (feature == null) {
+                feature = new SpliceJunctionFeature(CHR, junctionStart, junctionStart + intron,
+                        negative ? Strand.NEGATIVE : Strand.POSITIVE);
+                expected.put(key, feature);
+            }
+            feature.addRead(junctionStart - left, junctionStart + intron + right);
+        }
+
+        List<SpliceJunctionFeature> junctions = helper.getFilteredJunctions(SpliceJunctionTrack.StrandOption.BOTH);
+        assertEquals(expected.size(), junctions.size());
+
+        int lastStart = Integer.MIN_VALUE;
+        for (SpliceJunctionFeature junction : junctions) {
+            assertTrue(junction.getStart() >= lastStart);
+            lastStart = junction.getStart();
+
+            String key = (junction.getStrand() == Strand.NEGATIVE ? "-" : "+") +
+                    junction.getJunctionStart() + "-" + junction.getJunctionEnd();
+            SpliceJunctionFeature feature = expected.get(key);
+            assertNotNull(key, feature);
+            assertEquals(feature.getJunctionDepth(), junction.getJunctionDepth());
+            assertEquals(feature.getStart(), junction.getStart());
+            assertEquals(feature.getEnd(), junction.getEnd());
+            assertArrayEquals(feature.getStartFlankingRegionDepthArray(), junction.getStartFlankingRegionDepthArray());
+            assertArrayEquals(feature.getEndFlankingRegionDepthArray(), junction.getEndFlankingRegionDepthArray());
+        }
+
+        // Cached until more alignments are added
+        assertSame(junctions, helper.getFilteredJunctions(SpliceJunctionTrack.StrandOption.BOTH));
+        helper.addAlignment(createAlignment(100, 20, 100, 20, false));
+        assertEquals(expected.size() + 1, helper.getFilteredJunctions(SpliceJunctionTrack.StrandOption.BOTH).size());
+    }
+
+    @Test
+    public void testStrandsAndCoverageFilter() {
+
+        SpliceJunctionHelper helper = new SpliceJunctionHelper(new SpliceJunctionHelper.LoadOptions(1, 0));
+
+        // 1000-1200: 2 + and 1 - reads,  2000-2100: 2 - reads only,  3000-3100: 1 + read
+        helper.addAlignment(createAlignment(950, 50, 200, 50, false));
+        helper.addAlignment(createAlignment(980, 20, 200, 30, false));
+        helper.addAlignment(createAlignment(990, 10, 200, 10, true));
+        helper.addAlignment(createAlignment(1950, 50, 100, 50, true));
+        helper.addAlignment(createAlignment(1960, 40, 100, 50, true));
+        helper.addAlignment(createAlignment(2950, 50, 100, 50, false));
+
+        assertEquals(2, helper.getFilteredJunctions(SpliceJunctionTrack.StrandOption.FORWARD).size());
+        assertEquals(2, helper.getFilteredJunctions(SpliceJunctionTrack.StrandOption.REVERSE).size());
+        assertEquals(4, helper.getFilteredJunctions(SpliceJunctionTrack.StrandOption.BOTH).size());
+
+        List<SpliceJunctionFeature> combined = helper.getFilteredJunctions(SpliceJunctionTrack.StrandOption.COMBINE);
+        assertEquals(3, combined.size());
+        assertEquals(1000, combined.get(0).getJunctionStart());
+        assertEquals(3, combined.get(0).getJunctionDepth());
+        assertEquals(2000, combined.get(1).getJunctionStart());
+        assertEquals(2, combined.get(1).getJunctionDepth());
+        assertEquals(1, combined.get(2).getJunctionDepth());
+        assertFalse(combined.get(0).hasFlankingRegionDepthArrays());
+
+        helper.setLoadOptions(new SpliceJunctionHelper.LoadOptions(2, 0));
+        combined = helper.getFilteredJunctions(SpliceJunctionTrack.StrandOption.COMBINE);
+        assertEquals(2, combined.size());
+        assertEquals(1, helper.getFilteredJunctions(SpliceJunctionTrack.StrandOption.FORWARD).size());
+        assertEquals(1, helper.getFilteredJunctions(SpliceJunctionTrack.StrandOption.REVERSE).size());
+    }
+
+    /**
+     * Alignment with cigar {left}M{intron}N{right}M starting at 0 based position start
+     */
+    private static Alignment createAlignment(int start, int left, int intron, int right, boolean negative) {
+        SAMRecord record = new SAMRecord(new SAMFileHeader());
+        record.setReadName("read");
+        record.setReferenceName(CHR);
+        record.setAlignmentStart(start + 1);
+        record.setCigarString(left + "M" + intron + "N" + right + "M");
+        byte[] bases = new byte[left + right];
+        Arrays.fill(bases, (byte) 'A');
+        record.setReadBases(bases);
+        record.setBaseQualities(new byte[bases.length]);
+        record.setAttribute("XS", negative ? "-" : "+");
+        return new PicardAlignment(record);
+    }
+}
@@ -1,9 +1,14 @@
 package org.broad.igv.sam.lite;
 
+import htsjdk.samtools.util.BlockCompressedOutputStream;
 import org.broad.igv.util.FileUtils;
 import org.broad.igv.util.TestUtils;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+
 import static org.junit.Assert.*;
 
 /**
@@ -27,5 +32,27 @@ public class BGUnzipTest {
 
     }
 
+    @Test
+    public void parallelBlockUnzip() throws Exception {
+
+        byte[] expected = new byte[2000000];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (byte) ((i * 31) ^ (i >> 7));
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BlockCompressedOutputStream bgz = new BlockCompressedOutputStream(bos, (File) null);
+        bgz.write(expected);
+        bgz.close();
+        byte[] compressed = bos.toByteArray();
+
+        assertArrayEquals(expected, BGUnzip.blockUnzip(compressed, 1));
+        assertArrayEquals(expected, BGUnzip.blockUnzip(compressed, 4));
+
+        // Zero-fill past the end of the data,  as when reading past EOF,  is ignored
+        byte[] padded = Arrays.copyOf(compressed, compressed.length + 65536);
+        assertArrayEquals(expected, BGUnzip.blockUnzip(padded, 4));
+    }
+
 
 }
@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.sam.reader;
+
+import htsjdk.samtools.util.CloseableIterator;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static junit.framework.Assert.*;
+
+public class AsyncAlignmentIteratorTest {
+
+    @Test
+    public void testOrderPreserved() {
+        AtomicBoolean sourceClosed = new AtomicBoolean(false);
+        int n = 25005;
+        AsyncAlignmentIterator<Integer> iter = new AsyncAlignmentIterator<>(new CountingIterator(n, sourceClosed));
+        int expected = 0;
+        while (iter.hasNext()) {
+            assertEquals(expected++, iter.next().intValue());
+        }
+        assertEquals(n, expected);
+        iter.close();
+        assertTrue(sourceClosed.get());
+    }
+
+    @Test
+    public void testEarlyClose() {
+        AtomicBoolean sourceClosed = new AtomicBoolean(false);
+        AsyncAlignmentIterator<Integer> iter = new AsyncAlignmentIterator<>(new CountingIterator(Integer.MAX_VALUE, sourceClosed));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(iter.hasNext());
+            iter.next();
+        }
+        iter.close();
+        // Close waits for the worker, so the source must be closed on return
+        assertTrue(sourceClosed.get());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testErrorPropagated() {
+        CloseableIterator<Integer> failing = new CountingIterator(10, new AtomicBoolean()) {
+            @Override
+            public Integer next() {
+                Integer next = super.next();
+                if (next == 5) throw new IllegalStateException("Corrupt record");
+                return next;
+            }
+        };
+        AsyncAlignmentIterator<Integer> iter = new AsyncAlignmentIterator<>(failing);
+        try {
+            while (iter.hasNext()) {
+                iter.next();
+            }
+        } finally {
+            iter.close();
+        }
+    }
+
+    private static class CountingIterator implements CloseableIterator<Integer> {
+
+        int next = 0;
+        final int size;
+        final AtomicBoolean closed;
+
+        CountingIterator(int size, AtomicBoolean closed) {
+            this.size = size;
+            this.closed = closed;
+        }
+
+        public void close() {
+            closed.set(true);
+        }
+
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        public Integer next() {
+            return next++;
+        }
+    }
+}
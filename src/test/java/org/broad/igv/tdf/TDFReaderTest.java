@@ -26,13 +26,13 @@
 package org.broad.igv.tdf;
 
 import org.broad.igv.util.ResourceLocator;
+import org.broad.igv.util.TestUtils;
 import org.junit.Test;
 
+import java.util.List;
 import java.util.Set;
 
-import static junit.framework.Assert.assertEquals;
-import static junit.framework.Assert.assertNotNull;
-import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.*;
 
 /**
  * @author jrobinso
@@ -70,4 +70,100 @@ public class TDFReaderTest {
         assertNotNull(tile);
 
     }
+
+    /**
+     * Batched reads should return the same tiles as reading them one at a time
+     */
+    @Test
+    public void testReadTiles() throws Exception {
+
+        for (String file : new String[]{"tdf/hg18_var_sample.wig.v2.2.1.tdf", "tdf/NA12878.SLX.egfr.sam.tdf"}) {
+
+            TDFReader reader = new TDFReader(new ResourceLocator(TestUtils.DATA_DIR + file));
+            int nTracks = reader.getTrackNames().length;
+            int tileCount = 0;
+
+            for (String name : reader.getDatasetNames()) {
+                TDFDataset dataset = reader.getDataset(name);
+                int[] tileNumbers = new int[dataset.nTiles + 1];
+                for (int t = 0; t < tileNumbers.length; t++) {
+                    tileNumbers[t] = tileNumbers.length - 1 - t;    // Reverse order,  and one out of range
+                }
+
+                TDFTile[] tiles = reader.readTiles(dataset, tileNumbers);
+                assertEquals(tileNumbers.length, tiles.length);
+                assertNull(tiles[0]);
+
+                for (int i = 0; i < tiles.length; i++) {
+                    TDFTile expected = reader.readTile(dataset, tileNumbers[i]);
+                    if (expected == null) {
+                        assertNull(tiles[i]);
+                        continue;
+                    }
+                    tileCount++;
+                    assertEquals(expected.getSize(), tiles[i].getSize());
+                    for (int p = 0; p < expected.getSize(); p++) {
+                        assertEquals(expected.getStartPosition(p), tiles[i].getStartPosition(p));
+                        assertEquals(expected.getEndPosition(p), tiles[i].getEndPosition(p));
+                        for (int n = 0; n < nTracks; n++) {
+                            assertEquals(expected.getValue(n, p), tiles[i].getValue(n, p), 0);
+                        }
+                    }
+                }
+            }
+            assertTrue(tileCount > 0);
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testSharedTileCache() throws Exception {
+
+        TDFReader reader = new TDFReader(new ResourceLocator(TestUtils.DATA_DIR + "tdf/NA12878.SLX.egfr.sam.tdf"));
+        TDFDataset dataset = null;
+        for (String name : reader.getDatasetNames()) {
+            TDFDataset ds = reader.getDataset(name);
+            if (ds.nTiles > 1 && (dataset == null || ds.nTiles > dataset.nTiles)) {
+                dataset = ds;
+            }
+        }
+        assertNotNull(dataset);
+
+        int end = dataset.nTiles * dataset.getTileWidth();
+        List<TDFTile> tiles = dataset.getTiles(0, end);
+        assertEquals(dataset.nTiles, countCached(reader));
+
+        // Cached tiles are returned as is
+        List<TDFTile> again = dataset.getTiles(0, end);
+        assertEquals(tiles.size(), again.size());
+        for (int i = 0; i < tiles.size(); i++) {
+            assertSame(tiles.get(i), again.get(i));
+        }
+
+        // A second reader of the same file has its own entries,  and closing it leaves the first reader's alone
+        TDFReader other = new TDFReader(new ResourceLocator(TestUtils.DATA_DIR + "tdf/NA12878.SLX.egfr.sam.tdf"));
+        TDFDataset otherDataset = other.getDataset(dataset.getName());
+        List<TDFTile> otherTiles = otherDataset.getTiles(0, end);
+        assertEquals(dataset.nTiles, countCached(other));
+        for (int i = 0; i < tiles.size(); i++) {
+            assertNotSame(tiles.get(i), otherTiles.get(i));
+        }
+        other.close();
+        assertEquals(0, countCached(other));
+        assertEquals(dataset.nTiles, countCached(reader));
+
+        reader.close();
+        assertEquals(0, countCached(reader));
+    }
+
+    private static int countCached(TDFReader reader) {
+        int n = 0;
+        for (TDFDataset.TileKey key : TDFDataset.tileCache.keySet()) {
+            if (key.readerId == reader.getId()) {
+                assertEquals(reader.getPath(), key.path);
+                n++;
+            }
+        }
+        return n;
+    }
 }
@@ -39,10 +39,12 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 
 
 public class CoverageCounterTest extends AbstractHeadlessTest {
@@ -146,6 +148,41 @@ public class CoverageCounterTest extends AbstractHeadlessTest {
     }
 
 
+    /**
+     * Counting an indexed file in shards on several threads should produce the same output,  in the same order,
+     * as counting it serially.
+     */
+    @Test
+    public void testShardedCount() throws Exception {
+        String ifile = TestUtils.DATA_DIR + "bam/gstt1_sample.bam";
+        int[] countFlags = new int[]{0, CoverageCounter.STRANDS_BY_READ + CoverageCounter.BASES};
+
+        for (int flags : countFlags) {
+            for (int extFactor : new int[]{0, 50}) {
+                TestDataConsumer serial = new TestDataConsumer();
+                new CoverageCounter(ifile, serial, 10, extFactor, null, genome, null, 0, flags).parse();
+
+                TestDataConsumer sharded = new TestDataConsumer();
+                CoverageCounter cc = new CoverageCounter(ifile, sharded, 10, extFactor, null, genome, null, 0, flags);
+                cc.setThreads(4);
+                cc.shardSize = 100;    // Force alignments to span shard boundaries
+                cc.parse();
+
+                assertEquals(serial.attributes.get("totalCount"), sharded.attributes.get("totalCount"));
+                assertTrue(serial.testDatas.size() > 0);
+                assertEquals(serial.testDatas.size(), sharded.testDatas.size());
+                for (int i = 0; i < serial.testDatas.size(); i++) {
+                    TestData expected = serial.testDatas.get(i);
+                    TestData actual = sharded.testDatas.get(i);
+                    assertEquals(expected.chr, actual.chr);
+                    assertEquals(expected.start, actual.start);
+                    assertEquals(expected.end, actual.end);
+                    assertTrue(Arrays.equals(expected.data, actual.data));
+                }
+            }
+        }
+    }
+
     @Test
     public void testCountBases() throws Exception {
         String ifile = TestUtils.DATA_DIR + "sam/NA12878.muc1.test.sam";
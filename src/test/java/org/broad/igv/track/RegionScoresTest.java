@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.track;
+
+import org.broad.igv.AbstractHeadlessTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RegionScoresTest extends AbstractHeadlessTest {
+
+    @Test
+    public void testSortScoresEachTrackOnce() throws Exception {
+
+        float[] values = {1, 5, Float.NaN, -2, 5, 3, -Float.MAX_VALUE, 0};
+        List<Track> tracks = new ArrayList<>();
+        List<ScoreTrack> scoreTracks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ScoreTrack t = new ScoreTrack("t" + i, values[i % values.length]);
+            tracks.add(t);
+            scoreTracks.add(t);
+        }
+
+        RegionScores scores = new RegionScores("chr1", 100, 200, 0, RegionScoreType.SCORE, null);
+        scores.sort(tracks);
+
+        // Descending,  NaN first,  ties in original order
+        float last = Float.NaN;
+        int lastIndex = -1;
+        for (Track t : tracks) {
+            ScoreTrack st = (ScoreTrack) t;
+            assertTrue(Float.compare(st.score, last) <= 0);
+            if (Float.compare(st.score, last) == 0) {
+                assertTrue(scoreTracks.indexOf(st) > lastIndex);
+            }
+            last = st.score;
+            lastIndex = scoreTracks.indexOf(st);
+        }
+
+        // Group scores reuse the track scores
+        TrackGroup group = new TrackGroup("group");
+        group.addAll(tracks);
+        float groupScore = group.getRegionScore(scores);
+
+        for (ScoreTrack t : scoreTracks) {
+            assertEquals(1, t.count.get());
+        }
+
+        assertEquals(group.getRegionScore("chr1", 100, 200, 0, RegionScoreType.SCORE, null), groupScore, 0);
+    }
+
+    @Test
+    public void testTrackError() throws Exception {
+        Track failing = new ScoreTrack("failing", 0) {
+            @Override
+            public float getRegionScore(String chr, int start, int end, int zoom, RegionScoreType type, String frameName) {
+                throw new RuntimeException("Expected");
+            }
+        };
+        Track ok = new ScoreTrack("ok", -1);
+        List<Track> tracks = new ArrayList<>(Arrays.asList(failing, null, ok));
+
+        new RegionScores("chr1", 100, 200, 0, RegionScoreType.SCORE, null).sort(tracks);
+        assertEquals(Arrays.asList(ok, failing, null), tracks);
+    }
+
+    @Test
+    public void testSortByScore() throws Exception {
+        List<String> items = new ArrayList<>(Arrays.asList("a", "b", "c", "d"));
+        RegionScores.sortByScore(items, new float[]{1, 3, 1, Float.NaN});
+        assertEquals(Arrays.asList("d", "b", "a", "c"), items);
+    }
+
+    static class ScoreTrack extends AbstractTrack {
+
+        final float score;
+        final AtomicInteger count = new AtomicInteger();
+
+        ScoreTrack(String id, float score) {
+            super(id);
+            this.score = score;
+        }
+
+        @Override
+        public float getRegionScore(String chr, int start, int end, int zoom, RegionScoreType type, String frameName) {
+            count.incrementAndGet();
+            return score;
+        }
+
+        public boolean isReadyToPaint(org.broad.igv.ui.panel.ReferenceFrame frame) {
+            return true;
+        }
+
+        public void load(org.broad.igv.ui.panel.ReferenceFrame frame) {
+        }
+
+        public void render(RenderContext context, java.awt.Rectangle rect) {
+        }
+    }
+}
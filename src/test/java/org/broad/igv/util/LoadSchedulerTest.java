@@ -0,0 +1,224 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LoadSchedulerTest {
+
+    @Test
+    public void testHostLimit() throws Exception {
+
+        LoadScheduler scheduler = new LoadScheduler(1, 8, 2);
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(scheduler.submit(() -> {
+                int n = running.incrementAndGet();
+                maxRunning.accumulateAndGet(n, Math::max);
+                sleep(5);
+                running.decrementAndGet();
+            }, "http://host1.org/data/file" + i + ".bam", LoadScheduler.Priority.NORMAL));
+        }
+        for (CompletableFuture<Void> f : futures) {
+            f.get(10, TimeUnit.SECONDS);
+        }
+
+        assertTrue(maxRunning.get() <= 2);
+        assertEquals(20, scheduler.getCompletedCount());
+        assertEquals(0, scheduler.getPendingCount());
+    }
+
+    @Test
+    public void testPriority() throws Exception {
+
+        LoadScheduler scheduler = new LoadScheduler(1, 1, 1);
+
+        // Block the single local thread so the following loads queue up
+        final CountDownLatch gate = new CountDownLatch(1);
+        scheduler.submit(() -> await(gate), "/data/blocker.bed", LoadScheduler.Priority.NORMAL);
+
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        futures.add(scheduler.submit(() -> order.add("background"), "/data/a.bed", LoadScheduler.Priority.BACKGROUND));
+        futures.add(scheduler.submit(() -> order.add("normal"), "/data/b.bed", LoadScheduler.Priority.NORMAL));
+        futures.add(scheduler.submit(() -> order.add("visible"), "/data/c.bed", LoadScheduler.Priority.VISIBLE));
+
+        gate.countDown();
+        for (CompletableFuture<Void> f : futures) {
+            f.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(3, order.size());
+        assertEquals("visible", order.get(0));
+        assertEquals("normal", order.get(1));
+        assertEquals("background", order.get(2));
+    }
+
+    @Test
+    public void testCancelPending() throws Exception {
+
+        LoadScheduler scheduler = new LoadScheduler(1, 1, 1);
+
+        final CountDownLatch gate = new CountDownLatch(1);
+        CompletableFuture<Void> localBlocker = scheduler.submit(() -> await(gate), "/data/blocker.bed", null);
+        CompletableFuture<Void> remoteBlocker = scheduler.submit(() -> await(gate), "http://host1.org/blocker.bam", null);
+
+        final AtomicInteger ran = new AtomicInteger();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            pending.add(scheduler.submit(ran::incrementAndGet, "/data/file" + i + ".bed", null));
+            pending.add(scheduler.submit(ran::incrementAndGet, "http://host1.org/file" + i + ".bam", null));
+        }
+        assertEquals(6, scheduler.getPendingCount());
+
+        scheduler.cancelPending();
+        gate.countDown();
+        localBlocker.get(10, TimeUnit.SECONDS);
+        remoteBlocker.get(10, TimeUnit.SECONDS);
+
+        for (CompletableFuture<Void> f : pending) {
+            assertTrue(f.isCancelled());
+        }
+        assertEquals(0, ran.get());
+        assertEquals(0, scheduler.getPendingCount());
+
+        // The host slot held by the remote blocker is released,  new loads still run
+        scheduler.submit(ran::incrementAndGet, "http://host1.org/after.bam", null).get(10, TimeUnit.SECONDS);
+        assertEquals(1, ran.get());
+    }
+
+    @Test
+    public void testInvokeAll() throws Exception {
+
+        LoadScheduler scheduler = new LoadScheduler(1, 1, 1);
+
+        // Nested calls run inline on compute lane threads,  so they complete even when every task waits on them
+        final AtomicInteger count = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tasks.add(() -> {
+                List<Runnable> nested = new ArrayList<>();
+                for (int j = 0; j < 10; j++) {
+                    nested.add(count::incrementAndGet);
+                }
+                try {
+                    scheduler.invokeAll(nested);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+        scheduler.invokeAll(tasks);
+        assertEquals(500, count.get());
+
+        List<Runnable> failing = new ArrayList<>();
+        failing.add(count::incrementAndGet);
+        failing.add(() -> {
+            throw new IllegalStateException("test");
+        });
+        try {
+            scheduler.invokeAll(failing);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(501, count.get());
+    }
+
+    /**
+     * Parallel computation still runs when every task lane thread is blocked
+     */
+    @Test
+    public void testInvokeAllWithBlockedTaskLane() throws Exception {
+
+        LoadScheduler scheduler = new LoadScheduler(1, 1, 1);
+
+        final CountDownLatch gate = new CountDownLatch(1);
+        for (int i = 0; i < 100; i++) {
+            scheduler.getTaskExecutor().submit(() -> {
+                await(gate);
+            });
+        }
+
+        final AtomicInteger count = new AtomicInteger();
+        final Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(() -> {
+                threads.add(Thread.currentThread().getName());
+                count.incrementAndGet();
+            });
+        }
+        try {
+            scheduler.invokeAll(tasks);
+            assertEquals(20, count.get());
+            for (String name : threads) {
+                assertFalse(name, name.startsWith("Task"));
+            }
+        } finally {
+            gate.countDown();
+        }
+    }
+
+    @Test
+    public void testGetHost() {
+        assertNull(LoadScheduler.getHost("/data/file.bam"));
+        assertNull(LoadScheduler.getHost(null));
+        assertEquals("host1.org", LoadScheduler.getHost("https://HOST1.org:8080/file.bam?x=1"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
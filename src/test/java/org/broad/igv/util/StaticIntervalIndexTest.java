@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StaticIntervalIndexTest {
+
+    @Test
+    public void testMatchesIntervalTree() {
+
+        Random random = new Random(13);
+        IntervalTree<Integer> tree = new IntervalTree<Integer>();
+        List<Interval<Integer>> intervals = new ArrayList<Interval<Integer>>();
+        for (int i = 0; i < 5000; i++) {
+            int low = random.nextInt(1000000);
+            int high = low + (random.nextInt(50) == 0 ? random.nextInt(200000) : random.nextInt(2000));
+            Interval<Integer> iv = new Interval<Integer>(low, high, i);
+            intervals.add(iv);
+            tree.insert(iv);
+        }
+
+        StaticIntervalIndex<Integer> index = new StaticIntervalIndex<Integer>(intervals);
+        assertEquals(intervals.size(), index.size());
+
+        final List<Interval<Integer>> visited = new ArrayList<Interval<Integer>>();
+        StaticIntervalIndex.Visitor<Integer> visitor = new StaticIntervalIndex.Visitor<Integer>() {
+            public void visit(Interval<Integer> interval) {
+                visited.add(interval);
+            }
+        };
+
+        for (int i = 0; i < 1000; i++) {
+            int start = random.nextInt(1100000) - 50000;
+            int end = start + random.nextInt(20000);
+
+            Set<Integer> expected = values(tree.findOverlapping(start, end));
+            List<Interval<Integer>> result = index.findOverlapping(start, end);
+            assertEquals(expected, values(result));
+
+            int lastLow = Integer.MIN_VALUE;
+            for (Interval<Integer> iv : result) {
+                assertTrue(iv.overlaps(start, end));
+                assertTrue(iv.getLow() >= lastLow);
+                lastLow = iv.getLow();
+            }
+
+            visited.clear();
+            int count = index.visitOverlapping(start, end, visitor);
+            assertEquals(result.size(), count);
+            assertEquals(result, visited);
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        StaticIntervalIndex<Integer> index = new StaticIntervalIndex<Integer>(Collections.<Interval<Integer>>emptyList());
+        assertTrue(index.isEmpty());
+        assertTrue(index.findOverlapping(0, 100).isEmpty());
+    }
+
+    private static Set<Integer> values(List<Interval<Integer>> intervals) {
+        Set<Integer> values = new HashSet<Integer>();
+        for (Interval<Integer> iv : intervals) {
+            values.add(iv.getValue());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.collections;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class LRUCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+
+        LRUCache<String, Integer> cache = new LRUCache<>(3);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        cache.get("a");
+        cache.put("d", 4);
+
+        assertEquals(3, cache.size());
+        assertFalse(cache.containsKey("b"));
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        assertEquals(1, cache.getEvictionCount());
+
+        // Keys are returned least recently used first
+        List<String> keys = new ArrayList<>(cache.keySet());
+        assertEquals("c", keys.get(0));
+        assertEquals("a", keys.get(2));
+    }
+
+    @Test
+    public void testWeightedEviction() throws Exception {
+
+        LRUCache<String, byte[]> cache = new LRUCache<>(100, 1000, b -> b.length);
+        for (int i = 0; i < 10; i++) {
+            cache.put(String.valueOf(i), new byte[300]);
+        }
+        assertEquals(3, cache.size());
+        assertEquals(900, cache.getWeight());
+        assertTrue(cache.containsKey("9"));
+        assertFalse(cache.containsKey("6"));
+
+        cache.clear();
+        assertEquals(0, cache.getWeight());
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testCounters() throws Exception {
+
+        LRUCache<String, String> cache = new LRUCache<>(10);
+        cache.put("a", "A");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testGlobalBudget() throws Exception {
+
+        CacheMemoryBudget budget = new CacheMemoryBudget(2000);
+        LRUCache<String, byte[]> cache1 = new LRUCache<>(100, Long.MAX_VALUE, b -> b.length, budget);
+        LRUCache<String, byte[]> cache2 = new LRUCache<>(100, Long.MAX_VALUE, b -> b.length, budget);
+
+        cache1.put("a", new byte[800]);
+        cache2.put("b", new byte[800]);
+        assertEquals(1600, budget.getUsed());
+        assertFalse(budget.isExceeded());
+        cache1.put("c", new byte[800]);
+
+        // The globally least recently used entry,  in cache1, is evicted
+        assertFalse(cache1.containsKey("a"));
+        assertTrue(cache1.containsKey("c"));
+        assertTrue(cache2.containsKey("b"));
+        assertEquals(1600, budget.getUsed());
+
+        cache2.remove("b");
+        assertEquals(800, budget.getUsed());
+        assertFalse(budget.isExceeded());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+
+        final LRUCache<Integer, Integer> cache = new LRUCache<>(50);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    int key = (i * 31 + seed) % 200;
+                    Integer value = cache.get(key);
+                    if (value == null) {
+                        cache.put(key, key);
+                    } else {
+                        assertEquals(key, value.intValue());
+                    }
+                }
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        executor.shutdown();
+
+        assertTrue(cache.size() <= 50);
+        assertEquals(cache.size(), cache.keySet().size());
+    }
+}
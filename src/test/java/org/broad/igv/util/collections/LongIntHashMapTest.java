@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.collections;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void testAgainstHashMap() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<Long, Integer>();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 100000; i++) {
+            int start = random.nextInt(50000);
+            long key = LongIntHashMap.pack(start, start + random.nextInt(20));
+            int value = random.nextInt();
+            assertEquals(expected.containsKey(key) ? expected.get(key) : -1, map.put(key, value));
+            expected.put(key, value);
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertTrue(map.containsKey(entry.getKey()));
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+        }
+        assertFalse(map.containsKey(LongIntHashMap.pack(60000, 1)));
+        assertEquals(-1, map.get(LongIntHashMap.pack(60000, 1)));
+
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+        long[] expectedKeys = new long[expected.size()];
+        int n = 0;
+        for (Long k : expected.keySet()) expectedKeys[n++] = k;
+        Arrays.sort(expectedKeys);
+        assertArrayEquals(expectedKeys, keys);
+    }
+
+    @Test
+    public void testPack() {
+        long key = LongIntHashMap.pack(-5, -7);
+        assertEquals(-5, LongIntHashMap.high(key));
+        assertEquals(-7, LongIntHashMap.low(key));
+        key = LongIntHashMap.pack(Integer.MAX_VALUE, 3);
+        assertEquals(Integer.MAX_VALUE, LongIntHashMap.high(key));
+        assertEquals(3, LongIntHashMap.low(key));
+    }
+
+    @Test
+    public void testPutIfAbsentAndMinValueKey() {
+        LongIntHashMap map = new LongIntHashMap(16, 0);
+        assertEquals(0, map.get(Long.MIN_VALUE));
+        assertEquals(7, map.putIfAbsent(Long.MIN_VALUE, 7));
+        assertEquals(7, map.putIfAbsent(Long.MIN_VALUE, 8));
+        assertEquals(3, map.putIfAbsent(100L, 3));
+        assertEquals(3, map.putIfAbsent(100L, 4));
+        assertEquals(2, map.size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(Long.MIN_VALUE));
+        assertFalse(map.containsKey(100L));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.collections;
+
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.RuntimeIOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SortingCollectionTest {
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    @Test
+    public void testSerialSort() throws Exception {
+        sortAndCompare(1, false, 128);
+    }
+
+    @Test
+    public void testParallelCompressedMultiPassSort() throws Exception {
+        sortAndCompare(4, true, 3);
+        // Intermediate merge files are removed as well as the final spills
+        assertEquals(0, tmpDir.getRoot().listFiles().length);
+    }
+
+    /**
+     * Records waiting to be spilled count against maxRecordsInRam,  however many threads spill them
+     */
+    @Test
+    public void testParallelMemoryBound() throws Exception {
+
+        final AtomicInteger encoded = new AtomicInteger();
+        SortingCollection<int[]> cltn = SortingCollection.newInstance(int[].class, new CountingCodec(encoded),
+                KEY_COMPARATOR, 1000, tmpDir.getRoot());
+        cltn.setThreads(4);
+
+        Random random = new Random(7);
+        for (int i = 0; i < 25000; i++) {
+            cltn.add(new int[]{random.nextInt(500), i});
+            assertTrue(i + 1 - encoded.get() <= 1000);
+        }
+        cltn.doneAdding();
+        cltn.cleanup();
+    }
+
+    private void sortAndCompare(int threads, boolean compress, int maxOpenFiles) throws IOException {
+
+        Random random = new Random(7);
+        List<int[]> expected = new ArrayList<int[]>();
+        SortingCollection<int[]> cltn = SortingCollection.newInstance(int[].class, new PairCodec(),
+                KEY_COMPARATOR, 1000, tmpDir.getRoot());
+        cltn.setThreads(threads);
+        cltn.setCompressSpills(compress);
+        cltn.setMaxOpenFiles(maxOpenFiles);
+
+        // Few distinct keys,  so stability for equal keys is tested too
+        for (int i = 0; i < 25000; i++) {
+            int[] record = {random.nextInt(500), i};
+            expected.add(record);
+            cltn.add(record);
+        }
+        Collections.sort(expected, KEY_COMPARATOR);
+
+        CloseableIterator<int[]> iter = cltn.iterator();
+        int n = 0;
+        while (iter.hasNext()) {
+            int[] record = iter.next();
+            assertEquals(expected.get(n)[0], record[0]);
+            assertEquals(expected.get(n)[1], record[1]);
+            n++;
+        }
+        iter.close();
+        cltn.cleanup();
+        assertEquals(expected.size(), n);
+    }
+
+    private static final Comparator<int[]> KEY_COMPARATOR = new Comparator<int[]>() {
+        public int compare(int[] o1, int[] o2) {
+            return Integer.compare(o1[0], o2[0]);
+        }
+    };
+
+    static class PairCodec implements SortingCollection.Codec<int[]> {
+
+        DataOutputStream os;
+        DataInputStream is;
+
+        public void setOutputStream(OutputStream os) {
+            this.os = new DataOutputStream(os);
+        }
+
+        public void setInputStream(InputStream is) {
+            this.is = new DataInputStream(is);
+        }
+
+        public void encode(int[] val) {
+            try {
+                os.writeInt(val[0]);
+                os.writeInt(val[1]);
+            } catch (IOException e) {
+                throw new RuntimeIOException(e);
+            }
+        }
+
+        public int[] decode() {
+            try {
+                return new int[]{is.readInt(), is.readInt()};
+            } catch (EOFException e) {
+                return null;
+            } catch (IOException e) {
+                throw new RuntimeIOException(e);
+            }
+        }
+
+        public SortingCollection.Codec<int[]> clone() {
+            return new PairCodec();
+        }
+    }
+
+    static class CountingCodec extends PairCodec {
+
+        final AtomicInteger encoded;
+
+        CountingCodec(AtomicInteger encoded) {
+            this.encoded = encoded;
+        }
+
+        public void encode(int[] val) {
+            super.encode(val);
+            encoded.incrementAndGet();
+        }
+
+        public SortingCollection.Codec<int[]> clone() {
+            return new CountingCodec(encoded);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class MappedFileSeekableStreamTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testSeekAndRead() throws Exception {
+
+        byte[] data = createData(100000);
+        File file = writeFile(data);
+
+        MappedFileSeekableStream stream = new MappedFileSeekableStream(file);
+        assertEquals(data.length, stream.length());
+
+        byte[] buffer = new byte[1000];
+        stream.seek(5000);
+        stream.readFully(buffer);
+        assertArrayEquals(Arrays.copyOfRange(data, 5000, 6000), buffer);
+        assertEquals(6000, stream.position());
+        assertEquals(data[6000] & 0xFF, stream.read());
+
+        stream.seek(99500);
+        assertEquals(500, stream.read(buffer, 0, 1000));
+        assertTrue(stream.eof());
+        assertEquals(-1, stream.read(buffer, 0, 1000));
+        assertEquals(-1, stream.read());
+    }
+
+    @Test
+    public void testConcurrentPositionalReads() throws Exception {
+
+        final byte[] data = createData(1000000);
+        final MappedFileSeekableStream stream = new MappedFileSeekableStream(writeFile(data));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            futures.add(executor.submit(() -> {
+                byte[] buffer = new byte[777];
+                for (int i = 0; i < 1000; i++) {
+                    int pos = (i * 7919 + seed * 104729) % (data.length - buffer.length);
+                    stream.read(pos, buffer, 0, buffer.length);
+                    if (!Arrays.equals(Arrays.copyOfRange(data, pos, pos + buffer.length), buffer)) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+        }
+        for (Future<Boolean> f : futures) {
+            assertTrue(f.get());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRemapOnChange() throws Exception {
+
+        File file = writeFile(createData(1000));
+        MappedFileSeekableStream stream = new MappedFileSeekableStream(file);
+        assertEquals(1000, stream.length());
+
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(createData(2000));
+        }
+        assertEquals(2000, new MappedFileSeekableStream(file).length());
+    }
+
+    @Test
+    public void testStaleEntriesRemoved() throws Exception {
+
+        // Mappings still referenced by other tests may remain
+        int before = MappedFileSeekableStream.getMappedFileCount();
+        for (int i = 0; i < 10; i++) {
+            new MappedFileSeekableStream(writeFile(createData(100)));
+        }
+        File file = writeFile(createData(100));
+        MappedFileSeekableStream stream = null;
+        for (int i = 0; i < 20 && MappedFileSeekableStream.getMappedFileCount() > before + 1; i++) {
+            System.gc();
+            Thread.sleep(50);
+            stream = new MappedFileSeekableStream(file);
+        }
+        assertNotNull(stream);
+        assertTrue(MappedFileSeekableStream.getMappedFileCount() <= before + 1);
+    }
+
+    private File writeFile(byte[] data) throws Exception {
+        File file = tmp.newFile();
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(data);
+        }
+        return file;
+    }
+
+    private static byte[] createData(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 13 + (i >> 9));
+        }
+        return data;
+    }
+}
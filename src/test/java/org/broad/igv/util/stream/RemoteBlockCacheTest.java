@@ -0,0 +1,298 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2007-2015 Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.broad.igv.util.stream;
+
+import com.sun.net.httpserver.HttpServer;
+import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.util.HttpUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RemoteBlockCacheTest extends AbstractHeadlessTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    static final String URL = "http://example.org/test.bin";
+
+    @Test
+    public void testCoalescedReads() throws Exception {
+
+        byte[] data = createData(300000);
+        List<long[]> requests = new ArrayList<>();
+        RemoteBlockCache.RangeFetcher fetcher = fetcherFor(data, requests, null);
+
+        RemoteBlockCache cache = new RemoteBlockCache(10000000, null);
+        byte[] buffer = new byte[150000];
+
+        // Spans 3 blocks, fetched with one request
+        int n = cache.read(URL, 10000, buffer, 0, 150000, fetcher);
+        assertEquals(150000, n);
+        assertArrayEquals(Arrays.copyOfRange(data, 10000, 160000), buffer);
+        assertEquals(1, requests.size());
+
+        // Cached
+        n = cache.read(URL, 20000, buffer, 0, 100000, fetcher);
+        assertEquals(100000, n);
+        assertEquals(1, requests.size());
+
+        // Read past the end of the file fetches only the missing blocks, in one request
+        n = cache.read(URL, 250000, buffer, 0, 100000, fetcher);
+        assertEquals(50000, n);
+        assertArrayEquals(Arrays.copyOfRange(data, 250000, 300000), Arrays.copyOf(buffer, n));
+        assertEquals(2, requests.size());
+        assertEquals(3 * RemoteBlockCache.BLOCK_SIZE, requests.get(1)[0]);
+
+        assertEquals(-1, cache.read(URL, 300000, buffer, 0, 100, fetcher));
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    public void testDiskPersistence() throws Exception {
+
+        byte[] data = createData(100000);
+        List<long[]> requests = new ArrayList<>();
+        File dir = tmp.newFolder("blocks");
+        byte[] buffer = new byte[1000];
+
+        RemoteBlockCache first = new RemoteBlockCache(10000000, dir);
+        first.read(URL, 70000, buffer, 0, 1000, fetcherFor(data, requests, "v1"));
+        first.read(URL, 10000, buffer, 0, 1000, fetcherFor(data, requests, "v1"));
+        assertEquals(2, requests.size());
+
+        // A new cache,  as in a new session,  validates the url with its first request,  then reads blocks from disk
+        RemoteBlockCache cache = new RemoteBlockCache(10000000, dir);
+        assertEquals(1000, cache.read(URL, 70000, buffer, 0, 1000, fetcherFor(data, requests, "v1")));
+        assertEquals(3, requests.size());
+        assertEquals(1000, cache.read(URL, 10000, buffer, 0, 1000, fetcherFor(data, requests, "v1")));
+        assertEquals(3, requests.size());
+        assertArrayEquals(Arrays.copyOfRange(data, 10000, 11000), buffer);
+    }
+
+    @Test
+    public void testTruncatedResponse() throws Exception {
+
+        byte[] data = createData(100000);
+        List<long[]> requests = new ArrayList<>();
+        byte[] buffer = new byte[1000];
+
+        // A response cut short before the known end of file is retried
+        RemoteBlockCache cache = new RemoteBlockCache(10000000, null);
+        assertEquals(1000, cache.read(URL, 70000, buffer, 0, 1000, truncatingFetcher(data, requests, 1, true)));
+        assertArrayEquals(Arrays.copyOfRange(data, 70000, 71000), buffer);
+        assertEquals(2, requests.size());
+        cache.read(URL, 70000, buffer, 0, 1000, truncatingFetcher(data, requests, 0, true));
+        assertEquals(2, requests.size());
+
+        // A response that stays short fails,  and caches nothing
+        cache = new RemoteBlockCache(10000000, null);
+        try {
+            cache.read(URL, 70000, buffer, 0, 1000, truncatingFetcher(data, requests, 2, true));
+            fail("Expected a short read to fail");
+        } catch (IOException e) {
+            // Expected
+        }
+        assertEquals(1000, cache.read(URL, 70000, buffer, 0, 1000, truncatingFetcher(data, requests, 0, true)));
+        assertArrayEquals(Arrays.copyOfRange(data, 70000, 71000), buffer);
+
+        // Without a known length a short block can't be told from the end of file,  it is returned but not cached
+        cache = new RemoteBlockCache(10000000, null);
+        requests.clear();
+        cache.read(URL, 70000, buffer, 0, 1000, truncatingFetcher(data, requests, 1, false));
+        cache.read(URL, 70000, buffer, 0, 1000, truncatingFetcher(data, requests, 0, false));
+        assertEquals(2, requests.size());
+        assertArrayEquals(Arrays.copyOfRange(data, 70000, 71000), buffer);
+    }
+
+    @Test
+    public void testPruneDirectory() throws Exception {
+
+        File dir = tmp.newFolder("blocks");
+        long now = System.currentTimeMillis();
+        File[] blockFiles = new File[4];
+        for (int i = 0; i < blockFiles.length; i++) {
+            blockFiles[i] = new File(dir, "url_" + i);
+            Files.write(blockFiles[i].toPath(), new byte[1000]);
+            blockFiles[i].setLastModified(now - (blockFiles.length - i) * 60000L);   // Block 0 is least recent
+        }
+        File validator = new File(dir, "url.validator");
+        Files.write(validator.toPath(), "v1".getBytes());
+        File partial = new File(dir, "url_9.tmp");
+        Files.write(partial.toPath(), new byte[10]);
+
+        RemoteBlockCache.pruneDirectory(dir, 2500);
+
+        assertFalse(blockFiles[0].exists());
+        assertFalse(blockFiles[1].exists());
+        assertTrue(blockFiles[2].exists());
+        assertTrue(blockFiles[3].exists());
+        assertTrue(validator.exists());
+        assertFalse(partial.exists());
+    }
+
+    @Test
+    public void testValidatorChange() throws Exception {
+
+        byte[] data = createData(100000);
+        byte[] newData = Arrays.copyOf(data, data.length);
+        Arrays.fill(newData, 70000, 71000, (byte) 1);
+        List<long[]> requests = new ArrayList<>();
+        File dir = tmp.newFolder("blocks");
+        byte[] buffer = new byte[1000];
+
+        new RemoteBlockCache(10000000, dir).read(URL, 70000, buffer, 0, 1000, fetcherFor(data, requests, "v1"));
+        assertEquals(1, requests.size());
+
+        // The resource has changed since the blocks were cached
+        RemoteBlockCache cache = new RemoteBlockCache(10000000, dir);
+        assertEquals(1000, cache.read(URL, 70000, buffer, 0, 1000, fetcherFor(newData, requests, "v2")));
+        assertEquals(2, requests.size());
+        assertArrayEquals(Arrays.copyOfRange(newData, 70000, 71000), buffer);
+
+        // Blocks of a resource without a validator are not persisted
+        new RemoteBlockCache(10000000, dir).read(URL, 70000, buffer, 0, 1000, fetcherFor(data, requests, null));
+        assertEquals(3, requests.size());
+        new RemoteBlockCache(10000000, dir).read(URL, 70000, buffer, 0, 1000, fetcherFor(data, requests, "v1"));
+        assertEquals(4, requests.size());
+        assertArrayEquals(Arrays.copyOfRange(data, 70000, 71000), buffer);
+    }
+
+    @Test
+    public void testHttpStream() throws Exception {
+
+        final byte[] data = createData(200000);
+        final AtomicInteger requestCount = new AtomicInteger();
+
+        // Local stand-in for a remote server supporting range requests
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/test.bin", exchange -> {
+            assertEquals("GET", exchange.getRequestMethod());   // The validator comes with the range response
+            requestCount.incrementAndGet();
+            String range = exchange.getRequestHeaders().getFirst("Range").substring("bytes=".length());
+            int start = Integer.parseInt(range.substring(0, range.indexOf('-')));
+            int end = Math.min(data.length - 1, Integer.parseInt(range.substring(range.indexOf('-') + 1)));
+            if (start >= data.length) {
+                exchange.sendResponseHeaders(416, -1);
+            } else {
+                exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                exchange.sendResponseHeaders(206, end - start + 1);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(data, start, end - start + 1);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/test.bin";
+            RemoteBlockCache.getInstance().clear();
+
+            byte[] buffer = new byte[5000];
+            for (int i = 0; i < 2; i++) {
+                IGVSeekableHTTPStream stream = new IGVSeekableHTTPStream(HttpUtils.createURL(url));
+                stream.seek(120000);
+                stream.readFully(buffer);
+                assertArrayEquals(Arrays.copyOfRange(data, 120000, 125000), buffer);
+                stream.close();
+            }
+            assertEquals(1, requestCount.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static byte[] createData(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 7 + (i >> 8));
+        }
+        return data;
+    }
+
+    private static RemoteBlockCache.RangeFetcher fetcherFor(byte[] data, List<long[]> requests, String validator) {
+        return new RemoteBlockCache.RangeFetcher() {
+            @Override
+            public int fetch(long position, byte[] buffer, int offset, int len) {
+                requests.add(new long[]{position, len});
+                if (position >= data.length) return -1;
+                int n = (int) Math.min(len, data.length - position);
+                System.arraycopy(data, (int) position, buffer, offset, n);
+                return n;
+            }
+
+            @Override
+            public String getValidator() {
+                return validator;
+            }
+
+            @Override
+            public long getContentLength() {
+                return data.length;
+            }
+        };
+    }
+
+    /**
+     * A fetcher whose first {@code truncated} responses are cut short,  as by a dropped connection.
+     */
+    private static RemoteBlockCache.RangeFetcher truncatingFetcher(byte[] data, List<long[]> requests, int truncated,
+                                                                   boolean knownLength) {
+        RemoteBlockCache.RangeFetcher fetcher = fetcherFor(data, requests, "v1");
+        AtomicInteger remaining = new AtomicInteger(truncated);
+        return new RemoteBlockCache.RangeFetcher() {
+            @Override
+            public int fetch(long position, byte[] buffer, int offset, int len) throws IOException {
+                int n = fetcher.fetch(position, buffer, offset, len);
+                return remaining.getAndDecrement() > 0 ? n / 2 : n;
+            }
+
+            @Override
+            public String getValidator() {
+                return "v1";
+            }
+
+            @Override
+            public long getContentLength() {
+                return knownLength ? data.length : -1;
+            }
+        };
+    }
+}
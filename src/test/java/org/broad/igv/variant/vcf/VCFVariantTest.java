@@ -26,13 +26,23 @@
 package org.broad.igv.variant.vcf;
 
 import org.broad.igv.AbstractHeadlessTest;
+import org.broad.igv.feature.tribble.VCFWrapperCodec;
 import org.broad.igv.track.TribbleFeatureSource;
 import org.broad.igv.util.ResourceLocator;
 import org.broad.igv.util.TestUtils;
+import htsjdk.tribble.readers.LineIterator;
+import htsjdk.tribble.readers.LineIteratorImpl;
+import htsjdk.tribble.readers.SynchronousLineReader;
+import htsjdk.variant.variantcontext.GenotypeType;
 import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
 import org.junit.Test;
 
-import static org.junit.Assert.assertEquals;
+import java.io.FileInputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
 
 /**
  * The testXXXStart methods exist because we offset the start position based on the
@@ -95,4 +105,70 @@ public class VCFVariantTest extends AbstractHeadlessTest {
         assertEquals(expFeatStart, variant.getStart());
         return variant;
     }
+
+    @Test
+    public void testParseGenotypeTypes() throws Exception {
+        String data = "GT:DP\t0/0:3\t0|1:4\t1/1\t./.:1\t./1\t.\t2/2\t1/2";
+        GenotypeType[] expected = {GenotypeType.HOM_REF, GenotypeType.HET, GenotypeType.HOM_VAR, GenotypeType.NO_CALL,
+                GenotypeType.MIXED, GenotypeType.NO_CALL, GenotypeType.HOM_VAR, GenotypeType.HET};
+        byte[] types = VCFVariant.parseGenotypeTypes(data, expected.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].ordinal(), types[i]);
+        }
+
+        // GT not first,  trailing fields dropped
+        types = VCFVariant.parseGenotypeTypes("DP:GT\t3:0/1\t4", 2);
+        assertEquals(GenotypeType.HET.ordinal(), types[0]);
+        assertEquals(GenotypeType.NO_CALL.ordinal(), types[1]);
+
+        types = VCFVariant.parseGenotypeTypes("DP\t3\t4", 2);
+        assertEquals(GenotypeType.UNAVAILABLE.ordinal(), types[0]);
+        assertEquals(GenotypeType.UNAVAILABLE.ordinal(), types[1]);
+
+        // Unparsable or missing columns are left to htsjdk
+        assertNull(VCFVariant.parseGenotypeTypes("GT\tA/C", 1));
+        assertNull(VCFVariant.parseGenotypeTypes("GT\t0/1", 2));
+    }
+
+    /**
+     * Genotype types scanned from the raw columns,  and genotypes decoded on demand,  should match a full htsjdk
+     * decode.  SRP32_v4.0.vcf and example4-last-gsnap-2_fixed.vcf have samples out of sorted order.
+     */
+    @Test
+    public void testLazyGenotypes() throws Exception {
+        String[] files = {"ex2.vcf", "SRP32_v4.0.vcf", "example4-last-gsnap-2_fixed.vcf", "multi_allele_freqs.vcf"};
+        for (String file : files) {
+            tstLazyGenotypes(TestUtils.DATA_DIR + "vcf/" + file);
+        }
+    }
+
+    private void tstLazyGenotypes(String path) throws Exception {
+
+        VCFWrapperCodec codec = new VCFWrapperCodec(new VCFCodec(), null);
+        VCFCodec expectedCodec = new VCFCodec();
+
+        LineIterator lines = new LineIteratorImpl(new SynchronousLineReader(new FileInputStream(path)));
+        codec.readActualHeader(lines);
+        VCFHeader header = (VCFHeader) expectedCodec.readActualHeader(
+                new LineIteratorImpl(new SynchronousLineReader(new FileInputStream(path))));
+        List<String> samples = header.getGenotypeSamples();
+
+        int count = 0;
+        while (lines.hasNext()) {
+            String line = lines.next();
+            VCFVariant variant = codec.decode(line);
+            VariantContext expected = expectedCodec.decode(line);
+
+            assertEquals(samples, variant.getSampleNames());
+            for (String sample : samples) {
+                htsjdk.variant.variantcontext.Genotype expectedGenotype = expected.getGenotype(sample);
+                assertEquals(path + " " + line, expectedGenotype.getType(), variant.getGenotypeType(sample));
+                assertEquals(expectedGenotype.getGenotypeString(), variant.getGenotype(sample).getGenotypeString());
+            }
+            assertNull(variant.getGenotypeType("not a sample"));
+            assertNull(variant.getGenotype("not a sample"));
+            count++;
+        }
+        assertTrue(count > 0);
+    }
 }